@@ -0,0 +1,61 @@
+package com.example.photomanager.benchmarks;
+
+import com.example.photomanager.model.Album;
+import com.example.photomanager.model.Photo;
+import com.example.photomanager.model.Tag;
+import com.example.photomanager.model.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic library fixtures for the benchmarks.
+ */
+final class BenchmarkLibrary {
+    static final String[] TAG_NAMES = {"location", "person", "event", "camera", "rating"};
+    static final int TAG_VALUES = 50;
+    static final long START = 1_400_000_000_000L;
+    static final long SPAN = 10L * 365 * 24 * 60 * 60 * 1000;
+
+    private BenchmarkLibrary() {
+    }
+
+    /**
+     * Builds a user with the given number of albums, photos per album and tags per photo.
+     * A tenth of the photos of every album also appear in the next album.
+     */
+    static User build(String username, int albums, int photosPerAlbum, int tagsPerPhoto, long seed) {
+        Random random = new Random(seed);
+        User user = new User(username, username, false);
+        Album previous = null;
+        for (int a = 0; a < albums; a++) {
+            Album album = user.createAlbum("album" + a);
+            List<Photo> shared = previous == null ? Collections.emptyList() : new ArrayList<>(previous.getPhotos());
+            for (int p = 0; p < photosPerAlbum; p++) {
+                if (!shared.isEmpty() && p % 10 == 0) {
+                    album.addPhoto(shared.get(random.nextInt(shared.size())));
+                } else {
+                    album.addPhoto(newPhoto(username + "/" + a + "/" + p, tagsPerPhoto, random));
+                }
+            }
+            previous = album;
+        }
+        return user;
+    }
+
+    static Photo newPhoto(String path, int tagsPerPhoto, Random random) {
+        List<Tag> tags = new ArrayList<>(tagsPerPhoto);
+        for (int t = 0; t < tagsPerPhoto; t++) {
+            tags.add(randomTag(random, t));
+        }
+        Date taken = new Date(START + (long) (random.nextDouble() * SPAN));
+        return new Photo("/photos/" + path + ".jpg", "", taken, tags);
+    }
+
+    static Tag randomTag(Random random, int nameIndex) {
+        return new Tag(TAG_NAMES[nameIndex % TAG_NAMES.length], "v" + random.nextInt(TAG_VALUES));
+    }
+}
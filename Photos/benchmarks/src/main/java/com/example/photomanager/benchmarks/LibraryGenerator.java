@@ -0,0 +1,183 @@
+package com.example.photomanager.benchmarks;
+
+import com.example.photomanager.model.Album;
+import com.example.photomanager.model.Photo;
+import com.example.photomanager.model.Tag;
+import com.example.photomanager.model.User;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates synthetic User/Album/Photo/Tag graphs with production-like distributions:
+ * Zipfian tag values, capture dates clustered into bursty events, photos shared between
+ * albums, and optionally tiny placeholder image files on disk.
+ */
+public class LibraryGenerator {
+    private static final String[] TAG_NAMES = {"location", "person", "event", "camera", "rating", "album-source", "mood"};
+
+    private int albumsPerUser = 20;
+    private int photosPerUser = 5_000;
+    private int maxTagsPerPhoto = 6;
+    private int tagValuesPerName = 2_000;
+    private double tagSkew = 1.1;
+    private double sharedFraction = 0.15;
+    private int meanPhotosPerEvent = 40;
+    private long startMillis = 1_262_304_000_000L; // 2010-01-01
+    private int years = 12;
+    private File imageDirectory;
+    private long seed = 1;
+
+    public LibraryGenerator albumsPerUser(int albumsPerUser) {
+        this.albumsPerUser = albumsPerUser;
+        return this;
+    }
+
+    public LibraryGenerator photosPerUser(int photosPerUser) {
+        this.photosPerUser = photosPerUser;
+        return this;
+    }
+
+    public LibraryGenerator maxTagsPerPhoto(int maxTagsPerPhoto) {
+        this.maxTagsPerPhoto = maxTagsPerPhoto;
+        return this;
+    }
+
+    public LibraryGenerator tagValuesPerName(int tagValuesPerName) {
+        this.tagValuesPerName = tagValuesPerName;
+        return this;
+    }
+
+    /**
+     * @param tagSkew Zipf exponent of tag value popularity
+     * @return This generator
+     */
+    public LibraryGenerator tagSkew(double tagSkew) {
+        this.tagSkew = tagSkew;
+        return this;
+    }
+
+    /**
+     * @param sharedFraction Fraction of photos that also appear in a second album
+     * @return This generator
+     */
+    public LibraryGenerator sharedFraction(double sharedFraction) {
+        this.sharedFraction = sharedFraction;
+        return this;
+    }
+
+    public LibraryGenerator meanPhotosPerEvent(int meanPhotosPerEvent) {
+        this.meanPhotosPerEvent = meanPhotosPerEvent;
+        return this;
+    }
+
+    /**
+     * Writes a tiny placeholder PNG for every photo into the given directory.
+     * @param imageDirectory Target directory, or null for paths without files
+     * @return This generator
+     */
+    public LibraryGenerator imageDirectory(File imageDirectory) {
+        this.imageDirectory = imageDirectory;
+        return this;
+    }
+
+    public LibraryGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Generates a number of users.
+     * @param count Number of users, named user0, user1, ...
+     * @return The generated users (password equals username)
+     * @throws IOException If placeholder images cannot be written
+     */
+    public List<User> generateUsers(int count) throws IOException {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(generateUser("user" + i));
+        }
+        return users;
+    }
+
+    /**
+     * Generates one user's library.
+     * @param username Username (also used as password)
+     * @return The generated user
+     * @throws IOException If placeholder images cannot be written
+     */
+    public User generateUser(String username) throws IOException {
+        Random random = new Random(seed * 31 + username.hashCode());
+        ZipfSampler values = new ZipfSampler(tagValuesPerName, tagSkew);
+        User user = new User(username, username, false);
+        List<Album> albums = new ArrayList<>(albumsPerUser);
+        for (int a = 0; a < albumsPerUser; a++) {
+            albums.add(user.createAlbum("Album " + a));
+        }
+
+        long span = TimeUnit.DAYS.toMillis(365L * years);
+        int generated = 0;
+        while (generated < photosPerUser) {
+            // One event: a burst of photos within a few hours, mostly filed into a single album
+            long eventStart = startMillis + (long) (random.nextDouble() * span);
+            int burst = 1 + (int) (-Math.log(1 - random.nextDouble()) * meanPhotosPerEvent);
+            Album eventAlbum = albums.get(random.nextInt(albums.size()));
+            String eventName = "event" + values.next(random);
+
+            for (int p = 0; p < burst && generated < photosPerUser; p++, generated++) {
+                long taken = eventStart + (long) (random.nextDouble() * TimeUnit.HOURS.toMillis(4));
+                Photo photo = new Photo(photoPath(username, generated), captionFor(random, generated),
+                        new Date(taken), tagsFor(random, values, eventName));
+                eventAlbum.addPhoto(photo);
+                if (random.nextDouble() < sharedFraction) {
+                    albums.get(random.nextInt(albums.size())).addPhoto(photo);
+                }
+            }
+        }
+        return user;
+    }
+
+    private List<Tag> tagsFor(Random random, ZipfSampler values, String eventName) {
+        List<Tag> tags = new ArrayList<>();
+        tags.add(new Tag("event", eventName));
+        int extra = random.nextInt(Math.max(1, maxTagsPerPhoto));
+        for (int t = 0; t < extra; t++) {
+            String name = TAG_NAMES[random.nextInt(TAG_NAMES.length)];
+            Tag tag = new Tag(name, name + values.next(random));
+            if (!tags.contains(tag)) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    private static String captionFor(Random random, int index) {
+        return random.nextInt(4) == 0 ? "Photo " + index : "";
+    }
+
+    private String photoPath(String username, int index) throws IOException {
+        if (imageDirectory == null) {
+            return "/synthetic/" + username + "/IMG_" + index + ".png";
+        }
+        File file = new File(imageDirectory, username + File.separator + "IMG_" + index + ".png");
+        if (!file.exists()) {
+            file.getParentFile().mkdirs();
+            BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+            int rgb = Integer.rotateLeft(index * 0x9E3779B9, 7) & 0xFFFFFF;
+            for (int y = 0; y < 8; y++) {
+                for (int x = 0; x < 8; x++) {
+                    image.setRGB(x, y, rgb ^ (x * y * 0x10101));
+                }
+            }
+            ImageIO.write(image, "png", file);
+        }
+        return file.getAbsolutePath();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.photomanager.benchmarks;
+
+import com.example.photomanager.model.Album;
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.Photo;
+import com.example.photomanager.model.Tag;
+import com.example.photomanager.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the in-memory model: collecting all photos, adding photos and taking snapshots.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+    @Param({"10", "50"})
+    public int albums;
+
+    @Param({"100", "1000"})
+    public int photosPerAlbum;
+
+    @Param({"5"})
+    public int tagsPerPhoto;
+
+    private User user;
+    private Album target;
+    private Photo photo;
+    private Random random;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        user = BenchmarkLibrary.build("bench", albums, photosPerAlbum, tagsPerPhoto, 42);
+        random = new Random(7);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        // A random populated album each time, so addPhoto measures a scan of a realistically sized album
+        target = user.findAlbum("album" + random.nextInt(albums));
+        photo = BenchmarkLibrary.newPhoto("new/" + counter++, tagsPerPhoto, random);
+    }
+
+    @Benchmark
+    public List<Photo> getAllPhotos() {
+        return user.getAllPhotos();
+    }
+
+    @Benchmark
+    public boolean addPhoto() {
+        boolean added = target.addPhoto(photo);
+        target.removePhoto(photo);
+        return added;
+    }
+
+    @Benchmark
+    public LibrarySnapshot snapshotUnchanged() {
+        return user.snapshot();
+    }
+
+    @Benchmark
+    public LibrarySnapshot snapshotAfterTagEdit() {
+        Photo edited = target.getPhotos().get(0);
+        Tag tag = BenchmarkLibrary.randomTag(random, 0);
+        if (!edited.addTag(tag)) {
+            edited.removeTag(tag);
+        }
+        return user.snapshot();
+    }
+}
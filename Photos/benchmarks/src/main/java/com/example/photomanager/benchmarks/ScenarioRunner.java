@@ -0,0 +1,169 @@
+package com.example.photomanager.benchmarks;
+
+import com.example.photomanager.model.Album;
+import com.example.photomanager.model.AlbumSnapshot;
+import com.example.photomanager.model.DatabaseBackend;
+import com.example.photomanager.model.InMemoryBackend;
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.Photo;
+import com.example.photomanager.model.PhotoSearch;
+import com.example.photomanager.model.PhotoSnapshot;
+import com.example.photomanager.model.SerializedFileBackend;
+import com.example.photomanager.model.StorageBackend;
+import com.example.photomanager.model.StorageManager;
+import com.example.photomanager.model.Tag;
+import com.example.photomanager.model.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Replays user sessions headlessly against StorageManager and reports latency percentiles.
+ * Each session runs login, open album, tag a photo, search by that tag and save,
+ * the same sequence of model calls the controllers make.
+ *
+ * Usage: ScenarioRunner [backend=file|memory|database] [users] [photosPerUser] [sessions] [imageDir]
+ */
+public class ScenarioRunner {
+    private static final String[] STEPS = {"login", "openAlbum", "tag", "search", "save"};
+
+    private final Map<String, long[]> latencies = new LinkedHashMap<>();
+    private int recorded;
+    private long matches;
+
+    public static void main(String[] args) throws Exception {
+        String backendKind = args.length > 0 ? args[0] : "file";
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int photosPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        int sessions = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        File imageDir = args.length > 4 ? new File(args[4]) : null;
+
+        File directory = Files.createTempDirectory("photo-scenario").toFile();
+        StorageBackend backend = createBackend(backendKind, directory);
+        LibraryGenerator generator = new LibraryGenerator().photosPerUser(photosPerUser).imageDirectory(imageDir);
+
+        long start = System.nanoTime();
+        StorageManager storageManager = new StorageManager(backend);
+        for (User generated : generator.generateUsers(users)) {
+            User user = storageManager.createUser(generated.getUsername(), generated.getPassword());
+            for (Album album : generated.getAlbums()) {
+                Album copy = user.createAlbum(album.getName());
+                for (Photo photo : album.getPhotos()) {
+                    copy.addPhoto(photo);
+                }
+            }
+        }
+        storageManager.saveUsers();
+        StorageManager.flush();
+        System.out.printf("Generated %d users x %d photos on %s backend in %.1fs%n",
+                users, photosPerUser, backendKind, (System.nanoTime() - start) / 1e9);
+
+        ScenarioRunner runner = new ScenarioRunner(sessions);
+        // Reopen, as the application does on start
+        runner.run(new StorageManager(backend), users, sessions, new Random(11));
+        runner.report();
+        backend.close();
+    }
+
+    private static StorageBackend createBackend(String kind, File directory) throws IOException {
+        switch (kind) {
+            case "memory":
+                return new InMemoryBackend();
+            case "database":
+                return new DatabaseBackend(new File(directory, "library").getAbsolutePath());
+            default:
+                return new SerializedFileBackend(new File(directory, "users.dat"));
+        }
+    }
+
+    /**
+     * Constructor
+     * @param sessions Number of sessions that will be recorded
+     */
+    public ScenarioRunner(int sessions) {
+        for (String step : STEPS) {
+            latencies.put(step, new long[sessions]);
+        }
+    }
+
+    /**
+     * Replays sessions of randomly chosen users.
+     * @param storageManager The storage manager to run against
+     * @param users Number of generated users (user0 .. userN-1)
+     * @param sessions Number of sessions to replay
+     * @param random Source of randomness
+     */
+    public void run(StorageManager storageManager, int users, int sessions, Random random) {
+        for (int s = 0; s < sessions; s++) {
+            String username = "user" + random.nextInt(users);
+
+            long t0 = System.nanoTime();
+            User user = storageManager.findUser(username);
+            if (user == null || !user.getPassword().equals(username)) {
+                throw new IllegalStateException("Login failed for " + username);
+            }
+
+            long t1 = System.nanoTime();
+            List<Album> albums = user.getAlbums();
+            Album album = albums.get(random.nextInt(albums.size()));
+            AlbumSnapshot opened = album.snapshot();
+
+            long t2 = System.nanoTime();
+            Tag tag = new Tag("scenario", "s" + random.nextInt(20));
+            if (!opened.getPhotos().isEmpty()) {
+                Photo photo = opened.getPhotos().get(random.nextInt(opened.getPhotos().size())).getSource();
+                if (!photo.addTag(tag)) {
+                    photo.removeTag(tag);
+                }
+            }
+
+            long t3 = System.nanoTime();
+            LibrarySnapshot snapshot = user.snapshot();
+            List<PhotoSnapshot> results = PhotoSearch.byTag(snapshot.getAllPhotos(), tag.getName(), tag.getValue());
+
+            long t4 = System.nanoTime();
+            storageManager.saveUsers();
+            StorageManager.flush();
+            long t5 = System.nanoTime();
+
+            record(new long[]{t1 - t0, t2 - t1, t3 - t2, t4 - t3, t5 - t4});
+            matches += results.size();
+        }
+    }
+
+    private void record(long[] stepNanos) {
+        int i = 0;
+        for (long[] values : latencies.values()) {
+            values[recorded] = stepNanos[i++];
+        }
+        recorded++;
+    }
+
+    /**
+     * Prints p50, p90, p99 and max latency of every step in milliseconds.
+     */
+    public void report() {
+        System.out.printf("%d sessions, %d search matches%n", recorded, matches);
+        System.out.printf("%-10s %10s %10s %10s %10s%n", "step", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, long[]> entry : latencies.entrySet()) {
+            long[] sorted = Arrays.copyOf(entry.getValue(), recorded);
+            Arrays.sort(sorted);
+            System.out.printf("%-10s %10.3f %10.3f %10.3f %10.3f%n", entry.getKey(),
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.photomanager.benchmarks;
+
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.PhotoSearch;
+import com.example.photomanager.model.PhotoSnapshot;
+import com.example.photomanager.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the tag and date searches behind SearchController.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"10", "50"})
+    public int albums;
+
+    @Param({"100", "1000"})
+    public int photosPerAlbum;
+
+    @Param({"5"})
+    public int tagsPerPhoto;
+
+    private User user;
+    private List<PhotoSnapshot> photos;
+    private Date start;
+    private Date end;
+
+    @Setup
+    public void setUp() {
+        user = BenchmarkLibrary.build("bench", albums, photosPerAlbum, tagsPerPhoto, 42);
+        photos = user.snapshot().getAllPhotos();
+        // One year out of the ten covered by the fixture
+        start = new Date(BenchmarkLibrary.START + BenchmarkLibrary.SPAN / 2);
+        end = new Date(start.getTime() + BenchmarkLibrary.SPAN / 10);
+    }
+
+    @Benchmark
+    public List<PhotoSnapshot> singleTag() {
+        return PhotoSearch.byTag(photos, "location", "v7");
+    }
+
+    @Benchmark
+    public List<PhotoSnapshot> twoTagsAnd() {
+        return PhotoSearch.byTags(photos, "location", "v7", "person", "v3", PhotoSearch.AND);
+    }
+
+    @Benchmark
+    public List<PhotoSnapshot> twoTagsOr() {
+        return PhotoSearch.byTags(photos, "location", "v7", "person", "v3", PhotoSearch.OR);
+    }
+
+    @Benchmark
+    public List<PhotoSnapshot> dateRange() {
+        return PhotoSearch.byDateRange(photos, start, end);
+    }
+
+    @Benchmark
+    public List<PhotoSnapshot> snapshotAndSingleTag() {
+        LibrarySnapshot snapshot = user.snapshot();
+        return PhotoSearch.byTag(snapshot.getAllPhotos(), "location", "v7");
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.photomanager.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures cold start: launches the application repeatedly and reads the time from process start
+ * to the first frame of the login window, which the application prints and exits after when run
+ * with -DphotoManager.startup.exit=true. The first launch only warms the OS file cache and is not counted.
+ * Results are also written as JSON to target/startup-result.json, so runs of different releases can be diffed.
+ *
+ * Usage: StartupBenchmark [launcher] [runs]
+ * The launcher defaults to the runtime image built by "mvn -Pimage package" in the application module.
+ * Set PHOTO_MANAGER_OPTS=-Xshare:off to measure the image without its class-data-sharing archive.
+ */
+public class StartupBenchmark {
+    private static final Pattern FIRST_FRAME = Pattern.compile("startup\\.firstFrame=(\\d+)ms");
+
+    public static void main(String[] args) throws Exception {
+        String launcher = args.length > 0 ? args[0] : "../target/image/bin/photo-manager";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        launch(launcher);
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = launch(launcher);
+        }
+
+        Arrays.sort(millis);
+        System.out.printf("%d runs of %s%n", runs, launcher);
+        System.out.printf("%10s %10s %10s %10s%n", "min ms", "p50 ms", "p90 ms", "max ms");
+        System.out.printf("%10d %10d %10d %10d%n",
+                millis[0], percentile(millis, 50), percentile(millis, 90), millis[runs - 1]);
+
+        File result = new File("target/startup-result.json");
+        result.getParentFile().mkdirs();
+        try (PrintWriter out = new PrintWriter(result, StandardCharsets.UTF_8)) {
+            out.printf("{\"launcher\":\"%s\",\"runs\":%d,\"minMs\":%d,\"p50Ms\":%d,\"p90Ms\":%d,\"maxMs\":%d}%n",
+                    launcher.replace("\\", "\\\\"), runs, millis[0], percentile(millis, 50), percentile(millis, 90),
+                    millis[runs - 1]);
+        }
+    }
+
+    /**
+     * Starts the application once and waits for it to exit after its first frame
+     * @param launcher The launcher script or executable
+     * @return Time to first frame in milliseconds
+     */
+    private static long launch(String launcher) throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(launcher).redirectErrorStream(true);
+        String options = builder.environment().getOrDefault("PHOTO_MANAGER_OPTS", "");
+        builder.environment().put("PHOTO_MANAGER_OPTS", (options + " -DphotoManager.startup.exit=true").trim());
+        Process process = builder.start();
+
+        long millis = -1;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = FIRST_FRAME.matcher(line);
+                if (matcher.find()) {
+                    millis = Long.parseLong(matcher.group(1));
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (millis < 0) {
+            throw new IllegalStateException("No first frame reported, launcher exited with " + exitCode);
+        }
+        return millis;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.photomanager.benchmarks;
+
+import com.example.photomanager.model.DatabaseBackend;
+import com.example.photomanager.model.InMemoryBackend;
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.Photo;
+import com.example.photomanager.model.SerializedFileBackend;
+import com.example.photomanager.model.StorageBackend;
+import com.example.photomanager.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Load, save and query latency of every StorageBackend, which is what StorageManager's
+ * loadUsers and saveUsers spend their time in. Use the results to pick a backend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+    @Param({"file", "memory", "database"})
+    public String backendKind;
+
+    @Param({"10"})
+    public int users;
+
+    @Param({"10"})
+    public int albums;
+
+    @Param({"100", "1000"})
+    public int photosPerAlbum;
+
+    @Param({"5"})
+    public int tagsPerPhoto;
+
+    private File directory;
+    private StorageBackend backend;
+    private List<User> library;
+    private Photo edited;
+    private String queriedUser;
+    private int counter;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("photo-bench").toFile();
+        switch (backendKind) {
+            case "memory":
+                backend = new InMemoryBackend();
+                break;
+            case "database":
+                backend = new DatabaseBackend(new File(directory, "library").getAbsolutePath());
+                break;
+            default:
+                backend = new SerializedFileBackend(new File(directory, "users.dat"));
+                break;
+        }
+
+        library = new ArrayList<>();
+        for (int u = 0; u < users; u++) {
+            library.add(BenchmarkLibrary.build("user" + u, albums, photosPerAlbum, tagsPerPhoto, u));
+        }
+        queriedUser = "user" + (users - 1);
+        edited = library.get(0).findAlbum("album0").getPhotos().get(0);
+        backend.saveUsers(snapshots());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        backend.close();
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private List<LibrarySnapshot> snapshots() {
+        List<LibrarySnapshot> snapshots = new ArrayList<>(library.size());
+        for (User user : library) {
+            snapshots.add(user.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * The common case behind every controller action: one small edit followed by a save.
+     */
+    @Benchmark
+    public void saveAfterSingleEdit() throws IOException {
+        edited.setCaption("caption " + counter++);
+        backend.saveUsers(snapshots());
+    }
+
+    @Benchmark
+    public List<User> loadAll() throws IOException {
+        return backend.loadUsers();
+    }
+
+    @Benchmark
+    public List<String> queryByTag() throws IOException {
+        return backend.findPhotosByTag(queriedUser, "location", "v7");
+    }
+
+    @Benchmark
+    public List<String> queryByDate() throws IOException {
+        Date start = new Date(BenchmarkLibrary.START + BenchmarkLibrary.SPAN / 2);
+        return backend.findPhotosByDate(queriedUser, start, new Date(start.getTime() + BenchmarkLibrary.SPAN / 10));
+    }
+}
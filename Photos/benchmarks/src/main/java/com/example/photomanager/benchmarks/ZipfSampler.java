@@ -0,0 +1,33 @@
+package com.example.photomanager.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ranks 0..n-1 with Zipfian probabilities, rank 0 being the most frequent.
+ */
+final class ZipfSampler {
+    private final double[] cumulative;
+
+    /**
+     * Constructor
+     * @param n Number of distinct ranks
+     * @param exponent Skew; 0 is uniform, around 1 is typical for tag vocabularies
+     */
+    ZipfSampler(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    int next(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+    }
+}
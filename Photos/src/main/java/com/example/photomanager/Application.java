@@ -1,22 +1,55 @@
 package com.example.photomanager;
 
-import javafx.fxml.FXMLLoader;
+import com.example.photomanager.controller.Navigator;
+import com.example.photomanager.jfr.FlightRecording;
+import com.example.photomanager.metrics.Metrics;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 
+/**
+ * Desktop entry point.
+ * With -DphotoManager.startup.exit=true the application prints the time from process start to the
+ * first frame of the login window and exits; this is used for the class-data-sharing training run
+ * of the runtime image and by the startup benchmark.
+ */
 public class Application extends javafx.application.Application {
     @Override
     public void start(Stage stage) throws IOException {
-        FXMLLoader fxmlLoader = new FXMLLoader(Application.class.getResource("login.fxml"));
-        Scene scene = new Scene(fxmlLoader.load(), 320, 240);
-        stage.setTitle("Photo Manager - Login");
-        stage.setScene(scene);
-        stage.show();
+        Navigator.of(stage).show(Navigator.LOGIN, "Photo Manager - Login", 320, 240);
+        reportFirstFrame(stage.getScene());
+    }
+
+    /**
+     * Records the time to the first layout pulse of the scene, i.e. the first frame drawn
+     * @param scene The first scene shown
+     */
+    private static void reportFirstFrame(Scene scene) {
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                Instant started = ProcessHandle.current().info().startInstant().orElse(null);
+                if (started == null) {
+                    return;
+                }
+                long millis = Duration.between(started, Instant.now()).toMillis();
+                Metrics.histogram("ui.startup.firstFrame").record(millis * 1_000_000);
+                if (Boolean.getBoolean("photoManager.startup.exit")) {
+                    System.out.println("startup.firstFrame=" + millis + "ms");
+                    Platform.exit();
+                }
+            }
+        };
+        scene.addPostLayoutPulseListener(listener);
     }
 
     public static void main(String[] args) {
+        FlightRecording.startIfConfigured();
         launch();
     }
 }
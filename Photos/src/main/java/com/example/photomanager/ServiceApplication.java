@@ -0,0 +1,46 @@
+package com.example.photomanager;
+
+import com.example.photomanager.jfr.FlightRecording;
+import com.example.photomanager.model.StorageBackend;
+import com.example.photomanager.model.StorageManager;
+import com.example.photomanager.replication.ChangeJournal;
+import com.example.photomanager.replication.ReplicatingBackend;
+import com.example.photomanager.replication.ReplicationServer;
+import com.example.photomanager.service.HttpApiServer;
+import com.example.photomanager.service.LibraryService;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Headless entry point that serves the photo library over a local HTTP/JSON API.
+ * Usage: ServiceApplication [port] [workerThreads]
+ * With -DphotoManager.replication.port=N the service also streams its changes to followers
+ * (see {@link com.example.photomanager.replication.FollowerStore}) on that port.
+ */
+public class ServiceApplication {
+    public static void main(String[] args) throws IOException {
+        FlightRecording.startIfConfigured();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 4;
+
+        StorageBackend backend = StorageManager.createDefaultBackend();
+        String replicationPort = System.getProperty("photoManager.replication.port");
+        if (replicationPort != null) {
+            ChangeJournal journal = new ChangeJournal(new File(StorageManager.getStorageDirectory(), "changes.journal"));
+            backend = new ReplicatingBackend(backend, journal);
+            ReplicationServer replication = new ReplicationServer(journal, Integer.parseInt(replicationPort));
+            System.out.println("Streaming changes to followers on port " + replication.getPort());
+        }
+
+        LibraryService service = new LibraryService(new StorageManager(backend));
+        service.watchExternalChanges(1000);
+        HttpApiServer server = new HttpApiServer(service, port, threads);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(2);
+            StorageManager.flush();
+        }));
+        server.start();
+        System.out.println("Photo Manager service listening on http://127.0.0.1:" + server.getPort() + "/api");
+    }
+}
@@ -1,15 +1,11 @@
 package com.example.photomanager.controller;
 
-import com.example.photomanager.Application;
 import com.example.photomanager.model.StorageManager;
 import com.example.photomanager.model.User;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ListView;
@@ -62,7 +58,7 @@ public class AdminController {
      * Refreshes the user list view with the latest user data
      * Appends [Admin] label to administrator accounts for distinction
      */
-    private void refreshUserList() {
+    void refreshUserList() {
         userNames.clear();
         List<User> users = storageManager.getAllUsers();
         for (User user : users) {
@@ -141,14 +137,9 @@ public class AdminController {
     @FXML
     public void handleLogout(ActionEvent event) {
         try {
-            Stage stage = (Stage) logoutMenuItem.getParentPopup().getOwnerWindow();
-            FXMLLoader loader = new FXMLLoader(Application.class.getResource("login.fxml"));
-            Parent root = loader.load();
-
-            Scene scene = new Scene(root, 400, 300);
-            stage.setScene(scene);
-            stage.setTitle("Photo Manager - Login");
-            stage.show();
+            Navigator navigator = Navigator.of(logoutMenuItem.getParentPopup().getOwnerWindow());
+            navigator.endSession();
+            navigator.show(Navigator.LOGIN, "Photo Manager - Login", 400, 300);
         } catch (IOException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to logout");
@@ -1,20 +1,40 @@
 package com.example.photomanager.controller;
 
 import com.example.photomanager.Application;
+import com.example.photomanager.image.ExifGps;
+import com.example.photomanager.image.ImageLoader;
+import com.example.photomanager.image.VisualFeatures;
+import com.example.photomanager.jfr.AlbumOpenEvent;
+import com.example.photomanager.jfr.ImportBatchEvent;
+import com.example.photomanager.metrics.Counter;
+import com.example.photomanager.metrics.LatencyHistogram;
+import com.example.photomanager.metrics.Metrics;
 import com.example.photomanager.model.Album;
+import com.example.photomanager.model.AlbumSnapshot;
+import com.example.photomanager.model.GeoIndex;
+import com.example.photomanager.model.ModelChange;
+import com.example.photomanager.model.ModelChangeListener;
+import com.example.photomanager.model.ModelChanges;
 import com.example.photomanager.model.Photo;
+import com.example.photomanager.model.PhotoBatch;
+import com.example.photomanager.model.SimilarityIndex;
+import com.example.photomanager.model.Tag;
 import com.example.photomanager.model.StorageManager;
+import com.example.photomanager.model.TagSchema;
 import com.example.photomanager.model.User;
+import com.example.photomanager.task.TaskGroup;
+import com.example.photomanager.task.TaskScheduler;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
+import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.TilePane;
 import javafx.stage.FileChooser;
@@ -22,12 +42,26 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Album Controller handling the logic for the album interface
+ * The photo tiles follow model changes, so an edit only adds, removes or updates the tiles it affects
+ * Several photos can be selected with shortcut- or shift-click; edits then apply to all of them at once
  */
-public class AlbumController {
+public class AlbumController implements ModelChangeListener, Navigator.SessionView {
+    private static final LatencyHistogram IMPORT_TIME = Metrics.histogram("import.batch");
+    private static final Counter IMPORTED_PHOTOS = Metrics.counter("import.photos");
+    // Photos shown by Find Similar and Find Related
+    private static final int SIMILAR_COUNT = 24;
+    private static final int SUGGESTION_COUNT = 8;
+
     @FXML
     private TilePane photosTilePane;
 
@@ -52,6 +86,9 @@ public class AlbumController {
     @FXML
     private Button backButton;
 
+    @FXML
+    private Button slideshowButton;
+
     @FXML
     private Button copyButton;
 
@@ -76,13 +113,35 @@ public class AlbumController {
     @FXML
     private Button removeTagButton;
 
+    @FXML
+    private Label selectionLabel;
+
+    @FXML
+    private Button findSimilarButton;
+
+    @FXML
+    private Button findRelatedButton;
+
+    @FXML
+    private ListView<String> suggestionsListView;
+
     private User currentUser;
     private Album currentAlbum;
     private StorageManager storageManager;
     private ObservableList<Album> albums;
     private ObservableList<String> tags;
+    // Tags suggested for the selected photo, shown in suggestionsListView in the same order
+    private ObservableList<String> suggestions;
+    private final List<Tag> suggestedTags = new ArrayList<>();
+    // Last clicked photo, whose details are shown
     private Photo selectedPhoto;
     private int currentIndex = 0;
+    // All selected photos, including selectedPhoto, in the order they were selected
+    private final Set<Photo> selection = new LinkedHashSet<>();
+    // Album state the thumbnails were built from, so a cached view can skip rebuilding them
+    private AlbumSnapshot shownAlbum;
+    // Background thumbnail decodes for this view, cancelled when the view is left
+    private final TaskGroup thumbnails = TaskScheduler.getDefault().newGroup();
 
     /**
      * Initialization method
@@ -95,6 +154,21 @@ public class AlbumController {
 
         tags = FXCollections.observableArrayList();
         tagsListView.setItems(tags);
+
+        // Suggestions follow the tag name being typed; clicking one fills in the tag to add
+        suggestions = FXCollections.observableArrayList();
+        suggestionsListView.setItems(suggestions);
+        tagNameField.textProperty().addListener((obs, old, text) -> showSuggestions());
+        suggestionsListView.setOnMouseClicked(event -> {
+            int index = suggestionsListView.getSelectionModel().getSelectedIndex();
+            if (index >= 0 && index < suggestedTags.size()) {
+                Tag tag = suggestedTags.get(index);
+                tagNameField.setText(tag.getName());
+                tagValueField.setText(tag.getValue());
+            }
+        });
+
+        ModelChanges.subscribe(this);
     }
 
     /**
@@ -105,15 +179,33 @@ public class AlbumController {
         this.currentUser = user;
         albums.clear();
         albums.addAll(user.getAlbums());
+        // Starts analysing the user's photos in the background, so Find Similar can answer once they are browsed
+        similarityIndex(user);
     }
 
     /**
      * Sets the current album to display and refreshes the photo view
+     * If the view is already showing this album unchanged, its thumbnails and selection are kept
      * @param album The album to set as current
      */
     public void setAlbum(Album album) {
-        this.currentAlbum = album;
-        refreshPhotos();
+        AlbumOpenEvent event = new AlbumOpenEvent();
+        event.begin();
+        // The photos of a smart album follow from its query, so only their tags and captions can be edited here
+        boolean readOnly = album != null && album.isReadOnly();
+        addPhotoButton.setDisable(readOnly);
+        removePhotoButton.setDisable(readOnly);
+        moveButton.setDisable(readOnly);
+        if (album == null || album != currentAlbum || album.snapshot() != shownAlbum) {
+            this.currentAlbum = album;
+            refreshPhotos();
+        }
+        event.end();
+        if (event.shouldCommit() && album != null) {
+            event.album = album.getName();
+            event.photoCount = album.getPhotos().size();
+            event.commit();
+        }
     }
 
     /**
@@ -124,11 +216,125 @@ public class AlbumController {
         this.storageManager = storageManager;
     }
 
+    /**
+     * Stops decoding thumbnails when the user logs out
+     */
+    @Override
+    public void endSession() {
+        thumbnails.cancel();
+    }
+
+    /**
+     * Applies model changes to the view: adds or removes the tiles of added or removed photos
+     * and updates the details when the selected photo changed
+     * @param changes The changes of one transaction
+     */
+    @Override
+    public void modelChanged(List<ModelChange> changes) {
+        if (!Platform.isFxApplicationThread()) {
+            // Edited on another thread: the scene graph may only be touched on the FX thread, and by the time
+            // it runs later edits may have moved the tiles, so the positions in these changes are redrawn instead
+            Platform.runLater(() -> {
+                if (currentUser != null) {
+                    albums.setAll(currentUser.getAlbums());
+                }
+                refreshPhotos();
+            });
+            return;
+        }
+        if (currentAlbum == null) return;
+
+        boolean selectionChanged = false;
+        Set<Photo> removed = new HashSet<>();
+        for (ModelChange change : changes) {
+            switch (change.getType()) {
+                case PHOTO_ADDED:
+                    if (change.getAlbum() == currentAlbum) {
+                        if (change.getIndex() > photosTilePane.getChildren().size()) {
+                            // Out of step with the album, e.g. after a reload; rebuild instead
+                            refreshPhotos();
+                            return;
+                        }
+                        photosTilePane.getChildren().add(change.getIndex(), createPhotoThumbnail(change.getPhoto()));
+                        selectionChanged = true;
+                    }
+                    break;
+                case PHOTO_REMOVED:
+                    if (change.getAlbum() == currentAlbum) {
+                        if (change.getIndex() >= photosTilePane.getChildren().size()) {
+                            refreshPhotos();
+                            return;
+                        }
+                        photosTilePane.getChildren().remove(change.getIndex());
+                        removed.add(change.getPhoto());
+                        selectionChanged = true;
+                    }
+                    break;
+                case CAPTION_CHANGED:
+                case TAG_ADDED:
+                case TAG_REMOVED:
+                    selectionChanged |= selection.contains(change.getPhoto());
+                    break;
+                case USER_RELOADED:
+                    if (change.getUser() == currentUser) {
+                        showReloadedAlbum();
+                        return;
+                    }
+                    break;
+                default:
+                    // An album was added, removed or renamed; update the target album choices
+                    if (currentUser != null) {
+                        albums.setAll(currentUser.getAlbums());
+                    }
+                    break;
+            }
+        }
+
+        if (selectionChanged && selectedPhoto != null) {
+            for (Photo photo : removed) {
+                if (!currentAlbum.getPhotos().contains(photo)) {
+                    selection.remove(photo);
+                }
+            }
+            if (selection.isEmpty()) {
+                selectedPhoto = null;
+                currentIndex = 0;
+                clearPhotoDetails();
+            } else {
+                if (!selection.contains(selectedPhoto)) {
+                    selectedPhoto = new ArrayList<>(selection).get(selection.size() - 1);
+                }
+                currentIndex = currentAlbum.getPhotos().indexOf(selectedPhoto);
+                displayPhotoDetails();
+            }
+        }
+        if (shownAlbum != null) {
+            shownAlbum = currentAlbum.snapshot();
+        }
+    }
+
+    /**
+     * Shows the album of the same name after the user was reloaded from storage, which replaced
+     * all of their albums, or no album if it no longer exists
+     */
+    private void showReloadedAlbum() {
+        albums.setAll(currentUser.getAlbums());
+        String name = currentAlbum.getName();
+        Album reloaded = currentAlbum.isReadOnly() ? currentUser.findSmartAlbum(name) : currentUser.findAlbum(name);
+        selection.clear();
+        selectedPhoto = null;
+        currentIndex = 0;
+        clearPhotoDetails();
+        setAlbum(reloaded);
+    }
+
     /**
      * Refreshes the photo display in the tile pane
      * Configures layout settings and loads thumbnails for all photos in the current album
      */
     private void refreshPhotos() {
+        thumbnails.cancelAll();
+        shownAlbum = currentAlbum != null ? currentAlbum.snapshot() : null;
         photosTilePane.getChildren().clear();
         photosTilePane.setHgap(10); // Set horizontal gap between photos
         photosTilePane.setVgap(10); // Set vertical gap between photos
@@ -140,11 +346,11 @@ public class AlbumController {
         List<Photo> photos = currentAlbum.getPhotos();
         for (Photo photo : photos) {
             ImageView imageView = createPhotoThumbnail(photo);
-            System.out.println(imageView.getImage().getUrl());
             photosTilePane.getChildren().add(imageView);
         }
 
         // Reset selection state
+        selection.clear();
         selectedPhoto = null;
         currentIndex = 0;
         clearPhotoDetails();
@@ -152,21 +358,44 @@ public class AlbumController {
 
     /**
      * Creates a thumbnail ImageView for a photo with click, hover, and selection effects
+     * The thumbnail is decoded in the background and appears once it is ready
      * @param photo The photo to create thumbnail for
      * @return ImageView with thumbnail and interaction effects
      */
     private ImageView createPhotoThumbnail(Photo photo) {
-        Image image = new Image(new File(photo.getPath()).toURI().toString(), 150, 150, true, true);
-        ImageView imageView = new ImageView(image);
+        ImageView imageView = new ImageView();
+        thumbnails.submit(TaskScheduler.Priority.VISIBLE, TaskScheduler.Resource.CPU,
+                () -> ImageLoader.loadThumbnail(photo.getPath(), 150))
+                .thenAccept(image -> Platform.runLater(() -> imageView.setImage(image)));
         imageView.setFitWidth(350); // Force fixed width
         imageView.setFitHeight(350); // Force fixed height
 
-        // Set click event to select photo
+        // Set click event to select photo; shortcut-click toggles it, shift-click selects a range
         imageView.setOnMouseClicked(event -> {
+            int index = currentAlbum.getPhotos().indexOf(photo);
+            if (event.isShiftDown() && selectedPhoto != null) {
+                List<Photo> photos = currentAlbum.getPhotos();
+                for (int i = Math.min(currentIndex, index); i <= Math.max(currentIndex, index); i++) {
+                    selection.add(photos.get(i));
+                }
+            } else if (event.isShortcutDown()) {
+                if (selection.remove(photo)) {
+                    if (selection.isEmpty()) {
+                        selectedPhoto = null;
+                        clearPhotoDetails();
+                        return;
+                    }
+                    selectPhoto(new ArrayList<>(selection).get(selection.size() - 1), false);
+                    return;
+                }
+                selection.add(photo);
+            } else {
+                selection.clear();
+                selection.add(photo);
+            }
             selectedPhoto = photo;
-            currentIndex = currentAlbum.getPhotos().indexOf(photo);
+            currentIndex = index;
             displayPhotoDetails();
-            System.out.println(selectedPhoto.getCaption());
         });
 
         // Set hover effects
@@ -175,7 +404,7 @@ public class AlbumController {
             imageView.setStyle("-fx-border-color: #666; -fx-border-width: 2; -fx-padding: 3;");
         });
         imageView.setOnMouseExited(event -> {
-            if (photo != selectedPhoto) {
+            if (!selection.contains(photo)) {
                 imageView.setStyle("-fx-border-color: transparent; -fx-padding: 5;");
             } else {
                 imageView.setStyle("-fx-border-color: #007bff; -fx-border-width: 2; -fx-padding: 3;");
@@ -200,10 +429,13 @@ public class AlbumController {
             tags.add(tag.getName() + "=" + tag.getValue());
         }
 
+        selectionLabel.setText(selection.size() > 1 ? selection.size() + " photos selected, edits apply to all" : "");
+
         // Update thumbnail borders to indicate selection
+        List<Photo> photos = currentAlbum.getPhotos();
         for (int i = 0; i < photosTilePane.getChildren().size(); i++) {
             ImageView imageView = (ImageView) photosTilePane.getChildren().get(i);
-            if (i == currentIndex) {
+            if (selection.contains(photos.get(i))) {
                 imageView.setStyle("-fx-border-color: #007bff; -fx-border-width: 2; -fx-padding: 3;");
             } else {
                 imageView.setStyle("-fx-border-color: transparent; -fx-padding: 5;");
@@ -213,6 +445,41 @@ public class AlbumController {
         // Update navigation button states
         prevButton.setDisable(currentIndex <= 0);
         nextButton.setDisable(currentIndex >= currentAlbum.getPhotos().size() - 1);
+
+        showSuggestions();
+    }
+
+    /**
+     * Shows the tags most often used together with the selected photo's tags,
+     * narrowed to the tag name being typed, if any
+     */
+    private void showSuggestions() {
+        suggestedTags.clear();
+        if (selectedPhoto != null && currentUser != null) {
+            String name = tagNameField.getText().trim();
+            suggestedTags.addAll(currentUser.getTagCooccurrence()
+                    .suggest(selectedPhoto.getTags(), name.isEmpty() ? null : name, SUGGESTION_COUNT));
+        }
+        List<String> shown = new ArrayList<>(suggestedTags.size());
+        for (Tag tag : suggestedTags) {
+            shown.add(tag.getName() + "=" + tag.getValue());
+        }
+        suggestions.setAll(shown);
+    }
+
+    /**
+     * Makes a photo the one whose details are shown
+     * @param photo The photo to show
+     * @param only Whether it replaces the current selection rather than joining it
+     */
+    private void selectPhoto(Photo photo, boolean only) {
+        if (only) {
+            selection.clear();
+        }
+        selection.add(photo);
+        selectedPhoto = photo;
+        currentIndex = currentAlbum.getPhotos().indexOf(photo);
+        displayPhotoDetails();
     }
 
     /**
@@ -223,6 +490,12 @@ public class AlbumController {
         tags.clear();
         tagNameField.clear();
         tagValueField.clear();
+        suggestedTags.clear();
+        suggestions.clear();
+        selectionLabel.setText("");
+        for (Node tile : photosTilePane.getChildren()) {
+            tile.setStyle("-fx-border-color: transparent; -fx-padding: 5;");
+        }
     }
 
     /**
@@ -232,6 +505,11 @@ public class AlbumController {
      */
     @FXML
     public void handleAddPhoto(ActionEvent event) {
+        if (currentAlbum.isReadOnly()) {
+            showAlert(Alert.AlertType.ERROR, "Add Failed", "Photos cannot be added to smart album " + currentAlbum.getName());
+            return;
+        }
+
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Select Photos");
         fileChooser.getExtensionFilters().addAll(
@@ -240,17 +518,33 @@ public class AlbumController {
 
         List<File> selectedFiles = fileChooser.showOpenMultipleDialog(null);
         if (selectedFiles != null && !selectedFiles.isEmpty()) {
-            int addedCount = 0;
-            for (File file : selectedFiles) {
-                Photo photo = new Photo(file.getAbsolutePath());
-                if (currentAlbum.addPhoto(photo)) {
-                    addedCount++;
+            ImportBatchEvent importEvent = new ImportBatchEvent();
+            importEvent.begin();
+            long start = System.nanoTime();
+            List<Photo> added = new ArrayList<>();
+            // One transaction, so the view adds all new tiles in a single update
+            ModelChanges.inTransaction(() -> {
+                for (File file : selectedFiles) {
+                    Photo photo = new Photo(file.getAbsolutePath());
+                    if (currentAlbum.addPhoto(photo)) {
+                        added.add(photo);
+                    }
                 }
-            }
+            });
+            int addedCount = added.size();
 
             if (addedCount > 0) {
                 storageManager.saveUsers();
-                refreshPhotos();
+                tagPositions(added);
+                IMPORTED_PHOTOS.add(addedCount);
+                IMPORT_TIME.recordSince(start);
+                importEvent.end();
+                if (importEvent.shouldCommit()) {
+                    importEvent.album = currentAlbum.getName();
+                    importEvent.requested = selectedFiles.size();
+                    importEvent.added = addedCount;
+                    importEvent.commit();
+                }
                 showAlert(Alert.AlertType.INFORMATION, "Add Successful", addedCount + " photos have been added");
             } else {
                 showAlert(Alert.AlertType.WARNING, "Add Failed", "Selected photos already exist in the album");
@@ -258,47 +552,83 @@ public class AlbumController {
         }
     }
 
+    /**
+     * Reads the positions recorded in newly imported photos in the background and adds them as "gps" tags,
+     * so the import itself does not wait for the files to be read
+     * @param photos The imported photos
+     */
+    private void tagPositions(List<Photo> photos) {
+        // A group of its own, so leaving the album does not cancel it
+        TaskScheduler.getDefault().newGroup().submit(TaskScheduler.Priority.INDEX, TaskScheduler.Resource.IO, () -> {
+            Map<Photo, Tag> positions = new IdentityHashMap<>();
+            for (Photo photo : photos) {
+                double[] position = ExifGps.read(new File(photo.getPath()));
+                Tag gps = position != null ? GeoIndex.gpsTag(position[0], position[1]) : null;
+                // Left off if the schema declares another type for "gps"
+                if (gps != null && TagSchema.getDefault().accepts(gps.getName(), gps.getValue())) {
+                    positions.put(photo, gps);
+                }
+            }
+            return positions;
+        }).thenAccept(positions -> Platform.runLater(() -> {
+            if (!positions.isEmpty()) {
+                ModelChanges.inTransaction(() -> positions.forEach(Photo::addTag));
+                storageManager.saveUsers();
+            }
+        }));
+    }
+
     /**
      * Handles the remove photo button click event
-     * Shows confirmation dialog and removes the selected photo from the album if confirmed
+     * Shows confirmation dialog and removes the selected photos from the album if confirmed
      * @param event The action event trigger
      */
     @FXML
     public void handleRemovePhoto(ActionEvent event) {
-        if (selectedPhoto == null) {
+        if (selection.isEmpty()) {
             showAlert(Alert.AlertType.ERROR, "Delete Failed", "Please select a photo to delete");
             return;
         }
 
+        if (currentAlbum.isReadOnly()) {
+            showAlert(Alert.AlertType.ERROR, "Delete Failed", "Photos cannot be removed from smart album " + currentAlbum.getName());
+            return;
+        }
+
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Confirm Deletion");
         alert.setHeaderText(null);
-        alert.setContentText("Are you sure you want to delete this photo?");
+        alert.setContentText(selection.size() > 1
+                ? "Are you sure you want to delete these " + selection.size() + " photos?"
+                : "Are you sure you want to delete this photo?");
 
         if (alert.showAndWait().get() == ButtonType.OK) {
-            currentAlbum.removePhoto(selectedPhoto);
+            int removed = PhotoBatch.removeFrom(new ArrayList<>(selection), currentAlbum);
             storageManager.saveUsers();
-            refreshPhotos();
-            showAlert(Alert.AlertType.INFORMATION, "Delete Successful", "Photo has been removed from the album");
+            showAlert(Alert.AlertType.INFORMATION, "Delete Successful",
+                    removed > 1 ? removed + " photos have been removed from the album" : "Photo has been removed from the album");
         }
     }
 
     /**
      * Handles the save caption button click event
-     * Saves the entered caption for the selected photo
+     * Saves the entered caption for the selected photos
      * @param event The action event trigger
      */
     @FXML
     public void handleSaveCaption(ActionEvent event) {
-        if (selectedPhoto == null) {
+        if (selection.isEmpty()) {
             showAlert(Alert.AlertType.ERROR, "Save Failed", "Please select a photo");
             return;
         }
 
         String caption = captionField.getText().trim();
-        selectedPhoto.setCaption(caption);
-        storageManager.saveUsers();
-        showAlert(Alert.AlertType.INFORMATION, "Save Successful", "Photo caption has been updated");
+        int changed = PhotoBatch.setCaption(new ArrayList<>(selection), caption);
+        if (changed > 0) {
+            storageManager.saveUsers();
+        }
+        showAlert(Alert.AlertType.INFORMATION, "Save Successful",
+                selection.size() > 1 ? "Caption of " + selection.size() + " photos has been updated" : "Photo caption has been updated");
     }
 
     /**
@@ -309,9 +639,7 @@ public class AlbumController {
     @FXML
     public void handlePrev(ActionEvent event) {
         if (currentIndex > 0) {
-            currentIndex--;
-            selectedPhoto = currentAlbum.getPhotos().get(currentIndex);
-            displayPhotoDetails();
+            selectPhoto(currentAlbum.getPhotos().get(currentIndex - 1), true);
         }
     }
 
@@ -323,32 +651,130 @@ public class AlbumController {
     @FXML
     public void handleNext(ActionEvent event) {
         if (currentIndex < currentAlbum.getPhotos().size() - 1) {
-            currentIndex++;
-            selectedPhoto = currentAlbum.getPhotos().get(currentIndex);
-            displayPhotoDetails();
+            selectPhoto(currentAlbum.getPhotos().get(currentIndex + 1), true);
         }
     }
 
     /**
-     * Handles the back button click event
-     * Navigates back to the user's album list interface
+     * Handles the slideshow button click event
+     * Opens the album in a slideshow window, starting at the selected photo
      * @param event The action event trigger
      */
     @FXML
-    public void handleBack(ActionEvent event) {
+    public void handleSlideshow(ActionEvent event) {
+        if (currentAlbum == null || currentAlbum.getPhotos().isEmpty()) {
+            showAlert(Alert.AlertType.ERROR, "Slideshow Failed", "The album has no photos");
+            return;
+        }
+
         try {
-            Stage stage = (Stage) backButton.getScene().getWindow();
-            FXMLLoader loader = new FXMLLoader(Application.class.getResource("user.fxml"));
+            FXMLLoader loader = new FXMLLoader(Application.class.getResource("slideshow.fxml"));
             Parent root = loader.load();
 
-            UserController controller = loader.getController();
-            controller.setUser(currentUser);
-            controller.setStorageManager(storageManager);
+            SlideshowController controller = loader.getController();
+            controller.setPhotos(currentAlbum.getPhotos(), selectedPhoto != null ? currentIndex : 0);
 
-            Scene scene = new Scene(root);
+            Scene scene = new Scene(root, 1024, 768);
+            scene.setOnKeyPressed(controller::handleKey);
+            Stage stage = new Stage();
             stage.setScene(scene);
-            stage.setTitle("Photo Manager - " + currentUser.getUsername());
+            stage.setTitle("Photo Manager - " + currentAlbum.getName());
+            stage.setOnHidden(e -> controller.close());
             stage.show();
+        } catch (IOException e) {
+            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "Error", "Failed to load slideshow interface");
+        }
+    }
+
+    /**
+     * Handles the find similar button click event
+     * Shows the user's photos that look most like the selected photo in the search view
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleFindSimilar(ActionEvent event) {
+        if (selectedPhoto == null) {
+            showAlert(Alert.AlertType.ERROR, "Search Failed", "Please select a photo first");
+            return;
+        }
+
+        SimilarityIndex index = similarityIndex(currentUser);
+        List<Photo> similar = index.similarTo(selectedPhoto, SIMILAR_COUNT);
+        if (similar == null) {
+            int pending = index.getPending();
+            showAlert(Alert.AlertType.INFORMATION, "Find Similar", pending > 0
+                    ? "Still analysing photos (" + pending + " left), please try again shortly"
+                    : "This photo could not be analysed");
+            return;
+        }
+
+        showInSearch("similar", "like " + selectedPhoto.getPath(), similar);
+    }
+
+    /**
+     * Gets the user's similarity index, describing photos by their {@link VisualFeatures}
+     */
+    private static SimilarityIndex similarityIndex(User user) {
+        return user.getSimilarityIndex(VisualFeatures::extract, VisualFeatures.DIMENSIONS);
+    }
+
+    /**
+     * Handles the find related button click event
+     * Shows the user's photos sharing the most telling tags with the selected photo in the search view
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleFindRelated(ActionEvent event) {
+        if (selectedPhoto == null) {
+            showAlert(Alert.AlertType.ERROR, "Search Failed", "Please select a photo first");
+            return;
+        }
+
+        List<Photo> related = currentUser.getTagCooccurrence().relatedTo(selectedPhoto, SIMILAR_COUNT);
+        if (related.isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "Find Related", "No other photo shares a tag with this photo");
+            return;
+        }
+        showInSearch("related", "related to " + selectedPhoto.getPath(), related);
+    }
+
+    /**
+     * Shows photos found from the selected photo in the search view
+     * @param kind Kind of search, for the flight recorder
+     * @param description What the photos were found by, for the flight recorder
+     * @param photos The photos, in the order to show them
+     */
+    private void showInSearch(String kind, String description, List<Photo> photos) {
+        try {
+            SearchController controller = Navigator.of(findSimilarButton.getScene().getWindow())
+                    .show("search.fxml", "Search Photos", 1000, 800);
+            controller.setUser(currentUser);
+            controller.setStorageManager(storageManager);
+            controller.showPhotos(kind, description, photos);
+        } catch (IOException e) {
+            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "Error", "Failed to open search interface");
+        }
+    }
+
+    /**
+     * Handles the back button click event
+     * Navigates back to the user's album list interface
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleBack(ActionEvent event) {
+        if (thumbnails.getOutstanding() > 0) {
+            // Stop decoding for a view that is no longer visible; redraw when it is shown again
+            thumbnails.cancelAll();
+            shownAlbum = null;
+        }
+        try {
+            UserController controller = Navigator.of(backButton.getScene().getWindow())
+                    .show("user.fxml", "Photo Manager - " + currentUser.getUsername());
+            controller.setUser(currentUser);
+            controller.setStorageManager(storageManager);
         } catch (IOException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to load user interface");
@@ -357,12 +783,12 @@ public class AlbumController {
 
     /**
      * Handles the copy button click event
-     * Copies the selected photo to the target album (without removing from current album)
+     * Copies the selected photos to the target album (without removing from current album)
      * @param event The action event trigger
      */
     @FXML
     public void handleCopy(ActionEvent event) {
-        if (selectedPhoto == null) {
+        if (selection.isEmpty()) {
             showAlert(Alert.AlertType.ERROR, "Copy Failed", "Please select a photo");
             return;
         }
@@ -378,22 +804,31 @@ public class AlbumController {
             return;
         }
 
-        if (targetAlbum.addPhoto(selectedPhoto)) {
+        if (targetAlbum.isReadOnly()) {
+            showAlert(Alert.AlertType.ERROR, "Copy Failed", "Photos cannot be added to smart album " + targetAlbum.getName());
+            return;
+        }
+
+        int copied = PhotoBatch.copyTo(new ArrayList<>(selection), targetAlbum);
+        if (copied > 0) {
             storageManager.saveUsers();
-            showAlert(Alert.AlertType.INFORMATION, "Copy Successful", "Photo has been copied to album " + targetAlbum.getName());
+            showAlert(Alert.AlertType.INFORMATION, "Copy Successful",
+                    (copied > 1 ? copied + " photos have" : "Photo has") + " been copied to album " + targetAlbum.getName());
         } else {
-            showAlert(Alert.AlertType.WARNING, "Copy Failed", "The target album already contains this photo");
+            showAlert(Alert.AlertType.WARNING, "Copy Failed", "The target album already contains "
+                    + (selection.size() > 1 ? "these photos" : "this photo"));
         }
     }
 
     /**
      * Handles the move button click event
-     * Moves the selected photo from current album to target album
+     * Moves the selected photos from current album to target album
+     * Photos the target album already contains stay in the current album
      * @param event The action event trigger
      */
     @FXML
     public void handleMove(ActionEvent event) {
-        if (selectedPhoto == null) {
+        if (selection.isEmpty()) {
             showAlert(Alert.AlertType.ERROR, "Move Failed", "Please select a photo");
             return;
         }
@@ -409,27 +844,30 @@ public class AlbumController {
             return;
         }
 
-        // First copy to target album
-        boolean added = targetAlbum.addPhoto(selectedPhoto);
-        if (added) {
-            // Then remove from current album
-            currentAlbum.removePhoto(selectedPhoto);
+        if (currentAlbum.isReadOnly() || targetAlbum.isReadOnly()) {
+            showAlert(Alert.AlertType.ERROR, "Move Failed", "Photos cannot be moved into or out of a smart album");
+            return;
+        }
+
+        int moved = PhotoBatch.moveTo(new ArrayList<>(selection), currentAlbum, targetAlbum);
+        if (moved > 0) {
             storageManager.saveUsers();
-            refreshPhotos();
-            showAlert(Alert.AlertType.INFORMATION, "Move Successful", "Photo has been moved to album " + targetAlbum.getName());
+            showAlert(Alert.AlertType.INFORMATION, "Move Successful",
+                    (moved > 1 ? moved + " photos have" : "Photo has") + " been moved to album " + targetAlbum.getName());
         } else {
-            showAlert(Alert.AlertType.WARNING, "Move Failed", "The target album already contains this photo");
+            showAlert(Alert.AlertType.WARNING, "Move Failed", "The target album already contains "
+                    + (selection.size() > 1 ? "these photos" : "this photo"));
         }
     }
 
     /**
      * Handles the add tag button click event
-     * Adds a new tag to the selected photo (prevents duplicates)
+     * Adds a new tag to the selected photos (prevents duplicates)
      * @param event The action event trigger
      */
     @FXML
     public void handleAddTag(ActionEvent event) {
-        if (selectedPhoto == null) {
+        if (selection.isEmpty()) {
             showAlert(Alert.AlertType.ERROR, "Add Failed", "Please select a photo");
             return;
         }
@@ -442,13 +880,21 @@ public class AlbumController {
             return;
         }
 
+        try {
+            TagSchema.getDefault().requireAccepted(tagName, tagValue);
+        } catch (IllegalArgumentException e) {
+            showAlert(Alert.AlertType.ERROR, "Add Failed", e.getMessage());
+            return;
+        }
+
         com.example.photomanager.model.Tag newTag = new com.example.photomanager.model.Tag(tagName, tagValue);
-        if (selectedPhoto.addTag(newTag)) {
-            tags.add(tagName + "=" + tagValue);
+        int tagged = PhotoBatch.addTag(new ArrayList<>(selection), newTag);
+        if (tagged > 0) {
             tagNameField.clear();
             tagValueField.clear();
             storageManager.saveUsers();
-            showAlert(Alert.AlertType.INFORMATION, "Add Successful", "Tag has been added");
+            showAlert(Alert.AlertType.INFORMATION, "Add Successful",
+                    tagged > 1 ? "Tag has been added to " + tagged + " photos" : "Tag has been added");
         } else {
             showAlert(Alert.AlertType.WARNING, "Add Failed", "This tag already exists");
         }
@@ -456,12 +902,12 @@ public class AlbumController {
 
     /**
      * Handles the remove tag button click event
-     * Removes the selected tag from the selected photo
+     * Removes the selected tag from the selected photos
      * @param event The action event trigger
      */
     @FXML
     public void handleRemoveTag(ActionEvent event) {
-        if (selectedPhoto == null) {
+        if (selection.isEmpty()) {
             showAlert(Alert.AlertType.ERROR, "Delete Failed", "Please select a photo");
             return;
         }
@@ -480,10 +926,11 @@ public class AlbumController {
         }
 
         com.example.photomanager.model.Tag tagToRemove = new com.example.photomanager.model.Tag(parts[0], parts[1]);
-        if (selectedPhoto.removeTag(tagToRemove)) {
-            tags.remove(selectedTagStr);
+        int untagged = PhotoBatch.removeTag(new ArrayList<>(selection), tagToRemove);
+        if (untagged > 0) {
             storageManager.saveUsers();
-            showAlert(Alert.AlertType.INFORMATION, "Delete Successful", "Tag has been deleted");
+            showAlert(Alert.AlertType.INFORMATION, "Delete Successful",
+                    untagged > 1 ? "Tag has been deleted from " + untagged + " photos" : "Tag has been deleted");
         }
     }
 
@@ -1,13 +1,10 @@
 package com.example.photomanager.controller;
 
-import com.example.photomanager.Application;
 import com.example.photomanager.model.StorageManager;
 import com.example.photomanager.model.User;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
@@ -16,20 +13,31 @@ import javafx.stage.Stage;
 import java.io.IOException;
 
 public class LoginController {
+    // How often the store is checked for users changed by other processes, such as the HTTP service
+    private static final long WATCH_INTERVAL_MILLIS = 1000;
+
     @FXML
     private TextField usernameField;
     @FXML
     private PasswordField passwordField;
 
     private StorageManager storageManager;
+    private AdminController adminController;
 
     /**
      * Initializes the controller.
-     * Creates a new StorageManager instance to handle user data.
+     * Creates a new StorageManager instance to handle user data, and reloads users changed by
+     * other processes on the FX thread; open views follow the reloaded users through model changes.
      */
     @FXML
     public void initialize() {
         storageManager = new StorageManager();
+        storageManager.watchExternalChanges(WATCH_INTERVAL_MILLIS, Platform::runLater, changed -> {
+            if (adminController != null) {
+                // Users may have been created or deleted
+                adminController.refreshUserList();
+            }
+        });
     }
 
     /**
@@ -47,6 +55,8 @@ public class LoginController {
             return;
         }
 
+        // The user may have been created, deleted or given a new password by another process since the last poll
+        storageManager.reloadExternalChanges();
         User user = storageManager.findUser(username);
         if (user == null) {
             showAlert(Alert.AlertType.ERROR, "Login Failed", "User does not exist");
@@ -59,28 +69,22 @@ public class LoginController {
             return;
         }
 
+        // The login view is kept for the next logout, so do not leave the password in it
+        passwordField.clear();
+
         try {
-            Stage stage = (Stage) usernameField.getScene().getWindow();
-            Parent root;
+            Navigator navigator = Navigator.of(usernameField.getScene().getWindow());
 
             // Load different interfaces based on user type
             if (user.isAdmin()) {
-                FXMLLoader loader = new FXMLLoader(Application.class.getResource("admin.fxml"));
-                root = loader.load();
-                AdminController controller = loader.getController();
+                AdminController controller = navigator.show("admin.fxml", "Photo Manager - " + username, 800, 600);
                 controller.setStorageManager(storageManager);
+                adminController = controller;
             } else {
-                FXMLLoader loader = new FXMLLoader(Application.class.getResource("user.fxml"));
-                root = loader.load();
-                UserController controller = loader.getController();
+                UserController controller = navigator.show("user.fxml", "Photo Manager - " + username, 800, 600);
                 controller.setUser(user);
                 controller.setStorageManager(storageManager);
             }
-
-            Scene scene = new Scene(root, 800, 600);
-            stage.setScene(scene);
-            stage.setTitle("Photo Manager - " + username);
-            stage.show();
         } catch (IOException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to load interface");
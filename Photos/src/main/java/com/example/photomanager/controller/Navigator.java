@@ -0,0 +1,129 @@
+package com.example.photomanager.controller;
+
+import com.example.photomanager.Application;
+import com.example.photomanager.metrics.Counter;
+import com.example.photomanager.metrics.LatencyHistogram;
+import com.example.photomanager.metrics.Metrics;
+import com.example.photomanager.model.ModelChangeListener;
+import com.example.photomanager.model.ModelChanges;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Switches the views shown in a window, keeping each loaded view and its controller so that
+ * returning to a view reuses its scene graph and state instead of re-parsing the FXML.
+ * Callers rebind the returned controller (setUser, setAlbum, ...) after each switch.
+ * Views of a user session are dropped by {@link #endSession()} on logout; the login view is kept.
+ * There is one navigator per window, obtained with {@link #of(Window)}.
+ */
+public final class Navigator {
+    public static final String LOGIN = "login.fxml";
+
+    private static final LatencyHistogram NAVIGATE_TIME = Metrics.histogram("ui.navigate");
+    private static final Counter VIEWS_LOADED = Metrics.counter("ui.views.loaded");
+    private static final Counter VIEWS_REUSED = Metrics.counter("ui.views.reused");
+
+    /**
+     * A view holding work of the user session, such as background tasks, that must stop when the session ends
+     */
+    public interface SessionView {
+        /**
+         * Stops the view's work. The view is not shown again.
+         */
+        void endSession();
+    }
+
+    private static final class View {
+        final Scene scene;
+        final Object controller;
+
+        View(Scene scene, Object controller) {
+            this.scene = scene;
+            this.controller = controller;
+        }
+    }
+
+    private final Stage stage;
+    private final Map<String, View> views = new HashMap<>();
+
+    private Navigator(Stage stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * Gets the navigator of a window, creating it on first use
+     * @param window The application window
+     * @return The window's navigator
+     */
+    public static Navigator of(Window window) {
+        return (Navigator) window.getProperties().computeIfAbsent(Navigator.class, key -> new Navigator((Stage) window));
+    }
+
+    /**
+     * Shows a view in the window at its preferred size the first time it is shown
+     * @param fxml Name of the FXML resource
+     * @param title Window title
+     * @return The view's controller
+     * @throws IOException If the view has to be loaded and cannot be
+     */
+    public <T> T show(String fxml, String title) throws IOException {
+        return show(fxml, title, -1, -1);
+    }
+
+    /**
+     * Shows a view in the window, loading it if it has not been shown in this session
+     * @param fxml Name of the FXML resource
+     * @param title Window title
+     * @param width Width of the scene when the view is first loaded, or -1 for its preferred width
+     * @param height Height of the scene when the view is first loaded, or -1 for its preferred height
+     * @return The view's controller
+     * @throws IOException If the view has to be loaded and cannot be
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T show(String fxml, String title, double width, double height) throws IOException {
+        long start = System.nanoTime();
+        View view = views.get(fxml);
+        if (view == null) {
+            FXMLLoader loader = new FXMLLoader(Application.class.getResource(fxml));
+            Parent root = loader.load();
+            view = new View(new Scene(root, width, height), loader.getController());
+            views.put(fxml, view);
+            VIEWS_LOADED.increment();
+        } else {
+            VIEWS_REUSED.increment();
+        }
+
+        stage.setScene(view.scene);
+        stage.setTitle(title);
+        stage.show();
+        NAVIGATE_TIME.recordSince(start);
+        return (T) view.controller;
+    }
+
+    /**
+     * Drops the cached views of the current user session, keeping the login view,
+     * stops them from following model changes and ends their background work
+     */
+    public void endSession() {
+        views.entrySet().removeIf(entry -> {
+            if (LOGIN.equals(entry.getKey())) {
+                return false;
+            }
+            Object controller = entry.getValue().controller;
+            if (controller instanceof ModelChangeListener) {
+                ModelChanges.unsubscribe((ModelChangeListener) controller);
+            }
+            if (controller instanceof SessionView) {
+                ((SessionView) controller).endSession();
+            }
+            return true;
+        });
+    }
+}
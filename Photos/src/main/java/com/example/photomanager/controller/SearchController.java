@@ -1,18 +1,36 @@
 package com.example.photomanager.controller;
 
 import com.example.photomanager.Application;
+import com.example.photomanager.image.ImageLoader;
+import com.example.photomanager.jfr.SearchEvent;
+import com.example.photomanager.metrics.LatencyHistogram;
+import com.example.photomanager.metrics.Metrics;
 import com.example.photomanager.model.Album;
+import com.example.photomanager.model.FacetCounts;
+import com.example.photomanager.model.Gazetteer;
+import com.example.photomanager.model.GeoIndex;
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.ModelChanges;
 import com.example.photomanager.model.Photo;
+import com.example.photomanager.model.PhotoSearch;
+import com.example.photomanager.model.PhotoSnapshot;
+import com.example.photomanager.model.QueryCache;
+import com.example.photomanager.model.SmartAlbum;
 import com.example.photomanager.model.StorageManager;
+import com.example.photomanager.model.TagQuery;
 import com.example.photomanager.model.User;
+import com.example.photomanager.task.TaskGroup;
+import com.example.photomanager.task.TaskScheduler;
 import javafx.collections.FXCollections;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.TilePane;
 import javafx.stage.Stage;
@@ -22,13 +40,28 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Search Controller handling the logic for the search interface
  */
-public class SearchController {
+public class SearchController implements Navigator.SessionView {
+    private static final LatencyHistogram SEARCH_TIME = Metrics.histogram("search.query");
+    // Photos shown by a location search without a radius
+    private static final int NEAREST_COUNT = 50;
+    // Most places listed by the map overview
+    private static final int OVERVIEW_CLUSTERS = 40;
+
     @FXML
     private DatePicker startDatePicker;
 
@@ -56,6 +89,24 @@ public class SearchController {
     @FXML
     private Button tagSearchButton;
 
+    @FXML
+    private TextField queryField;
+
+    @FXML
+    private Button querySearchButton;
+
+    @FXML
+    private TextField nearField;
+
+    @FXML
+    private TextField radiusField;
+
+    @FXML
+    private Button locationSearchButton;
+
+    @FXML
+    private Button mapOverviewButton;
+
     @FXML
     private TilePane resultsTilePane;
 
@@ -68,9 +119,38 @@ public class SearchController {
     @FXML
     private TextField albumNameField;
 
+    @FXML
+    private Button createSmartAlbumButton;
+
+    @FXML
+    private ListView<String> tagNameList;
+
+    @FXML
+    private ListView<String> tagValueList;
+
+    @FXML
+    private BarChart<String, Number> timelineChart;
+
+    @FXML
+    private Button clearFiltersButton;
+
     private User currentUser;
     private StorageManager storageManager;
     private List<Photo> searchResults;
+    // Snapshots of the shown results, which facet clicks refine; null before any search, meaning the whole library
+    private List<PhotoSnapshot> resultSnapshots;
+    // Facet counts of the shown results, or of the whole library before any search
+    private FacetCounts facets;
+    // Definition of the shown results, saved by "Save as Smart Album": a tag query and capture date range
+    private String resultQuery = "";
+    private Date resultStart;
+    private Date resultEnd;
+    // Whether the shown results come from a location, similarity or related photo search, which a smart album cannot express
+    private boolean resultsWithoutQuery;
+    // Whether the result tiles need rebuilding when the view is shown again
+    private boolean resultsStale;
+    // Background search and thumbnail work for this view, cancelled when the view is left
+    private final TaskGroup tasks = TaskScheduler.getDefault().newGroup();
 
     /**
      * Initialization method
@@ -81,14 +161,50 @@ public class SearchController {
         operatorComboBox.setItems(FXCollections.observableArrayList("AND", "OR"));
         operatorComboBox.setValue("AND");
         searchResults = new ArrayList<>();
+
+        tagNameList.setCellFactory(list -> facetCell(name -> facets.getTagNames().get(name)));
+        tagValueList.setCellFactory(list -> facetCell(
+                value -> facets.getValues(tagNameList.getSelectionModel().getSelectedItem()).get(value)));
+        tagNameList.getSelectionModel().selectedItemProperty().addListener((obs, old, name) ->
+                tagValueList.setItems(FXCollections.observableArrayList(
+                        name != null ? facets.getValues(name).keySet() : List.of())));
+        tagValueList.setOnMouseClicked(event -> {
+            String name = tagNameList.getSelectionModel().getSelectedItem();
+            String value = tagValueList.getSelectionModel().getSelectedItem();
+            if (name != null && value != null) {
+                if (resultSnapshots == null) {
+                    defineResults("", null, null);
+                }
+                // Predicates combine left to right, so appending one narrows the whole query
+                String predicate = name + " = " + value;
+                defineResults(resultQuery.isEmpty() ? predicate : resultQuery + " AND " + predicate, resultStart, resultEnd);
+                refine(name + "=" + value, photo -> photo.hasTag(name, value));
+            }
+        });
     }
 
     /**
      * Sets the current logged-in user
+     * Results of an earlier search by the same user are kept, so returning to this view keeps its state
      * @param user The current user to set
      */
     public void setUser(User user) {
+        if (user != currentUser) {
+            searchResults = new ArrayList<>();
+            resultSnapshots = null;
+            defineResults("", null, null);
+            resultsStale = true;
+        }
         this.currentUser = user;
+        if (resultsStale) {
+            resultsStale = false;
+            displayResults();
+        }
+        if (resultSnapshots == null) {
+            // The library overview is maintained incrementally, so refreshing it does not scan the library
+            facets = currentUser.getFacetIndex().counts();
+            displayFacets();
+        }
     }
 
     /**
@@ -99,6 +215,30 @@ public class SearchController {
         this.storageManager = storageManager;
     }
 
+    /**
+     * Stops searches and thumbnail decoding when the user logs out
+     */
+    @Override
+    public void endSession() {
+        tasks.cancel();
+    }
+
+    /**
+     * Shows photos found outside this view, such as the photos that look like one picked in an album
+     * @param kind Kind of search: "similar" or "related"
+     * @param description What the photos were found by, for the flight recorder
+     * @param photos The photos, in the order to show them
+     */
+    public void showPhotos(String kind, String description, List<Photo> photos) {
+        List<PhotoSnapshot> matches = new ArrayList<>(photos.size());
+        for (Photo photo : photos) {
+            matches.add(photo.snapshot());
+        }
+        defineResults("", null, null);
+        LibrarySnapshot snapshot = currentUser.snapshot();
+        runSearch(kind, description, snapshot, () -> matches, null);
+    }
+
     /**
      * Handles the date range search button click event
      * Filters photos based on the selected start and end dates
@@ -119,18 +259,11 @@ public class SearchController {
             // Include the last moment of the end date
             endDate.setTime(endDate.getTime() + 24 * 60 * 60 * 1000 - 1);
 
-            searchResults = new ArrayList<>();
-            List<Photo> allPhotos = currentUser.getAllPhotos();
-
-            for (Photo photo : allPhotos) {
-                Date photoDate = photo.getDateTaken();
-                if (photoDate.after(startDate) && photoDate.before(endDate)) {
-                    searchResults.add(photo);
-                }
-            }
-
-            displayResults();
-            showAlert(Alert.AlertType.INFORMATION, "Search Completed", "Found " + searchResults.size() + " photos");
+            defineResults("", startDate, endDate);
+            LibrarySnapshot snapshot = currentUser.snapshot();
+            runCachedSearch("date", startDatePicker.getValue() + ".." + endDatePicker.getValue(),
+                    QueryCache.Key.dates(startDate, endDate), snapshot,
+                    () -> PhotoSearch.byDateRange(snapshot.getAllPhotos(), startDate, endDate));
         } catch (ParseException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Search Failed", "Invalid date format");
@@ -155,16 +288,13 @@ public class SearchController {
             return;
         }
 
-        searchResults = new ArrayList<>();
-        List<Photo> allPhotos = currentUser.getAllPhotos();
-
+        LibrarySnapshot snapshot = currentUser.snapshot();
         if (tag2Name.isEmpty() && tag2Value.isEmpty()) {
             // Single tag search
-            for (Photo photo : allPhotos) {
-                if (photo.hasTag(tag1Name, tag1Value)) {
-                    searchResults.add(photo);
-                }
-            }
+            defineResults(tag1Name + " = " + tag1Value, null, null);
+            runCachedSearch("tag", tag1Name + "=" + tag1Value,
+                    QueryCache.Key.tags(tag1Name, tag1Value, null, null, operator), snapshot,
+                    () -> PhotoSearch.byTag(snapshot.getAllPhotos(), tag1Name, tag1Value));
         } else {
             // Double tag search
             if (tag2Name.isEmpty() || tag2Value.isEmpty()) {
@@ -172,20 +302,354 @@ public class SearchController {
                 return;
             }
 
-            for (Photo photo : allPhotos) {
-                boolean hasTag1 = photo.hasTag(tag1Name, tag1Value);
-                boolean hasTag2 = photo.hasTag(tag2Name, tag2Value);
+            defineResults(tag1Name + " = " + tag1Value + " " + operator + " " + tag2Name + " = " + tag2Value, null, null);
+            runCachedSearch("tag", tag1Name + "=" + tag1Value + " " + operator + " " + tag2Name + "=" + tag2Value,
+                    QueryCache.Key.tags(tag1Name, tag1Value, tag2Name, tag2Value, operator), snapshot,
+                    () -> PhotoSearch.byTags(snapshot.getAllPhotos(), tag1Name, tag1Value, tag2Name, tag2Value, operator));
+        }
+    }
+
+    /**
+     * Handles the query search button click event
+     * Finds photos by typed tag predicates such as ranges and patterns, answered from the user's tag index
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleQuerySearch(ActionEvent event) {
+        String text = queryField.getText().trim();
+        if (text.isEmpty()) {
+            showAlert(Alert.AlertType.ERROR, "Search Failed", "Please enter a query");
+            return;
+        }
+
+        List<PhotoSnapshot> matches;
+        try {
+            TagQuery query = TagQuery.parse(text);
+            matches = lookupCached(QueryCache.Key.query(query), () -> {
+                List<Photo> found = new ArrayList<>(query.evaluate(currentUser.getTagIndex()));
+                found.sort(Comparator.comparingLong(photo -> photo.getDateTaken().getTime()));
+                return found;
+            });
+        } catch (IllegalArgumentException e) {
+            showAlert(Alert.AlertType.ERROR, "Search Failed", e.getMessage());
+            return;
+        }
+
+        defineResults(text, null, null);
+        LibrarySnapshot snapshot = currentUser.snapshot();
+        runSearch("query", text, snapshot, () -> matches, null);
+    }
 
-                if ("AND".equals(operator) && hasTag1 && hasTag2) {
-                    searchResults.add(photo);
-                } else if ("OR".equals(operator) && (hasTag1 || hasTag2)) {
-                    searchResults.add(photo);
+    /**
+     * Handles the location search button click event
+     * Finds photos inside a box, within a radius of a place, or else nearest to it, answered from the user's spatial index
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleLocationSearch(ActionEvent event) {
+        String near = nearField.getText().trim();
+        String radius = radiusField.getText().trim();
+        if (near.isEmpty()) {
+            showAlert(Alert.AlertType.ERROR, "Search Failed", "Please enter a place or coordinates");
+            return;
+        }
+
+        GeoIndex index = currentUser.getGeoIndex();
+        String[] bounds = near.split(",");
+        String search;
+        Supplier<List<Photo>> lookup;
+        try {
+            if (bounds.length == 4) {
+                double south = Double.parseDouble(bounds[0].trim());
+                double west = Double.parseDouble(bounds[1].trim());
+                double north = Double.parseDouble(bounds[2].trim());
+                double east = Double.parseDouble(bounds[3].trim());
+                search = String.format(Locale.ROOT, "box %f,%f,%f,%f", south, west, north, east);
+                lookup = () -> index.within(south, west, north, east);
+            } else {
+                double[] position = GeoIndex.parseCoordinates(near);
+                if (position == null) {
+                    position = Gazetteer.getDefault().locate(near);
+                }
+                if (position == null) {
+                    showAlert(Alert.AlertType.ERROR, "Search Failed",
+                            "Unknown place: " + near + ". Please enter coordinates as latitude,longitude");
+                    return;
+                }
+                double latitude = position[0];
+                double longitude = position[1];
+                if (radius.isEmpty()) {
+                    search = String.format(Locale.ROOT, "nearest %f,%f,%d", latitude, longitude, NEAREST_COUNT);
+                    lookup = () -> index.nearest(latitude, longitude, NEAREST_COUNT);
+                } else {
+                    double km = Double.parseDouble(radius);
+                    if (!(km > 0)) {
+                        throw new NumberFormatException(radius);
+                    }
+                    search = String.format(Locale.ROOT, "radius %f,%f,%f", latitude, longitude, km);
+                    lookup = () -> index.withinRadius(latitude, longitude, km);
                 }
             }
+        } catch (NumberFormatException e) {
+            showAlert(Alert.AlertType.ERROR, "Search Failed", "Please enter coordinates and a positive radius as numbers");
+            return;
+        }
+
+        List<PhotoSnapshot> matches = lookupCached(QueryCache.Key.location(search), lookup);
+        defineResults("", null, null);
+        LibrarySnapshot snapshot = currentUser.snapshot();
+        runSearch("location", search, snapshot, () -> matches, null);
+    }
+
+    /**
+     * Handles the map overview button click event
+     * Lists where the user's photos were taken, grouped into map cells as fine as a short list allows,
+     * and searches the cell picked
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleMapOverview(ActionEvent event) {
+        GeoIndex index = currentUser.getGeoIndex();
+        if (index.size() == 0) {
+            showAlert(Alert.AlertType.INFORMATION, "Map Overview",
+                    "No photos have a position yet. Photos get one from their GPS data or a location tag.");
+            return;
+        }
+
+        List<GeoIndex.Cluster> clusters = index.clusters(-90, -180, 90, 180, 1);
+        for (int level = 2; level <= GeoIndex.MAX_CLUSTER_LEVEL; level++) {
+            List<GeoIndex.Cluster> finer = index.clusters(-90, -180, 90, 180, level);
+            if (finer.size() > OVERVIEW_CLUSTERS) {
+                break;
+            }
+            clusters = finer;
         }
+        clusters.sort(Comparator.comparingInt(GeoIndex.Cluster::getCount).reversed());
 
+        Map<String, GeoIndex.Cluster> choices = new LinkedHashMap<>();
+        for (GeoIndex.Cluster cluster : clusters) {
+            String place = Gazetteer.getDefault().nearest(cluster.getLatitude(), cluster.getLongitude());
+            choices.put(String.format(Locale.ROOT, "%d photos near %s (%.2f, %.2f)", cluster.getCount(),
+                    place != null ? place : "unknown place", cluster.getLatitude(), cluster.getLongitude()), cluster);
+        }
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(choices.keySet().iterator().next(), choices.keySet());
+        dialog.setTitle("Map Overview");
+        dialog.setHeaderText("Where your photos were taken");
+        dialog.setContentText("Show photos from:");
+        dialog.showAndWait().ifPresent(choice -> {
+            GeoIndex.Cluster cluster = choices.get(choice);
+            nearField.setText(String.format(Locale.ROOT, "%f,%f,%f,%f",
+                    cluster.getSouth(), cluster.getWest(), cluster.getNorth(), cluster.getEast()));
+            radiusField.clear();
+            handleLocationSearch(event);
+        });
+    }
+
+    /**
+     * Handles the clear filters button click event
+     * Drops the search results and facet refinements and shows the overview of the whole library again
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleClearFilters(ActionEvent event) {
+        tasks.cancelAll();
+        searchResults = new ArrayList<>();
+        resultSnapshots = null;
+        resultsWithoutQuery = false;
+        defineResults("", null, null);
         displayResults();
-        showAlert(Alert.AlertType.INFORMATION, "Search Completed", "Found " + searchResults.size() + " photos");
+        facets = currentUser.getFacetIndex().counts();
+        displayFacets();
+    }
+
+    /**
+     * Narrows the shown results, or the whole library before any search, to the photos matching a facet
+     * @param description Description of the facet, for the flight recorder
+     * @param filter The photos to keep
+     */
+    private void refine(String description, Predicate<PhotoSnapshot> filter) {
+        LibrarySnapshot snapshot = currentUser.snapshot();
+        List<PhotoSnapshot> scope = resultSnapshots != null ? resultSnapshots : snapshot.getAllPhotos();
+        runSearch("facet", description, snapshot, () -> {
+            List<PhotoSnapshot> refined = new ArrayList<>();
+            for (PhotoSnapshot photo : scope) {
+                if (filter.test(photo)) {
+                    refined.add(photo);
+                }
+            }
+            return refined;
+        }, null);
+    }
+
+    /**
+     * Displays the current facet counts in the browse lists and the timeline histogram.
+     * The timeline uses the coarsest granularity that splits the photos, so clicking a year drills down to months.
+     */
+    private void displayFacets() {
+        String selectedName = tagNameList.getSelectionModel().getSelectedItem();
+        tagNameList.setItems(FXCollections.observableArrayList(facets.getTagNames().keySet()));
+        if (selectedName != null && facets.getTagNames().containsKey(selectedName)) {
+            tagNameList.getSelectionModel().select(selectedName);
+        }
+
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        for (Map.Entry<String, Integer> count : facets.getTimeline(facets.getCoarsestUseful()).entrySet()) {
+            XYChart.Data<String, Number> bar = new XYChart.Data<>(count.getKey(), count.getValue());
+            bar.nodeProperty().addListener((obs, old, node) -> {
+                if (node != null) {
+                    node.setOnMouseClicked(event -> {
+                        String period = bar.getXValue();
+                        if (resultSnapshots == null) {
+                            defineResults("", null, null);
+                        }
+                        Date start = FacetCounts.periodStart(period);
+                        Date end = FacetCounts.periodEnd(period);
+                        defineResults(resultQuery, resultStart != null && resultStart.after(start) ? resultStart : start,
+                                resultEnd != null && resultEnd.before(end) ? resultEnd : end);
+                        refine("taken " + period, photo -> FacetCounts.dayOf(photo.getDateTaken()).startsWith(period));
+                    });
+                }
+            });
+            series.getData().add(bar);
+        }
+        timelineChart.getData().setAll(List.of(series));
+    }
+
+    /**
+     * Creates a list cell showing a facet with its photo count
+     * @param count Looks up the count of a facet
+     * @return The cell
+     */
+    private static ListCell<String> facetCell(Function<String, Integer> count) {
+        return new ListCell<>() {
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : item + " (" + count.apply(item) + ")");
+            }
+        };
+    }
+
+    /**
+     * Answers an index lookup through the user's query cache. Index lookups are logarithmic,
+     * so they run right here on the model thread.
+     * @param key Normalized search, for the cache
+     * @param lookup Finds the matching photos in the order to show them
+     * @return Snapshots of the matching photos
+     */
+    private List<PhotoSnapshot> lookupCached(QueryCache.Key key, Supplier<List<Photo>> lookup) {
+        QueryCache cache = currentUser.getQueryCache();
+        List<Photo> found = cache.get(key);
+        if (found == null) {
+            long ticket = cache.ticket();
+            found = lookup.get();
+            cache.put(key, ticket, found);
+        }
+        List<PhotoSnapshot> matches = new ArrayList<>(found.size());
+        for (Photo photo : found) {
+            matches.add(photo.snapshot());
+        }
+        return matches;
+    }
+
+    /**
+     * Runs a search through the user's query cache: a cached result is shown without searching,
+     * otherwise the search runs and its result is cached
+     * @param kind Kind of search, for the flight recorder
+     * @param query Description of the search criteria, for the flight recorder
+     * @param key Normalized search, for the cache
+     * @param snapshot The snapshot being searched
+     * @param search The search to run; must only read the snapshot
+     */
+    private void runCachedSearch(String kind, String query, QueryCache.Key key, LibrarySnapshot snapshot,
+                                 Supplier<List<PhotoSnapshot>> search) {
+        QueryCache cache = currentUser.getQueryCache();
+        List<Photo> cached = cache.get(key);
+        if (cached != null) {
+            List<PhotoSnapshot> results = new ArrayList<>(cached.size());
+            for (Photo photo : cached) {
+                results.add(photo.snapshot());
+            }
+            runSearch(kind, query, snapshot, () -> results, null);
+            return;
+        }
+        long ticket = cache.ticket();
+        runSearch(kind, query, snapshot, search, results -> cache.put(key, ticket, results));
+    }
+
+    /**
+     * Runs a search over a library snapshot on the task scheduler
+     * and displays the results once it completes. A previous search still running is cancelled.
+     * @param kind Kind of search, for the flight recorder
+     * @param query Description of the search criteria, for the flight recorder
+     * @param snapshot The snapshot being searched
+     * @param search The search to run; must only read the snapshot
+     * @param onResults Receives the matching photos on the application thread, or null
+     */
+    private void runSearch(String kind, String query, LibrarySnapshot snapshot, Supplier<List<PhotoSnapshot>> search,
+                           Consumer<List<Photo>> onResults) {
+        tasks.cancelAll();
+        if (!kind.equals("facet")) {
+            // Facet clicks narrow the previous results, so they inherit where those came from
+            resultsWithoutQuery = kind.equals("location") || kind.equals("similar") || kind.equals("related");
+        }
+        tasks.submit(TaskScheduler.Priority.VISIBLE, TaskScheduler.Resource.CPU, () -> {
+            SearchEvent event = new SearchEvent();
+            event.begin();
+            long start = System.nanoTime();
+            List<PhotoSnapshot> results = null;
+            try {
+                results = search.get();
+            } finally {
+                SEARCH_TIME.recordSince(start);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.kind = kind;
+                    event.query = query;
+                    event.photoCount = snapshot.getAllPhotos().size();
+                    event.resultCount = results != null ? results.size() : -1;
+                    event.commit();
+                }
+            }
+            // Counting the results' facets takes time proportional to the results, so it is done here too
+            return new Outcome(results, FacetCounts.of(results));
+        }).whenComplete((outcome, error) -> Platform.runLater(() -> {
+            if (error instanceof CancellationException) return;
+            if (error != null) {
+                error.printStackTrace();
+                showAlert(Alert.AlertType.ERROR, "Search Failed", "An error occurred while searching");
+                return;
+            }
+
+            searchResults = new ArrayList<>();
+            for (PhotoSnapshot photo : outcome.photos) {
+                searchResults.add(photo.getSource());
+            }
+            resultSnapshots = outcome.photos;
+            facets = outcome.facets;
+            if (onResults != null) {
+                onResults.accept(searchResults);
+            }
+            displayResults();
+            displayFacets();
+            if (!kind.equals("facet")) {
+                // Facet clicks update the counts in place, which already shows how many photos are left
+                showAlert(Alert.AlertType.INFORMATION, "Search Completed", "Found " + searchResults.size() + " photos");
+            }
+        }));
+    }
+
+    /**
+     * Results of a background search with their facet counts
+     */
+    private static final class Outcome {
+        final List<PhotoSnapshot> photos;
+        final FacetCounts facets;
+
+        Outcome(List<PhotoSnapshot> photos, FacetCounts facets) {
+            this.photos = photos;
+            this.facets = facets;
+        }
     }
 
     /**
@@ -206,8 +670,10 @@ public class SearchController {
      * @return ImageView with thumbnail and click event listener
      */
     private ImageView createPhotoThumbnail(Photo photo) {
-        Image image = new Image(new File(photo.getPath()).toURI().toString(), 150, 150, true, true);
-        ImageView imageView = new ImageView(image);
+        ImageView imageView = new ImageView();
+        tasks.submit(TaskScheduler.Priority.VISIBLE, TaskScheduler.Resource.CPU,
+                () -> ImageLoader.loadThumbnail(photo.getPath(), 150))
+                .thenAccept(image -> Platform.runLater(() -> imageView.setImage(image)));
 
         // Set click event to show photo details
         imageView.setOnMouseClicked(event -> {
@@ -217,8 +683,7 @@ public class SearchController {
             alert.setHeaderText(null);
 
             // Create large image display
-            Image largeImage = new Image(new File(photo.getPath()).toURI().toString(), 400, 400, true, true);
-            ImageView largeImageView = new ImageView(largeImage);
+            ImageView largeImageView = new ImageView(ImageLoader.load(photo.getPath(), 400));
 
             // Build details text
             SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -245,12 +710,39 @@ public class SearchController {
             alert.getDialogPane().setGraphic(largeImageView);
             alert.getDialogPane().setContentText(details.toString());
 
-            alert.showAndWait();
+            ButtonType zoom = new ButtonType("Zoom");
+            alert.getButtonTypes().add(zoom);
+            if (alert.showAndWait().orElse(null) == zoom) {
+                openZoomView(photo);
+            }
         });
 
         return imageView;
     }
 
+    /**
+     * Opens a photo in a zoomable viewer window
+     * @param photo The photo to view
+     */
+    private void openZoomView(Photo photo) {
+        try {
+            FXMLLoader loader = new FXMLLoader(Application.class.getResource("zoomview.fxml"));
+            Parent root = loader.load();
+
+            ZoomViewController controller = loader.getController();
+            controller.setPhoto(photo);
+
+            Stage stage = new Stage();
+            stage.setScene(new Scene(root, 1024, 768));
+            stage.setTitle("Photo Manager - " + new File(photo.getPath()).getName());
+            stage.setOnHidden(e -> controller.close());
+            stage.show();
+        } catch (IOException e) {
+            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "Error", "Failed to open the photo for zooming");
+        }
+    }
+
     /**
      * Handles the back button click event
      * Navigates back to the user's album list interface
@@ -258,19 +750,16 @@ public class SearchController {
      */
     @FXML
     public void handleBack(ActionEvent event) {
+        if (tasks.getOutstanding() > 0) {
+            // Stop work for a view that is no longer visible; redraw the results when it is shown again
+            tasks.cancelAll();
+            resultsStale = true;
+        }
         try {
-            Stage stage = (Stage) backButton.getScene().getWindow();
-            FXMLLoader loader = new FXMLLoader(Application.class.getResource("user.fxml"));
-            Parent root = loader.load();
-
-            UserController controller = loader.getController();
+            UserController controller = Navigator.of(backButton.getScene().getWindow())
+                    .show("user.fxml", "Photo Manager - " + currentUser.getUsername());
             controller.setUser(currentUser);
             controller.setStorageManager(storageManager);
-
-            Scene scene = new Scene(root);
-            stage.setScene(scene);
-            stage.setTitle("Photo Manager - " + currentUser.getUsername());
-            stage.show();
         } catch (IOException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to load user interface");
@@ -295,21 +784,76 @@ public class SearchController {
             return;
         }
 
-        if (currentUser.findAlbum(albumName) != null) {
+        if (currentUser.findAlbum(albumName) != null || currentUser.findSmartAlbum(albumName) != null) {
             showAlert(Alert.AlertType.ERROR, "Creation Failed", "Album name already exists");
             return;
         }
 
-        Album newAlbum = currentUser.createAlbum(albumName);
-        for (Photo photo : searchResults) {
-            newAlbum.addPhoto(photo);
-        }
+        ModelChanges.inTransaction(() -> {
+            Album newAlbum = currentUser.createAlbum(albumName);
+            for (Photo photo : searchResults) {
+                newAlbum.addPhoto(photo);
+            }
+        });
 
         storageManager.saveUsers();
         showAlert(Alert.AlertType.INFORMATION, "Creation Successful", "Album " + albumName + " created with " + searchResults.size() + " photos");
         albumNameField.clear();
     }
 
+    /**
+     * Handles the save as smart album button click event
+     * Saves the criteria of the shown results as a smart album, which keeps matching photos as the library changes
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleCreateSmartAlbum(ActionEvent event) {
+        if (resultsWithoutQuery) {
+            showAlert(Alert.AlertType.ERROR, "Creation Failed", "Location, similar and related photo searches cannot be "
+                    + "saved as smart albums; use Create Album from Results to keep these photos");
+            return;
+        }
+        if (resultQuery.isEmpty() && resultStart == null && resultEnd == null) {
+            showAlert(Alert.AlertType.ERROR, "Creation Failed", "Please run a search first");
+            return;
+        }
+
+        String albumName = albumNameField.getText().trim();
+        if (albumName.isEmpty()) {
+            showAlert(Alert.AlertType.ERROR, "Creation Failed", "Please enter an album name");
+            return;
+        }
+
+        SmartAlbum album;
+        try {
+            album = currentUser.createSmartAlbum(albumName, resultQuery, resultStart, resultEnd);
+        } catch (IllegalArgumentException e) {
+            showAlert(Alert.AlertType.ERROR, "Creation Failed", "These criteria cannot be saved: " + e.getMessage());
+            return;
+        }
+        if (album == null) {
+            showAlert(Alert.AlertType.ERROR, "Creation Failed", "Album name already exists");
+            return;
+        }
+
+        storageManager.saveUsers();
+        showAlert(Alert.AlertType.INFORMATION, "Creation Successful", "Smart album " + albumName + " created with "
+                + album.getPhotoCount() + " photos; it will keep up with new and retagged photos");
+        albumNameField.clear();
+    }
+
+    /**
+     * Records the criteria of the results being searched for
+     * @param query Tag query, or empty for any tags
+     * @param start Earliest capture date, or null for none
+     * @param end Latest capture date, or null for none
+     */
+    private void defineResults(String query, Date start, Date end) {
+        resultQuery = query;
+        resultStart = start;
+        resultEnd = end;
+    }
+
     /**
      * Displays a standard alert dialog
      * @param type The alert type (information, error, confirmation, etc.)
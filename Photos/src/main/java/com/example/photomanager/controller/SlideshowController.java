@@ -0,0 +1,241 @@
+package com.example.photomanager.controller;
+
+import com.example.photomanager.image.ImagePrefetcher;
+import com.example.photomanager.model.Photo;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Screen;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Slideshow Controller showing the photos of an album one at a time.
+ * Neighbouring photos are decoded in the background at screen resolution, and each photo is
+ * drawn into a hidden view that is swapped in once it is ready, so the old photo stays on
+ * screen until the new one can replace it.
+ */
+public class SlideshowController {
+    private static final int PREFETCH_RADIUS = 3;
+    private static final Duration SLIDE_INTERVAL = Duration.seconds(4);
+
+    @FXML
+    private StackPane imagePane;
+
+    @FXML
+    private ImageView frontView;
+
+    @FXML
+    private ImageView backView;
+
+    @FXML
+    private Label captionLabel;
+
+    @FXML
+    private Button prevButton;
+
+    @FXML
+    private Button playButton;
+
+    @FXML
+    private Button nextButton;
+
+    @FXML
+    private Button closeButton;
+
+    private List<Photo> photos;
+    private List<String> paths;
+    private int currentIndex;
+    private ImagePrefetcher prefetcher;
+    private Timeline timer;
+    // Incremented on every navigation, so late decodes of photos no longer wanted are ignored
+    private int displayGeneration;
+
+    /**
+     * Initialization method
+     * Binds both image views to the size of the pane and prepares the auto-advance timer
+     */
+    @FXML
+    public void initialize() {
+        for (ImageView view : new ImageView[]{frontView, backView}) {
+            view.fitWidthProperty().bind(imagePane.widthProperty());
+            view.fitHeightProperty().bind(imagePane.heightProperty());
+        }
+        backView.setVisible(false);
+
+        timer = new Timeline(new KeyFrame(SLIDE_INTERVAL, e -> advance()));
+        timer.setCycleCount(Timeline.INDEFINITE);
+
+        Rectangle2D screen = Screen.getPrimary().getVisualBounds();
+        prefetcher = new ImagePrefetcher((int) screen.getWidth(), (int) screen.getHeight(), PREFETCH_RADIUS);
+    }
+
+    /**
+     * Sets the photos to show and displays the first one
+     * @param photos The photos in display order
+     * @param startIndex Index of the photo to show first
+     */
+    public void setPhotos(List<Photo> photos, int startIndex) {
+        this.photos = new ArrayList<>(photos);
+        this.paths = new ArrayList<>(photos.size());
+        for (Photo photo : this.photos) {
+            paths.add(photo.getPath());
+        }
+        showPhoto(Math.max(0, Math.min(startIndex, photos.size() - 1)));
+    }
+
+    /**
+     * Shows the photo at an index once it is decoded
+     * @param index Index of the photo to show
+     */
+    private void showPhoto(int index) {
+        if (photos.isEmpty()) return;
+
+        currentIndex = index;
+        int generation = ++displayGeneration;
+        Photo photo = photos.get(index);
+        captionLabel.setText((index + 1) + " / " + photos.size() + "  " + photo.getCaption());
+        prevButton.setDisable(index <= 0);
+        nextButton.setDisable(index >= photos.size() - 1);
+
+        prefetcher.show(paths, index).whenComplete((image, error) -> Platform.runLater(() -> {
+            if (generation != displayGeneration) return;
+            if (error != null) {
+                error.printStackTrace();
+                return;
+            }
+            swapIn(image);
+        }));
+    }
+
+    /**
+     * Draws an image into the hidden view and makes it the visible one
+     * @param image The decoded image
+     */
+    private void swapIn(Image image) {
+        backView.setImage(image);
+        backView.setVisible(true);
+        frontView.setVisible(false);
+        frontView.setImage(null);
+
+        ImageView shown = backView;
+        backView = frontView;
+        frontView = shown;
+    }
+
+    /**
+     * Advances to the next photo for the timer, stopping at the end of the album
+     */
+    private void advance() {
+        if (currentIndex < photos.size() - 1) {
+            showPhoto(currentIndex + 1);
+        } else {
+            stopTimer();
+        }
+    }
+
+    /**
+     * Stops auto-advance and resets the play button
+     */
+    private void stopTimer() {
+        timer.stop();
+        playButton.setText("Play");
+    }
+
+    /**
+     * Handles the previous photo button click event
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handlePrev(ActionEvent event) {
+        if (currentIndex > 0) {
+            showPhoto(currentIndex - 1);
+        }
+    }
+
+    /**
+     * Handles the next photo button click event
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleNext(ActionEvent event) {
+        if (currentIndex < photos.size() - 1) {
+            showPhoto(currentIndex + 1);
+        }
+    }
+
+    /**
+     * Handles the play/pause button click event
+     * Starts or stops advancing to the next photo on a timer
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handlePlay(ActionEvent event) {
+        if (timer.getStatus() == Timeline.Status.RUNNING) {
+            stopTimer();
+        } else {
+            timer.playFromStart();
+            playButton.setText("Pause");
+        }
+    }
+
+    /**
+     * Handles the close button click event
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleClose(ActionEvent event) {
+        ((Stage) closeButton.getScene().getWindow()).close();
+    }
+
+    /**
+     * Handles keyboard navigation: arrow keys step, space plays or pauses,
+     * Home and End jump to the ends of the album, Escape closes
+     * @param event The key event
+     */
+    public void handleKey(KeyEvent event) {
+        switch (event.getCode()) {
+            case LEFT:
+                handlePrev(null);
+                break;
+            case RIGHT:
+                handleNext(null);
+                break;
+            case HOME:
+                showPhoto(0);
+                break;
+            case END:
+                showPhoto(photos.size() - 1);
+                break;
+            case SPACE:
+                handlePlay(null);
+                break;
+            case ESCAPE:
+                handleClose(null);
+                break;
+            default:
+                return;
+        }
+        event.consume();
+    }
+
+    /**
+     * Stops the timer and cancels background decodes. Called when the window closes.
+     */
+    public void close() {
+        timer.stop();
+        prefetcher.close();
+    }
+}
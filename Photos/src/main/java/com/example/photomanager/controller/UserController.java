@@ -1,23 +1,30 @@
 package com.example.photomanager.controller;
 
-import com.example.photomanager.Application;
 import com.example.photomanager.model.Album;
+import com.example.photomanager.model.ModelChange;
+import com.example.photomanager.model.ModelChangeListener;
+import com.example.photomanager.model.ModelChanges;
+import com.example.photomanager.model.SmartAlbum;
 import com.example.photomanager.model.StorageManager;
+import com.example.photomanager.model.TagRewrite;
+import com.example.photomanager.model.TagSchema;
+import com.example.photomanager.model.TagType;
 import com.example.photomanager.model.User;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
 import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.List;
 
-public class UserController {
+public class UserController implements ModelChangeListener {
     @FXML
     private ListView<Album> albumsListView;
     @FXML
@@ -38,6 +45,10 @@ public class UserController {
     private MenuItem quitMenuItem;
     @FXML
     private MenuItem searchMenuItem;
+    @FXML
+    private MenuItem rewriteTagMenuItem;
+    @FXML
+    private MenuItem tagTypeMenuItem;
 
     private User currentUser;
     private StorageManager storageManager;
@@ -61,7 +72,8 @@ public class UserController {
                     setText(null);
                 } else {
                     SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                    String info = String.format("%s (%d photos)  %s - %s",
+                    String info = String.format("%s%s (%d photos)  %s - %s",
+                            item instanceof SmartAlbum ? "[Smart] " : "",
                             item.getName(),
                             item.getPhotoCount(),
                             item.getEarliestDate() != null ? sdf.format(item.getEarliestDate()) : "None",
@@ -77,16 +89,80 @@ public class UserController {
                 updateAlbumInfo(newVal);
             }
         });
+
+        ModelChanges.subscribe(this);
+    }
+
+    /**
+     * Applies model changes to the album list: inserts or removes added or deleted albums
+     * and redraws the entries of renamed albums or albums whose photos changed
+     * @param changes The changes of one transaction
+     */
+    @Override
+    public void modelChanged(List<ModelChange> changes) {
+        if (!Platform.isFxApplicationThread()) {
+            // Edited on another thread; reload the list on the FX thread instead of applying the positions
+            Platform.runLater(() -> {
+                if (currentUser != null) {
+                    setUser(currentUser);
+                }
+            });
+            return;
+        }
+        if (currentUser == null) return;
+
+        boolean redraw = false;
+        for (ModelChange change : changes) {
+            switch (change.getType()) {
+                case ALBUM_ADDED:
+                    if (change.getUser() == currentUser) {
+                        albums.add(Math.min(change.getIndex(), albums.size()), change.getAlbum());
+                    }
+                    break;
+                case ALBUM_REMOVED:
+                    if (change.getUser() == currentUser) {
+                        albums.remove(change.getAlbum());
+                    }
+                    break;
+                case ALBUM_RENAMED:
+                case PHOTO_ADDED:
+                case PHOTO_REMOVED:
+                    redraw |= albums.contains(change.getAlbum());
+                    break;
+                case USER_RELOADED:
+                    if (change.getUser() == currentUser) {
+                        setUser(currentUser);
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (redraw) {
+            albumsListView.refresh();
+            Album selected = albumsListView.getSelectionModel().getSelectedItem();
+            if (selected != null) {
+                updateAlbumInfo(selected);
+            }
+        }
     }
 
     /**
      * Sets the current logged-in user and loads their albums into the list.
+     * The selected album is kept if it still exists, so returning to this view keeps its state.
      * @param user The current user to set
      */
     public void setUser(User user) {
+        Album selected = albumsListView.getSelectionModel().getSelectedItem();
         this.currentUser = user;
-        albums.clear();
-        albums.addAll(user.getAlbums());
+        albums.setAll(user.getAlbums());
+        albums.addAll(user.getSmartAlbums());
+        if (selected != null && albums.contains(selected)) {
+            albumsListView.getSelectionModel().select(selected);
+            updateAlbumInfo(selected);
+        }
     }
 
     /**
@@ -108,6 +184,13 @@ public class UserController {
         info.append("Photo Count: ").append(album.getPhotoCount()).append("\n");
         info.append("Earliest Date: ").append(album.getEarliestDate() != null ? sdf.format(album.getEarliestDate()) : "None").append("\n");
         info.append("Latest Date: ").append(album.getLatestDate() != null ? sdf.format(album.getLatestDate()) : "None");
+        if (album instanceof SmartAlbum) {
+            SmartAlbum smart = (SmartAlbum) album;
+            SimpleDateFormat day = new SimpleDateFormat("yyyy-MM-dd");
+            info.append("\nSmart Album Query: ").append(smart.getQuery().isEmpty() ? "Any tags" : smart.getQuery());
+            info.append("\nTaken Between: ").append(smart.getStartDate() != null ? day.format(smart.getStartDate()) : "Any")
+                    .append(" and ").append(smart.getEndDate() != null ? day.format(smart.getEndDate()) : "Any");
+        }
         albumInfoLabel.setText(info.toString());
     }
 
@@ -127,7 +210,6 @@ public class UserController {
             if (!name.trim().isEmpty()) {
                 Album album = currentUser.createAlbum(name.trim());
                 if (album != null) {
-                    albums.add(album);
                     storageManager.saveUsers();
                     showAlert(Alert.AlertType.INFORMATION, "Success", "Album created successfully");
                 } else {
@@ -155,8 +237,11 @@ public class UserController {
         alert.setContentText("Are you sure you want to delete the album '" + selected.getName() + "'?");
         alert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                currentUser.deleteAlbum(selected);
-                albums.remove(selected);
+                if (selected instanceof SmartAlbum) {
+                    currentUser.deleteSmartAlbum((SmartAlbum) selected);
+                } else {
+                    currentUser.deleteAlbum(selected);
+                }
                 storageManager.saveUsers();
                 showAlert(Alert.AlertType.INFORMATION, "Success", "Album deleted successfully");
             }
@@ -183,14 +268,13 @@ public class UserController {
             return;
         }
 
-        if (currentUser.findAlbum(newName) != null) {
+        if (currentUser.findAlbum(newName) != null || currentUser.findSmartAlbum(newName) != null) {
             showAlert(Alert.AlertType.ERROR, "Error", "Name already exists");
             return;
         }
 
         selected.setName(newName);
         renameField.clear();
-        albumsListView.refresh();
         storageManager.saveUsers();
         showAlert(Alert.AlertType.INFORMATION, "Success", "Album renamed successfully");
     }
@@ -209,19 +293,11 @@ public class UserController {
         }
 
         try {
-            Stage stage = (Stage) openAlbumButton.getScene().getWindow();
-            FXMLLoader loader = new FXMLLoader(Application.class.getResource("album.fxml"));
-            Parent root = loader.load();
-
-            AlbumController controller = loader.getController();
+            AlbumController controller = Navigator.of(openAlbumButton.getScene().getWindow())
+                    .show("album.fxml", "Album - " + selected.getName(), 1000, 800);
             controller.setUser(currentUser);
             controller.setAlbum(selected);
             controller.setStorageManager(storageManager);
-
-            Scene scene = new Scene(root, 1000, 800);
-            stage.setScene(scene);
-            stage.setTitle("Album - " + selected.getName());
-            stage.show();
         } catch (IOException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to open album");
@@ -236,14 +312,9 @@ public class UserController {
     @FXML
     public void handleLogout(ActionEvent event) {
         try {
-            Stage stage = (Stage) logoutMenuItem.getParentPopup().getOwnerWindow();
-            FXMLLoader loader = new FXMLLoader(Application.class.getResource("login.fxml"));
-            Parent root = loader.load();
-
-            Scene scene = new Scene(root, 400, 300);
-            stage.setScene(scene);
-            stage.setTitle("Photo Manager - Login");
-            stage.show();
+            Navigator navigator = Navigator.of(logoutMenuItem.getParentPopup().getOwnerWindow());
+            navigator.endSession();
+            navigator.show(Navigator.LOGIN, "Photo Manager - Login", 400, 300);
         } catch (IOException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to logout");
@@ -269,24 +340,137 @@ public class UserController {
     @FXML
     public void handleSearch(ActionEvent event) {
         try {
-            Stage stage = (Stage) searchMenuItem.getParentPopup().getOwnerWindow();
-            FXMLLoader loader = new FXMLLoader(Application.class.getResource("search.fxml"));
-            Parent root = loader.load();
-
-            SearchController controller = loader.getController();
+            SearchController controller = Navigator.of(searchMenuItem.getParentPopup().getOwnerWindow())
+                    .show("search.fxml", "Search Photos", 1000, 800);
             controller.setUser(currentUser);
             controller.setStorageManager(storageManager);
-
-            Scene scene = new Scene(root, 1000, 800);
-            stage.setScene(scene);
-            stage.setTitle("Search Photos");
-            stage.show();
         } catch (IOException e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to open search interface");
         }
     }
 
+    /**
+     * Handles the rename or merge tag action.
+     * Asks which tags to rewrite and into what, shows how many photos would change,
+     * and rewrites them across all of the user's albums once confirmed.
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleRewriteTag(ActionEvent event) {
+        TextField nameField = new TextField();
+        nameField.setPromptText("e.g. location");
+        TextField valueField = new TextField();
+        valueField.setPromptText("Any value");
+        TextField newNameField = new TextField();
+        newNameField.setPromptText("Keep name");
+        TextField newValueField = new TextField();
+        newValueField.setPromptText("Keep value");
+        CheckBox ignoreCaseBox = new CheckBox("Ignore case");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Tag name:"), nameField);
+        grid.addRow(1, new Label("Tag value:"), valueField);
+        grid.addRow(2, new Label("New name:"), newNameField);
+        grid.addRow(3, new Label("New value:"), newValueField);
+        grid.add(ignoreCaseBox, 1, 4);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Rename or Merge Tag");
+        dialog.setHeaderText("Rewrite a tag on all photos, e.g. location=NYC to location=New York");
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
+
+        String name = nameField.getText().trim();
+        String value = valueField.getText().trim();
+        String newName = newNameField.getText().trim();
+        String newValue = newValueField.getText().trim();
+        if (name.isEmpty() || (newName.isEmpty() && newValue.isEmpty())) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Please enter a tag name and a new name or value");
+            return;
+        }
+
+        TagRewrite rewrite = new TagRewrite(name, value.isEmpty() ? null : value,
+                newName.isEmpty() ? null : newName, newValue.isEmpty() ? null : newValue, ignoreCaseBox.isSelected());
+        int count;
+        try {
+            count = rewrite.preview(currentUser);
+        } catch (IllegalArgumentException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", e.getMessage());
+            return;
+        }
+        if (count == 0) {
+            showAlert(Alert.AlertType.INFORMATION, "Rename Tag", "No photos have a matching tag");
+            return;
+        }
+
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Confirm Rename");
+        confirm.setHeaderText(null);
+        confirm.setContentText(rewrite + " will change " + count + " photos. Continue?");
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
+            int changed = rewrite.apply(currentUser);
+            storageManager.saveUsers();
+            showAlert(Alert.AlertType.INFORMATION, "Success", changed + " photos have been updated");
+        }
+    }
+
+    /**
+     * Handles the declare tag type action.
+     * Declares a tag name as holding numbers, dates or one of a list of values, so searches can
+     * compare its values by range; declaring it as text removes the declaration.
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleDeclareTagType(ActionEvent event) {
+        TagSchema schema = TagSchema.getDefault();
+        TextField nameField = new TextField();
+        nameField.setPromptText("e.g. rating");
+        ChoiceBox<TagType> typeBox = new ChoiceBox<>(FXCollections.observableArrayList(TagType.values()));
+        typeBox.setValue(TagType.NUMBER);
+        TextField valuesField = new TextField();
+        valuesField.setPromptText("For enum: low, medium, high");
+        nameField.textProperty().addListener((obs, old, name) -> {
+            typeBox.setValue(schema.typeOf(name));
+            valuesField.setText(String.join(", ", schema.enumValues(name)));
+        });
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Tag name:"), nameField);
+        grid.addRow(1, new Label("Type:"), typeBox);
+        grid.addRow(2, new Label("Enum values:"), valuesField);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Declare Tag Type");
+        dialog.setHeaderText("Typed tags can be searched by range, e.g. rating >= 4");
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
+
+        String name = nameField.getText().trim();
+        if (name.isEmpty()) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Please enter a tag name");
+            return;
+        }
+        String values = valuesField.getText().trim();
+        try {
+            schema.declare(name, typeBox.getValue(),
+                    values.isEmpty() ? List.of() : Arrays.asList(values.split("\\s*,\\s*")));
+            showAlert(Alert.AlertType.INFORMATION, "Success", name + " is now declared as " + typeBox.getValue());
+        } catch (IllegalArgumentException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", e.getMessage());
+        }
+    }
+
     /**
      * Displays a standard alert dialog with the specified type, title, and message.
      * @param type The alert type (information, error, confirmation, etc.)
@@ -0,0 +1,229 @@
+package com.example.photomanager.controller;
+
+import com.example.photomanager.image.TiledImage;
+import com.example.photomanager.model.Photo;
+import com.example.photomanager.model.StorageManager;
+import com.example.photomanager.task.TaskGroup;
+import com.example.photomanager.task.TaskScheduler;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Zoom View Controller showing a single photo at any zoom level.
+ * The photo is drawn from a {@link TiledImage}, so only the tiles visible at the current
+ * zoom are decoded; the coarsest level is drawn underneath while finer tiles load.
+ * Scroll to zoom around the cursor, drag to pan.
+ */
+public class ZoomViewController {
+    private static final double ZOOM_STEP = 1.25;
+    private static final double MAX_SCALE = 8;
+    // Size the on-disk tile cache is pruned to when a photo is opened
+    private static final long TILE_CACHE_BYTES = 512L * 1024 * 1024;
+
+    @FXML
+    private Pane viewPane;
+
+    @FXML
+    private Canvas canvas;
+
+    @FXML
+    private Label zoomLabel;
+
+    @FXML
+    private Button fitButton;
+
+    @FXML
+    private Button closeButton;
+
+    private final TaskGroup housekeeping = TaskScheduler.getDefault().newGroup();
+    private TiledImage image;
+    // Screen pixels per photo pixel
+    private double scale;
+    // Photo coordinates shown at the top-left corner of the canvas
+    private double originX;
+    private double originY;
+    private double dragX;
+    private double dragY;
+    private boolean fitted;
+
+    /**
+     * Initialization method
+     * Sizes the canvas to its pane and installs the zoom and pan handlers
+     */
+    @FXML
+    public void initialize() {
+        canvas.widthProperty().bind(viewPane.widthProperty());
+        canvas.heightProperty().bind(viewPane.heightProperty());
+        canvas.widthProperty().addListener((observable, oldValue, newValue) -> layoutChanged());
+        canvas.heightProperty().addListener((observable, oldValue, newValue) -> layoutChanged());
+
+        canvas.setOnScroll(this::handleScroll);
+        canvas.setOnMousePressed(event -> {
+            dragX = event.getX();
+            dragY = event.getY();
+        });
+        canvas.setOnMouseDragged(this::handleDrag);
+    }
+
+    /**
+     * Opens a photo for viewing
+     * @param photo The photo to show
+     * @throws IOException If the photo cannot be read
+     */
+    public void setPhoto(Photo photo) throws IOException {
+        File cacheRoot = new File(StorageManager.getStorageDirectory(), "tiles");
+        housekeeping.submit(TaskScheduler.Priority.PERSIST, TaskScheduler.Resource.IO, () -> {
+            TiledImage.pruneCache(cacheRoot, TILE_CACHE_BYTES);
+            return null;
+        });
+        image = new TiledImage(new File(photo.getPath()), cacheRoot);
+        image.setOnTileLoaded(this::redraw);
+        layoutChanged();
+    }
+
+    /**
+     * Fits the photo to the view the first time the canvas gets a size, and redraws
+     */
+    private void layoutChanged() {
+        if (image == null || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) return;
+        if (!fitted) {
+            fitted = true;
+            fit();
+        } else {
+            redraw();
+        }
+    }
+
+    /**
+     * Scales the whole photo to fit the view and centers it
+     */
+    private void fit() {
+        scale = Math.min(1.0, Math.min(canvas.getWidth() / image.getWidth(), canvas.getHeight() / image.getHeight()));
+        originX = (image.getWidth() - canvas.getWidth() / scale) / 2;
+        originY = (image.getHeight() - canvas.getHeight() / scale) / 2;
+        redraw();
+    }
+
+    /**
+     * Zooms in or out around the mouse position
+     * @param event The scroll event
+     */
+    private void handleScroll(ScrollEvent event) {
+        if (image == null || event.getDeltaY() == 0) return;
+
+        double minScale = Math.min(1.0, Math.min(canvas.getWidth() / image.getWidth(), canvas.getHeight() / image.getHeight()));
+        double newScale = event.getDeltaY() > 0 ? scale * ZOOM_STEP : scale / ZOOM_STEP;
+        newScale = Math.max(minScale, Math.min(MAX_SCALE, newScale));
+
+        // Keep the photo point under the cursor in place
+        originX += event.getX() / scale - event.getX() / newScale;
+        originY += event.getY() / scale - event.getY() / newScale;
+        scale = newScale;
+        redraw();
+        event.consume();
+    }
+
+    /**
+     * Pans the view by the distance dragged
+     * @param event The mouse event
+     */
+    private void handleDrag(MouseEvent event) {
+        if (image == null) return;
+
+        originX -= (event.getX() - dragX) / scale;
+        originY -= (event.getY() - dragY) / scale;
+        dragX = event.getX();
+        dragY = event.getY();
+        redraw();
+    }
+
+    /**
+     * Draws the visible tiles and requests the ones not yet loaded
+     */
+    private void redraw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(Color.BLACK);
+        g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        if (image == null) return;
+
+        // Finest level whose pixels are no smaller than a screen pixel
+        int level = 0;
+        while (level < image.getLevelCount() - 1 && scale * (1 << (level + 1)) <= 1) {
+            level++;
+        }
+        int span = TiledImage.TILE_SIZE << level;
+        int firstColumn = (int) Math.floor(originX / span);
+        int firstRow = (int) Math.floor(originY / span);
+        int lastColumn = (int) Math.floor((originX + canvas.getWidth() / scale) / span);
+        int lastRow = (int) Math.floor((originY + canvas.getHeight() / scale) / span);
+        image.showTiles(level, firstColumn, firstRow, lastColumn, lastRow);
+
+        int top = image.getLevelCount() - 1;
+        drawTiles(g, top, 0, 0, image.getColumns(top) - 1, image.getRows(top) - 1);
+        if (level != top) {
+            drawTiles(g, level, firstColumn, firstRow, lastColumn, lastRow);
+        }
+
+        zoomLabel.setText(Math.round(scale * 100) + "%");
+    }
+
+    /**
+     * Draws the loaded tiles of a region at one level
+     */
+    private void drawTiles(GraphicsContext g, int level, int firstColumn, int firstRow, int lastColumn, int lastRow) {
+        int step = 1 << level;
+        for (int row = Math.max(0, firstRow); row <= Math.min(lastRow, image.getRows(level) - 1); row++) {
+            for (int column = Math.max(0, firstColumn); column <= Math.min(lastColumn, image.getColumns(level) - 1); column++) {
+                Image tile = image.getTile(level, column, row);
+                if (tile == null) continue;
+
+                double x = ((double) column * TiledImage.TILE_SIZE * step - originX) * scale;
+                double y = ((double) row * TiledImage.TILE_SIZE * step - originY) * scale;
+                g.drawImage(tile, x, y, tile.getWidth() * step * scale, tile.getHeight() * step * scale);
+            }
+        }
+    }
+
+    /**
+     * Handles the fit button click event
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleFit(ActionEvent event) {
+        if (image != null) {
+            fit();
+        }
+    }
+
+    /**
+     * Handles the close button click event
+     * @param event The action event trigger
+     */
+    @FXML
+    public void handleClose(ActionEvent event) {
+        ((Stage) closeButton.getScene().getWindow()).close();
+    }
+
+    /**
+     * Stops loading tiles. Called when the window closes.
+     */
+    public void close() {
+        housekeeping.cancel();
+        if (image != null) {
+            image.close();
+        }
+    }
+}
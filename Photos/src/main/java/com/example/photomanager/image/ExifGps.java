@@ -0,0 +1,111 @@
+package com.example.photomanager.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads the position cameras and phones record in the GPS block of a JPEG file's EXIF data.
+ * Only the APP1 segment is read, never the image data.
+ */
+public final class ExifGps {
+    private static final int TAG_GPS_IFD = 0x8825;
+    private static final int TAG_LATITUDE_REF = 0x0001;
+    private static final int TAG_LATITUDE = 0x0002;
+    private static final int TAG_LONGITUDE_REF = 0x0003;
+    private static final int TAG_LONGITUDE = 0x0004;
+
+    private ExifGps() {
+    }
+
+    /**
+     * Reads the recorded position of a photo
+     * @param file The photo file
+     * @return Latitude and longitude in degrees, or null if the file records no position or cannot be read
+     */
+    public static double[] read(File file) {
+        try {
+            ByteBuffer tiff = ExifThumbnail.readTiff(file);
+            return tiff != null ? fromTiff(tiff) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static double[] fromTiff(ByteBuffer tiff) {
+        try {
+            if (tiff.getShort(0) == 0x4949) {
+                tiff.order(ByteOrder.LITTLE_ENDIAN);
+            } else if (tiff.getShort(0) != 0x4D4D) {
+                return null;
+            }
+
+            int gps = entryValue(tiff, tiff.getInt(4), TAG_GPS_IFD);
+            if (gps <= 0) {
+                return null;
+            }
+            int latitude = entryValue(tiff, gps, TAG_LATITUDE);
+            int longitude = entryValue(tiff, gps, TAG_LONGITUDE);
+            if (latitude <= 0 || longitude <= 0) {
+                return null;
+            }
+            // References are one ASCII character stored in the value field itself
+            double lat = degrees(tiff, latitude) * (refEntry(tiff, gps, TAG_LATITUDE_REF) == 'S' ? -1 : 1);
+            double lon = degrees(tiff, longitude) * (refEntry(tiff, gps, TAG_LONGITUDE_REF) == 'W' ? -1 : 1);
+            if (Double.isNaN(lat) || Double.isNaN(lon) || Math.abs(lat) > 90 || Math.abs(lon) > 180) {
+                return null;
+            }
+            return new double[]{lat, lon};
+        } catch (IndexOutOfBoundsException e) {
+            // Truncated or malformed EXIF data
+            return null;
+        }
+    }
+
+    /**
+     * Finds an entry of an IFD and returns its 4-byte value or offset field
+     * @return The value, or -1 if the IFD has no such entry
+     */
+    private static int entryValue(ByteBuffer tiff, int ifd, int tag) {
+        int entry = findEntry(tiff, ifd, tag);
+        return entry < 0 ? -1 : tiff.getInt(entry + 8);
+    }
+
+    private static int refEntry(ByteBuffer tiff, int ifd, int tag) {
+        int entry = findEntry(tiff, ifd, tag);
+        return entry < 0 ? 0 : tiff.get(entry + 8);
+    }
+
+    private static int findEntry(ByteBuffer tiff, int ifd, int tag) {
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + 12 * i;
+            if ((tiff.getShort(entry) & 0xFFFF) == tag) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Converts three unsigned rationals (degrees, minutes, seconds) to degrees
+     */
+    private static double degrees(ByteBuffer tiff, int offset) {
+        double degrees = 0;
+        double unit = 1;
+        for (int i = 0; i < 3; i++) {
+            long numerator = tiff.getInt(offset + 8 * i) & 0xFFFFFFFFL;
+            long denominator = tiff.getInt(offset + 8 * i + 4) & 0xFFFFFFFFL;
+            if (denominator == 0) {
+                if (numerator != 0) {
+                    return Double.NaN;
+                }
+            } else {
+                degrees += (double) numerator / denominator / unit;
+            }
+            unit *= 60;
+        }
+        return degrees;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.photomanager.image;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Extracts the JPEG thumbnail that cameras embed in the EXIF block (IFD1) of a JPEG file.
+ * Only the APP1 segment is read, never the image data; {@link ExifGps} reads the same segment.
+ */
+final class ExifThumbnail {
+    private static final int SOI = 0xFFD8;
+    private static final int APP1 = 0xFFE1;
+    private static final int SOS = 0xFFDA;
+    private static final int TAG_THUMBNAIL_OFFSET = 0x0201;
+    private static final int TAG_THUMBNAIL_LENGTH = 0x0202;
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+
+    private ExifThumbnail() {
+    }
+
+    /**
+     * Reads the embedded thumbnail of a JPEG file
+     * @param file The JPEG file
+     * @return The thumbnail's JPEG bytes, or null if the file has none
+     * @throws IOException If the file cannot be read
+     */
+    static byte[] read(File file) throws IOException {
+        ByteBuffer tiff = readTiff(file);
+        return tiff != null ? fromTiff(tiff) : null;
+    }
+
+    /**
+     * Reads the TIFF structure of the EXIF segment of a JPEG file
+     * @param file The JPEG file
+     * @return The TIFF data, starting at the byte order mark, or null if the file has no EXIF segment
+     * @throws IOException If the file cannot be read
+     */
+    static ByteBuffer readTiff(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readUnsignedShort() != SOI) {
+                return null;
+            }
+            while (true) {
+                int marker = in.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == SOS) {
+                    return null;
+                }
+                int length = in.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return null;
+                }
+                if (marker == APP1) {
+                    byte[] segment = new byte[length];
+                    in.readFully(segment);
+                    if (startsWith(segment, EXIF_HEADER)) {
+                        return ByteBuffer.wrap(segment, EXIF_HEADER.length, length - EXIF_HEADER.length).slice();
+                    }
+                } else {
+                    skipFully(in, length);
+                }
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the thumbnail in the TIFF structure of an EXIF segment
+     * @param tiff The TIFF data, starting at the byte order mark
+     * @return The thumbnail's JPEG bytes, or null if there is none
+     */
+    private static byte[] fromTiff(ByteBuffer tiff) {
+        try {
+            if (tiff.getShort(0) == 0x4949) {
+                tiff.order(ByteOrder.LITTLE_ENDIAN);
+            } else if (tiff.getShort(0) != 0x4D4D) {
+                return null;
+            }
+
+            int ifd0 = tiff.getInt(4);
+            int ifd1 = tiff.getInt(ifd0 + 2 + 12 * (tiff.getShort(ifd0) & 0xFFFF));
+            if (ifd1 <= 0) {
+                return null;
+            }
+
+            int offset = -1;
+            int length = -1;
+            int entries = tiff.getShort(ifd1) & 0xFFFF;
+            for (int i = 0; i < entries; i++) {
+                int entry = ifd1 + 2 + 12 * i;
+                int tag = tiff.getShort(entry) & 0xFFFF;
+                if (tag == TAG_THUMBNAIL_OFFSET) {
+                    offset = tiff.getInt(entry + 8);
+                } else if (tag == TAG_THUMBNAIL_LENGTH) {
+                    length = tiff.getInt(entry + 8);
+                }
+            }
+            // Compared by subtraction, so a huge length in malformed data cannot overflow past the check
+            if (offset <= 0 || length <= 0 || length > tiff.limit() - offset) {
+                return null;
+            }
+
+            byte[] thumbnail = new byte[length];
+            tiff.position(offset);
+            tiff.get(thumbnail);
+            return thumbnail;
+        } catch (IndexOutOfBoundsException e) {
+            // Truncated or malformed EXIF data
+            return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        return data.length >= prefix.length && Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            count -= skipped;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.photomanager.image;
+
+import com.example.photomanager.jfr.ImageDecodeEvent;
+import com.example.photomanager.metrics.Counter;
+import com.example.photomanager.metrics.LatencyHistogram;
+import com.example.photomanager.metrics.Metrics;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Loads photos for display, recording decode time and a flight recorder event for each decode.
+ * Photos are decoded at reduced resolution by {@link SubsamplingDecoder}; formats it cannot
+ * read fall back to JavaFX's own loader. Safe to call from any thread.
+ */
+public final class ImageLoader {
+    private static final LatencyHistogram DECODE_TIME = Metrics.histogram("image.decode");
+    private static final Counter THUMBNAIL_HITS = Metrics.counter("image.thumbnail.hits");
+    private static final Counter THUMBNAIL_MISSES = Metrics.counter("image.thumbnail.misses");
+    private static final ThumbnailCache THUMBNAILS = new ThumbnailCache(64L * 1024 * 1024);
+
+    private ImageLoader() {
+    }
+
+    /**
+     * Gets a thumbnail of a photo scaled to fit in a square, decoding it only if it is not cached
+     * @param path Path of the photo file
+     * @param size Width and height of the bounding square
+     * @return The thumbnail
+     */
+    public static Image loadThumbnail(String path, int size) {
+        String key = size + ":" + path;
+        long lastModified = new File(path).lastModified();
+        Image image = THUMBNAILS.get(key, lastModified);
+        if (image != null) {
+            THUMBNAIL_HITS.increment();
+            recordCacheHit(path, image);
+            return image;
+        }
+
+        THUMBNAIL_MISSES.increment();
+        image = load(path, size, size);
+        if (!image.isError()) {
+            THUMBNAILS.put(key, lastModified, image);
+        }
+        return image;
+    }
+
+    /**
+     * Decodes a photo scaled to fit in a square, preserving its aspect ratio
+     * @param path Path of the photo file
+     * @param size Width and height of the bounding square
+     * @return The decoded image
+     */
+    public static Image load(String path, int size) {
+        return load(path, size, size);
+    }
+
+    /**
+     * Decodes a photo scaled to fit in a box, preserving its aspect ratio
+     * @param path Path of the photo file
+     * @param width Width of the bounding box
+     * @param height Height of the bounding box
+     * @return The decoded image
+     */
+    public static Image load(String path, int width, int height) {
+        ImageDecodeEvent event = new ImageDecodeEvent();
+        event.begin();
+        long start = System.nanoTime();
+        SubsamplingDecoder.Decoded decoded = null;
+        try {
+            decoded = SubsamplingDecoder.decode(new File(path), width, height);
+        } catch (IOException e) {
+            // Left to the JavaFX loader, which reports unreadable files through Image.isError()
+        }
+
+        Image image;
+        if (decoded != null) {
+            try {
+                image = toImage(decoded);
+            } finally {
+                decoded.release();
+            }
+        } else {
+            image = new Image(new File(path).toURI().toString(), width, height, true, true);
+        }
+        DECODE_TIME.recordSince(start);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.requestedWidth = width;
+            event.requestedHeight = height;
+            event.decodedWidth = (int) image.getWidth();
+            event.decodedHeight = (int) image.getHeight();
+            if (decoded != null) {
+                event.subsampling = decoded.getSubsampling();
+                event.exifThumbnail = decoded.isExifThumbnail();
+            }
+            event.commit();
+        }
+        return image;
+    }
+
+    /**
+     * Copies a decoded image out of its pooled buffer into a JavaFX image
+     * @param decoded The decoded image
+     * @return A JavaFX image of the same size
+     */
+    static Image toImage(SubsamplingDecoder.Decoded decoded) {
+        int[] pixels = ((DataBufferInt) decoded.getBuffer().getRaster().getDataBuffer()).getData();
+        WritableImage image = new WritableImage(decoded.getWidth(), decoded.getHeight());
+        image.getPixelWriter().setPixels(0, 0, decoded.getWidth(), decoded.getHeight(),
+                PixelFormat.getIntArgbPreInstance(), pixels, 0, decoded.getBuffer().getWidth());
+        return image;
+    }
+
+    /**
+     * Records a flight recorder event for a lookup that was served without decoding
+     * @param path Path of the photo file
+     * @param image The cached image
+     */
+    static void recordCacheHit(String path, Image image) {
+        ImageDecodeEvent event = new ImageDecodeEvent();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.requestedWidth = (int) image.getRequestedWidth();
+            event.requestedHeight = (int) image.getRequestedHeight();
+            event.decodedWidth = (int) image.getWidth();
+            event.decodedHeight = (int) image.getHeight();
+            event.cacheHit = true;
+            event.commit();
+        }
+    }
+}
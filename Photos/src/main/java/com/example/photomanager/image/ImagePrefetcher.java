@@ -0,0 +1,119 @@
+package com.example.photomanager.image;
+
+import com.example.photomanager.metrics.Counter;
+import com.example.photomanager.metrics.Metrics;
+import com.example.photomanager.task.TaskGroup;
+import com.example.photomanager.task.TaskScheduler;
+import javafx.scene.image.Image;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decodes the photos around the one being viewed in the background, so stepping through
+ * an album shows the next photo without waiting for it to decode.
+ * Keeps a window of the current photo and {@code radius} neighbours on each side; moving the
+ * window cancels decodes that have not started yet and drops images that fell out of it.
+ * Not thread-safe: all methods must be called from the same (UI) thread.
+ */
+public class ImagePrefetcher implements AutoCloseable {
+    private static final Counter HITS = Metrics.counter("image.prefetch.hits");
+    private static final Counter MISSES = Metrics.counter("image.prefetch.misses");
+
+    private final int width;
+    private final int height;
+    private final int radius;
+    private final TaskGroup decodes = TaskScheduler.getDefault().newGroup();
+    // Decoded or in-flight images in the current window, by path
+    private final Map<String, CompletableFuture<Image>> window = new HashMap<>();
+
+    /**
+     * Constructor
+     * @param width Width to decode photos to
+     * @param height Height to decode photos to
+     * @param radius Number of photos to keep decoded on each side of the current one
+     */
+    public ImagePrefetcher(int width, int height, int radius) {
+        this.width = width;
+        this.height = height;
+        this.radius = radius;
+    }
+
+    /**
+     * Moves the window to a photo and returns its image.
+     * Decodes are queued for the current photo first, then alternately forward and backward,
+     * nearest first, with forward neighbours ahead of backward ones at the same distance.
+     * @param paths Paths of all photos being navigated
+     * @param index Index of the photo to show
+     * @return Future completing with the image of the photo at {@code index}
+     */
+    public CompletableFuture<Image> show(List<String> paths, int index) {
+        Set<String> wanted = new LinkedHashSet<>();
+        wanted.add(paths.get(index));
+        for (int distance = 1; distance <= radius; distance++) {
+            if (index + distance < paths.size()) {
+                wanted.add(paths.get(index + distance));
+            }
+            if (index - distance >= 0) {
+                wanted.add(paths.get(index - distance));
+            }
+        }
+
+        Iterator<Map.Entry<String, CompletableFuture<Image>>> entries = window.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, CompletableFuture<Image>> entry = entries.next();
+            if (!wanted.contains(entry.getKey())) {
+                entry.getValue().cancel(false);
+                entries.remove();
+            }
+        }
+
+        String current = paths.get(index);
+        CompletableFuture<Image> image = window.get(current);
+        if (image != null && image.isDone() && !image.isCompletedExceptionally()) {
+            HITS.increment();
+            ImageLoader.recordCacheHit(current, image.join());
+        } else {
+            MISSES.increment();
+        }
+
+        for (String path : wanted) {
+            TaskScheduler.Priority priority = path.equals(current) ? TaskScheduler.Priority.VISIBLE : TaskScheduler.Priority.PREFETCH;
+            window.computeIfAbsent(path, key -> submit(key, priority));
+        }
+        return window.get(current);
+    }
+
+    /**
+     * Gets the paths currently decoded or being decoded
+     * @return Paths in the window
+     */
+    public List<String> getWindow() {
+        return new ArrayList<>(window.keySet());
+    }
+
+    /**
+     * Queues a decode. The decode is skipped if the future is cancelled before it starts.
+     * @param path Path of the photo
+     * @param priority The scheduler lane
+     * @return Future completing with the decoded image
+     */
+    private CompletableFuture<Image> submit(String path, TaskScheduler.Priority priority) {
+        return decodes.submit(priority, TaskScheduler.Resource.CPU, () -> ImageLoader.load(path, width, height));
+    }
+
+    /**
+     * Cancels pending decodes.
+     */
+    @Override
+    public void close() {
+        decodes.cancel();
+        window.clear();
+    }
+}
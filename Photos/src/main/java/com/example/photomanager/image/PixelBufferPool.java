@@ -0,0 +1,78 @@
+package com.example.photomanager.image;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pool of reusable pixel buffers, so decoding a grid of thumbnails reuses the same few
+ * rasters instead of allocating new ones for every photo.
+ * A borrowed buffer is at least as large as requested; callers work in its top-left corner.
+ * The pool keeps at most {@code maxBytes} of idle buffers and drops the rest.
+ */
+final class PixelBufferPool {
+    // Buffer sizes are rounded up to this, so photos of similar size share buffers
+    private static final int GRANULARITY = 64;
+
+    private final long maxBytes;
+    private final List<BufferedImage> idle = new ArrayList<>();
+    private long idleBytes;
+
+    /**
+     * Constructor
+     * @param maxBytes Maximum size of the idle buffers kept for reuse
+     */
+    PixelBufferPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Takes an idle buffer of the given type that is at least the given size, or creates one.
+     * Idle buffers more than four times the requested area are not used, to keep a large
+     * buffer available for large requests.
+     * @param width Minimum width
+     * @param height Minimum height
+     * @param type BufferedImage type
+     * @return A buffer; its pixels are undefined
+     */
+    synchronized BufferedImage borrow(int width, int height, int type) {
+        long area = (long) width * height;
+        int best = -1;
+        long bestArea = Long.MAX_VALUE;
+        for (int i = 0; i < idle.size(); i++) {
+            BufferedImage buffer = idle.get(i);
+            long bufferArea = (long) buffer.getWidth() * buffer.getHeight();
+            if (buffer.getType() == type && buffer.getWidth() >= width && buffer.getHeight() >= height
+                    && bufferArea <= area * 4 && bufferArea < bestArea) {
+                best = i;
+                bestArea = bufferArea;
+            }
+        }
+        if (best >= 0) {
+            BufferedImage buffer = idle.remove(best);
+            idleBytes -= sizeOf(buffer);
+            return buffer;
+        }
+        return new BufferedImage(roundUp(width), roundUp(height), type);
+    }
+
+    /**
+     * Returns a buffer to the pool
+     * @param buffer A buffer obtained from {@link #borrow}
+     */
+    synchronized void release(BufferedImage buffer) {
+        long size = sizeOf(buffer);
+        if (idleBytes + size <= maxBytes) {
+            idle.add(buffer);
+            idleBytes += size;
+        }
+    }
+
+    private static int roundUp(int size) {
+        return (size + GRANULARITY - 1) / GRANULARITY * GRANULARITY;
+    }
+
+    private static long sizeOf(BufferedImage buffer) {
+        return (long) buffer.getWidth() * buffer.getHeight() * buffer.getColorModel().getPixelSize() / 8;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.photomanager.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Decodes photos at reduced resolution without materializing the full-size image.
+ * For JPEGs the embedded EXIF thumbnail is used when it is large enough; otherwise the
+ * reader skips source pixels (ImageIO source subsampling) so only about the requested
+ * number of pixels is stored. The result is scaled into a pooled ARGB buffer.
+ */
+public final class SubsamplingDecoder {
+    // Idle decode buffers kept for reuse across photos
+    private static final PixelBufferPool POOL = new PixelBufferPool(64L * 1024 * 1024);
+    // Largest relative difference between thumbnail and photo aspect ratios for the thumbnail to be used
+    private static final double ASPECT_TOLERANCE = 0.02;
+
+    private SubsamplingDecoder() {
+    }
+
+    /**
+     * A decoded image held in a pooled buffer. {@link #release()} must be called once the
+     * pixels have been copied out.
+     */
+    public static final class Decoded {
+        private final BufferedImage buffer;
+        private final int width;
+        private final int height;
+        private final int subsampling;
+        private final boolean exifThumbnail;
+
+        private Decoded(BufferedImage buffer, int width, int height, int subsampling, boolean exifThumbnail) {
+            this.buffer = buffer;
+            this.width = width;
+            this.height = height;
+            this.subsampling = subsampling;
+            this.exifThumbnail = exifThumbnail;
+        }
+
+        /**
+         * Gets the buffer holding the image in its top-left corner.
+         * The buffer is of type {@link BufferedImage#TYPE_INT_ARGB_PRE} and may be larger than the image.
+         * @return The pixel buffer
+         */
+        public BufferedImage getBuffer() {
+            return buffer;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Gets the factor by which source pixels were skipped in each direction
+         * @return The subsampling factor, 1 for a full decode or an EXIF thumbnail
+         */
+        public int getSubsampling() {
+            return subsampling;
+        }
+
+        public boolean isExifThumbnail() {
+            return exifThumbnail;
+        }
+
+        /**
+         * Returns the buffer to the pool. The image must not be used afterwards.
+         */
+        public void release() {
+            POOL.release(buffer);
+        }
+    }
+
+    /**
+     * Decodes a photo scaled to fit in a box, preserving its aspect ratio. Never scales up.
+     * @param file The photo file
+     * @param width Width of the bounding box
+     * @param height Height of the bounding box
+     * @return The decoded image, or null if no ImageIO reader supports the file
+     * @throws IOException If the file cannot be read or decoded
+     */
+    public static Decoded decode(File file, int width, int height) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                throw new IOException("Cannot open " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                double scale = Math.min(1.0, Math.min((double) width / sourceWidth, (double) height / sourceHeight));
+                int fitWidth = Math.max(1, (int) Math.round(sourceWidth * scale));
+                int fitHeight = Math.max(1, (int) Math.round(sourceHeight * scale));
+
+                if ("jpeg".equalsIgnoreCase(reader.getFormatName())) {
+                    BufferedImage thumbnail = readExifThumbnail(file, sourceWidth, sourceHeight, fitWidth, fitHeight);
+                    if (thumbnail != null) {
+                        return scaleInto(thumbnail, thumbnail.getWidth(), thumbnail.getHeight(), fitWidth, fitHeight, 1, true);
+                    }
+                }
+
+                // Largest factor that still leaves at least the target number of pixels
+                int subsampling = Math.max(1, Math.min(sourceWidth / fitWidth, sourceHeight / fitHeight));
+                int sampledWidth = (sourceWidth + subsampling - 1) / subsampling;
+                int sampledHeight = (sourceHeight + subsampling - 1) / subsampling;
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage destination = null;
+                ImageTypeSpecifier type = reader.getImageTypes(0).next();
+                if (type.getBufferedImageType() != BufferedImage.TYPE_CUSTOM) {
+                    destination = POOL.borrow(sampledWidth, sampledHeight, type.getBufferedImageType());
+                    param.setDestination(destination);
+                }
+
+                BufferedImage sampled = reader.read(0, param);
+                try {
+                    return scaleInto(sampled, sampledWidth, sampledHeight, fitWidth, fitHeight, subsampling, false);
+                } finally {
+                    if (destination != null) {
+                        POOL.release(destination);
+                    }
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reads the EXIF thumbnail if it has the photo's aspect ratio and needs no scaling up
+     * @return The thumbnail, or null if it is missing or unsuitable
+     */
+    private static BufferedImage readExifThumbnail(File file, int sourceWidth, int sourceHeight,
+                                                   int fitWidth, int fitHeight) throws IOException {
+        if (fitWidth == sourceWidth && fitHeight == sourceHeight) {
+            return null;
+        }
+        byte[] bytes = ExifThumbnail.read(file);
+        if (bytes == null) {
+            return null;
+        }
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (thumbnail == null || thumbnail.getWidth() < fitWidth || thumbnail.getHeight() < fitHeight) {
+            return null;
+        }
+        double aspect = (double) sourceWidth / sourceHeight;
+        double thumbnailAspect = (double) thumbnail.getWidth() / thumbnail.getHeight();
+        return Math.abs(thumbnailAspect - aspect) / aspect <= ASPECT_TOLERANCE ? thumbnail : null;
+    }
+
+    /**
+     * Copies an image into a pooled ARGB buffer
+     * @param source The image
+     * @return The copy
+     */
+    static Decoded copyOf(BufferedImage source) {
+        return scaleInto(source, source.getWidth(), source.getHeight(), source.getWidth(), source.getHeight(), 1, false);
+    }
+
+    /**
+     * Scales the top-left region of an image into a pooled ARGB buffer
+     */
+    private static Decoded scaleInto(BufferedImage source, int sourceWidth, int sourceHeight,
+                                     int width, int height, int subsampling, boolean exifThumbnail) {
+        BufferedImage buffer = POOL.borrow(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = buffer.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, width, height, 0, 0, sourceWidth, sourceHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return new Decoded(buffer, width, height, subsampling, exifThumbnail);
+    }
+}
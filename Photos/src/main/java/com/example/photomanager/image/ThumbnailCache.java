@@ -0,0 +1,78 @@
+package com.example.photomanager.image;
+
+import javafx.scene.image.Image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of decoded thumbnails, bounded by their pixel memory.
+ * Entries are keyed by path and size and invalidated when the file's modification time changes.
+ */
+final class ThumbnailCache {
+    private static final class Entry {
+        final long lastModified;
+        final Image image;
+        final long bytes;
+
+        Entry(long lastModified, Image image) {
+            this.lastModified = lastModified;
+            this.image = image;
+            this.bytes = (long) image.getWidth() * (long) image.getHeight() * 4;
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * Constructor
+     * @param maxBytes Maximum pixel memory of the cached thumbnails
+     */
+    ThumbnailCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Looks up a thumbnail
+     * @param key Path and size of the thumbnail
+     * @param lastModified Current modification time of the file
+     * @return The cached thumbnail, or null if missing or stale
+     */
+    synchronized Image get(String key, long lastModified) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.lastModified != lastModified) {
+            entries.remove(key);
+            bytes -= entry.bytes;
+            return null;
+        }
+        return entry.image;
+    }
+
+    /**
+     * Adds a thumbnail, evicting the least recently used ones if over budget
+     * @param key Path and size of the thumbnail
+     * @param lastModified Modification time of the file it was decoded from
+     * @param image The thumbnail
+     */
+    synchronized void put(String key, long lastModified, Image image) {
+        Entry entry = new Entry(lastModified, image);
+        Entry previous = entries.put(key, entry);
+        bytes += entry.bytes - (previous != null ? previous.bytes : 0);
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            if (evicted == entry) {
+                break;
+            }
+            eldest.remove();
+            bytes -= evicted.bytes;
+        }
+    }
+}
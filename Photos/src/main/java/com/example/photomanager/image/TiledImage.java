@@ -0,0 +1,355 @@
+package com.example.photomanager.image;
+
+import com.example.photomanager.task.TaskGroup;
+import com.example.photomanager.task.TaskScheduler;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A photo split into a pyramid of fixed-size tiles, so that arbitrarily large images can be
+ * viewed at any zoom with bounded memory.
+ * Level 0 is full resolution and each further level halves the resolution, up to a level
+ * that fits in a single tile. Tiles are decoded on demand from just their region of the
+ * source on the {@link TaskScheduler}, cached on disk under the given directory, and kept in
+ * a small in-memory LRU cache.
+ * {@link #showTiles}, {@link #getTile} and {@link #close} must be called on the JavaFX application thread.
+ */
+public class TiledImage implements AutoCloseable {
+    public static final int TILE_SIZE = 256;
+    // Decoded tiles kept in memory, about 256 KB each
+    private static final int MEMORY_TILES = 192;
+
+    private final File source;
+    private final File cacheDirectory;
+    private final int width;
+    private final int height;
+    private final int levels;
+    // Tiles of JPEG photos are cached as JPEG, others as PNG
+    private final boolean jpeg;
+    private final TaskGroup decodes = TaskScheduler.getDefault().newGroup();
+    private boolean closed;
+    private final Map<Long, Image> tiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Image> eldest) {
+            return size() > MEMORY_TILES;
+        }
+    };
+    // Tiles queued or being decoded, by key
+    private final Map<Long, CompletableFuture<Image>> pending = new HashMap<>();
+    private Runnable onTileLoaded = () -> { };
+
+    /**
+     * Opens a photo, reading only its header
+     * @param source The photo file
+     * @param cacheRoot Directory holding the tile caches of all photos
+     * @throws IOException If the photo cannot be read
+     */
+    public TiledImage(File source, File cacheRoot) throws IOException {
+        this.source = source;
+        String key = source.getAbsolutePath() + "|" + source.lastModified() + "|" + source.length();
+        this.cacheDirectory = new File(cacheRoot, UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString());
+
+        ImageReader reader = openReader(source);
+        try {
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+            jpeg = "jpeg".equalsIgnoreCase(reader.getFormatName());
+        } finally {
+            closeReader(reader);
+        }
+
+        int level = 0;
+        while (Math.max(width, height) > TILE_SIZE << level) {
+            level++;
+        }
+        levels = level + 1;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of pyramid levels; the last level fits in a single tile
+     * @return The number of levels
+     */
+    public int getLevelCount() {
+        return levels;
+    }
+
+    /**
+     * Gets the number of tile columns at a level
+     * @param level The pyramid level
+     * @return Number of columns
+     */
+    public int getColumns(int level) {
+        return (levelSize(width, level) + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * Gets the number of tile rows at a level
+     * @param level The pyramid level
+     * @return Number of rows
+     */
+    public int getRows(int level) {
+        return (levelSize(height, level) + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * Sets the callback run, on the JavaFX application thread, whenever a requested tile has been loaded
+     * @param onTileLoaded The callback
+     */
+    public void setOnTileLoaded(Runnable onTileLoaded) {
+        this.onTileLoaded = onTileLoaded;
+    }
+
+    /**
+     * Gets a tile if it is loaded in memory
+     * @param level The pyramid level
+     * @param column The tile column
+     * @param row The tile row
+     * @return The tile, or null if it has not been loaded
+     */
+    public Image getTile(int level, int column, int row) {
+        return tiles.get(key(level, column, row));
+    }
+
+    /**
+     * Requests the tiles of a region at one level, plus the whole coarsest level as a backdrop.
+     * Tiles not yet in memory are loaded in the background, nearest the start of the region first;
+     * queued loads of tiles no longer requested are cancelled.
+     * @param level The pyramid level
+     * @param firstColumn First visible column
+     * @param firstRow First visible row
+     * @param lastColumn Last visible column (inclusive)
+     * @param lastRow Last visible row (inclusive)
+     */
+    public void showTiles(int level, int firstColumn, int firstRow, int lastColumn, int lastRow) {
+        Set<Long> wanted = new LinkedHashSet<>();
+        int top = levels - 1;
+        for (int row = 0; row < getRows(top); row++) {
+            for (int column = 0; column < getColumns(top); column++) {
+                wanted.add(key(top, column, row));
+            }
+        }
+        for (int row = Math.max(0, firstRow); row <= Math.min(lastRow, getRows(level) - 1); row++) {
+            for (int column = Math.max(0, firstColumn); column <= Math.min(lastColumn, getColumns(level) - 1); column++) {
+                wanted.add(key(level, column, row));
+            }
+        }
+
+        Iterator<Map.Entry<Long, CompletableFuture<Image>>> entries = pending.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, CompletableFuture<Image>> entry = entries.next();
+            if (!wanted.contains(entry.getKey())) {
+                entry.getValue().cancel(false);
+                entries.remove();
+            }
+        }
+
+        for (Long key : wanted) {
+            if (!tiles.containsKey(key) && !pending.containsKey(key) && !closed) {
+                pending.put(key, submit(key));
+            }
+        }
+    }
+
+    /**
+     * Queues a tile load. The load is skipped if the future is cancelled before it starts.
+     * @param key The tile key
+     * @return Future completing with the tile
+     */
+    private CompletableFuture<Image> submit(long key) {
+        CompletableFuture<Image> future = decodes.submit(TaskScheduler.Priority.VISIBLE, TaskScheduler.Resource.CPU,
+                () -> loadTile(level(key), column(key), row(key)));
+        future.whenComplete((tile, error) -> {
+            if (error != null) {
+                if (!future.isCancelled()) {
+                    error.printStackTrace();
+                }
+                return;
+            }
+            Platform.runLater(() -> {
+                if (pending.remove(key, future)) {
+                    tiles.put(key, tile);
+                    onTileLoaded.run();
+                }
+            });
+        });
+        return future;
+    }
+
+    /**
+     * Loads a tile from the disk cache, or decodes it from the source and caches it
+     */
+    private Image loadTile(int level, int column, int row) throws IOException {
+        File file = new File(cacheDirectory, level + File.separator + column + "_" + row + (jpeg ? ".jpg" : ".png"));
+        BufferedImage tile = file.isFile() ? ImageIO.read(file) : null;
+        if (tile == null) {
+            tile = decodeTile(level, column, row);
+            File directory = file.getParentFile();
+            if (directory.isDirectory() || directory.mkdirs()) {
+                File temp = new File(directory, file.getName() + ".tmp");
+                if (ImageIO.write(tile, jpeg ? "jpg" : "png", temp) && !temp.renameTo(file)) {
+                    temp.delete();
+                }
+            }
+        }
+
+        SubsamplingDecoder.Decoded decoded = SubsamplingDecoder.copyOf(tile);
+        try {
+            return ImageLoader.toImage(decoded);
+        } finally {
+            decoded.release();
+        }
+    }
+
+    /**
+     * Decodes just the source region covered by a tile, skipping pixels for coarser levels
+     */
+    private BufferedImage decodeTile(int level, int column, int row) throws IOException {
+        int step = 1 << level;
+        int span = TILE_SIZE * step;
+        int x = column * span;
+        int y = row * span;
+        Rectangle region = new Rectangle(x, y, Math.min(span, width - x), Math.min(span, height - y));
+
+        ImageReader reader = openReader(source);
+        try {
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(region);
+            param.setSourceSubsampling(step, step, 0, 0);
+            return reader.read(0, param);
+        } finally {
+            closeReader(reader);
+        }
+    }
+
+    /**
+     * Cancels queued loads and drops the in-memory tiles.
+     * Tiles already cached on disk are kept.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        decodes.cancel();
+        pending.clear();
+        tiles.clear();
+    }
+
+    /**
+     * Deletes the tile caches of the least recently created photos until the total size is under a limit
+     * @param cacheRoot Directory holding the tile caches of all photos
+     * @param maxBytes Size to prune to
+     */
+    public static void pruneCache(File cacheRoot, long maxBytes) {
+        File[] photos = cacheRoot.listFiles(File::isDirectory);
+        if (photos == null) {
+            return;
+        }
+
+        Map<File, Long> sizes = new HashMap<>();
+        long total = 0;
+        for (File photo : photos) {
+            long size = sizeOf(photo);
+            sizes.put(photo, size);
+            total += size;
+        }
+
+        Arrays.sort(photos, Comparator.comparingLong(File::lastModified));
+        for (File photo : photos) {
+            if (total <= maxBytes) {
+                break;
+            }
+            total -= sizes.get(photo);
+            delete(photo);
+        }
+    }
+
+    private static long sizeOf(File file) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            return file.length();
+        }
+        long size = 0;
+        for (File child : children) {
+            size += sizeOf(child);
+        }
+        return size;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static ImageReader openReader(File file) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(file);
+        if (input == null) {
+            throw new IOException("Cannot open " + file);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("Unsupported image format: " + file);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+        return reader;
+    }
+
+    private static void closeReader(ImageReader reader) throws IOException {
+        ImageInputStream input = (ImageInputStream) reader.getInput();
+        reader.dispose();
+        input.close();
+    }
+
+    private static int levelSize(int size, int level) {
+        return (size + (1 << level) - 1) >> level;
+    }
+
+    private static long key(int level, int column, int row) {
+        return ((long) level << 56) | ((long) column << 28) | row;
+    }
+
+    private static int level(long key) {
+        return (int) (key >>> 56);
+    }
+
+    private static int column(long key) {
+        return (int) ((key >>> 28) & 0xFFFFFFF);
+    }
+
+    private static int row(long key) {
+        return (int) (key & 0xFFFFFFF);
+    }
+}
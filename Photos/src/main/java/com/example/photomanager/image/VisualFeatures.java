@@ -0,0 +1,185 @@
+package com.example.photomanager.image;
+
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Computes a compact description of how a photo looks, for finding photos that look alike.
+ * The photo is decoded at {@link #SAMPLE_SIZE} pixels, which for most JPEGs only reads the embedded
+ * EXIF thumbnail, and described by a vector of {@link #DIMENSIONS} floats:
+ * <ul>
+ *     <li>a colour histogram over hue, saturation and brightness, square-rooted so the Euclidean
+ *     distance between two histograms behaves like the Hellinger distance;</li>
+ *     <li>the three dominant colours, the mean colour of the three fullest histogram bins;</li>
+ *     <li>texture: a histogram of edge orientations weighted by edge strength, edge density, contrast
+ *     and overall brightness.</li>
+ * </ul>
+ * Photos that look alike have vectors a small squared Euclidean distance apart.
+ */
+public final class VisualFeatures {
+    // Length of a feature vector, a multiple of 8 so distance loops split evenly
+    public static final int DIMENSIONS = 72;
+
+    private static final int SAMPLE_SIZE = 64;
+    private static final int HUES = 12;
+    private static final int GREYS = 4;
+    private static final int COLOUR_BINS = HUES * 4 + GREYS;
+    private static final int DOMINANT = 3;
+    private static final int ORIENTATIONS = 8;
+    // Weights of the dominant colour and texture parts relative to the histogram, whose norm is 1
+    private static final float DOMINANT_WEIGHT = 0.4f;
+    private static final float TEXTURE_WEIGHT = 0.5f;
+    // Gradient magnitude, on a 0-1 brightness scale, above which a pixel counts as an edge
+    private static final float EDGE_THRESHOLD = 0.25f;
+
+    private VisualFeatures() {
+    }
+
+    /**
+     * Computes the feature vector of a photo
+     * @param path Path of the photo file
+     * @return The features, or null if the photo cannot be decoded
+     */
+    public static float[] extract(String path) {
+        SubsamplingDecoder.Decoded decoded;
+        try {
+            decoded = SubsamplingDecoder.decode(new File(path), SAMPLE_SIZE, SAMPLE_SIZE);
+        } catch (IOException e) {
+            return null;
+        }
+        if (decoded == null) {
+            return null;
+        }
+        try {
+            int[] pixels = ((DataBufferInt) decoded.getBuffer().getRaster().getDataBuffer()).getData();
+            return of(pixels, decoded.getWidth(), decoded.getHeight(), decoded.getBuffer().getWidth());
+        } finally {
+            decoded.release();
+        }
+    }
+
+    /**
+     * Computes the feature vector of an image
+     * @param argb Pixels in ARGB order; alpha is ignored
+     * @param width Width of the image
+     * @param height Height of the image
+     * @param stride Distance between the starts of two rows in the array
+     * @return The features
+     */
+    public static float[] of(int[] argb, int width, int height, int stride) {
+        float[] features = new float[DIMENSIONS];
+        float[] brightness = new float[width * height];
+        int[] counts = new int[COLOUR_BINS];
+        long[] red = new long[COLOUR_BINS];
+        long[] green = new long[COLOUR_BINS];
+        long[] blue = new long[COLOUR_BINS];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = argb[y * stride + x];
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+                int bin = colourBin(r, g, b);
+                counts[bin]++;
+                red[bin] += r;
+                green[bin] += g;
+                blue[bin] += b;
+                brightness[y * width + x] = (0.299f * r + 0.587f * g + 0.114f * b) / 255;
+            }
+        }
+
+        int total = width * height;
+        for (int bin = 0; bin < COLOUR_BINS; bin++) {
+            features[bin] = (float) Math.sqrt((double) counts[bin] / total);
+        }
+
+        // Dominant colours, fullest bin first; an image with fewer colours repeats its last one
+        boolean[] taken = new boolean[COLOUR_BINS];
+        int offset = COLOUR_BINS;
+        int previous = -1;
+        for (int i = 0; i < DOMINANT; i++) {
+            int fullest = previous;
+            for (int bin = 0; bin < COLOUR_BINS; bin++) {
+                if (!taken[bin] && counts[bin] > 0 && (fullest == previous || counts[bin] > counts[fullest])) {
+                    fullest = bin;
+                }
+            }
+            taken[fullest] = true;
+            previous = fullest;
+            float scale = DOMINANT_WEIGHT / (255f * counts[fullest]);
+            features[offset++] = red[fullest] * scale;
+            features[offset++] = green[fullest] * scale;
+            features[offset++] = blue[fullest] * scale;
+        }
+
+        // Sobel gradients of the brightness, away from the border
+        float[] orientations = new float[ORIENTATIONS];
+        float magnitudes = 0;
+        int edges = 0;
+        int interior = 0;
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int i = y * width + x;
+                float gx = brightness[i - width + 1] + 2 * brightness[i + 1] + brightness[i + width + 1]
+                        - brightness[i - width - 1] - 2 * brightness[i - 1] - brightness[i + width - 1];
+                float gy = brightness[i + width - 1] + 2 * brightness[i + width] + brightness[i + width + 1]
+                        - brightness[i - width - 1] - 2 * brightness[i - width] - brightness[i - width + 1];
+                float magnitude = (float) Math.sqrt(gx * gx + gy * gy);
+                // Edge direction modulo 180 degrees
+                double angle = Math.atan2(gy, gx);
+                int orientation = (int) ((angle < 0 ? angle + Math.PI : angle) / Math.PI * ORIENTATIONS) % ORIENTATIONS;
+                orientations[orientation] += magnitude;
+                magnitudes += magnitude;
+                if (magnitude > EDGE_THRESHOLD) {
+                    edges++;
+                }
+                interior++;
+            }
+        }
+        // Normalized by at least a threshold edge per pixel, so the noise of a flat image does not look like texture
+        float norm = Math.max(magnitudes, interior * EDGE_THRESHOLD);
+        for (int i = 0; i < ORIENTATIONS; i++) {
+            features[offset++] = norm > 0 ? TEXTURE_WEIGHT * orientations[i] / norm : 0;
+        }
+        features[offset++] = interior > 0 ? TEXTURE_WEIGHT * edges / interior : 0;
+
+        float mean = 0;
+        for (float value : brightness) {
+            mean += value;
+        }
+        mean /= total;
+        float variance = 0;
+        for (float value : brightness) {
+            variance += (value - mean) * (value - mean);
+        }
+        features[offset++] = TEXTURE_WEIGHT * 2 * (float) Math.sqrt(variance / total);
+        features[offset] = TEXTURE_WEIGHT * mean;
+        return features;
+    }
+
+    /**
+     * Histogram bin of a colour: 4 brightness levels for greys, otherwise 12 hues by 2 saturation and 2 brightness levels
+     */
+    private static int colourBin(int r, int g, int b) {
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int chroma = max - min;
+        if (max < 40 || chroma < 0.2 * max) {
+            return HUES * 4 + Math.min(GREYS - 1, max * GREYS / 256);
+        }
+        float hue;
+        if (max == r) {
+            hue = (float) (g - b) / chroma;
+        } else if (max == g) {
+            hue = 2 + (float) (b - r) / chroma;
+        } else {
+            hue = 4 + (float) (r - g) / chroma;
+        }
+        int hueBin = (int) ((hue < 0 ? hue + 6 : hue) / 6 * HUES) % HUES;
+        int saturated = chroma >= 0.5 * max ? 1 : 0;
+        int bright = max >= 160 ? 1 : 0;
+        return hueBin * 4 + saturated * 2 + bright;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.photomanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when an album is opened and its thumbnail tiles are laid out. Thumbnails decode afterwards
+ * on background threads, each recorded by its own {@link ImageDecodeEvent}.
+ */
+@Name("com.example.photomanager.AlbumOpen")
+@Label("Album Open")
+@Category("Photo Manager")
+@Description("Opening an album and laying out its tiles, not including the background thumbnail decoding")
+public class AlbumOpenEvent extends jdk.jfr.Event {
+    @Label("Album")
+    public String album;
+
+    @Label("Photo Count")
+    public int photoCount;
+}
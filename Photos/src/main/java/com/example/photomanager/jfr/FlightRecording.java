@@ -0,0 +1,51 @@
+package com.example.photomanager.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Starts a continuous, low-overhead flight recording when {@code -DphotoManager.jfr=<file>} is set.
+ * The recording uses the JDK "default" profile plus all Photo Manager events, keeps the last
+ * hour in a disk-backed ring buffer and is written to the given file when the JVM exits.
+ * The same events are also recorded by {@code -XX:StartFlightRecording}, as they are enabled by default.
+ */
+public final class FlightRecording {
+    private static Recording recording;
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Starts the continuous recording if configured and not already running.
+     */
+    public static synchronized void startIfConfigured() {
+        String file = System.getProperty("photoManager.jfr");
+        if (file == null || recording != null) {
+            return;
+        }
+
+        try {
+            Recording continuous = new Recording(Configuration.getConfiguration("default"));
+            continuous.setName("photo-manager");
+            continuous.setToDisk(true);
+            continuous.setMaxAge(Duration.ofHours(1));
+            continuous.enable(AlbumOpenEvent.class);
+            continuous.enable(SearchEvent.class);
+            continuous.enable(ImportBatchEvent.class);
+            continuous.enable(SaveEvent.class);
+            continuous.enable(ImageDecodeEvent.class);
+            Path destination = Paths.get(file);
+            continuous.setDestination(destination);
+            continuous.start();
+            recording = continuous;
+        } catch (IOException | ParseException e) {
+            e.printStackTrace();
+        }
+    }
+}
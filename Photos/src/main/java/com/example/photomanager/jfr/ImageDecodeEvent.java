@@ -0,0 +1,40 @@
+package com.example.photomanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for every image decode, or cache lookup that avoided one.
+ */
+@Name("com.example.photomanager.ImageDecode")
+@Label("Image Decode")
+@Category("Photo Manager")
+@Description("Decoding a photo for display")
+public class ImageDecodeEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Requested Width")
+    public int requestedWidth;
+
+    @Label("Requested Height")
+    public int requestedHeight;
+
+    @Label("Decoded Width")
+    public int decodedWidth;
+
+    @Label("Decoded Height")
+    public int decodedHeight;
+
+    @Label("Subsampling")
+    @Description("Factor by which source pixels were skipped, 0 if not decoded by the subsampling decoder")
+    public int subsampling;
+
+    @Label("EXIF Thumbnail")
+    public boolean exifThumbnail;
+
+    @Label("Cache Hit")
+    public boolean cacheHit;
+}
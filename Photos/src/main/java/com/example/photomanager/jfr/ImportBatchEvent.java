@@ -0,0 +1,24 @@
+package com.example.photomanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when a batch of photo files is added to an album.
+ */
+@Name("com.example.photomanager.ImportBatch")
+@Label("Import Batch")
+@Category("Photo Manager")
+@Description("Adding a batch of photo files to an album")
+public class ImportBatchEvent extends jdk.jfr.Event {
+    @Label("Album")
+    public String album;
+
+    @Label("Requested")
+    public int requested;
+
+    @Label("Added")
+    public int added;
+}
@@ -0,0 +1,34 @@
+package com.example.photomanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted by the background writer for every save that reaches the storage backend.
+ */
+@Name("com.example.photomanager.Save")
+@Label("Save")
+@Category("Photo Manager")
+@Description("Persisting the library through the storage backend")
+public class SaveEvent extends jdk.jfr.Event {
+    @Label("Backend")
+    public String backend;
+
+    @Label("User Count")
+    public int userCount;
+
+    @Label("Photo Count")
+    public int photoCount;
+
+    @Label("Bytes Written")
+    @DataAmount
+    @Description("-1 if the backend does not report it")
+    public long bytesWritten;
+
+    @Label("Coalesced Saves")
+    @Description("Save requests folded into this one")
+    public long coalesced;
+}
@@ -0,0 +1,29 @@
+package com.example.photomanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for every tag or date search.
+ */
+@Name("com.example.photomanager.Search")
+@Label("Search")
+@Category("Photo Manager")
+@Description("A tag or date search over a library snapshot")
+public class SearchEvent extends jdk.jfr.Event {
+    @Label("Kind")
+    @Description("tag or date")
+    public String kind;
+
+    @Label("Query")
+    public String query;
+
+    @Label("Photo Count")
+    @Description("Photos in the searched library")
+    public int photoCount;
+
+    @Label("Result Count")
+    public int resultCount;
+}
@@ -0,0 +1,173 @@
+package com.example.photomanager.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide registry of counters, gauges and latency histograms.
+ * Look metrics up once and keep the reference, so the recording path is just an atomic update.
+ * The registry is exposed over JMX and can periodically dump a snapshot, enabled with
+ * {@code -DphotoManager.metrics.dump=<seconds>} (and optionally {@code -DphotoManager.metrics.file=<path>}).
+ */
+public final class Metrics {
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    static {
+        registerMBean();
+        String dumpSeconds = System.getProperty("photoManager.metrics.dump");
+        if (dumpSeconds != null) {
+            startPeriodicDump(Long.parseLong(dumpSeconds), System.getProperty("photoManager.metrics.file"));
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Gets or creates a counter.
+     * @param name Dotted metric name, e.g. "import.photos"
+     * @return The counter
+     */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Registers a gauge, replacing any previous gauge of the same name.
+     * @param name Dotted metric name
+     * @param supplier Supplies the current value; called when metrics are read
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        GAUGES.put(name, supplier);
+    }
+
+    /**
+     * Gets or creates a latency histogram.
+     * @param name Dotted metric name, e.g. "storage.save"
+     * @return The histogram
+     */
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Renders all metrics as text, one per line, sorted by name.
+     * @return The metrics dump
+     */
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Long> entry : counters().entrySet()) {
+            out.append(entry.getKey()).append(" count=").append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> entry : gauges().entrySet()) {
+            out.append(entry.getKey()).append(" value=").append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, String> entry : histograms().entrySet()) {
+            out.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Dumps the metrics at a fixed rate on a daemon thread.
+     * @param periodSeconds Seconds between dumps
+     * @param file File to append to, or null for standard output
+     */
+    public static void startPeriodicDump(long periodSeconds, String file) {
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            String header = "--- metrics " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()) + "\n";
+            if (file == null) {
+                System.out.print(header + dump());
+                return;
+            }
+            try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
+                writer.print(header + dump());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    static Map<String, Long> counters() {
+        Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> values.put(name, counter.get()));
+        return values;
+    }
+
+    static Map<String, Long> gauges() {
+        Map<String, Long> values = new TreeMap<>();
+        GAUGES.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    static Map<String, String> histograms() {
+        Map<String, String> values = new TreeMap<>();
+        HISTOGRAMS.forEach((name, histogram) -> values.put(name, String.format(
+                "count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                histogram.getCount(), histogram.getMean() / 1e6,
+                histogram.getPercentile(50) / 1e6, histogram.getPercentile(90) / 1e6,
+                histogram.getPercentile(99) / 1e6, histogram.getMax() / 1e6)));
+        return values;
+    }
+
+    static void resetAll() {
+        COUNTERS.values().forEach(Counter::reset);
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+    }
+
+    private static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBeanImpl(),
+                    new ObjectName("com.example.photomanager:type=Metrics"));
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static final class MetricsMBeanImpl implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            return counters();
+        }
+
+        @Override
+        public Map<String, Long> getGauges() {
+            return gauges();
+        }
+
+        @Override
+        public Map<String, String> getHistograms() {
+            return histograms();
+        }
+
+        @Override
+        public String dump() {
+            return Metrics.dump();
+        }
+
+        @Override
+        public void reset() {
+            resetAll();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.photomanager.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics registry, registered as "com.example.photomanager:type=Metrics".
+ */
+public interface MetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getGauges();
+
+    /**
+     * @return One summary line per histogram: count, mean, p50, p90, p99 and max in milliseconds
+     */
+    Map<String, String> getHistograms();
+
+    /**
+     * @return All metrics as text, one per line
+     */
+    String dump();
+
+    void reset();
+}
@@ -14,6 +14,8 @@ public class Album implements Serializable {
 
     private String name;
     private List<Photo> photos;
+    private transient AlbumSnapshot snapshot;
+    private transient User owner;
 
     /**
      * Constructor
@@ -24,6 +26,16 @@ public class Album implements Serializable {
         this.photos = new ArrayList<>();
     }
 
+    /**
+     * Constructor used to rebuild an album from a snapshot
+     * @param name Name of the album
+     * @param photos Photos of the album
+     */
+    Album(String name, List<Photo> photos) {
+        this.name = name;
+        this.photos = new ArrayList<>(photos);
+    }
+
     // Getters and Setters
     public String getName() {
         return name;
@@ -31,20 +43,74 @@ public class Album implements Serializable {
 
     public void setName(String name) {
         this.name = name;
+        ModelChanges.publish(ModelChange.albumRenamed(this));
     }
 
     public List<Photo> getPhotos() {
         return Collections.unmodifiableList(photos);
     }
 
+    /**
+     * Get the user whose library holds this album
+     * @return The owner, or null for an album not or no longer in a user's library
+     */
+    User getOwner() {
+        return owner;
+    }
+
+    /**
+     * Make the album part of a user's library, or detach it; its photos are marked as the user's too
+     * @param owner The owner, or null
+     */
+    void setOwner(User owner) {
+        this.owner = owner;
+        if (owner != null) {
+            for (Photo photo : photos) {
+                photo.setOwner(owner);
+            }
+        }
+    }
+
+    /**
+     * Whether photos can only be read from this album, not added or removed directly,
+     * such as in a smart album whose photos follow from its query
+     * @return true if {@link #addPhoto} and {@link #removePhoto} never change the album
+     */
+    public boolean isReadOnly() {
+        return false;
+    }
+
     /**
      * Add a photo to the album
      * @param photo The photo to add
-     * @return true if the photo was added (no duplicate), false otherwise
+     * @return true if the photo was added, false if the album already has it or is read-only
      */
     public boolean addPhoto(Photo photo) {
+        return !isReadOnly() && insertPhoto(photo);
+    }
+
+    /**
+     * Add a photo whether or not the album is read-only
+     * @param photo The photo to add
+     * @return true if the photo was added (no duplicate), false otherwise
+     */
+    boolean insertPhoto(Photo photo) {
+        return insertPhoto(photo, photos.size());
+    }
+
+    /**
+     * Add a photo at a position whether or not the album is read-only
+     * @param photo The photo to add
+     * @param index Position to insert the photo at
+     * @return true if the photo was added (no duplicate), false otherwise
+     */
+    boolean insertPhoto(Photo photo, int index) {
         if (!photos.contains(photo)) {
-            photos.add(photo);
+            photos.add(index, photo);
+            if (owner != null) {
+                photo.setOwner(owner);
+            }
+            ModelChanges.publish(ModelChange.photoAdded(this, photo, index));
             return true;
         }
         return false;
@@ -53,10 +119,25 @@ public class Album implements Serializable {
     /**
      * Remove a photo from the album
      * @param photo The photo to remove
-     * @return true if the photo was successfully removed, false otherwise
+     * @return true if the photo was removed, false if the album does not have it or is read-only
      */
     public boolean removePhoto(Photo photo) {
-        return photos.remove(photo);
+        return !isReadOnly() && deletePhoto(photo);
+    }
+
+    /**
+     * Remove a photo whether or not the album is read-only
+     * @param photo The photo to remove
+     * @return true if the photo was successfully removed, false otherwise
+     */
+    boolean deletePhoto(Photo photo) {
+        int index = photos.indexOf(photo);
+        if (index < 0) {
+            return false;
+        }
+        Photo removed = photos.remove(index);
+        ModelChanges.publish(ModelChange.photoRemoved(this, removed, index));
+        return true;
     }
 
     /**
@@ -97,6 +178,22 @@ public class Album implements Serializable {
         return latest;
     }
 
+    /**
+     * Get an immutable snapshot of the album's current state.
+     * The previous snapshot is reused if neither the album nor its photos changed.
+     * @return Snapshot of this album
+     */
+    public AlbumSnapshot snapshot() {
+        List<PhotoSnapshot> current = new ArrayList<>(photos.size());
+        for (Photo photo : photos) {
+            current.add(photo.snapshot());
+        }
+        if (snapshot == null || !snapshot.matches(name, current)) {
+            snapshot = new AlbumSnapshot(name, current);
+        }
+        return snapshot;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,74 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of an album at the moment a snapshot was taken.
+ * The photo list holds shared PhotoSnapshot instances, so an album snapshot
+ * is reused as-is while neither the album nor any of its photos change.
+ */
+public final class AlbumSnapshot {
+    private final String name;
+    private final List<PhotoSnapshot> photos;
+
+    /**
+     * Constructor
+     * @param name Name of the album at snapshot time
+     * @param photos Photo snapshots in album order
+     */
+    AlbumSnapshot(String name, List<PhotoSnapshot> photos) {
+        this.name = name;
+        this.photos = Collections.unmodifiableList(photos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<PhotoSnapshot> getPhotos() {
+        return photos;
+    }
+
+    /**
+     * Check whether this snapshot still describes the given state
+     * @param name Current album name
+     * @param photos Current photo snapshots of the album
+     * @return true if the name and every photo snapshot are identical
+     */
+    boolean matches(String name, List<PhotoSnapshot> photos) {
+        if (!this.name.equals(name) || this.photos.size() != photos.size()) {
+            return false;
+        }
+        for (int i = 0; i < photos.size(); i++) {
+            if (this.photos.get(i) != photos.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebuild a detached album from this snapshot
+     * @param materialized Photos already rebuilt for other albums, keyed by snapshot
+     * @return A new Album with the captured state
+     */
+    Album toAlbum(Map<PhotoSnapshot, Photo> materialized) {
+        List<Photo> copies = new ArrayList<>(photos.size());
+        for (PhotoSnapshot photo : photos) {
+            copies.add(materialized.computeIfAbsent(photo, PhotoSnapshot::toPhoto));
+        }
+        return new Album(name, copies);
+    }
+
+    /**
+     * Create an identity map suitable for {@link #toAlbum(Map)}
+     * @return An empty identity map
+     */
+    static Map<PhotoSnapshot, Photo> newMaterializedMap() {
+        return new IdentityHashMap<>();
+    }
+}
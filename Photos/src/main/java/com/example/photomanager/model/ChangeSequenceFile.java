@@ -0,0 +1,126 @@
+package com.example.photomanager.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Small text file recording which users each save changed.
+ * The first line holds the current sequence number, followed by the most recent
+ * entries of the form "sequence writer username". Other processes read it to find
+ * out whether, and for which users, the store changed since they last looked.
+ */
+class ChangeSequenceFile {
+    private static final int MAX_ENTRIES = 256;
+
+    private final Path file;
+
+    /**
+     * Constructor
+     * @param file The sequence file
+     */
+    ChangeSequenceFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads only the current sequence number.
+     * @return The sequence number, 0 if the file does not exist yet
+     * @throws IOException If the file cannot be read
+     */
+    long readSequence() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String first = reader.readLine();
+            return first == null ? 0 : Long.parseLong(first.trim());
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Collects the users changed by other writers after a sequence number.
+     * @param afterSequence Sequence number already seen
+     * @param writerId Id of the reading writer; its own entries are skipped
+     * @return Changed usernames, or null if the entries no longer reach back that far
+     * @throws IOException If the file cannot be read
+     */
+    Set<String> changedSince(long afterSequence, String writerId) throws IOException {
+        List<String[]> entries = readEntries();
+        if (!entries.isEmpty() && Long.parseLong(entries.get(0)[0]) > afterSequence + 1) {
+            return null;
+        }
+        if (entries.isEmpty() && readSequence() > afterSequence) {
+            return null;
+        }
+
+        Set<String> changed = new LinkedHashSet<>();
+        for (String[] entry : entries) {
+            if (Long.parseLong(entry[0]) > afterSequence && !entry[1].equals(writerId)) {
+                changed.add(entry[2]);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Appends entries for a save and bumps the sequence number.
+     * Must be called while holding the exclusive store lock.
+     * @param writerId Id of the writer
+     * @param usernames Users changed by the save
+     * @return The new sequence number
+     * @throws IOException If the file cannot be written
+     */
+    long append(String writerId, Collection<String> usernames) throws IOException {
+        long sequence = readSequence();
+        Deque<String[]> entries = new ArrayDeque<>(readEntries());
+        for (String username : usernames) {
+            sequence++;
+            entries.addLast(new String[]{Long.toString(sequence), writerId, username});
+            if (entries.size() > MAX_ENTRIES) {
+                entries.removeFirst();
+            }
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(Long.toString(sequence));
+            writer.newLine();
+            for (String[] entry : entries) {
+                writer.write(entry[0] + " " + entry[1] + " " + entry[2]);
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return sequence;
+    }
+
+    private List<String[]> readEntries() throws IOException {
+        List<String[]> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Usernames may contain spaces, so only split off the first two fields
+                String[] entry = line.split(" ", 3);
+                if (entry.length == 3) {
+                    entries.add(entry);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return entries;
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.photomanager.model;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage backend using an embedded H2 database in file mode.
+ * Users, albums, photos and tags are stored in normalized tables with indexes on
+ * user, album name, tag name/value and capture date, so tag and date queries do not
+ * need to load the library. Only users whose snapshot changed since the last save are rewritten.
+ */
+public class DatabaseBackend implements StorageBackend {
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS users (username VARCHAR PRIMARY KEY, password VARCHAR NOT NULL, is_admin BOOLEAN NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS albums (username VARCHAR NOT NULL, position INT NOT NULL, name VARCHAR NOT NULL, "
+                    + "PRIMARY KEY (username, position))",
+            "CREATE INDEX IF NOT EXISTS albums_by_name ON albums (username, name)",
+            "CREATE TABLE IF NOT EXISTS photos (username VARCHAR NOT NULL, photo_id INT NOT NULL, path VARCHAR NOT NULL, "
+                    + "caption VARCHAR NOT NULL, date_taken TIMESTAMP NOT NULL, PRIMARY KEY (username, photo_id))",
+            "CREATE INDEX IF NOT EXISTS photos_by_date ON photos (username, date_taken)",
+            "CREATE TABLE IF NOT EXISTS album_photos (username VARCHAR NOT NULL, album_position INT NOT NULL, "
+                    + "position INT NOT NULL, photo_id INT NOT NULL, PRIMARY KEY (username, album_position, position))",
+            "CREATE TABLE IF NOT EXISTS tags (username VARCHAR NOT NULL, photo_id INT NOT NULL, position INT NOT NULL, "
+                    + "name VARCHAR NOT NULL, tag_value VARCHAR NOT NULL, PRIMARY KEY (username, photo_id, position))",
+            "CREATE INDEX IF NOT EXISTS tags_by_value ON tags (username, name, tag_value)",
+            "CREATE TABLE IF NOT EXISTS smart_albums (username VARCHAR NOT NULL, position INT NOT NULL, name VARCHAR NOT NULL, "
+                    + "query VARCHAR NOT NULL, start_date TIMESTAMP, end_date TIMESTAMP, PRIMARY KEY (username, position))"
+    };
+
+    private static final String[] TABLES = {"tags", "album_photos", "photos", "albums", "smart_albums", "users"};
+
+    private final Connection connection;
+    private final Map<String, LibrarySnapshot> lastSaved = new HashMap<>();
+
+    /**
+     * Constructor
+     * @param databasePath Database file path without extension, e.g. ~/.photoManager/library
+     * @throws IOException If the database cannot be opened or initialized
+     */
+    public DatabaseBackend(String databasePath) throws IOException {
+        this("jdbc:h2:file:" + databasePath, "sa", "");
+    }
+
+    /**
+     * Constructor
+     * @param url JDBC URL of the database
+     * @param user Database user
+     * @param password Database password
+     * @throws IOException If the database cannot be opened or initialized
+     */
+    public DatabaseBackend(String url, String user, String password) throws IOException {
+        try {
+            connection = DriverManager.getConnection(url, user, password);
+            try (Statement statement = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to open database " + url, e);
+        }
+    }
+
+    @Override
+    public synchronized List<User> loadUsers() throws IOException {
+        try {
+            Map<String, User> users = new LinkedHashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT username, password, is_admin FROM users ORDER BY username")) {
+                while (rs.next()) {
+                    String username = rs.getString(1);
+                    users.put(username, loadUser(username, rs.getString(2), rs.getBoolean(3)));
+                }
+            }
+
+            lastSaved.clear();
+            for (User user : users.values()) {
+                lastSaved.put(user.getUsername(), user.snapshot());
+            }
+            return new ArrayList<>(users.values());
+        } catch (SQLException e) {
+            throw new IOException("Failed to load users", e);
+        }
+    }
+
+    /**
+     * Rebuilds one user's albums, photos and tags.
+     */
+    private User loadUser(String username, String password, boolean isAdmin) throws SQLException {
+        // Tags are read first so photos are built complete, without publishing a change per tag
+        Map<Integer, List<Tag>> tags = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT photo_id, name, tag_value FROM tags WHERE username = ? ORDER BY photo_id, position")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    tags.computeIfAbsent(rs.getInt(1), id -> new ArrayList<>())
+                            .add(new Tag(rs.getString(2), rs.getString(3)));
+                }
+            }
+        }
+
+        Map<Integer, Photo> photos = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT photo_id, path, caption, date_taken FROM photos WHERE username = ?")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    photos.put(rs.getInt(1), new Photo(rs.getString(2), rs.getString(3),
+                            new Date(rs.getTimestamp(4).getTime()), tags.getOrDefault(rs.getInt(1), new ArrayList<>())));
+                }
+            }
+        }
+
+        Map<Integer, String> albumNames = new LinkedHashMap<>();
+        Map<Integer, List<Photo>> albumPhotos = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT position, name FROM albums WHERE username = ? ORDER BY position")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    albumNames.put(rs.getInt(1), rs.getString(2));
+                    albumPhotos.put(rs.getInt(1), new ArrayList<>());
+                }
+            }
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT album_position, photo_id FROM album_photos WHERE username = ? ORDER BY album_position, position")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    albumPhotos.get(rs.getInt(1)).add(photos.get(rs.getInt(2)));
+                }
+            }
+        }
+
+        List<Album> albums = new ArrayList<>();
+        for (Map.Entry<Integer, String> entry : albumNames.entrySet()) {
+            albums.add(new Album(entry.getValue(), albumPhotos.get(entry.getKey())));
+        }
+
+        List<SmartAlbum> smartAlbums = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT name, query, start_date, end_date FROM smart_albums WHERE username = ? ORDER BY position")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    smartAlbums.add(new SmartAlbum.Definition(rs.getString(1), rs.getString(2),
+                            millis(rs.getTimestamp(3)), millis(rs.getTimestamp(4))).toAlbum());
+                }
+            }
+        }
+        return new User(username, password, isAdmin, albums, smartAlbums);
+    }
+
+    @Override
+    public synchronized void saveUsers(List<LibrarySnapshot> users) throws IOException {
+        try {
+            connection.setAutoCommit(false);
+            try {
+                Map<String, LibrarySnapshot> current = new HashMap<>();
+                for (LibrarySnapshot snapshot : users) {
+                    current.put(snapshot.getUsername(), snapshot);
+                    // Unchanged users keep the very same snapshot instance
+                    if (lastSaved.get(snapshot.getUsername()) != snapshot) {
+                        deleteUser(snapshot.getUsername());
+                        insertUser(snapshot);
+                    }
+                }
+                for (String username : lastSaved.keySet()) {
+                    if (!current.containsKey(username)) {
+                        deleteUser(username);
+                    }
+                }
+                connection.commit();
+                lastSaved.clear();
+                lastSaved.putAll(current);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to save users", e);
+        }
+    }
+
+    private void deleteUser(String username) throws SQLException {
+        for (String table : TABLES) {
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE username = ?")) {
+                ps.setString(1, username);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private void insertUser(LibrarySnapshot snapshot) throws SQLException {
+        String username = snapshot.getUsername();
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO users VALUES (?, ?, ?)")) {
+            ps.setString(1, username);
+            ps.setString(2, snapshot.getPassword());
+            ps.setBoolean(3, snapshot.isAdmin());
+            ps.executeUpdate();
+        }
+
+        // Shared photos are the same snapshot instance in every album
+        Map<PhotoSnapshot, Integer> photoIds = new IdentityHashMap<>();
+        try (PreparedStatement photoPs = connection.prepareStatement("INSERT INTO photos VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement tagPs = connection.prepareStatement("INSERT INTO tags VALUES (?, ?, ?, ?, ?)")) {
+            for (PhotoSnapshot photo : snapshot.getAllPhotos()) {
+                int id = photoIds.size();
+                photoIds.put(photo, id);
+                photoPs.setString(1, username);
+                photoPs.setInt(2, id);
+                photoPs.setString(3, photo.getPath());
+                photoPs.setString(4, photo.getCaption());
+                photoPs.setTimestamp(5, new Timestamp(photo.getDateTaken().getTime()));
+                photoPs.addBatch();
+
+                List<Tag> tags = photo.getTags();
+                for (int i = 0; i < tags.size(); i++) {
+                    tagPs.setString(1, username);
+                    tagPs.setInt(2, id);
+                    tagPs.setInt(3, i);
+                    tagPs.setString(4, tags.get(i).getName());
+                    tagPs.setString(5, tags.get(i).getValue());
+                    tagPs.addBatch();
+                }
+            }
+            photoPs.executeBatch();
+            tagPs.executeBatch();
+        }
+
+        try (PreparedStatement albumPs = connection.prepareStatement("INSERT INTO albums VALUES (?, ?, ?)");
+             PreparedStatement memberPs = connection.prepareStatement("INSERT INTO album_photos VALUES (?, ?, ?, ?)")) {
+            List<AlbumSnapshot> albums = snapshot.getAlbums();
+            for (int a = 0; a < albums.size(); a++) {
+                albumPs.setString(1, username);
+                albumPs.setInt(2, a);
+                albumPs.setString(3, albums.get(a).getName());
+                albumPs.addBatch();
+
+                List<PhotoSnapshot> photos = albums.get(a).getPhotos();
+                for (int p = 0; p < photos.size(); p++) {
+                    memberPs.setString(1, username);
+                    memberPs.setInt(2, a);
+                    memberPs.setInt(3, p);
+                    memberPs.setInt(4, photoIds.get(photos.get(p)));
+                    memberPs.addBatch();
+                }
+            }
+            albumPs.executeBatch();
+            memberPs.executeBatch();
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO smart_albums VALUES (?, ?, ?, ?, ?, ?)")) {
+            List<SmartAlbum.Definition> smartAlbums = snapshot.getSmartAlbums();
+            for (int a = 0; a < smartAlbums.size(); a++) {
+                SmartAlbum.Definition definition = smartAlbums.get(a);
+                ps.setString(1, username);
+                ps.setInt(2, a);
+                ps.setString(3, definition.getName());
+                ps.setString(4, definition.getQuery());
+                ps.setTimestamp(5, definition.getStartDate() != null ? new Timestamp(definition.getStartDate().getTime()) : null);
+                ps.setTimestamp(6, definition.getEndDate() != null ? new Timestamp(definition.getEndDate().getTime()) : null);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static Long millis(Timestamp timestamp) {
+        return timestamp != null ? timestamp.getTime() : null;
+    }
+
+    @Override
+    public synchronized List<String> findPhotosByTag(String username, String tagName, String tagValue) throws IOException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT p.path FROM tags t JOIN photos p ON p.username = t.username AND p.photo_id = t.photo_id "
+                        + "WHERE t.username = ? AND t.name = ? AND t.tag_value = ? ORDER BY p.photo_id")) {
+            ps.setString(1, username);
+            ps.setString(2, tagName);
+            ps.setString(3, tagValue);
+            return queryPaths(ps);
+        } catch (SQLException e) {
+            throw new IOException("Tag query failed", e);
+        }
+    }
+
+    @Override
+    public synchronized List<String> findPhotosByDate(String username, Date startDate, Date endDate) throws IOException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT path FROM photos WHERE username = ? AND date_taken > ? AND date_taken < ? ORDER BY photo_id")) {
+            ps.setString(1, username);
+            ps.setTimestamp(2, new Timestamp(startDate.getTime()));
+            ps.setTimestamp(3, new Timestamp(endDate.getTime()));
+            return queryPaths(ps);
+        } catch (SQLException e) {
+            throw new IOException("Date query failed", e);
+        }
+    }
+
+    private static List<String> queryPaths(PreparedStatement ps) throws SQLException {
+        List<String> paths = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                paths.add(rs.getString(1));
+            }
+        }
+        return paths;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.photomanager.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Photo counts per tag name, per tag value and per capture year, month and day.
+ * Timeline periods are labelled "2024", "2024-07" and "2024-07-31", so labels sort chronologically
+ * and a day lies in a period exactly when its label starts with the period's label.
+ * Counts over any list of photos are built with {@link #of(List)}; the counts of a whole
+ * library are kept up to date by {@link FacetIndex}.
+ */
+public final class FacetCounts {
+    /**
+     * Timeline granularity
+     */
+    public enum Granularity {
+        YEAR(4), MONTH(7), DAY(10);
+
+        private final int labelLength;
+
+        Granularity(int labelLength) {
+            this.labelLength = labelLength;
+        }
+    }
+
+    // Tag name -> number of photos with at least one value of it
+    private final NavigableMap<String, Integer> names = new TreeMap<>();
+    // Tag name -> value -> number of photos carrying it
+    private final Map<String, NavigableMap<String, Integer>> values = new HashMap<>();
+    private final Map<Granularity, NavigableMap<String, Integer>> timeline = new HashMap<>();
+
+    FacetCounts() {
+        for (Granularity granularity : Granularity.values()) {
+            timeline.put(granularity, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Count the facets of a list of photos, e.g. search results.
+     * Takes time proportional to the number of photos and their tags.
+     * @param photos The photos to count
+     * @return The counts
+     */
+    public static FacetCounts of(List<PhotoSnapshot> photos) {
+        FacetCounts counts = new FacetCounts();
+        for (PhotoSnapshot photo : photos) {
+            counts.addDate(photo.getDateTaken(), 1);
+            List<Tag> tags = photo.getTags();
+            for (int i = 0; i < tags.size(); i++) {
+                counts.addTag(tags.get(i), !hasName(tags, i, tags.get(i).getName()), 1);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Copy the counts
+     * @return An independent copy
+     */
+    FacetCounts copy() {
+        FacetCounts copy = new FacetCounts();
+        copy.names.putAll(names);
+        for (Map.Entry<String, NavigableMap<String, Integer>> entry : values.entrySet()) {
+            copy.values.put(entry.getKey(), new TreeMap<>(entry.getValue()));
+        }
+        for (Granularity granularity : Granularity.values()) {
+            copy.timeline.get(granularity).putAll(timeline.get(granularity));
+        }
+        return copy;
+    }
+
+    /**
+     * Get the tag names with the number of photos carrying each
+     * @return Counts by tag name, sorted by name
+     */
+    public NavigableMap<String, Integer> getTagNames() {
+        return Collections.unmodifiableNavigableMap(names);
+    }
+
+    /**
+     * Get the values of a tag name with the number of photos carrying each
+     * @param name Tag name
+     * @return Counts by value, sorted by value; empty if no photo carries the name
+     */
+    public NavigableMap<String, Integer> getValues(String name) {
+        NavigableMap<String, Integer> named = values.get(name);
+        return named != null ? Collections.unmodifiableNavigableMap(named) : Collections.emptyNavigableMap();
+    }
+
+    /**
+     * Get the number of photos taken in each period
+     * @param granularity Length of the periods
+     * @return Counts by period label, in chronological order; periods without photos are left out
+     */
+    public NavigableMap<String, Integer> getTimeline(Granularity granularity) {
+        return Collections.unmodifiableNavigableMap(timeline.get(granularity));
+    }
+
+    /**
+     * Get the coarsest timeline granularity that splits the photos into more than one period
+     * @return YEAR, MONTH or DAY
+     */
+    public Granularity getCoarsestUseful() {
+        for (Granularity granularity : Granularity.values()) {
+            if (timeline.get(granularity).size() > 1) {
+                return granularity;
+            }
+        }
+        return Granularity.DAY;
+    }
+
+    /**
+     * Get the day label of a capture date in the system time zone, e.g. "2024-07-31"
+     * @param date The capture date
+     * @return The day label
+     */
+    public static String dayOf(Date date) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault()).toString();
+    }
+
+    /**
+     * Get the first moment of a timeline period in the system time zone
+     * @param label Period label, e.g. "2024" or "2024-07"
+     * @return Start of the period
+     */
+    public static Date periodStart(String label) {
+        return toDate(startOf(label));
+    }
+
+    /**
+     * Get the last moment of a timeline period in the system time zone
+     * @param label Period label, e.g. "2024" or "2024-07"
+     * @return End of the period
+     */
+    public static Date periodEnd(String label) {
+        LocalDate start = startOf(label);
+        LocalDate next = label.length() == Granularity.YEAR.labelLength ? start.plusYears(1)
+                : label.length() == Granularity.MONTH.labelLength ? start.plusMonths(1) : start.plusDays(1);
+        return new Date(toDate(next).getTime() - 1);
+    }
+
+    private static LocalDate startOf(String label) {
+        return LocalDate.parse(label + "-01-01".substring(label.length() - Granularity.YEAR.labelLength));
+    }
+
+    private static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    void addDate(Date date, int delta) {
+        String day = dayOf(date);
+        for (Granularity granularity : Granularity.values()) {
+            adjust(timeline.get(granularity), day.substring(0, granularity.labelLength), delta);
+        }
+    }
+
+    /**
+     * Adjust the counts of a tag on one photo
+     * @param tag The tag
+     * @param firstOfName Whether the photo has no other counted tag with this name, so the name count changes too
+     * @param delta 1 if the tag was added, -1 if removed
+     */
+    void addTag(Tag tag, boolean firstOfName, int delta) {
+        if (firstOfName) {
+            adjust(names, tag.getName(), delta);
+        }
+        NavigableMap<String, Integer> named = values.computeIfAbsent(tag.getName(), name -> new TreeMap<>());
+        adjust(named, tag.getValue(), delta);
+        if (named.isEmpty()) {
+            values.remove(tag.getName());
+        }
+    }
+
+    /**
+     * Check whether the first tags of a list include one with a name
+     * @param tags The tags
+     * @param count Number of tags at the start of the list to look at
+     * @param name Tag name
+     * @return true if one of them has the name
+     */
+    static boolean hasName(List<Tag> tags, int count, String name) {
+        for (int i = 0; i < count; i++) {
+            if (tags.get(i).getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void adjust(Map<String, Integer> counts, String key, int delta) {
+        counts.merge(key, delta, (count, d) -> count + d == 0 ? null : count + d);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facet counts of all photos of one user, kept up to date from {@link ModelChanges}
+ * so the search view can show an overview of the library without scanning it.
+ * Each photo is counted once, however many of the user's albums it is in.
+ * The index is obtained with {@link User#getFacetIndex()}. All methods are thread-safe.
+ */
+public final class FacetIndex implements ModelChangeListener {
+    private final User user;
+    private final FacetCounts counts = new FacetCounts();
+    // Number of the user's albums each photo is in
+    private final Map<Photo, Integer> albumCounts = new IdentityHashMap<>();
+    // Tags each photo is currently counted with; edits are batched, so the photo's own tags may already be ahead
+    private final Map<Photo, List<Tag>> counted = new IdentityHashMap<>();
+
+    FacetIndex(User user) {
+        this.user = user;
+        rebuild();
+        ModelChanges.subscribe(user, this);
+    }
+
+    /**
+     * Rebuilds the counts from the user's albums, e.g. after the user was reloaded from storage
+     */
+    synchronized void rebuild() {
+        for (Photo photo : new ArrayList<>(counted.keySet())) {
+            uncount(photo);
+        }
+        albumCounts.clear();
+        for (Album album : user.getAlbums()) {
+            for (Photo photo : album.getPhotos()) {
+                addPhoto(photo);
+            }
+        }
+    }
+
+    /**
+     * Stops following model changes
+     */
+    void close() {
+        ModelChanges.unsubscribe(user, this);
+    }
+
+    /**
+     * Get the current counts. Takes time proportional to the number of distinct
+     * tags and capture dates, not the number of photos.
+     * @return A copy of the counts
+     */
+    public synchronized FacetCounts counts() {
+        return counts.copy();
+    }
+
+    @Override
+    public synchronized void modelChanged(List<ModelChange> changes) {
+        for (ModelChange change : changes) {
+            if (change.getUser() != user) {
+                // Another user's library
+                continue;
+            }
+            switch (change.getType()) {
+                case PHOTO_ADDED:
+                    if (change.changesLibraryOf(user)) {
+                        addPhoto(change.getPhoto());
+                    }
+                    break;
+                case PHOTO_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        removePhoto(change.getPhoto());
+                    }
+                    break;
+                case ALBUM_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        for (Photo photo : change.getAlbum().getPhotos()) {
+                            removePhoto(photo);
+                        }
+                    }
+                    break;
+                case TAG_ADDED:
+                    List<Tag> tags = counted.get(change.getPhoto());
+                    if (tags != null && !tags.contains(change.getTag())) {
+                        counts.addTag(change.getTag(), !FacetCounts.hasName(tags, tags.size(), change.getTag().getName()), 1);
+                        tags.add(change.getTag());
+                    }
+                    break;
+                case TAG_REMOVED:
+                    tags = counted.get(change.getPhoto());
+                    if (tags != null && tags.remove(change.getTag())) {
+                        counts.addTag(change.getTag(), !FacetCounts.hasName(tags, tags.size(), change.getTag().getName()), -1);
+                    }
+                    break;
+                default:
+                    // New albums are empty, and captions and album names are not counted
+                    break;
+            }
+        }
+    }
+
+    private void addPhoto(Photo photo) {
+        if (albumCounts.merge(photo, 1, Integer::sum) > 1) {
+            return;
+        }
+        List<Tag> tags = new ArrayList<>();
+        counted.put(photo, tags);
+        counts.addDate(photo.getDateTaken(), 1);
+        for (Tag tag : photo.getTags()) {
+            counts.addTag(tag, !FacetCounts.hasName(tags, tags.size(), tag.getName()), 1);
+            tags.add(tag);
+        }
+    }
+
+    private void removePhoto(Photo photo) {
+        Integer count = albumCounts.get(photo);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            albumCounts.put(photo, count - 1);
+            return;
+        }
+        albumCounts.remove(photo);
+        uncount(photo);
+    }
+
+    private void uncount(Photo photo) {
+        List<Tag> tags = counted.remove(photo);
+        counts.addDate(photo.getDateTaken(), -1);
+        for (int i = tags.size() - 1; i >= 0; i--) {
+            counts.addTag(tags.get(i), !FacetCounts.hasName(tags, i, tags.get(i).getName()), -1);
+        }
+    }
+}
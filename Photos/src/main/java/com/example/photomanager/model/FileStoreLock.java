@@ -0,0 +1,75 @@
+package com.example.photomanager.model;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock guarding a file store against concurrent access from other processes and threads.
+ * FileChannel locks are held per JVM, so threads of the same process are additionally
+ * serialized by an in-process lock shared by every instance guarding the same path.
+ */
+class FileStoreLock {
+    private static final Map<Path, ReentrantLock> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path lockFile;
+    private final ReentrantLock localLock;
+
+    /**
+     * Constructor
+     * @param lockFile The file used for locking; created on first use
+     */
+    FileStoreLock(Path lockFile) {
+        this.lockFile = lockFile.toAbsolutePath().normalize();
+        this.localLock = LOCAL_LOCKS.computeIfAbsent(this.lockFile, path -> new ReentrantLock());
+    }
+
+    /**
+     * Acquires the lock, blocking until other processes release it.
+     * @param shared true for a shared (read) lock, false for an exclusive (write) lock
+     * @return A handle that releases the lock when closed
+     * @throws IOException If the lock file cannot be opened or locked
+     */
+    Held acquire(boolean shared) throws IOException {
+        localLock.lock();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Held(channel, channel.lock(0, Long.MAX_VALUE, shared));
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            localLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * An acquired lock.
+     */
+    class Held implements AutoCloseable {
+        private final FileChannel channel;
+        private final FileLock lock;
+
+        private Held(FileChannel channel, FileLock lock) {
+            this.channel = channel;
+            this.lock = lock;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                lock.release();
+                channel.close();
+            } finally {
+                localLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.photomanager.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Offline gazetteer resolving place names to coordinates, read from the bundled gazetteer.csv.
+ * Used to place photos that carry a location tag but no GPS position.
+ */
+public final class Gazetteer {
+    private static final Gazetteer DEFAULT = load();
+
+    // Case-folded name -> {latitude, longitude}
+    private final Map<String, double[]> places = new HashMap<>();
+    // Names in their bundled spelling, by case-folded name
+    private final Map<String, String> names = new HashMap<>();
+
+    private Gazetteer() {
+    }
+
+    /**
+     * Get the bundled gazetteer
+     * @return The shared instance
+     */
+    public static Gazetteer getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Look up a place. "Paris, France" is also found as "Paris".
+     * @param name The place name, matched ignoring case
+     * @return Latitude and longitude in degrees, or null if the place is unknown
+     */
+    public double[] locate(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        double[] position = places.get(key);
+        int comma = key.indexOf(',');
+        if (position == null && comma > 0) {
+            position = places.get(key.substring(0, comma).trim());
+        }
+        return position != null ? position.clone() : null;
+    }
+
+    /**
+     * Find the known place closest to a position, e.g. to label a cluster on a map overview
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @return The place name, or null if the gazetteer is empty
+     */
+    public String nearest(double latitude, double longitude) {
+        String best = null;
+        double bestDistance = Double.MAX_VALUE;
+        for (Map.Entry<String, double[]> place : places.entrySet()) {
+            double distance = GeoIndex.distanceKm(latitude, longitude, place.getValue()[0], place.getValue()[1]);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = names.get(place.getKey());
+            }
+        }
+        return best;
+    }
+
+    private static Gazetteer load() {
+        Gazetteer gazetteer = new Gazetteer();
+        try (InputStream in = Gazetteer.class.getResourceAsStream("/com/example/photomanager/gazetteer.csv")) {
+            if (in == null) {
+                return gazetteer;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (line.startsWith("#") || fields.length != 3) {
+                    continue;
+                }
+                try {
+                    String key = fields[0].trim().toLowerCase(Locale.ROOT);
+                    gazetteer.places.put(key, new double[]{Double.parseDouble(fields[1]), Double.parseDouble(fields[2])});
+                    gazetteer.names.put(key, fields[0].trim());
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping malformed gazetteer line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return gazetteer;
+    }
+}
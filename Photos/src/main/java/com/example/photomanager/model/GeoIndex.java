@@ -0,0 +1,547 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Spatial index of one user's geotagged photos.
+ * A photo's position is its "gps" tag ("48.856600,2.352200", filled from EXIF on import), or else its
+ * "location" tag resolved against the {@link Gazetteer}. Positions are quantized to 31 bits per axis and
+ * interleaved into a Z-order code, which turns a quadtree into one sorted map: every quadtree cell is a
+ * contiguous range of codes. A box is covered by a few such ranges, so box, radius and nearest queries
+ * visit only the photos in or next to the box. Photo counts per cell are also kept for the first
+ * {@link #MAX_CLUSTER_LEVEL} quadtree levels, so a map overview costs time proportional to the cells shown.
+ * The index is built once and then kept up to date from {@link ModelChanges}; it is obtained with
+ * {@link User#getGeoIndex()}. All methods are thread-safe.
+ */
+public final class GeoIndex implements ModelChangeListener {
+    public static final String GPS_TAG = "gps";
+    public static final String LOCATION_TAG = "location";
+    public static final int MAX_CLUSTER_LEVEL = 10;
+
+    private static final int BITS = 31;
+    private static final long CELLS = 1L << BITS;
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double HALF_CIRCUMFERENCE_KM = Math.PI * EARTH_RADIUS_KM;
+
+    private final User user;
+    private final Gazetteer gazetteer;
+    // Z-order code -> photos at that position
+    private final TreeMap<Long, List<Photo>> points = new TreeMap<>();
+    // Exact position of each indexed photo, so removal subtracts from the cluster sums what was added
+    private final Map<Photo, double[]> positions = new IdentityHashMap<>();
+    // Per quadtree level 1..MAX_CLUSTER_LEVEL: cell code -> photos in the cell
+    private final List<TreeMap<Long, Cell>> cells = new ArrayList<>();
+    // Number of the user's albums each photo is in
+    private final Map<Photo, Integer> albumCounts = new IdentityHashMap<>();
+
+    GeoIndex(User user, Gazetteer gazetteer) {
+        this.user = user;
+        this.gazetteer = gazetteer;
+        for (int level = 1; level <= MAX_CLUSTER_LEVEL; level++) {
+            cells.add(new TreeMap<>());
+        }
+        rebuild();
+        ModelChanges.subscribe(user, this);
+    }
+
+    /**
+     * Rebuilds the index from the user's albums, e.g. after the user was reloaded from storage
+     */
+    synchronized void rebuild() {
+        points.clear();
+        positions.clear();
+        albumCounts.clear();
+        for (TreeMap<Long, Cell> level : cells) {
+            level.clear();
+        }
+        for (Album album : user.getAlbums()) {
+            for (Photo photo : album.getPhotos()) {
+                if (albumCounts.merge(photo, 1, Integer::sum) == 1) {
+                    place(photo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops following model changes
+     */
+    void close() {
+        ModelChanges.unsubscribe(user, this);
+    }
+
+    /**
+     * Get the number of photos with a known position
+     * @return The number of indexed photos
+     */
+    public synchronized int size() {
+        return positions.size();
+    }
+
+    /**
+     * Find the photos inside a box. A box whose west edge lies east of its east edge crosses the antimeridian.
+     * @param south Southern edge in degrees
+     * @param west Western edge in degrees
+     * @param north Northern edge in degrees
+     * @param east Eastern edge in degrees
+     * @return The photos, each once
+     */
+    public synchronized List<Photo> within(double south, double west, double north, double east) {
+        List<Photo> photos = new ArrayList<>();
+        for (double[] box : split(south, west, north, east)) {
+            collect(box, (photo, lat, lon) -> photos.add(photo));
+        }
+        return photos;
+    }
+
+    /**
+     * Find the photos within a distance of a position
+     * @param latitude Latitude of the centre in degrees
+     * @param longitude Longitude of the centre in degrees
+     * @param radiusKm Great-circle distance in kilometres
+     * @return The photos, nearest first
+     */
+    public synchronized List<Photo> withinRadius(double latitude, double longitude, double radiusKm) {
+        List<Photo> photos = new ArrayList<>();
+        Map<Photo, Double> distances = new IdentityHashMap<>();
+        for (double[] box : circleBoxes(latitude, longitude, radiusKm)) {
+            collect(box, (photo, lat, lon) -> {
+                double distance = distanceKm(latitude, longitude, lat, lon);
+                if (distance <= radiusKm) {
+                    photos.add(photo);
+                    distances.put(photo, distance);
+                }
+            });
+        }
+        photos.sort(Comparator.comparingDouble(distances::get));
+        return photos;
+    }
+
+    /**
+     * Find the photos closest to a position. Searches circles of growing radius,
+     * so it only visits the photos around the position.
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @param count Maximum number of photos
+     * @return Up to count photos, nearest first
+     */
+    public synchronized List<Photo> nearest(double latitude, double longitude, int count) {
+        double radius = 1;
+        while (true) {
+            List<Photo> photos = withinRadius(latitude, longitude, radius);
+            // Every photo closer than the count-th one found lies inside the circle as well
+            if (photos.size() >= count || radius >= HALF_CIRCUMFERENCE_KM) {
+                return new ArrayList<>(photos.subList(0, Math.min(count, photos.size())));
+            }
+            radius *= 4;
+        }
+    }
+
+    /**
+     * Group the photos inside a box into quadtree cells, e.g. for a map overview.
+     * Level 1 splits the world into 4 cells, and every further level splits each cell into 4.
+     * @param south Southern edge in degrees
+     * @param west Western edge in degrees
+     * @param north Northern edge in degrees
+     * @param east Eastern edge in degrees
+     * @param level Quadtree level, 1 to {@link #MAX_CLUSTER_LEVEL}
+     * @return The non-empty cells overlapping the box, in Z order
+     */
+    public synchronized List<Cluster> clusters(double south, double west, double north, double east, int level) {
+        if (level < 1 || level > MAX_CLUSTER_LEVEL) {
+            throw new IllegalArgumentException("Cluster level must be between 1 and " + MAX_CLUSTER_LEVEL);
+        }
+        List<Cluster> clusters = new ArrayList<>();
+        int shift = 2 * (BITS - level);
+        for (double[] box : split(south, west, north, east)) {
+            for (long[] range : cover(box, level)) {
+                for (Map.Entry<Long, Cell> entry : cells.get(level - 1)
+                        .subMap(range[0] >>> shift, true, range[1] >>> shift, true).entrySet()) {
+                    clusters.add(entry.getValue().toCluster(entry.getKey(), level));
+                }
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * Get the position of a photo from its tags: the "gps" tag, or else the first "location" tag the gazetteer knows
+     * @param tags The photo's tags
+     * @param gazetteer The gazetteer to resolve place names with
+     * @return Latitude and longitude in degrees, or null if the photo has no known position
+     */
+    public static double[] locate(List<Tag> tags, Gazetteer gazetteer) {
+        for (Tag tag : tags) {
+            if (tag.getName().equalsIgnoreCase(GPS_TAG)) {
+                double[] position = parseCoordinates(tag.getValue());
+                if (position != null) {
+                    return position;
+                }
+            }
+        }
+        for (Tag tag : tags) {
+            if (tag.getName().equalsIgnoreCase(LOCATION_TAG)) {
+                double[] position = gazetteer.locate(tag.getValue());
+                if (position != null) {
+                    return position;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parse "latitude,longitude" in degrees
+     * @param text The text to parse
+     * @return Latitude and longitude, or null if the text is not a valid position
+     */
+    public static double[] parseCoordinates(String text) {
+        String[] parts = text.split(",");
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            double lat = Double.parseDouble(parts[0].trim());
+            double lon = Double.parseDouble(parts[1].trim());
+            return Math.abs(lat) <= 90 && Math.abs(lon) <= 180 ? new double[]{lat, lon} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create the tag recording a photo's position
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @return The "gps" tag
+     */
+    public static Tag gpsTag(double latitude, double longitude) {
+        return new Tag(GPS_TAG, String.format(Locale.ROOT, "%.6f,%.6f", latitude, longitude));
+    }
+
+    /**
+     * Great-circle distance between two positions
+     * @return The distance in kilometres
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    @Override
+    public synchronized void modelChanged(List<ModelChange> changes) {
+        for (ModelChange change : changes) {
+            if (change.getUser() != user) {
+                // Another user's library
+                continue;
+            }
+            switch (change.getType()) {
+                case PHOTO_ADDED:
+                    if (change.changesLibraryOf(user) && albumCounts.merge(change.getPhoto(), 1, Integer::sum) == 1) {
+                        place(change.getPhoto());
+                    }
+                    break;
+                case PHOTO_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        release(change.getPhoto());
+                    }
+                    break;
+                case ALBUM_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        for (Photo photo : change.getAlbum().getPhotos()) {
+                            release(photo);
+                        }
+                    }
+                    break;
+                case TAG_ADDED:
+                case TAG_REMOVED:
+                    String name = change.getTag().getName();
+                    if ((name.equalsIgnoreCase(GPS_TAG) || name.equalsIgnoreCase(LOCATION_TAG))
+                            && albumCounts.containsKey(change.getPhoto())) {
+                        unplace(change.getPhoto());
+                        place(change.getPhoto());
+                    }
+                    break;
+                default:
+                    // New albums are empty, and captions and album names carry no position
+                    break;
+            }
+        }
+    }
+
+    private void release(Photo photo) {
+        Integer count = albumCounts.get(photo);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            albumCounts.put(photo, count - 1);
+        } else {
+            albumCounts.remove(photo);
+            unplace(photo);
+        }
+    }
+
+    private void place(Photo photo) {
+        double[] position = locate(photo.getTags(), gazetteer);
+        if (position == null) {
+            return;
+        }
+        long code = encode(position[0], position[1]);
+        positions.put(photo, position);
+        points.computeIfAbsent(code, c -> new ArrayList<>(1)).add(photo);
+        for (int level = 1; level <= MAX_CLUSTER_LEVEL; level++) {
+            cells.get(level - 1).computeIfAbsent(code >>> 2 * (BITS - level), c -> new Cell()).add(position, 1);
+        }
+    }
+
+    private void unplace(Photo photo) {
+        double[] position = positions.remove(photo);
+        if (position == null) {
+            return;
+        }
+        long code = encode(position[0], position[1]);
+        List<Photo> here = points.get(code);
+        here.remove(photo);
+        if (here.isEmpty()) {
+            points.remove(code);
+        }
+        for (int level = 1; level <= MAX_CLUSTER_LEVEL; level++) {
+            TreeMap<Long, Cell> levelCells = cells.get(level - 1);
+            long cell = code >>> 2 * (BITS - level);
+            if (levelCells.get(cell).add(position, -1) == 0) {
+                levelCells.remove(cell);
+            }
+        }
+    }
+
+    private interface Visitor {
+        void visit(Photo photo, double latitude, double longitude);
+    }
+
+    /**
+     * Visits the photos inside a box that does not cross the antimeridian
+     */
+    private void collect(double[] box, Visitor visitor) {
+        for (long[] range : cover(box, BITS)) {
+            for (Map.Entry<Long, List<Photo>> entry : points.subMap(range[0], true, range[1], true).entrySet()) {
+                double[] position = decode(entry.getKey());
+                // Cells on the edge of the box are only partly inside it
+                if (position[0] >= box[0] && position[0] <= box[2] && position[1] >= box[1] && position[1] <= box[3]) {
+                    for (Photo photo : entry.getValue()) {
+                        visitor.visit(photo, position[0], position[1]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Covers a box with ranges of codes, one per quadtree cell overlapping it
+     * @param box South, west, north and east edges; must not cross the antimeridian
+     * @param maxLevel Deepest quadtree level to descend to
+     * @return Disjoint ranges in ascending order, inclusive bounds
+     */
+    private static List<long[]> cover(double[] box, int maxLevel) {
+        long x0 = quantize(box[1], -180, 360);
+        long x1 = quantize(box[3], -180, 360);
+        long y0 = quantize(box[0], -90, 180);
+        long y1 = quantize(box[2], -90, 180);
+        // Cells a quarter of the box's extent are fine enough; the edge cells are filtered exactly anyway
+        long extent = Math.max(1, Math.max(x1 - x0, y1 - y0) / 4);
+        int level = Math.min(maxLevel, Math.max(1, BITS - (63 - Long.numberOfLeadingZeros(extent))));
+        List<long[]> ranges = new ArrayList<>();
+        cover(0, 0, 0, 0, x0, y0, x1, y1, level, ranges);
+        return ranges;
+    }
+
+    private static void cover(int level, long prefix, long cx, long cy, long x0, long y0, long x1, long y1,
+                              int maxLevel, List<long[]> ranges) {
+        long size = 1L << (BITS - level);
+        if (cx > x1 || cx + size - 1 < x0 || cy > y1 || cy + size - 1 < y0) {
+            return;
+        }
+        boolean inside = cx >= x0 && cx + size - 1 <= x1 && cy >= y0 && cy + size - 1 <= y1;
+        if (inside || level == maxLevel) {
+            int shift = 2 * (BITS - level);
+            long low = prefix << shift;
+            long high = low + (1L << shift) - 1;
+            long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] + 1 == low) {
+                last[1] = high;
+            } else {
+                ranges.add(new long[]{low, high});
+            }
+            return;
+        }
+        long half = size / 2;
+        // Children in Z order: the low code bit is x, the next one y
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            cover(level + 1, (prefix << 2) | quadrant, cx + (quadrant & 1) * half, cy + (quadrant >> 1) * half,
+                    x0, y0, x1, y1, maxLevel, ranges);
+        }
+    }
+
+    /**
+     * Splits a box crossing the antimeridian into two that do not
+     */
+    private static List<double[]> split(double south, double west, double north, double east) {
+        List<double[]> boxes = new ArrayList<>(2);
+        if (west <= east) {
+            boxes.add(new double[]{south, west, north, east});
+        } else {
+            boxes.add(new double[]{south, west, north, 180});
+            boxes.add(new double[]{south, -180, north, east});
+        }
+        return boxes;
+    }
+
+    /**
+     * Boxes enclosing a circle on the sphere
+     */
+    private static List<double[]> circleBoxes(double latitude, double longitude, double radiusKm) {
+        double angle = radiusKm / EARTH_RADIUS_KM;
+        double south = latitude - Math.toDegrees(angle);
+        double north = latitude + Math.toDegrees(angle);
+        if (south <= -90 || north >= 90 || angle >= Math.PI / 2) {
+            // The circle contains a pole, so it spans every longitude
+            return split(Math.max(-90, south), -180, Math.min(90, north), 180);
+        }
+        double spread = Math.toDegrees(Math.asin(Math.min(1, Math.sin(angle) / Math.cos(Math.toRadians(latitude)))));
+        double west = longitude - spread;
+        double east = longitude + spread;
+        if (west < -180) {
+            west += 360;
+        }
+        if (east > 180) {
+            east -= 360;
+        }
+        return split(south, west, north, east);
+    }
+
+    private static long quantize(double degrees, double origin, double span) {
+        return Math.max(0, Math.min(CELLS - 1, (long) Math.floor((degrees - origin) / span * CELLS)));
+    }
+
+    static long encode(double latitude, double longitude) {
+        return spread(quantize(longitude, -180, 360)) | (spread(quantize(latitude, -90, 180)) << 1);
+    }
+
+    static double[] decode(long code) {
+        return new double[]{(compact(code >>> 1) + 0.5) / CELLS * 180 - 90, (compact(code) + 0.5) / CELLS * 360 - 180};
+    }
+
+    private static long spread(long value) {
+        long x = value & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    private static long compact(long code) {
+        long x = code & 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x >>> 16)) & 0x00000000FFFFFFFFL;
+        return x;
+    }
+
+    /**
+     * Running photo count and position sums of one quadtree cell
+     */
+    private static final class Cell {
+        int count;
+        double latitudeSum;
+        double longitudeSum;
+
+        int add(double[] position, int delta) {
+            count += delta;
+            latitudeSum += delta * position[0];
+            longitudeSum += delta * position[1];
+            return count;
+        }
+
+        Cluster toCluster(long cell, int level) {
+            long corner = cell << 2 * (BITS - level);
+            double[] southWest = decode(corner);
+            double size = (double) (1L << (BITS - level)) / CELLS;
+            double south = southWest[0] - 0.5 / CELLS * 180;
+            double west = southWest[1] - 0.5 / CELLS * 360;
+            return new Cluster(count, latitudeSum / count, longitudeSum / count,
+                    south, west, south + size * 180, west + size * 360);
+        }
+    }
+
+    /**
+     * Photos of one quadtree cell, as shown on a map overview
+     */
+    public static final class Cluster {
+        private final int count;
+        private final double latitude;
+        private final double longitude;
+        private final double south;
+        private final double west;
+        private final double north;
+        private final double east;
+
+        Cluster(int count, double latitude, double longitude, double south, double west, double north, double east) {
+            this.count = count;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.south = south;
+            this.west = west;
+            this.north = north;
+            this.east = east;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Get the mean latitude of the photos in the cell
+         * @return Latitude in degrees
+         */
+        public double getLatitude() {
+            return latitude;
+        }
+
+        /**
+         * Get the mean longitude of the photos in the cell
+         * @return Longitude in degrees
+         */
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public double getSouth() {
+            return south;
+        }
+
+        public double getWest() {
+            return west;
+        }
+
+        public double getNorth() {
+            return north;
+        }
+
+        public double getEast() {
+            return east;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Storage backend that keeps the last saved snapshots in memory only.
+ * Useful for tests and benchmarks; nothing survives the process.
+ */
+public class InMemoryBackend implements StorageBackend {
+    private volatile List<LibrarySnapshot> stored = Collections.emptyList();
+
+    @Override
+    public List<User> loadUsers() {
+        List<User> users = new ArrayList<>();
+        for (LibrarySnapshot snapshot : stored) {
+            users.add(snapshot.toUser());
+        }
+        return users;
+    }
+
+    @Override
+    public void saveUsers(List<LibrarySnapshot> users) {
+        stored = Collections.unmodifiableList(new ArrayList<>(users));
+    }
+
+    @Override
+    public List<String> findPhotosByTag(String username, String tagName, String tagValue) {
+        return paths(PhotoSearch.byTag(photosOf(stored, username), tagName, tagValue));
+    }
+
+    @Override
+    public List<String> findPhotosByDate(String username, Date startDate, Date endDate) {
+        return paths(PhotoSearch.byDateRange(photosOf(stored, username), startDate, endDate));
+    }
+
+    /**
+     * Gets the photos of one user from a list of snapshots.
+     * @param snapshots The snapshots to look in
+     * @param username The owner of the photos
+     * @return The user's unique photos, or an empty list if the user is unknown
+     */
+    static List<PhotoSnapshot> photosOf(List<LibrarySnapshot> snapshots, String username) {
+        for (LibrarySnapshot snapshot : snapshots) {
+            if (snapshot.getUsername().equals(username)) {
+                return snapshot.getAllPhotos();
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Maps photo snapshots to their paths.
+     * @param photos The photos
+     * @return The paths in the same order
+     */
+    static List<String> paths(List<PhotoSnapshot> photos) {
+        List<String> paths = new ArrayList<>(photos.size());
+        for (PhotoSnapshot photo : photos) {
+            paths.add(photo.getPath());
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.photomanager.model;
+
+import java.util.Arrays;
+
+/**
+ * Map from non-negative int keys to int counts, stored in two parallel int arrays with linear probing,
+ * so a count costs 8 bytes and no objects. Entries whose count drops to 0 are removed, closing
+ * the gap by shifting later entries back so lookups never need tombstones.
+ * Entries are visited by slot: {@link #capacity()}, {@link #keyAt(int)} and {@link #valueAt(int)}.
+ * Not thread-safe.
+ */
+final class IntIntMap {
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    // 32 - log2 of the capacity, so a hash shifted by it takes its top bits as the home slot
+    private int shift;
+
+    IntIntMap() {
+        keys = new int[4];
+        values = new int[4];
+        shift = 30;
+        Arrays.fill(keys, FREE);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the count of a key
+     * @param key The key
+     * @return The count, 0 if absent
+     */
+    int get(int key) {
+        int slot = find(key);
+        return keys[slot] == key ? values[slot] : 0;
+    }
+
+    /**
+     * Add to the count of a key, removing the key once its count is 0
+     * @param key The key
+     * @param delta Amount to add, may be negative
+     * @return The new count
+     */
+    int add(int key, int delta) {
+        int slot = find(key);
+        if (keys[slot] != key) {
+            if (delta == 0) {
+                return 0;
+            }
+            if (3 * (size + 1) > 2 * keys.length) {
+                grow();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            values[slot] = delta;
+            size++;
+            return delta;
+        }
+        int value = values[slot] + delta;
+        if (value == 0) {
+            removeAt(slot);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Get the key in a slot
+     * @param slot Slot number, below {@link #capacity()}
+     * @return The key, or -1 if the slot is empty
+     */
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    int valueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Slot holding a key, or the empty slot where it would go
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = home(key);
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Home slot of a key by Fibonacci hashing: the top bits of the key times 2^32 divided by the golden ratio
+     */
+    private int home(int key) {
+        return key * 0x9E3779B9 >>> shift;
+    }
+
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = home(keys[next]);
+            // An entry can move back into the gap unless its home lies cyclically after the gap
+            boolean movable = gap <= next ? home <= gap || home > next : home <= gap && home > next;
+            if (movable) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+        values[gap] = 0;
+        size--;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        shift--;
+        Arrays.fill(keys, FREE);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
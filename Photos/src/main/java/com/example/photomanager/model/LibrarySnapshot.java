@@ -0,0 +1,130 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of one user's library.
+ * A snapshot is cheap to take on the thread that edits the model and can then be
+ * read from any thread (background search, persistence) while editing continues.
+ */
+public final class LibrarySnapshot {
+    private final String username;
+    private final String password;
+    private final boolean isAdmin;
+    private final long version;
+    private final List<AlbumSnapshot> albums;
+    private final List<SmartAlbum.Definition> smartAlbums;
+    private volatile List<PhotoSnapshot> allPhotos;
+
+    /**
+     * Constructor
+     * @param username Username of the owner
+     * @param password Password of the owner
+     * @param isAdmin Whether the owner is an administrator
+     * @param version Version number, incremented whenever the library changed
+     * @param albums Album snapshots in user order
+     * @param smartAlbums Smart album definitions in user order
+     */
+    LibrarySnapshot(String username, String password, boolean isAdmin, long version, List<AlbumSnapshot> albums,
+                    List<SmartAlbum.Definition> smartAlbums) {
+        this.username = username;
+        this.password = password;
+        this.isAdmin = isAdmin;
+        this.version = version;
+        this.albums = Collections.unmodifiableList(albums);
+        this.smartAlbums = Collections.unmodifiableList(smartAlbums);
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    String getPassword() {
+        return password;
+    }
+
+    public boolean isAdmin() {
+        return isAdmin;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<AlbumSnapshot> getAlbums() {
+        return albums;
+    }
+
+    public List<SmartAlbum.Definition> getSmartAlbums() {
+        return smartAlbums;
+    }
+
+    /**
+     * Check whether this snapshot still describes the given state
+     * @param password Current password of the owner
+     * @param albums Current album snapshots
+     * @param smartAlbums Current smart album definitions
+     * @return true if nothing changed since this snapshot was taken
+     */
+    boolean matches(String password, List<AlbumSnapshot> albums, List<SmartAlbum.Definition> smartAlbums) {
+        if (!this.password.equals(password) || this.albums.size() != albums.size()
+                || this.smartAlbums.size() != smartAlbums.size()) {
+            return false;
+        }
+        for (int i = 0; i < smartAlbums.size(); i++) {
+            if (this.smartAlbums.get(i) != smartAlbums.get(i)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < albums.size(); i++) {
+            if (this.albums.get(i) != albums.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get all unique photos of the library, computed once per snapshot
+     * @return List of unique photo snapshots
+     */
+    public List<PhotoSnapshot> getAllPhotos() {
+        List<PhotoSnapshot> result = allPhotos;
+        if (result == null) {
+            Map<Photo, Boolean> seen = new IdentityHashMap<>();
+            List<PhotoSnapshot> unique = new ArrayList<>();
+            for (AlbumSnapshot album : albums) {
+                for (PhotoSnapshot photo : album.getPhotos()) {
+                    if (seen.put(photo.getSource(), Boolean.TRUE) == null) {
+                        unique.add(photo);
+                    }
+                }
+            }
+            result = Collections.unmodifiableList(unique);
+            allPhotos = result;
+        }
+        return result;
+    }
+
+    /**
+     * Rebuild a detached user graph from this snapshot, e.g. for serialization.
+     * Photos shared between albums stay shared in the rebuilt graph.
+     * @return A new User with the captured state
+     */
+    public User toUser() {
+        Map<PhotoSnapshot, Photo> materialized = AlbumSnapshot.newMaterializedMap();
+        List<Album> copies = new ArrayList<>(albums.size());
+        for (AlbumSnapshot album : albums) {
+            copies.add(album.toAlbum(materialized));
+        }
+        List<SmartAlbum> smartCopies = new ArrayList<>(smartAlbums.size());
+        for (SmartAlbum.Definition definition : smartAlbums) {
+            smartCopies.add(definition.toAlbum());
+        }
+        return new User(username, password, isAdmin, copies, smartCopies);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.photomanager.model;
+
+/**
+ * A single fine-grained change to the model, published through {@link ModelChanges}.
+ * Every change names the user whose library it touches, so listeners following one user skip the
+ * others' changes at once. Only the other fields that apply to the change type are set; the rest
+ * are null or -1.
+ */
+public final class ModelChange {
+    /**
+     * Kinds of model changes.
+     */
+    public enum Type {
+        /** A photo was added to an album at an index */
+        PHOTO_ADDED,
+        /** A photo was removed from an album at an index */
+        PHOTO_REMOVED,
+        /** The caption of a photo changed */
+        CAPTION_CHANGED,
+        /** A tag was added to a photo */
+        TAG_ADDED,
+        /** A tag was removed from a photo */
+        TAG_REMOVED,
+        /** An album was added to a user at an index */
+        ALBUM_ADDED,
+        /** An album was removed from a user at an index */
+        ALBUM_REMOVED,
+        /** An album was renamed */
+        ALBUM_RENAMED,
+        /** All of a user's albums were replaced by the ones reloaded from storage */
+        USER_RELOADED
+    }
+
+    private final Type type;
+    private final User user;
+    private final Album album;
+    private final Photo photo;
+    private final Tag tag;
+    private final int index;
+
+    private ModelChange(Type type, User user, Album album, Photo photo, Tag tag, int index) {
+        this.type = type;
+        this.user = user;
+        this.album = album;
+        this.photo = photo;
+        this.tag = tag;
+        this.index = index;
+    }
+
+    static ModelChange photoAdded(Album album, Photo photo, int index) {
+        return new ModelChange(Type.PHOTO_ADDED, album.getOwner(), album, photo, null, index);
+    }
+
+    static ModelChange photoRemoved(Album album, Photo photo, int index) {
+        return new ModelChange(Type.PHOTO_REMOVED, album.getOwner(), album, photo, null, index);
+    }
+
+    static ModelChange captionChanged(Photo photo) {
+        return new ModelChange(Type.CAPTION_CHANGED, photo.getOwner(), null, photo, null, -1);
+    }
+
+    static ModelChange tagAdded(Photo photo, Tag tag) {
+        return new ModelChange(Type.TAG_ADDED, photo.getOwner(), null, photo, tag, -1);
+    }
+
+    static ModelChange tagRemoved(Photo photo, Tag tag) {
+        return new ModelChange(Type.TAG_REMOVED, photo.getOwner(), null, photo, tag, -1);
+    }
+
+    static ModelChange albumAdded(User user, Album album, int index) {
+        return new ModelChange(Type.ALBUM_ADDED, user, album, null, null, index);
+    }
+
+    static ModelChange albumRemoved(User user, Album album, int index) {
+        return new ModelChange(Type.ALBUM_REMOVED, user, album, null, null, index);
+    }
+
+    static ModelChange albumRenamed(Album album) {
+        return new ModelChange(Type.ALBUM_RENAMED, album.getOwner(), album, null, null, -1);
+    }
+
+    static ModelChange userReloaded(User user) {
+        return new ModelChange(Type.USER_RELOADED, user, null, null, null, -1);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the user whose library changed
+     * @return The user, or null for changes to an album or photo outside any user's library
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * Whether the change is to a user's library: their regular albums and the photos in them.
+     * Read-only albums such as smart albums only show photos that are in a regular album,
+     * so their changes are not library changes.
+     * @param owner The user
+     * @return true if the change is to the owner's library
+     */
+    public boolean changesLibraryOf(User owner) {
+        return user == owner && (album == null || !album.isReadOnly());
+    }
+
+    /**
+     * Gets the album that was changed, added or removed
+     * @return The album, or null for photo changes
+     */
+    public Album getAlbum() {
+        return album;
+    }
+
+    /**
+     * Gets the photo that was changed, added or removed
+     * @return The photo, or null for album changes
+     */
+    public Photo getPhoto() {
+        return photo;
+    }
+
+    /**
+     * Gets the tag that was added or removed
+     * @return The tag, or null for other changes
+     */
+    public Tag getTag() {
+        return tag;
+    }
+
+    /**
+     * Gets the position at which a photo or album was added, or from which it was removed
+     * @return The index, or -1 for other changes
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + (album != null ? album.getName() : "") + (photo != null ? " " + photo.getPath() : "")
+                + (tag != null ? " " + tag : "") + (index >= 0 ? " @" + index : "") + ")";
+    }
+}
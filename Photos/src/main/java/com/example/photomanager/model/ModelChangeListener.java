@@ -0,0 +1,15 @@
+package com.example.photomanager.model;
+
+import java.util.List;
+
+/**
+ * Receives the changes made to the model, one call per transaction.
+ */
+@FunctionalInterface
+public interface ModelChangeListener {
+    /**
+     * Called on the thread that edited the model after a transaction, or after a single edit made outside one.
+     * @param changes The changes in the order they were made
+     */
+    void modelChanged(List<ModelChange> changes);
+}
@@ -0,0 +1,143 @@
+package com.example.photomanager.model;
+
+import com.example.photomanager.metrics.Counter;
+import com.example.photomanager.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Change bus of the model. Album, Photo and User publish every edit here, and views, indexes
+ * and other caches subscribe to apply only the delta instead of rebuilding from scratch.
+ * Listeners that only follow one user, like that user's indexes, subscribe to the user, so an edit
+ * reaches the listeners of the user it changed and not those of every user in the process.
+ * Edits made inside {@link #inTransaction(Runnable)} are delivered together when the outermost
+ * transaction ends, so a bulk edit reaches each listener as a single call. Transactions are per thread.
+ * Listeners are called on the thread that made the edit; views must hand the changes to the FX thread
+ * themselves when that is another thread.
+ */
+public final class ModelChanges {
+    private static final List<ModelChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<Transaction> TRANSACTION = new ThreadLocal<>();
+
+    private static final Counter PUBLISHED = Metrics.counter("model.changes");
+    private static final Counter DELIVERIES = Metrics.counter("model.changes.deliveries");
+
+    private static final class Transaction {
+        final List<ModelChange> changes = new ArrayList<>();
+        int depth;
+    }
+
+    private ModelChanges() {
+    }
+
+    /**
+     * Registers a listener for all model changes
+     * @param listener The listener to add
+     */
+    public static void subscribe(ModelChangeListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Removes a listener
+     * @param listener The listener to remove
+     */
+    public static void unsubscribe(ModelChangeListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Registers a listener for the changes to one user's library. It also receives the other changes
+     * of a transaction that touched the user.
+     * @param user The user to follow
+     * @param listener The listener to add
+     */
+    static void subscribe(User user, ModelChangeListener listener) {
+        user.listeners().add(listener);
+    }
+
+    /**
+     * Removes a listener registered for one user
+     * @param user The user it follows
+     * @param listener The listener to remove
+     */
+    static void unsubscribe(User user, ModelChangeListener listener) {
+        user.listeners().remove(listener);
+    }
+
+    /**
+     * Runs edits as one transaction, delivering their changes to the listeners once at the end.
+     * Nested transactions join the outermost one.
+     * @param edits The edits to run
+     */
+    public static void inTransaction(Runnable edits) {
+        Transaction transaction = TRANSACTION.get();
+        if (transaction == null) {
+            transaction = new Transaction();
+            TRANSACTION.set(transaction);
+        }
+
+        transaction.depth++;
+        try {
+            edits.run();
+        } finally {
+            if (--transaction.depth == 0) {
+                TRANSACTION.remove();
+                deliver(transaction.changes);
+            }
+        }
+    }
+
+    /**
+     * Publishes a change, immediately or at the end of the current transaction
+     * @param change The change made
+     */
+    static void publish(ModelChange change) {
+        PUBLISHED.increment();
+        if (change.getUser() != null) {
+            change.getUser().markModified();
+        }
+        Transaction transaction = TRANSACTION.get();
+        if (transaction != null) {
+            transaction.changes.add(change);
+        } else {
+            deliver(Collections.singletonList(change));
+        }
+    }
+
+    private static void deliver(List<ModelChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        DELIVERIES.increment();
+        List<ModelChange> delivered = Collections.unmodifiableList(changes);
+        notify(LISTENERS, delivered);
+
+        // The users changed, nearly always just one
+        Set<User> users = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ModelChange change : changes) {
+            if (change.getUser() != null) {
+                users.add(change.getUser());
+            }
+        }
+        for (User user : users) {
+            notify(user.listeners(), delivered);
+        }
+    }
+
+    private static void notify(List<ModelChangeListener> listeners, List<ModelChange> changes) {
+        for (ModelChangeListener listener : listeners) {
+            try {
+                listener.modelChanged(changes);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
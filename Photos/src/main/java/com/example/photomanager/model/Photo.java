@@ -17,6 +17,8 @@ public class Photo implements Serializable {
     private String caption;
     private Date dateTaken;
     private List<Tag> tags;
+    private transient PhotoSnapshot snapshot;
+    private transient User owner;
 
     /**
      * Constructor
@@ -29,6 +31,22 @@ public class Photo implements Serializable {
         this.tags = new ArrayList<>();
     }
 
+    /**
+     * Constructor for a photo whose state is already known, e.g. when rebuilding it from storage.
+     * Public for the benchmark module's fixtures and library generator, which build photos with
+     * set capture dates from outside this package.
+     * @param path File path of the photo
+     * @param caption Caption of the photo
+     * @param dateTaken Capture date of the photo
+     * @param tags Tags of the photo
+     */
+    public Photo(String path, String caption, Date dateTaken, List<Tag> tags) {
+        this.path = path;
+        this.caption = caption;
+        this.dateTaken = dateTaken;
+        this.tags = new ArrayList<>(tags);
+    }
+
     // Getters and Setters
     public String getPath() {
         return path;
@@ -40,12 +58,26 @@ public class Photo implements Serializable {
 
     public void setCaption(String caption) {
         this.caption = caption;
+        snapshot = null;
+        ModelChanges.publish(ModelChange.captionChanged(this));
     }
 
     public Date getDateTaken() {
         return dateTaken;
     }
 
+    /**
+     * Get the user whose albums hold the photo, so changes to it reach only that user's indexes
+     * @return The user whose album last took the photo in, or null if no user's album did
+     */
+    User getOwner() {
+        return owner;
+    }
+
+    void setOwner(User owner) {
+        this.owner = owner;
+    }
+
     public List<Tag> getTags() {
         return Collections.unmodifiableList(tags);
     }
@@ -54,10 +86,14 @@ public class Photo implements Serializable {
      * Add a tag to the photo
      * @param tag The tag to add
      * @return true if the tag was added (no duplicate), false otherwise
+     * @throws IllegalArgumentException If the value does not fit the type declared for the tag name
      */
     public boolean addTag(Tag tag) {
+        TagSchema.getDefault().requireAccepted(tag.getName(), tag.getValue());
         if (!tags.contains(tag)) {
             tags.add(tag);
+            snapshot = null;
+            ModelChanges.publish(ModelChange.tagAdded(this, tag));
             return true;
         }
         return false;
@@ -69,7 +105,34 @@ public class Photo implements Serializable {
      * @return true if the tag was successfully removed, false otherwise
      */
     public boolean removeTag(Tag tag) {
-        return tags.remove(tag);
+        if (tags.remove(tag)) {
+            snapshot = null;
+            ModelChanges.publish(ModelChange.tagRemoved(this, tag));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replace a tag in place, keeping its position. If the photo already has the replacement,
+     * the tag is only removed, which merges the two.
+     * @param tag The tag to replace
+     * @param replacement The tag to put in its place
+     * @return true if the photo had the tag
+     */
+    boolean replaceTag(Tag tag, Tag replacement) {
+        int index = tags.indexOf(tag);
+        if (index < 0) {
+            return false;
+        }
+        tags.remove(index);
+        ModelChanges.publish(ModelChange.tagRemoved(this, tag));
+        if (!tags.contains(replacement)) {
+            tags.add(index, replacement);
+            ModelChanges.publish(ModelChange.tagAdded(this, replacement));
+        }
+        snapshot = null;
+        return true;
     }
 
     /**
@@ -96,4 +159,16 @@ public class Photo implements Serializable {
         }
         return values;
     }
+
+    /**
+     * Get an immutable snapshot of the photo's current state.
+     * The same instance is returned until the photo is modified.
+     * @return Snapshot of this photo
+     */
+    public PhotoSnapshot snapshot() {
+        if (snapshot == null) {
+            snapshot = new PhotoSnapshot(this, path, caption, dateTaken, tags);
+        }
+        return snapshot;
+    }
 }
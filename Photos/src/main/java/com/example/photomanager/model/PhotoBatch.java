@@ -0,0 +1,127 @@
+package com.example.photomanager.model;
+
+import java.util.Collection;
+
+/**
+ * Edits applied to several photos at once.
+ * Each operation runs as one {@link ModelChanges} transaction, so listeners see a single update;
+ * callers save once afterwards.
+ */
+public final class PhotoBatch {
+    private PhotoBatch() {
+    }
+
+    /**
+     * Add a tag to every photo that does not have it yet
+     * @param photos The photos to tag
+     * @param tag The tag to add
+     * @return Number of photos the tag was added to
+     */
+    public static int addTag(Collection<Photo> photos, Tag tag) {
+        int[] changed = {0};
+        ModelChanges.inTransaction(() -> {
+            for (Photo photo : photos) {
+                if (photo.addTag(tag)) {
+                    changed[0]++;
+                }
+            }
+        });
+        return changed[0];
+    }
+
+    /**
+     * Remove a tag from every photo that has it
+     * @param photos The photos to untag
+     * @param tag The tag to remove
+     * @return Number of photos the tag was removed from
+     */
+    public static int removeTag(Collection<Photo> photos, Tag tag) {
+        int[] changed = {0};
+        ModelChanges.inTransaction(() -> {
+            for (Photo photo : photos) {
+                if (photo.removeTag(tag)) {
+                    changed[0]++;
+                }
+            }
+        });
+        return changed[0];
+    }
+
+    /**
+     * Set the same caption on every photo
+     * @param photos The photos to caption
+     * @param caption The new caption
+     * @return Number of photos whose caption changed
+     */
+    public static int setCaption(Collection<Photo> photos, String caption) {
+        int[] changed = {0};
+        ModelChanges.inTransaction(() -> {
+            for (Photo photo : photos) {
+                if (!caption.equals(photo.getCaption())) {
+                    photo.setCaption(caption);
+                    changed[0]++;
+                }
+            }
+        });
+        return changed[0];
+    }
+
+    /**
+     * Copy photos to another album, skipping the ones it already contains
+     * @param photos The photos to copy
+     * @param target The album to copy to
+     * @return Number of photos copied, 0 if the target is read-only
+     */
+    public static int copyTo(Collection<Photo> photos, Album target) {
+        int[] changed = {0};
+        ModelChanges.inTransaction(() -> {
+            for (Photo photo : photos) {
+                if (target.addPhoto(photo)) {
+                    changed[0]++;
+                }
+            }
+        });
+        return changed[0];
+    }
+
+    /**
+     * Move photos from one album to another. Photos the target already contains stay in the source album.
+     * @param photos The photos to move
+     * @param source The album to move from
+     * @param target The album to move to
+     * @return Number of photos moved, 0 if either album is read-only
+     */
+    public static int moveTo(Collection<Photo> photos, Album source, Album target) {
+        if (source.isReadOnly() || target.isReadOnly()) {
+            return 0;
+        }
+        int[] changed = {0};
+        ModelChanges.inTransaction(() -> {
+            for (Photo photo : photos) {
+                if (target.addPhoto(photo)) {
+                    source.removePhoto(photo);
+                    changed[0]++;
+                }
+            }
+        });
+        return changed[0];
+    }
+
+    /**
+     * Remove photos from an album
+     * @param photos The photos to remove
+     * @param album The album to remove them from
+     * @return Number of photos removed, 0 if the album is read-only
+     */
+    public static int removeFrom(Collection<Photo> photos, Album album) {
+        int[] changed = {0};
+        ModelChanges.inTransaction(() -> {
+            for (Photo photo : photos) {
+                if (album.removePhoto(photo)) {
+                    changed[0]++;
+                }
+            }
+        });
+        return changed[0];
+    }
+}
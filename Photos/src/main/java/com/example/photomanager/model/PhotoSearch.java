@@ -0,0 +1,80 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Search routines over library snapshots.
+ * Because they only read immutable snapshots they are safe to run on a background thread.
+ */
+public final class PhotoSearch {
+    public static final String AND = "AND";
+    public static final String OR = "OR";
+
+    private PhotoSearch() {
+    }
+
+    /**
+     * Find photos taken strictly between two dates
+     * @param photos The photos to search
+     * @param startDate Start of the range (exclusive)
+     * @param endDate End of the range (exclusive)
+     * @return Matching photos in their original order
+     */
+    public static List<PhotoSnapshot> byDateRange(List<PhotoSnapshot> photos, Date startDate, Date endDate) {
+        long start = startDate.getTime();
+        long end = endDate.getTime();
+        List<PhotoSnapshot> results = new ArrayList<>();
+        for (PhotoSnapshot photo : photos) {
+            long taken = photo.getDateTaken().getTime();
+            if (taken > start && taken < end) {
+                results.add(photo);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Find photos having a single tag
+     * @param photos The photos to search
+     * @param tagName Name of the tag
+     * @param tagValue Value of the tag
+     * @return Matching photos in their original order
+     */
+    public static List<PhotoSnapshot> byTag(List<PhotoSnapshot> photos, String tagName, String tagValue) {
+        List<PhotoSnapshot> results = new ArrayList<>();
+        for (PhotoSnapshot photo : photos) {
+            if (photo.hasTag(tagName, tagValue)) {
+                results.add(photo);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Find photos matching two tags combined with AND or OR
+     * @param photos The photos to search
+     * @param tag1Name Name of the first tag
+     * @param tag1Value Value of the first tag
+     * @param tag2Name Name of the second tag
+     * @param tag2Value Value of the second tag
+     * @param operator Either {@link #AND} or {@link #OR}
+     * @return Matching photos in their original order
+     */
+    public static List<PhotoSnapshot> byTags(List<PhotoSnapshot> photos, String tag1Name, String tag1Value,
+                                             String tag2Name, String tag2Value, String operator) {
+        List<PhotoSnapshot> results = new ArrayList<>();
+        for (PhotoSnapshot photo : photos) {
+            boolean hasTag1 = photo.hasTag(tag1Name, tag1Value);
+            boolean hasTag2 = photo.hasTag(tag2Name, tag2Value);
+
+            if (AND.equals(operator) && hasTag1 && hasTag2) {
+                results.add(photo);
+            } else if (OR.equals(operator) && (hasTag1 || hasTag2)) {
+                results.add(photo);
+            }
+        }
+        return results;
+    }
+}
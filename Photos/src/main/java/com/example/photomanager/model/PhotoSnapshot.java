@@ -0,0 +1,78 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Immutable view of a photo at the moment a snapshot was taken.
+ * Instances are cached by the photo and only replaced when it is modified,
+ * so unchanged photos are shared between consecutive snapshots.
+ */
+public final class PhotoSnapshot {
+    private final Photo source;
+    private final String path;
+    private final String caption;
+    private final long dateTaken;
+    private final List<Tag> tags;
+
+    /**
+     * Constructor
+     * @param source The live photo this snapshot was taken from
+     * @param path File path of the photo
+     * @param caption Caption at snapshot time
+     * @param dateTaken Capture date at snapshot time
+     * @param tags Tags at snapshot time
+     */
+    PhotoSnapshot(Photo source, String path, String caption, Date dateTaken, List<Tag> tags) {
+        this.source = source;
+        this.path = path;
+        this.caption = caption;
+        this.dateTaken = dateTaken.getTime();
+        this.tags = Collections.unmodifiableList(new ArrayList<>(tags));
+    }
+
+    /**
+     * Get the live photo this snapshot was taken from.
+     * Only touch the returned object on the thread that owns the model.
+     * @return The source photo
+     */
+    public Photo getSource() {
+        return source;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getCaption() {
+        return caption;
+    }
+
+    public Date getDateTaken() {
+        return new Date(dateTaken);
+    }
+
+    public List<Tag> getTags() {
+        return tags;
+    }
+
+    /**
+     * Check if the photo contained a specific tag when the snapshot was taken
+     * @param tagName Name of the tag to check
+     * @param tagValue Value of the tag to check
+     * @return true if the photo had the specified tag, false otherwise
+     */
+    public boolean hasTag(String tagName, String tagValue) {
+        return tags.contains(new Tag(tagName, tagValue));
+    }
+
+    /**
+     * Rebuild a detached photo from this snapshot
+     * @return A new Photo with the captured state
+     */
+    Photo toPhoto() {
+        return new Photo(path, caption, new Date(dateTaken), tags);
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.photomanager.model;
+
+import com.example.photomanager.metrics.Counter;
+import com.example.photomanager.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Cache of one user's search results, keyed by normalized search.
+ * Results are kept as arrays of small per-user photo ids rather than photo lists. Each entry records
+ * the tag names or capture date range its result depends on, and a change only drops the entries it
+ * can affect: a tag added to or removed from a photo drops the searches reading that tag name, and a
+ * photo entering or leaving the library drops the searches reading one of its tag names or covering its
+ * capture date. Moving a photo between albums, saving, captions and album names never invalidate anything.
+ * The cache is obtained with {@link User#getQueryCache()}. All methods are thread-safe.
+ */
+public final class QueryCache implements ModelChangeListener {
+    private static final int MAX_ENTRIES = Integer.getInteger("photoManager.searchCache.entries", 64);
+
+    private static final Counter HITS = Metrics.counter("search.cache.hits");
+    private static final Counter MISSES = Metrics.counter("search.cache.misses");
+    private static final Counter INVALIDATIONS = Metrics.counter("search.cache.invalidations");
+
+    static {
+        Metrics.gauge("search.cache.hitRatePercent", () -> {
+            long hits = HITS.get();
+            long lookups = hits + MISSES.get();
+            return lookups == 0 ? 0 : hits * 100 / lookups;
+        });
+    }
+
+    private final User user;
+    private final TagSchema schema;
+    // Least recently used first
+    private final Map<Key, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Photo, Integer> ids = new IdentityHashMap<>();
+    private final List<Photo> photos = new ArrayList<>();
+    // Number of the user's albums each photo is in
+    private final Map<Photo, Integer> albumCounts = new IdentityHashMap<>();
+    // Incremented by every change that could affect a search, so a result computed meanwhile is not stored
+    private long generation;
+    private long schemaVersion;
+
+    QueryCache(User user, TagSchema schema) {
+        this.user = user;
+        this.schema = schema;
+        this.schemaVersion = schema.getVersion();
+        countPhotos();
+        ModelChanges.subscribe(user, this);
+    }
+
+    /**
+     * Stops following model changes
+     */
+    void close() {
+        ModelChanges.unsubscribe(user, this);
+    }
+
+    /**
+     * Drops every entry and recounts the user's photos, e.g. after the user was reloaded from storage
+     */
+    synchronized void clear() {
+        dropEntries();
+        countPhotos();
+    }
+
+    private void dropEntries() {
+        generation++;
+        entries.clear();
+        ids.clear();
+        photos.clear();
+    }
+
+    private void countPhotos() {
+        albumCounts.clear();
+        for (Album album : user.getAlbums()) {
+            for (Photo photo : album.getPhotos()) {
+                albumCounts.merge(photo, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Look up the result of a search
+     * @param key The search
+     * @return The matching photos in the order they were stored, or null if not cached
+     */
+    public synchronized List<Photo> get(Key key) {
+        if (schemaVersion != schema.getVersion()) {
+            // A tag type was declared, so range searches may now compare differently
+            schemaVersion = schema.getVersion();
+            dropEntries();
+        }
+        int[] result = entries.get(key);
+        if (result == null) {
+            MISSES.increment();
+            return null;
+        }
+        HITS.increment();
+        List<Photo> found = new ArrayList<>(result.length);
+        for (int id : result) {
+            found.add(photos.get(id));
+        }
+        return found;
+    }
+
+    /**
+     * Get a ticket to pass to {@link #put} for a search about to run, so a result that
+     * may have been overtaken by an edit while it was computed is not stored
+     * @return The ticket
+     */
+    public synchronized long ticket() {
+        return generation;
+    }
+
+    /**
+     * Store the result of a search
+     * @param key The search
+     * @param ticket The ticket taken before the search ran
+     * @param results The matching photos, live photos of this user
+     */
+    public synchronized void put(Key key, long ticket, List<Photo> results) {
+        if (ticket != generation) {
+            return;
+        }
+        int[] result = new int[results.size()];
+        for (int i = 0; i < result.length; i++) {
+            Photo photo = results.get(i);
+            Integer id = ids.get(photo);
+            if (id == null) {
+                id = photos.size();
+                ids.put(photo, id);
+                photos.add(photo);
+            }
+            result[i] = id;
+        }
+        entries.put(key, result);
+        if (entries.size() > MAX_ENTRIES) {
+            Iterator<Key> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    @Override
+    public synchronized void modelChanged(List<ModelChange> changes) {
+        for (ModelChange change : changes) {
+            if (change.getUser() != user) {
+                // Another user's library
+                continue;
+            }
+            switch (change.getType()) {
+                case TAG_ADDED:
+                case TAG_REMOVED:
+                    invalidate(Collections.singletonList(change.getTag()), Long.MIN_VALUE);
+                    break;
+                case PHOTO_ADDED:
+                    if (change.changesLibraryOf(user) && albumCounts.merge(change.getPhoto(), 1, Integer::sum) == 1) {
+                        invalidate(change.getPhoto().getTags(), change.getPhoto().getDateTaken().getTime());
+                    }
+                    break;
+                case PHOTO_REMOVED:
+                    if (change.changesLibraryOf(user) && release(change.getPhoto())) {
+                        invalidate(change.getPhoto().getTags(), change.getPhoto().getDateTaken().getTime());
+                    }
+                    break;
+                case ALBUM_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        for (Photo photo : change.getAlbum().getPhotos()) {
+                            if (release(photo)) {
+                                invalidate(photo.getTags(), photo.getDateTaken().getTime());
+                            }
+                        }
+                    }
+                    break;
+                default:
+                    // New albums are empty, and captions and album names are not searched
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Counts a photo out of one of the user's albums
+     * @return true if it left the library, i.e. is in none of the user's albums any more
+     */
+    private boolean release(Photo photo) {
+        Integer count = albumCounts.get(photo);
+        if (count == null) {
+            return false;
+        }
+        if (count > 1) {
+            albumCounts.put(photo, count - 1);
+            return false;
+        }
+        albumCounts.remove(photo);
+        return true;
+    }
+
+    /**
+     * Drops the entries reading one of the tags' names or covering a capture date
+     * @param tags Tags of the changed photo
+     * @param taken Capture date of a photo that entered or left the library, or Long.MIN_VALUE if none did
+     */
+    private void invalidate(List<Tag> tags, long taken) {
+        generation++;
+        Iterator<Key> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            Key key = keys.next();
+            if (key.dependsOn(tags, taken)) {
+                keys.remove();
+                INVALIDATIONS.increment();
+            }
+        }
+        if (entries.isEmpty()) {
+            // Nothing refers to the ids any more, so stop holding on to the photos
+            ids.clear();
+            photos.clear();
+        }
+    }
+
+    /**
+     * Normalized search, with the tag names and capture dates its result depends on.
+     * Keys compare by the kind of search and its separate fields, so no choice of names or
+     * values can make two different searches look alike.
+     */
+    public static final class Key {
+        private final String kind;
+        private final List<String> fields;
+        private final Set<String> names;
+        private final long start;
+        private final long end;
+
+        private Key(String kind, List<String> fields, Set<String> names, long start, long end) {
+            this.kind = kind;
+            this.fields = fields;
+            this.names = names;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Key of a search for photos with one tag, or two tags combined with AND or OR.
+         * Both operators are commutative, so the order of the two tags does not matter.
+         * @param tag1Name Name of the first tag
+         * @param tag1Value Value of the first tag
+         * @param tag2Name Name of the second tag, or null for a single tag search
+         * @param tag2Value Value of the second tag, or null for a single tag search
+         * @param operator Either {@link PhotoSearch#AND} or {@link PhotoSearch#OR}; ignored for a single tag
+         * @return The key
+         */
+        public static Key tags(String tag1Name, String tag1Value, String tag2Name, String tag2Value, String operator) {
+            if (tag2Name == null) {
+                return new Key("tag", List.of(tag1Name, tag1Value), Set.of(TagSchema.fold(tag1Name)),
+                        Long.MAX_VALUE, Long.MIN_VALUE);
+            }
+            int order = tag1Name.equals(tag2Name) ? tag1Value.compareTo(tag2Value) : tag1Name.compareTo(tag2Name);
+            List<String> fields = order <= 0 ? List.of(tag1Name, tag1Value, operator, tag2Name, tag2Value)
+                    : List.of(tag2Name, tag2Value, operator, tag1Name, tag1Value);
+            return new Key("tag", fields, new HashSet<>(List.of(TagSchema.fold(tag1Name), TagSchema.fold(tag2Name))),
+                    Long.MAX_VALUE, Long.MIN_VALUE);
+        }
+
+        /**
+         * Key of a search for photos taken strictly between two dates
+         * @param startDate Start of the range (exclusive)
+         * @param endDate End of the range (exclusive)
+         * @return The key
+         */
+        public static Key dates(Date startDate, Date endDate) {
+            return new Key("date", List.of(Long.toString(startDate.getTime()), Long.toString(endDate.getTime())),
+                    Set.of(), startDate.getTime(), endDate.getTime());
+        }
+
+        /**
+         * Key of a tag query
+         * @param query The parsed query
+         * @return The key
+         */
+        public static Key query(TagQuery query) {
+            return new Key("query", List.of(query.normalized()), query.tagNames(), Long.MAX_VALUE, Long.MIN_VALUE);
+        }
+
+        /**
+         * Key of a search by position, which only reads the "gps" and "location" tags
+         * @param search Normalized description of the search, e.g. "radius 48.8566,2.3522,25.0"
+         * @return The key
+         */
+        public static Key location(String search) {
+            return new Key("location", List.of(search), Set.of(GeoIndex.GPS_TAG, GeoIndex.LOCATION_TAG),
+                    Long.MAX_VALUE, Long.MIN_VALUE);
+        }
+
+        boolean dependsOn(List<Tag> tags, long taken) {
+            if (taken >= start && taken <= end) {
+                return true;
+            }
+            for (Tag tag : tags) {
+                if (names.contains(TagSchema.fold(tag.getName()))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return kind.equals(key.kind) && fields.equals(key.fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, fields);
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + fields;
+        }
+    }
+}
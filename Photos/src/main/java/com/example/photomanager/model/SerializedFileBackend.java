@@ -0,0 +1,265 @@
+package com.example.photomanager.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Legacy storage backend writing the whole user list to one file with Java serialization.
+ *
+ * Several processes may share the file. Every read and write happens under a FileChannel
+ * lock on "users.dat.lock", and each save records the users it changed in "users.dat.seq".
+ * A save merges with the file on disk, so it only replaces the users this instance actually
+ * changed, and other instances use the sequence file to reload just the affected users.
+ * The users it did not change are written from detached copies kept since they were first
+ * written, so a save only rebuilds the users it changed from their snapshots.
+ */
+public class SerializedFileBackend implements StorageBackend {
+    private final File file;
+    private final FileStoreLock lock;
+    private final ChangeSequenceFile changes;
+    private final String writerId = ProcessHandle.current().pid() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    // Last state of each user this instance loaded or wrote, by username
+    private final Map<String, LibrarySnapshot> known = new LinkedHashMap<>();
+    // Detached users built from the known snapshots for writing, so a save only rebuilds the users it changed
+    private final Map<String, User> detached = new HashMap<>();
+    // Sequence number of the file content this instance last read or wrote
+    private long diskSequence = -1;
+    // Sequence number up to which other writers' changes have been reported
+    private long seenSequence = 0;
+    // Size of the users file after the last save
+    private volatile long lastSaveBytes = -1;
+
+    /**
+     * Constructor
+     * @param file The serialized users file, e.g. ~/.photoManager/users.dat
+     */
+    public SerializedFileBackend(File file) {
+        this.file = file;
+        this.lock = new FileStoreLock(new File(file.getPath() + ".lock").toPath());
+        this.changes = new ChangeSequenceFile(new File(file.getPath() + ".seq").toPath());
+    }
+
+    @Override
+    public synchronized List<User> loadUsers() throws IOException {
+        FileStoreLock.Held held = lock.acquire(true);
+        try {
+            long sequence = changes.readSequence();
+            List<User> users = readFile();
+            known.clear();
+            detached.clear();
+            for (User user : users) {
+                known.put(user.getUsername(), user.snapshot());
+            }
+            diskSequence = sequence;
+            seenSequence = sequence;
+            return users;
+        } finally {
+            held.close();
+        }
+    }
+
+    @Override
+    public synchronized List<User> loadUsers(Collection<String> usernames) throws IOException {
+        FileStoreLock.Held held = lock.acquire(true);
+        try {
+            List<User> loaded = new ArrayList<>();
+            Set<String> found = new HashSet<>();
+            for (User user : readFile()) {
+                if (usernames.contains(user.getUsername())) {
+                    loaded.add(user);
+                    found.add(user.getUsername());
+                    known.put(user.getUsername(), user.snapshot());
+                    detached.remove(user.getUsername());
+                }
+            }
+            for (String username : usernames) {
+                if (!found.contains(username)) {
+                    known.remove(username);
+                    detached.remove(username);
+                }
+            }
+            return loaded;
+        } finally {
+            held.close();
+        }
+    }
+
+    @Override
+    public synchronized void saveUsers(List<LibrarySnapshot> users) throws IOException {
+        FileStoreLock.Held held = lock.acquire(false);
+        try {
+            Map<String, LibrarySnapshot> current = new LinkedHashMap<>();
+            for (LibrarySnapshot snapshot : users) {
+                current.put(snapshot.getUsername(), snapshot);
+            }
+
+            // Users created, modified or deleted by this instance since it last read or wrote them
+            Set<String> changed = new HashSet<>();
+            for (LibrarySnapshot snapshot : users) {
+                if (known.get(snapshot.getUsername()) != snapshot) {
+                    changed.add(snapshot.getUsername());
+                }
+            }
+            for (String username : known.keySet()) {
+                if (!current.containsKey(username)) {
+                    changed.add(username);
+                }
+            }
+            if (changed.isEmpty() && file.exists()) {
+                return;
+            }
+
+            // Start from the file if another process wrote it, otherwise from what we know it contains
+            long sequence = changes.readSequence();
+            Map<String, User> merged = new LinkedHashMap<>();
+            if (sequence != diskSequence) {
+                for (User user : readFile()) {
+                    merged.put(user.getUsername(), user);
+                }
+            } else {
+                for (LibrarySnapshot snapshot : known.values()) {
+                    merged.put(snapshot.getUsername(), detached.computeIfAbsent(snapshot.getUsername(), name -> snapshot.toUser()));
+                }
+            }
+            for (String username : changed) {
+                LibrarySnapshot snapshot = current.get(username);
+                if (snapshot == null) {
+                    merged.remove(username);
+                } else {
+                    merged.put(username, snapshot.toUser());
+                }
+            }
+
+            writeFile(new ArrayList<>(merged.values()));
+            diskSequence = changes.append(writerId, changed);
+            if (sequence == seenSequence) {
+                // Nothing unseen from other processes, so our own entry is not an external change
+                seenSequence = diskSequence;
+            }
+            for (String username : changed) {
+                LibrarySnapshot snapshot = current.get(username);
+                if (snapshot == null) {
+                    known.remove(username);
+                    detached.remove(username);
+                } else {
+                    known.put(username, snapshot);
+                    detached.put(username, merged.get(username));
+                }
+            }
+        } finally {
+            held.close();
+        }
+    }
+
+    @Override
+    public boolean hasExternalChanges() throws IOException {
+        long sequence = changes.readSequence();
+        synchronized (this) {
+            return sequence > seenSequence;
+        }
+    }
+
+    @Override
+    public synchronized Collection<String> pollExternalChanges() throws IOException {
+        long sequence = changes.readSequence();
+        if (sequence <= seenSequence) {
+            return Collections.emptyList();
+        }
+
+        Collection<String> changed = changes.changedSince(seenSequence, writerId);
+        if (changed == null) {
+            // Too far behind to know which users changed, so report every user
+            Set<String> everyone = new HashSet<>(known.keySet());
+            FileStoreLock.Held held = lock.acquire(true);
+            try {
+                for (User user : readFile()) {
+                    everyone.add(user.getUsername());
+                }
+            } finally {
+                held.close();
+            }
+            changed = everyone;
+        }
+        seenSequence = sequence;
+        return changed;
+    }
+
+    @Override
+    public List<String> findPhotosByTag(String username, String tagName, String tagValue) {
+        return InMemoryBackend.paths(PhotoSearch.byTag(knownPhotos(username), tagName, tagValue));
+    }
+
+    @Override
+    public List<String> findPhotosByDate(String username, Date startDate, Date endDate) {
+        return InMemoryBackend.paths(PhotoSearch.byDateRange(knownPhotos(username), startDate, endDate));
+    }
+
+    /**
+     * Gets the photos of a user as last loaded or written by this instance.
+     * The file format has no index, so queries scan the user's photos.
+     * @param username The owner of the photos
+     * @return The user's stored photos
+     */
+    private synchronized List<PhotoSnapshot> knownPhotos(String username) {
+        LibrarySnapshot snapshot = known.get(username);
+        return snapshot == null ? Collections.emptyList() : snapshot.getAllPhotos();
+    }
+
+    /**
+     * Reads the users file. Caller must hold the store lock.
+     * @return Users in the file, empty if it does not exist
+     * @throws IOException If the file cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    private List<User> readFile() throws IOException {
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+            return (List<User>) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unexpected content in " + file, e);
+        }
+    }
+
+    @Override
+    public long getLastSaveBytes() {
+        return lastSaveBytes;
+    }
+
+    /**
+     * Writes the users file through a temporary file, so readers never see a partial write.
+     * Caller must hold the exclusive store lock.
+     * @param users Users to write
+     * @throws IOException If the file cannot be written
+     */
+    private void writeFile(List<User> users) throws IOException {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(temp.toFile()))) {
+            oos.writeObject(users);
+        }
+        lastSaveBytes = Files.size(temp);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
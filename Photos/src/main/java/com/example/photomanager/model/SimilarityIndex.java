@@ -0,0 +1,237 @@
+package com.example.photomanager.model;
+
+import com.example.photomanager.metrics.Counter;
+import com.example.photomanager.metrics.Metrics;
+import com.example.photomanager.task.TaskGroup;
+import com.example.photomanager.task.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Finds the user's photos that look like a given one.
+ * Each photo in the library is described by a feature vector, computed from its pixels by background
+ * jobs at indexing priority, and the vectors are kept in a {@link VectorIndex} so a lookup visits only
+ * a small neighbourhood of the photo. Photos joining the library are queued as they arrive; photos
+ * leaving it are dropped, and the graph is rebuilt from the computed vectors once most of it is removed photos.
+ * How a photo is described is up to the caller, which passes the feature extractor in when the index
+ * is created with {@link User#getSimilarityIndex}. All methods are thread-safe.
+ */
+public final class SimilarityIndex implements ModelChangeListener {
+    private static final int MAX_NEIGHBOURS = 16;
+    private static final int EF_CONSTRUCTION = 100;
+    private static final int EF_SEARCH = 64;
+    // Photos analysed per background job
+    private static final int BATCH = 32;
+
+    private static final Counter ANALYSED = Metrics.counter("similarity.analysed");
+    private static final Counter UNREADABLE = Metrics.counter("similarity.unreadable");
+
+    private final User user;
+    private final Function<String, float[]> extractor;
+    private final int dimensions;
+    private final TaskGroup jobs = TaskScheduler.getDefault().newGroup();
+    // Number of the user's albums each photo is in
+    private final Map<Photo, Integer> albumCounts = new IdentityHashMap<>();
+    // Node of each indexed photo, and the photo of each node; null once removed
+    private final Map<Photo, Integer> nodes = new IdentityHashMap<>();
+    private final List<Photo> photos = new ArrayList<>();
+    // Photos queued for indexing
+    private final Map<Photo, Boolean> pending = new IdentityHashMap<>();
+    // Features of the photos in the library by path, so a rebuild does not analyse them again
+    private final Map<String, float[]> features = new HashMap<>();
+    private VectorIndex vectors;
+    // Advanced by every rebuild, so jobs queued before it do not index into the new graph
+    private long generation;
+
+    /**
+     * Constructor
+     * @param user The user whose photos are indexed
+     * @param extractor Computes the feature vector of a photo file, or returns null if it cannot be read;
+     *                  called on background threads
+     * @param dimensions Length of the feature vectors
+     */
+    SimilarityIndex(User user, Function<String, float[]> extractor, int dimensions) {
+        this.user = user;
+        this.extractor = extractor;
+        this.dimensions = dimensions;
+        rebuild();
+        ModelChanges.subscribe(user, this);
+    }
+
+    /**
+     * Re-indexes every photo of the user, e.g. after the user was reloaded from storage.
+     * Photos whose features are already known are only linked into the graph again.
+     */
+    synchronized void rebuild() {
+        jobs.cancelAll();
+        generation++;
+        vectors = new VectorIndex(dimensions, MAX_NEIGHBOURS, EF_CONSTRUCTION, generation);
+        nodes.clear();
+        photos.clear();
+        pending.clear();
+        albumCounts.clear();
+        Set<String> paths = new HashSet<>();
+        for (Album album : user.getAlbums()) {
+            for (Photo photo : album.getPhotos()) {
+                if (albumCounts.merge(photo, 1, Integer::sum) == 1) {
+                    pending.put(photo, Boolean.TRUE);
+                    paths.add(photo.getPath());
+                }
+            }
+        }
+        features.keySet().retainAll(paths);
+        schedule(new ArrayList<>(pending.keySet()));
+    }
+
+    /**
+     * Stops following model changes and cancels the queued analysis
+     */
+    void close() {
+        ModelChanges.unsubscribe(user, this);
+        jobs.cancel();
+    }
+
+    /**
+     * Get the number of photos still waiting to be analysed
+     * @return The number of queued photos
+     */
+    public synchronized int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Find the photos that look most like a photo
+     * @param photo The photo to compare with
+     * @param count Maximum number of photos
+     * @return Up to count other photos, most alike first; null if the photo has not been analysed yet
+     *         or cannot be read
+     */
+    public synchronized List<Photo> similarTo(Photo photo, int count) {
+        Integer node = nodes.get(photo);
+        if (node == null) {
+            return null;
+        }
+        List<Photo> similar = new ArrayList<>(count);
+        for (long result : vectors.search(vectors.vector(node), count + 1, Math.max(EF_SEARCH, 2 * count))) {
+            int found = VectorIndex.nodeOf(result);
+            if (found != node && similar.size() < count) {
+                similar.add(photos.get(found));
+            }
+        }
+        return similar;
+    }
+
+    @Override
+    public synchronized void modelChanged(List<ModelChange> changes) {
+        // Photos entering or leaving the library; a photo moved between albums in one transaction nets out
+        Map<Photo, Boolean> touched = new IdentityHashMap<>();
+        for (ModelChange change : changes) {
+            if (change.getUser() != user) {
+                // Another user's library
+                continue;
+            }
+            switch (change.getType()) {
+                case PHOTO_ADDED:
+                    if (change.changesLibraryOf(user)) {
+                        albumCounts.merge(change.getPhoto(), 1, Integer::sum);
+                        touched.put(change.getPhoto(), Boolean.TRUE);
+                    }
+                    break;
+                case PHOTO_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        release(change.getPhoto());
+                        touched.put(change.getPhoto(), Boolean.TRUE);
+                    }
+                    break;
+                case ALBUM_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        for (Photo photo : change.getAlbum().getPhotos()) {
+                            release(photo);
+                            touched.put(photo, Boolean.TRUE);
+                        }
+                    }
+                    break;
+                default:
+                    // Tags, captions and album names do not change how a photo looks
+                    break;
+            }
+        }
+
+        List<Photo> added = new ArrayList<>();
+        for (Photo photo : touched.keySet()) {
+            if (albumCounts.containsKey(photo)) {
+                if (!nodes.containsKey(photo) && pending.put(photo, Boolean.TRUE) == null) {
+                    added.add(photo);
+                }
+            } else {
+                pending.remove(photo);
+                Integer node = nodes.remove(photo);
+                if (node != null) {
+                    vectors.remove(node);
+                    photos.set(node, null);
+                    features.remove(photo.getPath());
+                }
+            }
+        }
+        if (vectors.deletedCount() > 1000 && vectors.deletedCount() > vectors.size() / 2) {
+            // Searches would mostly walk through removed photos
+            rebuild();
+        } else {
+            schedule(added);
+        }
+    }
+
+    /**
+     * Queues background jobs analysing and indexing photos
+     */
+    private void schedule(List<Photo> queued) {
+        long scheduledGeneration = generation;
+        for (int start = 0; start < queued.size(); start += BATCH) {
+            List<Photo> batch = queued.subList(start, Math.min(queued.size(), start + BATCH));
+            List<Photo> job = new ArrayList<>(batch);
+            jobs.submit(TaskScheduler.Priority.INDEX, TaskScheduler.Resource.CPU, () -> {
+                for (Photo photo : job) {
+                    float[] vector;
+                    synchronized (this) {
+                        vector = features.get(photo.getPath());
+                    }
+                    if (vector == null) {
+                        // Analysed without holding the lock, so edits and searches are not held up by decoding
+                        vector = extractor.apply(photo.getPath());
+                        if (vector == null) {
+                            UNREADABLE.increment();
+                        } else {
+                            ANALYSED.increment();
+                        }
+                    }
+                    index(photo, vector, scheduledGeneration);
+                }
+                return null;
+            });
+        }
+    }
+
+    private synchronized void index(Photo photo, float[] vector, long scheduledGeneration) {
+        if (scheduledGeneration != generation || pending.remove(photo) == null) {
+            // Superseded by a rebuild, or the photo left the library while it was analysed
+            return;
+        }
+        if (vector != null) {
+            features.put(photo.getPath(), vector);
+            int node = vectors.add(vector);
+            nodes.put(photo, node);
+            photos.add(photo);
+        }
+    }
+
+    private void release(Photo photo) {
+        albumCounts.computeIfPresent(photo, (p, count) -> count > 1 ? count - 1 : null);
+    }
+}
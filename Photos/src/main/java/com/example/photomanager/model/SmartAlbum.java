@@ -0,0 +1,197 @@
+package com.example.photomanager.model;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Album whose photos are the user's photos matching a stored {@link TagQuery} and capture date range.
+ * Only the definition is stored; the photos are filled in when the user's smart albums are first
+ * used and then kept current from the change feed by {@link SmartAlbumIndex}, one photo at a time,
+ * in capture date order.
+ * The album is read-only: photos cannot be added to or removed from it directly.
+ */
+public class SmartAlbum extends Album {
+    private static final long serialVersionUID = 1L;
+
+    // Order of the photos: by capture date, then by path, so photos taken at the same time have a fixed order
+    static final Comparator<Photo> ORDER = Comparator.comparing(Photo::getDateTaken).thenComparing(Photo::getPath);
+
+    private final String query;
+    private final Long startDate;
+    private final Long endDate;
+    private transient TagQuery parsed;
+    private transient Definition definition;
+
+    /**
+     * Constructor
+     * @param name Name of the album
+     * @param query Tag query the photos must match, or empty for any tags
+     * @param startDate Earliest capture date, or null for none
+     * @param endDate Latest capture date, or null for none
+     * @throws IllegalArgumentException If the query is not valid
+     */
+    SmartAlbum(String name, String query, Date startDate, Date endDate) {
+        super(name);
+        this.query = query.trim();
+        this.startDate = startDate != null ? startDate.getTime() : null;
+        this.endDate = endDate != null ? endDate.getTime() : null;
+        parsedQuery();
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public Date getStartDate() {
+        return startDate != null ? new Date(startDate) : null;
+    }
+
+    public Date getEndDate() {
+        return endDate != null ? new Date(endDate) : null;
+    }
+
+    @Override
+    public void setName(String name) {
+        definition = null;
+        super.setName(name);
+    }
+
+    /**
+     * Always read-only: the photos of a smart album follow from its query
+     * @return true
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Add or remove a photo depending on whether it matches, publishing the change if membership changed.
+     * Photos are kept in {@link #ORDER}, so a photo joins at the same position a refill would give it.
+     * @param photo The photo to check
+     * @param member Whether the photo should be in the album
+     */
+    void update(Photo photo, boolean member) {
+        if (member) {
+            insertPhoto(photo, insertionIndex(photo));
+        } else {
+            deletePhoto(photo);
+        }
+    }
+
+    /**
+     * Find the position after the last photo that comes no later than a photo
+     */
+    private int insertionIndex(Photo photo) {
+        List<Photo> photos = getPhotos();
+        int low = 0;
+        int high = photos.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ORDER.compare(photos.get(middle), photo) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Check whether a photo belongs in this album
+     * @param photo The photo to check
+     * @param schema The declared tag types
+     * @return true if the photo matches the query and date range
+     */
+    boolean accepts(Photo photo, TagSchema schema) {
+        long taken = photo.getDateTaken().getTime();
+        if ((startDate != null && taken < startDate) || (endDate != null && taken > endDate)) {
+            return false;
+        }
+        try {
+            return query.isEmpty() || parsedQuery().matches(photo, schema);
+        } catch (IllegalArgumentException e) {
+            // A tag type was redeclared so a bound no longer fits; the album matches nothing until it is fixed
+            return false;
+        }
+    }
+
+    /**
+     * Get the parsed query
+     * @return The query, or null if it is empty
+     */
+    TagQuery parsedQuery() {
+        if (parsed == null && !query.isEmpty()) {
+            parsed = TagQuery.parse(query);
+        }
+        return parsed;
+    }
+
+    /**
+     * Get the stored definition of this album, reused while it is unchanged
+     * @return The definition
+     */
+    Definition definition() {
+        if (definition == null) {
+            definition = new Definition(getName(), query, startDate, endDate);
+        }
+        return definition;
+    }
+
+    /**
+     * Immutable definition of a smart album, as kept in library snapshots and stored by the backends
+     */
+    public static final class Definition {
+        private final String name;
+        private final String query;
+        private final Long startDate;
+        private final Long endDate;
+
+        Definition(String name, String query, Long startDate, Long endDate) {
+            this.name = name;
+            this.query = query;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public Date getStartDate() {
+            return startDate != null ? new Date(startDate) : null;
+        }
+
+        public Date getEndDate() {
+            return endDate != null ? new Date(endDate) : null;
+        }
+
+        /**
+         * Rebuild a smart album from this definition; its photos are filled in by the owner's index
+         * @return A new, empty SmartAlbum
+         */
+        SmartAlbum toAlbum() {
+            return new SmartAlbum(name, query, getStartDate(), getEndDate());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Definition that = (Definition) o;
+            return name.equals(that.name) && query.equals(that.query)
+                    && Objects.equals(startDate, that.startDate) && Objects.equals(endDate, that.endDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, query, startDate, endDate);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the photos of one user's smart albums current, like materialized views over the library.
+ * Each smart album is filled once, from the {@link TagIndex} where it has a query, and afterwards
+ * only the photos named in a change are checked again: photos entering or leaving the library and
+ * photos whose tags changed. Membership changes are published as ordinary photo added/removed changes
+ * of the smart album, so open views update like for any other album.
+ * The index is created by {@link User#getSmartAlbums()}. All methods are thread-safe.
+ */
+final class SmartAlbumIndex implements ModelChangeListener {
+    private final User user;
+    private final TagSchema schema;
+    // Number of the user's regular albums each photo is in
+    private final Map<Photo, Integer> albumCounts = new IdentityHashMap<>();
+    private long schemaVersion;
+
+    SmartAlbumIndex(User user, TagSchema schema) {
+        this.user = user;
+        this.schema = schema;
+        rebuild();
+        ModelChanges.subscribe(user, this);
+    }
+
+    /**
+     * Refills every smart album, e.g. after the user was reloaded from storage
+     */
+    synchronized void rebuild() {
+        albumCounts.clear();
+        schemaVersion = schema.getVersion();
+        for (Album album : user.getAlbums()) {
+            for (Photo photo : album.getPhotos()) {
+                albumCounts.merge(photo, 1, Integer::sum);
+            }
+        }
+        ModelChanges.inTransaction(() -> {
+            for (SmartAlbum album : user.smartAlbums()) {
+                fill(album);
+            }
+        });
+    }
+
+    /**
+     * Stops following model changes
+     */
+    void close() {
+        ModelChanges.unsubscribe(user, this);
+    }
+
+    /**
+     * Fills a smart album with the matching photos, ordered by capture date and then path
+     * @param album The album to fill
+     */
+    synchronized void fill(SmartAlbum album) {
+        List<Photo> matches = new ArrayList<>();
+        if (album.parsedQuery() != null) {
+            Set<Photo> candidates;
+            try {
+                candidates = album.parsedQuery().evaluate(user.getTagIndex());
+            } catch (IllegalArgumentException e) {
+                candidates = Set.of();
+            }
+            for (Photo photo : candidates) {
+                if (albumCounts.containsKey(photo) && album.accepts(photo, schema)) {
+                    matches.add(photo);
+                }
+            }
+        } else {
+            for (Photo photo : albumCounts.keySet()) {
+                if (album.accepts(photo, schema)) {
+                    matches.add(photo);
+                }
+            }
+        }
+        matches.sort(SmartAlbum.ORDER);
+
+        ModelChanges.inTransaction(() -> {
+            for (Photo photo : new ArrayList<>(album.getPhotos())) {
+                album.update(photo, false);
+            }
+            for (Photo photo : matches) {
+                album.update(photo, true);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void modelChanged(List<ModelChange> changes) {
+        if (user.smartAlbums().isEmpty()) {
+            return;
+        }
+        if (schemaVersion != schema.getVersion()) {
+            // A tag type was declared, so range predicates may now compare differently
+            rebuild();
+            return;
+        }
+
+        // Photos to check again; membership changes are published together once all are applied
+        Map<Photo, Boolean> touched = new IdentityHashMap<>();
+        for (ModelChange change : changes) {
+            if (change.getUser() != user) {
+                // Another user's library
+                continue;
+            }
+            switch (change.getType()) {
+                case PHOTO_ADDED:
+                    if (change.changesLibraryOf(user)) {
+                        albumCounts.merge(change.getPhoto(), 1, Integer::sum);
+                        touched.put(change.getPhoto(), Boolean.TRUE);
+                    }
+                    break;
+                case PHOTO_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        release(change.getPhoto());
+                        touched.put(change.getPhoto(), Boolean.TRUE);
+                    }
+                    break;
+                case ALBUM_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        for (Photo photo : change.getAlbum().getPhotos()) {
+                            release(photo);
+                            touched.put(photo, Boolean.TRUE);
+                        }
+                    }
+                    break;
+                case TAG_ADDED:
+                case TAG_REMOVED:
+                    if (albumCounts.containsKey(change.getPhoto())) {
+                        touched.put(change.getPhoto(), Boolean.TRUE);
+                    }
+                    break;
+                default:
+                    // New albums are empty, and captions and album names are not part of any query
+                    break;
+            }
+        }
+        if (touched.isEmpty()) {
+            return;
+        }
+
+        ModelChanges.inTransaction(() -> {
+            for (Photo photo : touched.keySet()) {
+                boolean inLibrary = albumCounts.containsKey(photo);
+                for (SmartAlbum album : user.smartAlbums()) {
+                    album.update(photo, inLibrary && album.accepts(photo, schema));
+                }
+            }
+        });
+    }
+
+    private void release(Photo photo) {
+        albumCounts.computeIfPresent(photo, (p, count) -> count > 1 ? count - 1 : null);
+    }
+}
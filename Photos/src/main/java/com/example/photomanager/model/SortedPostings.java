@@ -0,0 +1,146 @@
+package com.example.photomanager.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Postings of one typed tag name, kept sorted by value key in parallel primitive arrays,
+ * so a range of values is found by binary search. A bulk load appends its postings unsorted
+ * and they are sorted once, when next read or changed. Not thread-safe; guarded by the owning {@link TagIndex}.
+ */
+final class SortedPostings {
+    private double[] keys = new double[16];
+    private Photo[] photos = new Photo[16];
+    private int size;
+    // Whether postings were appended since the arrays were last sorted
+    private boolean unsorted;
+
+    /**
+     * Add a posting, keeping the arrays sorted
+     * @param key Sort key of the value
+     * @param photo The photo carrying the value
+     */
+    void add(double key, Photo photo) {
+        sort();
+        int index = upperBound(key);
+        grow();
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(photos, index, photos, index + 1, size - index);
+        keys[index] = key;
+        photos[index] = photo;
+        size++;
+    }
+
+    /**
+     * Add a posting at the end, leaving the arrays to be sorted once the bulk load is done
+     * @param key Sort key of the value
+     * @param photo The photo carrying the value
+     */
+    void append(double key, Photo photo) {
+        grow();
+        keys[size] = key;
+        photos[size] = photo;
+        size++;
+        unsorted = true;
+    }
+
+    /**
+     * Remove one posting of a photo with a key
+     * @param key Sort key of the value
+     * @param photo The photo
+     */
+    void remove(double key, Photo photo) {
+        sort();
+        for (int i = lowerBound(key); i < size && keys[i] == key; i++) {
+            if (photos[i] == photo) {
+                System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                System.arraycopy(photos, i + 1, photos, i, size - i - 1);
+                photos[--size] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Collect the photos with a key in a range
+     * @param low Lower bound, or NaN for none
+     * @param lowInclusive Whether the lower bound itself matches
+     * @param high Upper bound, or NaN for none
+     * @param highInclusive Whether the upper bound itself matches
+     * @param out Receives the matching photos
+     */
+    void range(double low, boolean lowInclusive, double high, boolean highInclusive, Collection<Photo> out) {
+        sort();
+        int from = Double.isNaN(low) ? 0 : lowInclusive ? lowerBound(low) : upperBound(low);
+        int to = Double.isNaN(high) ? size : highInclusive ? upperBound(high) : lowerBound(high);
+        for (int i = from; i < to; i++) {
+            out.add(photos[i]);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void grow() {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            photos = Arrays.copyOf(photos, size * 2);
+        }
+    }
+
+    /**
+     * Sorts appended postings by key, in one pass over a sorted order of their positions
+     */
+    private void sort() {
+        if (!unsorted) {
+            return;
+        }
+        unsorted = false;
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        double[] unsortedKeys = keys;
+        Arrays.sort(order, Comparator.comparingDouble(i -> unsortedKeys[i]));
+        double[] sortedKeys = new double[keys.length];
+        Photo[] sortedPhotos = new Photo[photos.length];
+        for (int i = 0; i < size; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedPhotos[i] = photos[order[i]];
+        }
+        keys = sortedKeys;
+        photos = sortedPhotos;
+    }
+
+    // First index whose key is >= the given key
+    private int lowerBound(double key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First index whose key is > the given key
+    private int upperBound(double key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
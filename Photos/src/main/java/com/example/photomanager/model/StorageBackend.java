@@ -0,0 +1,100 @@
+package com.example.photomanager.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Persistence backend used by StorageManager.
+ * Implementations receive immutable library snapshots on the background writer thread,
+ * so they never touch the live model while it is being edited.
+ */
+public interface StorageBackend extends AutoCloseable {
+
+    /**
+     * Loads all users from the store.
+     * @return Mutable list of users, empty if nothing has been stored yet
+     * @throws IOException If the store cannot be read
+     */
+    List<User> loadUsers() throws IOException;
+
+    /**
+     * Loads selected users from the store, e.g. after another process changed them.
+     * @param usernames The users to load
+     * @return The users that exist in the store
+     * @throws IOException If the store cannot be read
+     */
+    default List<User> loadUsers(Collection<String> usernames) throws IOException {
+        List<User> loaded = new ArrayList<>();
+        for (User user : loadUsers()) {
+            if (usernames.contains(user.getUsername())) {
+                loaded.add(user);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Replaces the stored users with the given snapshots.
+     * Users missing from the list are removed from the store.
+     * @param users Snapshots of every user
+     * @throws IOException If the store cannot be written
+     */
+    void saveUsers(List<LibrarySnapshot> users) throws IOException;
+
+    /**
+     * Reports the size of the data written by the most recent save.
+     * @return Bytes written, or -1 if the backend does not track it
+     */
+    default long getLastSaveBytes() {
+        return -1;
+    }
+
+    /**
+     * Cheaply checks whether another process changed the store since the last poll.
+     * @return true if {@link #pollExternalChanges()} would report changes
+     * @throws IOException If the store cannot be checked
+     */
+    default boolean hasExternalChanges() throws IOException {
+        return false;
+    }
+
+    /**
+     * Reports the users changed by other processes since the last poll or load.
+     * @return Usernames of users to reload
+     * @throws IOException If the store cannot be checked
+     */
+    default Collection<String> pollExternalChanges() throws IOException {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Finds the paths of a user's stored photos that carry a tag.
+     * @param username The owner of the photos
+     * @param tagName Name of the tag
+     * @param tagValue Value of the tag
+     * @return Paths of matching photos
+     * @throws IOException If the store cannot be queried
+     */
+    List<String> findPhotosByTag(String username, String tagName, String tagValue) throws IOException;
+
+    /**
+     * Finds the paths of a user's stored photos taken strictly between two dates.
+     * @param username The owner of the photos
+     * @param startDate Start of the range (exclusive)
+     * @param endDate End of the range (exclusive)
+     * @return Paths of matching photos
+     * @throws IOException If the store cannot be queried
+     */
+    List<String> findPhotosByDate(String username, Date startDate, Date endDate) throws IOException;
+
+    /**
+     * Releases resources held by the backend.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -1,34 +1,80 @@
 package com.example.photomanager.model;
 
+import com.example.photomanager.jfr.SaveEvent;
+import com.example.photomanager.metrics.Counter;
+import com.example.photomanager.metrics.LatencyHistogram;
+import com.example.photomanager.metrics.Metrics;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Storage Manager responsible for serializing and deserializing user data.
+ * The actual persistence is delegated to a {@link StorageBackend}; the default backend is
+ * chosen with the system property {@code photoManager.storage} (file, database or memory), and the
+ * default stores are kept in ~/.photoManager unless {@code photoManager.home} names another directory.
  */
 public class StorageManager {
-    private static final String STORAGE_DIR = System.getProperty("user.home") + File.separator + ".photoManager";
+    private static final String STORAGE_DIR = System.getProperty("photoManager.home",
+            System.getProperty("user.home") + File.separator + ".photoManager");
     private static final String USERS_FILE = STORAGE_DIR + File.separator + "users.dat";
+    private static final String DATABASE_FILE = STORAGE_DIR + File.separator + "library";
+
+    // Single background writer shared by all instances, so writes are never reordered
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "photo-manager-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final LatencyHistogram LOAD_TIME = Metrics.histogram("storage.load");
+    private static final LatencyHistogram SAVE_TIME = Metrics.histogram("storage.save");
+    private static final Counter SAVES = Metrics.counter("storage.saves");
+    private static final Counter COALESCED_SAVES = Metrics.counter("storage.saves.coalesced");
+    private static final Counter EXTERNAL_RELOADS = Metrics.counter("storage.externalReloads");
 
+    static {
+        // Make sure a pending save reaches the disk before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(StorageManager::flush));
+    }
+
+    private final StorageBackend backend;
+    private ScheduledExecutorService watcher;
     private List<User> users;
+    private final AtomicReference<List<LibrarySnapshot>> pendingSave = new AtomicReference<>();
+    private final AtomicInteger coalescedSaves = new AtomicInteger();
 
     /**
-     * Constructor that loads user data and initializes the storage.
+     * Constructor that loads user data from the default backend and initializes the storage.
      */
     public StorageManager() {
-        // Create storage directory if it doesn't exist
-        File dir = new File(STORAGE_DIR);
-        if (!dir.exists()) {
-            dir.mkdirs();
-        }
+        this(createDefaultBackend());
+    }
 
-        // Load user data from file
+    /**
+     * Constructor that loads user data from the given backend and initializes the storage.
+     * @param backend The backend to load from and save to
+     */
+    public StorageManager(StorageBackend backend) {
+        this.backend = backend;
+        Metrics.gauge("storage.users", () -> users == null ? 0 : users.size());
+
+        // Load user data from the backend
         users = loadUsers();
 
         // Check and create default admin user if not exists
@@ -51,6 +97,49 @@ public class StorageManager {
         }
     }
 
+    /**
+     * Gets the directory holding the default stores, ~/.photoManager unless overridden.
+     * @return The storage directory
+     */
+    public static File getStorageDirectory() {
+        return new File(STORAGE_DIR);
+    }
+
+    /**
+     * Creates the backend selected by the {@code photoManager.storage} system property.
+     * @return The default storage backend
+     */
+    public static StorageBackend createDefaultBackend() {
+        // Create storage directory if it doesn't exist
+        File dir = new File(STORAGE_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+
+        String kind = System.getProperty("photoManager.storage", "file");
+        switch (kind) {
+            case "memory":
+                return new InMemoryBackend();
+            case "database":
+                try {
+                    return new DatabaseBackend(DATABASE_FILE);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return new SerializedFileBackend(new File(USERS_FILE));
+                }
+            default:
+                return new SerializedFileBackend(new File(USERS_FILE));
+        }
+    }
+
+    /**
+     * Gets the backend this storage manager persists to.
+     * @return The storage backend
+     */
+    public StorageBackend getBackend() {
+        return backend;
+    }
+
     /**
      * Adds stock photos to the specified album.
      * @param stockAlbum The album to which stock photos will be added
@@ -95,31 +184,178 @@ public class StorageManager {
     }
 
     /**
-     * Loads user data from the serialized file.
-     * @return List of User objects loaded from file, or empty list if file doesn't exist or error occurs
+     * Loads user data from the backend.
+     * @return List of User objects loaded from the backend, or empty list if nothing is stored or an error occurs
      */
     private List<User> loadUsers() {
-        File file = new File(USERS_FILE);
-        if (!file.exists()) {
-            return new ArrayList<>();
-        }
+        // Another instance may still be writing
+        flush();
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            return (List<User>) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
+        long start = System.nanoTime();
+        try {
+            return backend.loadUsers();
+        } catch (IOException e) {
             e.printStackTrace();
             return new ArrayList<>();
+        } finally {
+            LOAD_TIME.recordSince(start);
         }
     }
 
     /**
-     * Saves user data to the serialized file.
+     * Saves user data to the backend.
+     * Takes a snapshot of every user on the calling thread and writes it in the background,
+     * so editing can continue while the file is written. Users not edited since their last
+     * snapshot hand it back as is, so only the edited users' albums are walked. Saves that are queued before the
+     * writer gets to them are coalesced into the most recent one.
      */
     public void saveUsers() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(USERS_FILE))) {
-            oos.writeObject(users);
+        List<LibrarySnapshot> snapshots = new ArrayList<>(users.size());
+        for (User user : users) {
+            snapshots.add(user.snapshot());
+        }
+        if (pendingSave.getAndSet(snapshots) == null) {
+            WRITER.execute(this::writePendingSave);
+        } else {
+            COALESCED_SAVES.increment();
+            coalescedSaves.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes the most recent pending snapshot, if any. Runs on the writer thread.
+     */
+    private void writePendingSave() {
+        List<LibrarySnapshot> snapshots = pendingSave.getAndSet(null);
+        if (snapshots == null) {
+            return;
+        }
+
+        int coalesced = coalescedSaves.getAndSet(0);
+        SaveEvent event = new SaveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            backend.saveUsers(snapshots);
+            SAVES.increment();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            SAVE_TIME.recordSince(start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.backend = backend.getClass().getSimpleName();
+                event.userCount = snapshots.size();
+                for (LibrarySnapshot snapshot : snapshots) {
+                    event.photoCount += snapshot.getAllPhotos().size();
+                }
+                event.bytesWritten = backend.getLastSaveBytes();
+                event.coalesced = coalesced;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Blocks until all saves queued so far have been written.
+     */
+    public static void flush() {
+        try {
+            WRITER.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reloads the users that other processes changed since the last reload.
+     * Must be called on the thread that edits the model. Users that still exist are
+     * updated in place, so references held by the UI stay valid. Each reloaded user
+     * is counted by the storage.externalReloads metric.
+     * @return Usernames of the reloaded users
+     */
+    public Collection<String> reloadExternalChanges() {
+        // Our own pending save must not be overwritten by the reload
+        flush();
+
+        try {
+            Collection<String> changed = backend.pollExternalChanges();
+            if (changed.isEmpty()) {
+                return changed;
+            }
+            EXTERNAL_RELOADS.add(changed.size());
+
+            List<User> reloaded = backend.loadUsers(changed);
+            for (String username : changed) {
+                User current = findUser(username);
+                User fresh = null;
+                for (User user : reloaded) {
+                    if (user.getUsername().equals(username)) {
+                        fresh = user;
+                    }
+                }
+
+                if (fresh == null) {
+                    if (current != null) {
+                        current.discardIndexes();
+                    }
+                    users.remove(current);
+                } else if (current == null) {
+                    users.add(fresh);
+                } else {
+                    current.replaceWith(fresh);
+                }
+            }
+            return changed;
         } catch (IOException e) {
             e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Starts polling the backend for changes made by other processes.
+     * When a change is detected, {@link #reloadExternalChanges()} runs on the model thread
+     * and the listener receives the reloaded usernames.
+     * @param intervalMillis Poll interval in milliseconds
+     * @param modelThread Executor running tasks on the thread that edits the model
+     * @param listener Callback receiving the reloaded usernames, invoked on the model thread
+     */
+    public synchronized void watchExternalChanges(long intervalMillis, Executor modelThread, Consumer<Collection<String>> listener) {
+        if (watcher != null) {
+            return;
+        }
+
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "photo-manager-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(() -> {
+            try {
+                if (backend.hasExternalChanges()) {
+                    modelThread.execute(() -> {
+                        Collection<String> changed = reloadExternalChanges();
+                        if (!changed.isEmpty()) {
+                            listener.accept(changed);
+                        }
+                    });
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops polling for changes made by other processes.
+     */
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
         }
     }
 
@@ -163,6 +399,7 @@ public class StorageManager {
         User user = findUser(username);
         if (user != null) {
             users.remove(user);
+            user.discardIndexes();
             saveUsers();
             return true;
         }
@@ -0,0 +1,346 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Counts how often tags appear together on one user's photos, to suggest tags while tagging and to
+ * find photos related to one another. Each distinct tag gets a number, and the sparse symmetric matrix
+ * of co-occurrence counts is kept as one {@link IntIntMap} row per tag, so the tags seen with a tag are
+ * read straight from its row. The photos carrying each tag are kept too, for related photo lookups.
+ * GPS tags are left out: every position is its own value, so they would only bloat the matrix.
+ * The counts are built once and then kept up to date from {@link ModelChanges}; they are obtained
+ * with {@link User#getTagCooccurrence()}. All methods are thread-safe.
+ */
+public final class TagCooccurrence implements ModelChangeListener {
+    // Photos scored at most by one related photo lookup; the most common tags are dropped beyond it
+    private static final int RELATED_BUDGET = 100_000;
+
+    private final User user;
+    // Tag -> number, and the tag, photo count, co-occurrence row and photos of each number
+    private final Map<Tag, Integer> ids = new HashMap<>();
+    private final List<Tag> tags = new ArrayList<>();
+    private int[] photoCounts = new int[16];
+    private IntIntMap[] rows = new IntIntMap[16];
+    private final List<Set<Photo>> postings = new ArrayList<>();
+    // Numbers of the tags each photo in the library is counted with
+    private final Map<Photo, int[]> counted = new IdentityHashMap<>();
+    // Number of the user's albums each photo is in
+    private final Map<Photo, Integer> albumCounts = new IdentityHashMap<>();
+    // Suggestion scores by tag number, all 0 between calls
+    private float[] scores = new float[16];
+
+    TagCooccurrence(User user) {
+        this.user = user;
+        rebuild();
+        ModelChanges.subscribe(user, this);
+    }
+
+    /**
+     * Recounts the user's photos, e.g. after the user was reloaded from storage
+     */
+    synchronized void rebuild() {
+        ids.clear();
+        tags.clear();
+        postings.clear();
+        counted.clear();
+        albumCounts.clear();
+        photoCounts = new int[16];
+        rows = new IntIntMap[16];
+        scores = new float[16];
+        for (Album album : user.getAlbums()) {
+            for (Photo photo : album.getPhotos()) {
+                if (albumCounts.merge(photo, 1, Integer::sum) == 1) {
+                    addPhoto(photo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops following model changes
+     */
+    void close() {
+        ModelChanges.unsubscribe(user, this);
+    }
+
+    /**
+     * Get the number of photos carrying both of two tags
+     * @return The count, 0 if either tag is unknown
+     */
+    public synchronized int count(Tag first, Tag second) {
+        Integer a = ids.get(first);
+        Integer b = ids.get(second);
+        if (a == null || b == null) {
+            return 0;
+        }
+        return a.equals(b) ? photoCounts[a] : rows[a].get(b);
+    }
+
+    /**
+     * Suggest tags for a photo: the tags that most often appear together with the tags it has,
+     * each scored by the sum over its tags of the share of their photos that also carry it.
+     * Without co-occurring tags, the tags most used overall are suggested.
+     * @param given Tags the photo already has
+     * @param name Only suggest tags with this name, ignoring case, or null for any
+     * @param count Maximum number of suggestions
+     * @return Suggestions, most likely first; the given tags are left out
+     */
+    public synchronized List<Tag> suggest(List<Tag> given, String name, int count) {
+        String folded = name != null ? name.toLowerCase(Locale.ROOT) : null;
+        Set<Integer> own = new HashSet<>();
+        for (Tag tag : given) {
+            Integer id = ids.get(tag);
+            if (id != null && photoCounts[id] > 0) {
+                own.add(id);
+            }
+        }
+
+        List<Integer> scored = new ArrayList<>();
+        for (int id : own) {
+            IntIntMap row = rows[id];
+            float weight = 1f / photoCounts[id];
+            for (int slot = 0; slot < row.capacity(); slot++) {
+                int other = row.keyAt(slot);
+                if (other < 0 || own.contains(other) || !hasName(other, folded)) {
+                    continue;
+                }
+                if (scores[other] == 0) {
+                    scored.add(other);
+                }
+                scores[other] += row.valueAt(slot) * weight;
+            }
+        }
+        scored.sort(Comparator.<Integer>comparingDouble(id -> -scores[id]).thenComparingInt(id -> -photoCounts[id]));
+        List<Tag> suggestions = new ArrayList<>(count);
+        for (int id : scored) {
+            if (suggestions.size() < count) {
+                suggestions.add(tags.get(id));
+            }
+            scores[id] = 0;
+        }
+
+        if (suggestions.size() < count) {
+            // Fill up with the most used tags
+            Set<Integer> suggested = new HashSet<>(scored);
+            List<Integer> popular = new ArrayList<>();
+            for (int id = 0; id < tags.size(); id++) {
+                if (photoCounts[id] > 0 && !own.contains(id) && !suggested.contains(id) && hasName(id, folded)) {
+                    popular.add(id);
+                }
+            }
+            popular.sort(Comparator.comparingInt(id -> -photoCounts[id]));
+            for (int i = 0; i < popular.size() && suggestions.size() < count; i++) {
+                suggestions.add(tags.get(popular.get(i)));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Find the photos sharing the most tags with a photo, weighting each shared tag by how rare it is
+     * (the logarithm of the share of the library not carrying it), so a shared person or place counts
+     * for more than a shared "favourite".
+     * @param photo The photo to compare with
+     * @param count Maximum number of photos
+     * @return Up to count other photos, most related first
+     */
+    public synchronized List<Photo> relatedTo(Photo photo, int count) {
+        int[] own = counted.get(photo);
+        if (own == null || own.length == 0) {
+            return new ArrayList<>();
+        }
+        // Rarest tags first, so the budget is spent on the most telling ones
+        Integer[] order = new Integer[own.length];
+        for (int i = 0; i < own.length; i++) {
+            order[i] = own[i];
+        }
+        Arrays.sort(order, Comparator.comparingInt(id -> photoCounts[id]));
+
+        Map<Photo, Double> related = new IdentityHashMap<>();
+        double library = albumCounts.size();
+        int visited = 0;
+        for (int id : order) {
+            double weight = Math.log(library / photoCounts[id]);
+            Set<Photo> carrying = postings.get(id);
+            if (weight <= 0 || (visited > 0 && visited + carrying.size() > RELATED_BUDGET)) {
+                break;
+            }
+            for (Photo other : carrying) {
+                if (other != photo) {
+                    related.merge(other, weight, Double::sum);
+                }
+            }
+            visited += carrying.size();
+        }
+
+        // Keep the best count photos in a heap with the weakest on top, instead of sorting them all
+        PriorityQueue<Map.Entry<Photo, Double>> best = new PriorityQueue<>(count + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<Photo, Double> entry : related.entrySet()) {
+            if (best.size() < count || entry.getValue() > best.peek().getValue()) {
+                best.add(entry);
+                if (best.size() > count) {
+                    best.poll();
+                }
+            }
+        }
+        List<Photo> photos = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            photos.add(best.poll().getKey());
+        }
+        Collections.reverse(photos);
+        return photos;
+    }
+
+    @Override
+    public synchronized void modelChanged(List<ModelChange> changes) {
+        for (ModelChange change : changes) {
+            if (change.getUser() != user) {
+                // Another user's library
+                continue;
+            }
+            switch (change.getType()) {
+                case PHOTO_ADDED:
+                    if (change.changesLibraryOf(user) && albumCounts.merge(change.getPhoto(), 1, Integer::sum) == 1) {
+                        addPhoto(change.getPhoto());
+                    }
+                    break;
+                case PHOTO_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        release(change.getPhoto());
+                    }
+                    break;
+                case ALBUM_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        for (Photo photo : change.getAlbum().getPhotos()) {
+                            release(photo);
+                        }
+                    }
+                    break;
+                case TAG_ADDED:
+                    if (counted.containsKey(change.getPhoto())) {
+                        addTag(change.getPhoto(), change.getTag());
+                    }
+                    break;
+                case TAG_REMOVED:
+                    if (counted.containsKey(change.getPhoto())) {
+                        removeTag(change.getPhoto(), change.getTag());
+                    }
+                    break;
+                default:
+                    // New albums are empty, and captions and album names are not tags
+                    break;
+            }
+        }
+    }
+
+    private void release(Photo photo) {
+        Integer count = albumCounts.get(photo);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            albumCounts.put(photo, count - 1);
+            return;
+        }
+        albumCounts.remove(photo);
+        int[] own = counted.remove(photo);
+        for (int i = 0; i < own.length; i++) {
+            photoCounts[own[i]]--;
+            postings.get(own[i]).remove(photo);
+            for (int j = 0; j < i; j++) {
+                link(own[i], own[j], -1);
+            }
+        }
+    }
+
+    private void addPhoto(Photo photo) {
+        counted.put(photo, new int[0]);
+        for (Tag tag : photo.getTags()) {
+            addTag(photo, tag);
+        }
+    }
+
+    private void addTag(Photo photo, Tag tag) {
+        if (tag.getName().equalsIgnoreCase(GeoIndex.GPS_TAG)) {
+            return;
+        }
+        int id = idOf(tag);
+        int[] own = counted.get(photo);
+        for (int other : own) {
+            if (other == id) {
+                // Already counted when the photo joined the library
+                return;
+            }
+        }
+        for (int other : own) {
+            link(id, other, 1);
+        }
+        int[] grown = Arrays.copyOf(own, own.length + 1);
+        grown[own.length] = id;
+        counted.put(photo, grown);
+        photoCounts[id]++;
+        postings.get(id).add(photo);
+    }
+
+    private void removeTag(Photo photo, Tag tag) {
+        Integer id = ids.get(tag);
+        int[] own = counted.get(photo);
+        int index = -1;
+        for (int i = 0; i < own.length && id != null; i++) {
+            if (own[i] == id) {
+                index = i;
+            }
+        }
+        if (index < 0) {
+            // Never counted, e.g. a GPS tag
+            return;
+        }
+        int[] shrunk = new int[own.length - 1];
+        System.arraycopy(own, 0, shrunk, 0, index);
+        System.arraycopy(own, index + 1, shrunk, index, shrunk.length - index);
+        counted.put(photo, shrunk);
+        for (int other : shrunk) {
+            link(id, other, -1);
+        }
+        photoCounts[id]--;
+        postings.get(id).remove(photo);
+    }
+
+    private void link(int a, int b, int delta) {
+        rows[a].add(b, delta);
+        rows[b].add(a, delta);
+    }
+
+    private int idOf(Tag tag) {
+        Integer id = ids.get(tag);
+        if (id != null) {
+            return id;
+        }
+        int next = tags.size();
+        if (next == photoCounts.length) {
+            photoCounts = Arrays.copyOf(photoCounts, next * 2);
+            rows = Arrays.copyOf(rows, next * 2);
+            scores = Arrays.copyOf(scores, next * 2);
+        }
+        ids.put(tag, next);
+        tags.add(tag);
+        rows[next] = new IntIntMap();
+        postings.add(new HashSet<>());
+        return next;
+    }
+
+    private boolean hasName(int id, String folded) {
+        return folded == null || tags.get(id).getName().toLowerCase(Locale.ROOT).equals(folded);
+    }
+}
@@ -0,0 +1,396 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Posting index from tags to the photos of one user carrying them.
+ * Tags are grouped by case-folded name, so lookups that ignore case do not scan every tag,
+ * and sorted by value within a name, so prefix and wildcard lookups only visit matching values.
+ * Values of names with a declared {@link TagType} are also kept in a sorted numeric index for range queries.
+ * The index is built once and then kept up to date from {@link ModelChanges}; it is obtained
+ * with {@link User#getTagIndex()}. All methods are thread-safe.
+ */
+public final class TagIndex implements ModelChangeListener {
+    private static final Comparator<Tag> BY_VALUE = Comparator.comparing(Tag::getValue).thenComparing(Tag::getName);
+
+    private final User user;
+    private final TagSchema schema;
+    // Case-folded tag name -> tag (by value) -> photos carrying it
+    private final Map<String, NavigableMap<Tag, Set<Photo>>> postings = new HashMap<>();
+    // Case-folded typed tag name -> photos sorted by value key
+    private final Map<String, SortedPostings> typed = new HashMap<>();
+    private long schemaVersion;
+    // Number of the user's albums each photo is in
+    private final Map<Photo, Integer> albumCounts = new IdentityHashMap<>();
+    // Set while the whole index is loaded, so typed postings are appended and sorted once
+    private boolean loading;
+
+    TagIndex(User user, TagSchema schema) {
+        this.user = user;
+        this.schema = schema;
+        rebuild();
+        ModelChanges.subscribe(user, this);
+    }
+
+    /**
+     * Rebuilds the index from the user's albums, e.g. after the user was reloaded from storage
+     */
+    synchronized void rebuild() {
+        postings.clear();
+        typed.clear();
+        albumCounts.clear();
+        schemaVersion = schema.getVersion();
+        loading = true;
+        try {
+            for (Album album : user.getAlbums()) {
+                for (Photo photo : album.getPhotos()) {
+                    addPhoto(photo);
+                }
+            }
+        } finally {
+            loading = false;
+        }
+    }
+
+    /**
+     * Stops following model changes
+     */
+    void close() {
+        ModelChanges.unsubscribe(user, this);
+    }
+
+    /**
+     * Get the number of photos in the user's library
+     * @return The number of distinct photos in the user's albums
+     */
+    public synchronized int photoCount() {
+        return albumCounts.size();
+    }
+
+    /**
+     * Find the photos carrying a tag
+     * @param tag The tag to look up
+     * @return The photos, empty if none carries it
+     */
+    public synchronized List<Photo> photosWith(Tag tag) {
+        NavigableMap<Tag, Set<Photo>> named = postings.get(TagSchema.fold(tag.getName()));
+        Set<Photo> photos = named != null ? named.get(tag) : null;
+        return photos != null ? new ArrayList<>(photos) : Collections.emptyList();
+    }
+
+    /**
+     * Find the distinct tags with a name and optionally a value, with the number of photos carrying each
+     * @param name Tag name
+     * @param value Tag value, or null for any value
+     * @param ignoreCase Whether name and value are compared ignoring case
+     * @return Matching tags with their photo counts
+     */
+    public synchronized Map<Tag, Integer> find(String name, String value, boolean ignoreCase) {
+        Map<Tag, Integer> counts = new HashMap<>();
+        NavigableMap<Tag, Set<Photo>> named = postings.get(TagSchema.fold(name));
+        if (named == null) {
+            return counts;
+        }
+        for (Map.Entry<Tag, Set<Photo>> entry : named.entrySet()) {
+            if (matches(entry.getKey(), name, value, ignoreCase)) {
+                counts.put(entry.getKey(), entry.getValue().size());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Find the photos carrying any tag with a name and optionally a value
+     * @param name Tag name
+     * @param value Tag value, or null for any value
+     * @param ignoreCase Whether name and value are compared ignoring case
+     * @return The photos, each once
+     */
+    public synchronized Set<Photo> photosMatching(String name, String value, boolean ignoreCase) {
+        Set<Photo> photos = new LinkedHashSet<>();
+        NavigableMap<Tag, Set<Photo>> named = postings.get(TagSchema.fold(name));
+        if (named == null) {
+            return photos;
+        }
+        for (Map.Entry<Tag, Set<Photo>> entry : named.entrySet()) {
+            if (matches(entry.getKey(), name, value, ignoreCase)) {
+                photos.addAll(entry.getValue());
+            }
+        }
+        return photos;
+    }
+
+    /**
+     * Find the photos whose value of a tag lies in a range. Values are compared by the
+     * declared type of the name, or as strings for untyped names. Names are compared ignoring case.
+     * Takes logarithmic time in the number of values plus the number of matches.
+     * @param name Tag name
+     * @param low Lower bound, or null for none
+     * @param lowInclusive Whether the lower bound itself matches
+     * @param high Upper bound, or null for none
+     * @param highInclusive Whether the upper bound itself matches
+     * @return The photos, each once
+     * @throws IllegalArgumentException If a bound is not a valid value of the name's type
+     */
+    public synchronized Set<Photo> range(String name, String low, boolean lowInclusive, String high, boolean highInclusive) {
+        ensureSchema();
+        Set<Photo> photos = newPhotoSet();
+        TagType type = schema.typeOf(name);
+        if (type != TagType.TEXT) {
+            double lowKey = boundKey(name, type, low);
+            double highKey = boundKey(name, type, high);
+            SortedPostings sorted = typed.get(TagSchema.fold(name));
+            if (sorted != null) {
+                sorted.range(lowKey, lowInclusive, highKey, highInclusive, photos);
+            }
+            return photos;
+        }
+
+        NavigableMap<Tag, Set<Photo>> named = postings.get(TagSchema.fold(name));
+        if (named == null) {
+            return photos;
+        }
+        NavigableMap<Tag, Set<Photo>> values = named;
+        if (low != null) {
+            values = values.tailMap(new Tag("", low), true);
+        }
+        if (high != null) {
+            values = values.headMap(new Tag("", high + Character.MAX_VALUE), false);
+        }
+        for (Map.Entry<Tag, Set<Photo>> entry : values.entrySet()) {
+            Tag tag = entry.getKey();
+            if (!tag.getName().equalsIgnoreCase(name)
+                    || (low != null && !lowInclusive && tag.getValue().equals(low))
+                    || (high != null && (highInclusive ? tag.getValue().compareTo(high) > 0 : tag.getValue().compareTo(high) >= 0))) {
+                continue;
+            }
+            photos.addAll(entry.getValue());
+        }
+        return photos;
+    }
+
+    /**
+     * Find the photos with a value of a tag matching a pattern, where * matches any run of
+     * characters and ? any single character. Names are compared ignoring case, values exactly.
+     * Only the values starting with the pattern's literal prefix are visited.
+     * @param name Tag name
+     * @param pattern Value pattern, e.g. "New*"
+     * @return The photos, each once
+     */
+    public synchronized Set<Photo> matching(String name, String pattern) {
+        Set<Photo> photos = newPhotoSet();
+        NavigableMap<Tag, Set<Photo>> named = postings.get(TagSchema.fold(name));
+        if (named == null) {
+            return photos;
+        }
+
+        int literal = 0;
+        while (literal < pattern.length() && pattern.charAt(literal) != '*' && pattern.charAt(literal) != '?') {
+            literal++;
+        }
+        String prefix = pattern.substring(0, literal);
+        Pattern regex = literal == pattern.length() ? null : wildcardRegex(pattern);
+        NavigableMap<Tag, Set<Photo>> candidates = named.subMap(new Tag("", prefix), true,
+                new Tag("", prefix + Character.MAX_VALUE), false);
+        for (Map.Entry<Tag, Set<Photo>> entry : candidates.entrySet()) {
+            Tag tag = entry.getKey();
+            if (tag.getName().equalsIgnoreCase(name)
+                    && (regex != null ? regex.matcher(tag.getValue()).matches() : tag.getValue().equals(pattern))) {
+                photos.addAll(entry.getValue());
+            }
+        }
+        return photos;
+    }
+
+    static Pattern wildcardRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                regex.append(Pattern.quote(pattern.substring(start, i))).append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        regex.append(Pattern.quote(pattern.substring(start)));
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private double boundKey(String name, TagType type, String bound) {
+        if (bound == null) {
+            return Double.NaN;
+        }
+        double key = schema.keyOf(name, bound);
+        if (Double.isNaN(key)) {
+            throw new IllegalArgumentException("'" + bound + "' is not a valid " + type.name().toLowerCase(Locale.ROOT)
+                    + " value for " + name);
+        }
+        return key;
+    }
+
+    /**
+     * Rebuilds the typed indexes if a tag type was declared or changed since they were built
+     */
+    private void ensureSchema() {
+        if (schemaVersion == schema.getVersion()) {
+            return;
+        }
+        schemaVersion = schema.getVersion();
+        typed.clear();
+        loading = true;
+        try {
+            for (NavigableMap<Tag, Set<Photo>> named : postings.values()) {
+                for (Map.Entry<Tag, Set<Photo>> entry : named.entrySet()) {
+                    for (Photo photo : entry.getValue()) {
+                        postTyped(entry.getKey(), photo);
+                    }
+                }
+            }
+        } finally {
+            loading = false;
+        }
+    }
+
+    /**
+     * Check whether a tag has a name and optionally a value
+     * @param tag The tag to check
+     * @param name Tag name
+     * @param value Tag value, or null for any value
+     * @param ignoreCase Whether name and value are compared ignoring case
+     * @return true if the tag matches
+     */
+    static boolean matches(Tag tag, String name, String value, boolean ignoreCase) {
+        if (ignoreCase) {
+            return tag.getName().equalsIgnoreCase(name) && (value == null || tag.getValue().equalsIgnoreCase(value));
+        }
+        return tag.getName().equals(name) && (value == null || tag.getValue().equals(value));
+    }
+
+    @Override
+    public synchronized void modelChanged(List<ModelChange> changes) {
+        ensureSchema();
+        for (ModelChange change : changes) {
+            if (change.getUser() != user) {
+                // Another user's library
+                continue;
+            }
+            switch (change.getType()) {
+                case PHOTO_ADDED:
+                    if (change.changesLibraryOf(user)) {
+                        addPhoto(change.getPhoto());
+                    }
+                    break;
+                case PHOTO_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        removePhoto(change.getPhoto());
+                    }
+                    break;
+                case ALBUM_REMOVED:
+                    if (change.changesLibraryOf(user)) {
+                        for (Photo photo : change.getAlbum().getPhotos()) {
+                            removePhoto(photo);
+                        }
+                    }
+                    break;
+                case TAG_ADDED:
+                    if (albumCounts.containsKey(change.getPhoto())) {
+                        post(change.getTag(), change.getPhoto());
+                    }
+                    break;
+                case TAG_REMOVED:
+                    if (albumCounts.containsKey(change.getPhoto())) {
+                        unpost(change.getTag(), change.getPhoto());
+                    }
+                    break;
+                default:
+                    // New albums are empty, and captions and album names are not indexed
+                    break;
+            }
+        }
+    }
+
+    private void addPhoto(Photo photo) {
+        // Tags are posted again even if the photo is known; postings are sets, so this is harmless
+        albumCounts.merge(photo, 1, Integer::sum);
+        for (Tag tag : photo.getTags()) {
+            post(tag, photo);
+        }
+    }
+
+    private void removePhoto(Photo photo) {
+        Integer count = albumCounts.get(photo);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            albumCounts.put(photo, count - 1);
+            return;
+        }
+        albumCounts.remove(photo);
+        for (Tag tag : photo.getTags()) {
+            unpost(tag, photo);
+        }
+    }
+
+    private void post(Tag tag, Photo photo) {
+        boolean added = postings.computeIfAbsent(TagSchema.fold(tag.getName()), name -> new TreeMap<>(BY_VALUE))
+                .computeIfAbsent(tag, t -> newPhotoSet())
+                .add(photo);
+        if (added) {
+            postTyped(tag, photo);
+        }
+    }
+
+    private void unpost(Tag tag, Photo photo) {
+        String name = TagSchema.fold(tag.getName());
+        NavigableMap<Tag, Set<Photo>> named = postings.get(name);
+        if (named == null) {
+            return;
+        }
+        Set<Photo> photos = named.get(tag);
+        if (photos != null && photos.remove(photo)) {
+            double key = schema.keyOf(tag.getName(), tag.getValue());
+            SortedPostings sorted = typed.get(name);
+            if (sorted != null && !Double.isNaN(key)) {
+                sorted.remove(key, photo);
+                if (sorted.isEmpty()) {
+                    typed.remove(name);
+                }
+            }
+            if (photos.isEmpty()) {
+                named.remove(tag);
+                if (named.isEmpty()) {
+                    postings.remove(name);
+                }
+            }
+        }
+    }
+
+    private void postTyped(Tag tag, Photo photo) {
+        double key = schema.keyOf(tag.getName(), tag.getValue());
+        if (!Double.isNaN(key)) {
+            SortedPostings sorted = typed.computeIfAbsent(TagSchema.fold(tag.getName()), name -> new SortedPostings());
+            if (loading) {
+                sorted.append(key, photo);
+            } else {
+                sorted.add(key, photo);
+            }
+        }
+    }
+
+    private static Set<Photo> newPhotoSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
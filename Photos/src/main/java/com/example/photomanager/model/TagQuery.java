@@ -0,0 +1,236 @@
+package com.example.photomanager.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tag query of one or more predicates combined left to right with AND or OR, e.g.
+ * {@code rating >= 4 AND iso between 100 and 400 OR location = New*}.
+ * Predicates are {@code name = value} (exact, or a pattern when the value contains * or ?),
+ * {@code name < value}, {@code <=}, {@code >}, {@code >=} and {@code name between low and high}.
+ * Comparisons use the declared {@link TagType} of the name, or string order for untyped names.
+ * Queries are answered from the user's {@link TagIndex} without scanning the library,
+ * or checked against a single photo with {@link #matches(Photo, TagSchema)}.
+ */
+public final class TagQuery {
+    private static final Pattern PREDICATE = Pattern.compile(
+            "\\s*([^\\s=<>]+)\\s*(?:(?i:between)\\s+(.+?)\\s+(?i:and)\\s+(.+?)|(>=|<=|=|>|<)\\s*(.+?))"
+                    + "\\s*(?:\\s(?i:(and|or))\\s|$)");
+
+    private final String text;
+    private final List<String[]> predicates = new ArrayList<>();
+    private final List<String> operators = new ArrayList<>();
+
+    private TagQuery(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parse a query
+     * @param text The query text
+     * @return The parsed query
+     * @throws IllegalArgumentException If the text is not a valid query
+     */
+    public static TagQuery parse(String text) {
+        TagQuery query = new TagQuery(text.trim());
+        Matcher matcher = PREDICATE.matcher(query.text);
+        int position = 0;
+        while (position < query.text.length()) {
+            if (!matcher.find(position) || matcher.start() != position) {
+                throw new IllegalArgumentException("Cannot understand '" + query.text.substring(position).trim()
+                        + "', expected e.g. rating >= 4 or iso between 100 and 400");
+            }
+            if (matcher.group(2) != null) {
+                query.predicates.add(new String[]{matcher.group(1), "between", matcher.group(2), matcher.group(3)});
+            } else {
+                query.predicates.add(new String[]{matcher.group(1), matcher.group(4), matcher.group(5)});
+            }
+            if (matcher.group(6) != null) {
+                query.operators.add(matcher.group(6).toUpperCase(Locale.ROOT));
+            } else if (matcher.end() < query.text.length()) {
+                throw new IllegalArgumentException("Expected AND or OR after '" + matcher.group().trim() + "'");
+            }
+            position = matcher.end();
+        }
+        if (query.predicates.isEmpty()) {
+            throw new IllegalArgumentException("The query is empty");
+        }
+        String[] last = query.predicates.get(query.predicates.size() - 1);
+        if (last[last.length - 1].matches("(?is).*\\s(and|or)")) {
+            throw new IllegalArgumentException("The query ends with AND or OR");
+        }
+        return query;
+    }
+
+    /**
+     * Evaluate the query over a user's tag index. The index is locked for the whole evaluation,
+     * so every predicate sees the same state of it, and the caller need not hold the model lock.
+     * @param index The index to query
+     * @return The matching photos, each once
+     * @throws IllegalArgumentException If a value is not valid for the declared type of its tag name
+     */
+    public Set<Photo> evaluate(TagIndex index) {
+        synchronized (index) {
+            Set<Photo> results = evaluate(index, predicates.get(0));
+            for (int i = 1; i < predicates.size(); i++) {
+                Set<Photo> next = evaluate(index, predicates.get(i));
+                if (PhotoSearch.AND.equals(operators.get(i - 1))) {
+                    results.retainAll(next);
+                } else {
+                    results.addAll(next);
+                }
+            }
+            return results;
+        }
+    }
+
+    private static Set<Photo> evaluate(TagIndex index, String[] predicate) {
+        String name = predicate[0];
+        String value = predicate[2];
+        switch (predicate[1]) {
+            case "between":
+                return index.range(name, value, true, predicate[3], true);
+            case ">=":
+                return index.range(name, value, true, null, false);
+            case ">":
+                return index.range(name, value, false, null, false);
+            case "<=":
+                return index.range(name, null, false, value, true);
+            case "<":
+                return index.range(name, null, false, value, false);
+            default:
+                if (value.indexOf('*') >= 0 || value.indexOf('?') >= 0) {
+                    return index.matching(name, value);
+                }
+                Set<Photo> exact = Collections.newSetFromMap(new IdentityHashMap<>());
+                exact.addAll(index.photosWith(new Tag(name, value)));
+                return exact;
+        }
+    }
+
+    /**
+     * Get the query in canonical form, with single spaces and upper case operators,
+     * so equivalent spellings of the same query compare equal
+     * @return The canonical text
+     */
+    public String normalized() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < predicates.size(); i++) {
+            String[] predicate = predicates.get(i);
+            if (i > 0) {
+                text.append(' ').append(operators.get(i - 1)).append(' ');
+            }
+            text.append(predicate[0]).append(' ').append(predicate[1].toUpperCase(Locale.ROOT)).append(' ').append(predicate[2]);
+            if (predicate.length > 3) {
+                text.append(" AND ").append(predicate[3]);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Get the tag names the query reads, case-folded
+     * @return The names
+     */
+    public Set<String> tagNames() {
+        Set<String> names = new HashSet<>();
+        for (String[] predicate : predicates) {
+            names.add(TagSchema.fold(predicate[0]));
+        }
+        return names;
+    }
+
+    /**
+     * Check whether a photo's current tags satisfy the query, e.g. to keep a stored result current after an edit
+     * @param photo The photo to check
+     * @param schema The declared tag types
+     * @return true if the photo matches
+     * @throws IllegalArgumentException If a value is not valid for the declared type of its tag name
+     */
+    boolean matches(Photo photo, TagSchema schema) {
+        List<Tag> tags = photo.getTags();
+        boolean result = matches(tags, predicates.get(0), schema);
+        for (int i = 1; i < predicates.size(); i++) {
+            boolean next = matches(tags, predicates.get(i), schema);
+            result = PhotoSearch.AND.equals(operators.get(i - 1)) ? result && next : result || next;
+        }
+        return result;
+    }
+
+    private static boolean matches(List<Tag> tags, String[] predicate, TagSchema schema) {
+        String name = predicate[0];
+        String value = predicate[2];
+        String operator = predicate[1];
+        if (operator.equals("=")) {
+            if (value.indexOf('*') < 0 && value.indexOf('?') < 0) {
+                return tags.contains(new Tag(name, value));
+            }
+            Pattern regex = TagIndex.wildcardRegex(value);
+            for (Tag tag : tags) {
+                if (tag.getName().equalsIgnoreCase(name) && regex.matcher(tag.getValue()).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Same bounds as the index lookups in evaluate(TagIndex, String[])
+        String low = operator.equals("between") || operator.startsWith(">") ? value : null;
+        String high = operator.equals("between") ? predicate[3] : operator.startsWith("<") ? value : null;
+        boolean lowInclusive = !operator.equals(">");
+        boolean highInclusive = !operator.equals("<");
+        TagType type = schema.typeOf(name);
+        double lowKey = type == TagType.TEXT ? Double.NaN : boundKey(schema, name, type, low);
+        double highKey = type == TagType.TEXT ? Double.NaN : boundKey(schema, name, type, high);
+        for (Tag tag : tags) {
+            if (!tag.getName().equalsIgnoreCase(name)) {
+                continue;
+            }
+            if (type == TagType.TEXT) {
+                if ((low == null || compare(tag.getValue().compareTo(low), lowInclusive, true))
+                        && (high == null || compare(tag.getValue().compareTo(high), highInclusive, false))) {
+                    return true;
+                }
+                continue;
+            }
+            double key = schema.keyOf(name, tag.getValue());
+            if (!Double.isNaN(key)
+                    && (low == null || compare(Double.compare(key, lowKey), lowInclusive, true))
+                    && (high == null || compare(Double.compare(key, highKey), highInclusive, false))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean compare(int comparison, boolean inclusive, boolean lowerBound) {
+        if (comparison == 0) {
+            return inclusive;
+        }
+        return lowerBound ? comparison > 0 : comparison < 0;
+    }
+
+    private static double boundKey(TagSchema schema, String name, TagType type, String bound) {
+        if (bound == null) {
+            return Double.NaN;
+        }
+        double key = schema.keyOf(name, bound);
+        if (Double.isNaN(key)) {
+            throw new IllegalArgumentException("'" + bound + "' is not a valid " + type.name().toLowerCase(Locale.ROOT)
+                    + " value for " + name);
+        }
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.photomanager.model;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Renames or merges a tag name or value across all photos of a user, e.g. to fold
+ * {@code location=NYC} and {@code Location=nyc} into {@code location=New York}.
+ * The photos to rewrite are found through the user's {@link TagIndex}, and every rewritten
+ * photo shares one canonical Tag instance per resulting tag.
+ */
+public final class TagRewrite {
+    private final String name;
+    private final String value;
+    private final String newName;
+    private final String newValue;
+    private final boolean ignoreCase;
+
+    /**
+     * Constructor
+     * @param name Name of the tags to rewrite
+     * @param value Value of the tags to rewrite, or null for every value
+     * @param newName New tag name, or null to keep the name
+     * @param newValue New tag value, or null to keep the value
+     * @param ignoreCase Whether name and value are matched ignoring case
+     */
+    public TagRewrite(String name, String value, String newName, String newValue, boolean ignoreCase) {
+        this.name = name;
+        this.value = value;
+        this.newName = newName;
+        this.newValue = newValue;
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Count the photos the rewrite would change, without changing them
+     * @param user The user whose photos are rewritten
+     * @return Number of photos that would change
+     * @throws IllegalArgumentException If a rewritten value would not fit the type declared for its tag name
+     */
+    public int preview(User user) {
+        return targets(user).size();
+    }
+
+    /**
+     * Rewrite the tags as one transaction. The caller saves once afterwards.
+     * Nothing is changed if any rewritten value would not fit the type declared for its tag name.
+     * @param user The user whose photos are rewritten
+     * @return Number of photos changed
+     * @throws IllegalArgumentException If a rewritten value would not fit the type declared for its tag name
+     */
+    public int apply(User user) {
+        Map<Photo, Map<Tag, Tag>> targets = targets(user);
+        ModelChanges.inTransaction(() -> {
+            for (Map.Entry<Photo, Map<Tag, Tag>> entry : targets.entrySet()) {
+                for (Map.Entry<Tag, Tag> rewrite : entry.getValue().entrySet()) {
+                    entry.getKey().replaceTag(rewrite.getKey(), rewrite.getValue());
+                }
+            }
+        });
+        return targets.size();
+    }
+
+    /**
+     * Find the photos to change and, per photo, each matching tag with its replacement.
+     * Replacements are checked against the schema here, before any photo changes.
+     */
+    private Map<Photo, Map<Tag, Tag>> targets(User user) {
+        Map<Photo, Map<Tag, Tag>> targets = new IdentityHashMap<>();
+        Map<Tag, Tag> canonical = new HashMap<>();
+        TagSchema schema = TagSchema.getDefault();
+        TagIndex index = user.getTagIndex();
+        for (Tag tag : index.find(name, value, ignoreCase).keySet()) {
+            Tag rewritten = new Tag(newName != null ? newName : tag.getName(), newValue != null ? newValue : tag.getValue());
+            if (rewritten.equals(tag)) {
+                continue;
+            }
+            schema.requireAccepted(rewritten.getName(), rewritten.getValue());
+            Tag shared = canonical.computeIfAbsent(rewritten, t -> t);
+            for (Photo photo : index.photosWith(tag)) {
+                targets.computeIfAbsent(photo, p -> new HashMap<>()).put(tag, shared);
+            }
+        }
+        return targets;
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + (value != null ? value : "*") + " -> "
+                + (newName != null ? newName : name) + "=" + (newValue != null ? newValue : "*")
+                + (ignoreCase ? " (ignoring case)" : "");
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.photomanager.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Declared value types of tag names, shared by all users.
+ * Names are case-insensitive. Undeclared names are {@link TagType#TEXT}.
+ * The default schema is kept in ~/.photoManager/tagtypes.properties as lines of the form
+ * {@code rating=NUMBER} or {@code quality=ENUM:low,medium,high}. All methods are thread-safe.
+ */
+public final class TagSchema {
+    private static TagSchema defaultSchema;
+
+    private static final class Declaration {
+        final TagType type;
+        final List<String> enumValues;
+
+        Declaration(TagType type, List<String> enumValues) {
+            this.type = type;
+            this.enumValues = Collections.unmodifiableList(new ArrayList<>(enumValues));
+        }
+    }
+
+    private final Path file;
+    private final Map<String, Declaration> declarations = new TreeMap<>();
+    private volatile long version;
+
+    /**
+     * Constructor
+     * @param file File the schema is loaded from and saved to, or null to keep it in memory only
+     */
+    public TagSchema(Path file) {
+        this.file = file;
+        if (file != null) {
+            load();
+        }
+    }
+
+    /**
+     * Gets the schema stored in the storage directory, loading it on first use
+     * @return The default schema
+     */
+    public static synchronized TagSchema getDefault() {
+        if (defaultSchema == null) {
+            defaultSchema = new TagSchema(StorageManager.getStorageDirectory().toPath().resolve("tagtypes.properties"));
+        }
+        return defaultSchema;
+    }
+
+    /**
+     * Declare the type of a tag name, replacing any earlier declaration
+     * @param name The tag name
+     * @param type The value type; TEXT removes the declaration
+     * @param enumValues The allowed values in sort order, for ENUM; ignored otherwise
+     */
+    public synchronized void declare(String name, TagType type, List<String> enumValues) {
+        if (type == TagType.ENUM && enumValues.isEmpty()) {
+            throw new IllegalArgumentException("An enum tag needs at least one value");
+        }
+        if (type == TagType.TEXT) {
+            declarations.remove(fold(name));
+        } else {
+            declarations.put(fold(name), new Declaration(type, type == TagType.ENUM ? enumValues : List.of()));
+        }
+        version++;
+        save();
+    }
+
+    /**
+     * Get the declared type of a tag name
+     * @param name The tag name
+     * @return The type, TEXT if none was declared
+     */
+    public synchronized TagType typeOf(String name) {
+        Declaration declaration = declarations.get(fold(name));
+        return declaration != null ? declaration.type : TagType.TEXT;
+    }
+
+    /**
+     * Get the allowed values of an ENUM tag name
+     * @param name The tag name
+     * @return The values in sort order, empty for other types
+     */
+    public synchronized List<String> enumValues(String name) {
+        Declaration declaration = declarations.get(fold(name));
+        return declaration != null ? declaration.enumValues : List.of();
+    }
+
+    /**
+     * Get the sort key of a value of a typed tag name
+     * @param name The tag name
+     * @param value The tag value
+     * @return The key, or NaN if the name is not typed or the value is not valid for its type
+     */
+    public synchronized double keyOf(String name, String value) {
+        Declaration declaration = declarations.get(fold(name));
+        return declaration != null ? declaration.type.key(value, declaration.enumValues) : Double.NaN;
+    }
+
+    /**
+     * Check whether a value is valid for the declared type of a tag name
+     * @param name The tag name
+     * @param value The tag value
+     * @return true if the name is untyped or the value is valid for its type
+     */
+    public synchronized boolean accepts(String name, String value) {
+        return typeOf(name) == TagType.TEXT || !Double.isNaN(keyOf(name, value));
+    }
+
+    /**
+     * Check that a value is valid for the declared type of a tag name
+     * @param name The tag name
+     * @param value The tag value
+     * @throws IllegalArgumentException If it is not, with a message saying what the values must be
+     */
+    public synchronized void requireAccepted(String name, String value) {
+        if (accepts(name, value)) {
+            return;
+        }
+        TagType type = typeOf(name);
+        throw new IllegalArgumentException(name + " values must be "
+                + (type == TagType.ENUM ? "one of " + String.join(", ", enumValues(name))
+                : type == TagType.DATE ? "dates like 2024-07-31" : "numbers"));
+    }
+
+    /**
+     * Gets a number that changes whenever a declaration changes, so indexes know when to rebuild
+     * @return The schema version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private void load() {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        for (String name : properties.stringPropertyNames()) {
+            String[] spec = properties.getProperty(name).split(":", 2);
+            try {
+                TagType type = TagType.valueOf(spec[0].trim().toUpperCase(Locale.ROOT));
+                List<String> values = spec.length > 1 ? Arrays.asList(spec[1].split("\\s*,\\s*")) : List.of();
+                declarations.put(fold(name), new Declaration(type, values));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring invalid tag type for " + name + ": " + properties.getProperty(name));
+            }
+        }
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        for (Map.Entry<String, Declaration> entry : declarations.entrySet()) {
+            Declaration declaration = entry.getValue();
+            properties.setProperty(entry.getKey(), declaration.type == TagType.ENUM
+                    ? declaration.type + ":" + String.join(",", declaration.enumValues)
+                    : declaration.type.name());
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Photo Manager tag types");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Fold a tag name for lookups that ignore case and surrounding spaces.
+     * Every index keyed by tag name uses this, so they agree on which names are the same.
+     * @param name Tag name
+     * @return The folded name
+     */
+    static String fold(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
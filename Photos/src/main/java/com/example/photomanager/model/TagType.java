@@ -0,0 +1,55 @@
+package com.example.photomanager.model;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Type a tag name can declare for its values in the {@link TagSchema}.
+ * Values of typed tags are still stored as strings; the type defines how they are
+ * validated and ordered, so that range queries can use a sorted numeric index.
+ */
+public enum TagType {
+    /** Free text, ordered as strings; the default for undeclared names */
+    TEXT,
+    /** Decimal numbers, e.g. rating=4 or iso=400 */
+    NUMBER,
+    /** Calendar dates in the form yyyy-MM-dd */
+    DATE,
+    /** One of a declared list of values, ordered as declared, e.g. low, medium, high */
+    ENUM;
+
+    /**
+     * Convert a value to its sort key
+     * @param value The tag value
+     * @param enumValues Declared values of an ENUM name, ignored otherwise
+     * @return The sort key, or NaN if the value is not valid for this type or the type is TEXT
+     */
+    double key(String value, List<String> enumValues) {
+        String trimmed = value.trim();
+        switch (this) {
+            case NUMBER:
+                try {
+                    double number = Double.parseDouble(trimmed);
+                    return Double.isFinite(number) ? number : Double.NaN;
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            case DATE:
+                try {
+                    return LocalDate.parse(trimmed).toEpochDay();
+                } catch (DateTimeParseException e) {
+                    return Double.NaN;
+                }
+            case ENUM:
+                for (int i = 0; i < enumValues.size(); i++) {
+                    if (enumValues.get(i).equalsIgnoreCase(trimmed)) {
+                        return i;
+                    }
+                }
+                return Double.NaN;
+            default:
+                return Double.NaN;
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.photomanager.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 
 /**
  * User class representing a user in the system
@@ -15,6 +20,20 @@ public class User implements Serializable {
     private String password;
     private boolean isAdmin;
     private List<Album> albums;
+    // Null in users stored before smart albums existed
+    private List<SmartAlbum> smartAlbums;
+    private transient LibrarySnapshot snapshot;
+    // Set by every change published for the user, so snapshot() only walks the albums of edited users
+    private transient boolean modified;
+    private transient TagIndex tagIndex;
+    private transient FacetIndex facetIndex;
+    private transient GeoIndex geoIndex;
+    private transient SimilarityIndex similarityIndex;
+    private transient TagCooccurrence tagCooccurrence;
+    private transient SmartAlbumIndex smartAlbumIndex;
+    private transient QueryCache queryCache;
+    // Listeners following only this user's changes, such as its indexes
+    private transient List<ModelChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor
@@ -32,6 +51,57 @@ public class User implements Serializable {
         if (!isAdmin) {
             albums.add(new Album("Default Album"));
         }
+        adoptAlbums();
+    }
+
+    /**
+     * Constructor used to rebuild a user from a snapshot
+     * @param username Username
+     * @param password Password
+     * @param isAdmin Whether the user is an administrator
+     * @param albums Albums of the user
+     * @param smartAlbums Smart albums of the user, not yet filled
+     */
+    User(String username, String password, boolean isAdmin, List<Album> albums, List<SmartAlbum> smartAlbums) {
+        this.username = username;
+        this.password = password;
+        this.isAdmin = isAdmin;
+        this.albums = new ArrayList<>(albums);
+        this.smartAlbums = new ArrayList<>(smartAlbums);
+        adoptAlbums();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        listeners = new CopyOnWriteArrayList<>();
+        adoptAlbums();
+    }
+
+    /**
+     * Get the listeners subscribed to this user's changes
+     * @return The mutable, thread-safe list
+     */
+    List<ModelChangeListener> listeners() {
+        return listeners;
+    }
+
+    /**
+     * Marks the cached snapshot as possibly out of date. Called for every change published for the user.
+     */
+    void markModified() {
+        modified = true;
+    }
+
+    /**
+     * Marks the albums and their photos as this user's, so their changes name this user
+     */
+    private void adoptAlbums() {
+        for (Album album : albums) {
+            album.setOwner(this);
+        }
+        for (SmartAlbum album : smartAlbums()) {
+            album.setOwner(this);
+        }
     }
 
     // Getters and Setters
@@ -45,6 +115,7 @@ public class User implements Serializable {
 
     public void setPassword(String password) {
         this.password = password;
+        modified = true;
     }
 
     public boolean isAdmin() {
@@ -61,13 +132,13 @@ public class User implements Serializable {
      * @return The created album, or null if the name already exists
      */
     public Album createAlbum(String albumName) {
-        for (Album album : albums) {
-            if (album.getName().equals(albumName)) {
-                return null; // Name already exists
-            }
+        if (findAlbum(albumName) != null || findSmartAlbum(albumName) != null) {
+            return null; // Name already exists
         }
         Album newAlbum = new Album(albumName);
+        newAlbum.setOwner(this);
         albums.add(newAlbum);
+        ModelChanges.publish(ModelChange.albumAdded(this, newAlbum, albums.size() - 1));
         return newAlbum;
     }
 
@@ -77,7 +148,14 @@ public class User implements Serializable {
      * @return Whether the deletion was successful
      */
     public boolean deleteAlbum(Album album) {
-        return albums.remove(album);
+        int index = albums.indexOf(album);
+        if (index < 0) {
+            return false;
+        }
+        Album removed = albums.remove(index);
+        removed.setOwner(null);
+        ModelChanges.publish(ModelChange.albumRemoved(this, removed, index));
+        return true;
     }
 
     /**
@@ -94,6 +172,84 @@ public class User implements Serializable {
         return null;
     }
 
+    /**
+     * Get the user's smart albums, filling them on first use.
+     * Their photos then follow all edits of the user's albums and photos.
+     * @return The smart albums in creation order
+     */
+    public List<SmartAlbum> getSmartAlbums() {
+        synchronized (this) {
+            if (smartAlbumIndex == null) {
+                smartAlbumIndex = new SmartAlbumIndex(this, TagSchema.getDefault());
+            }
+        }
+        return Collections.unmodifiableList(smartAlbums());
+    }
+
+    /**
+     * Create a smart album holding the photos that match a tag query and date range
+     * @param albumName Name of the album
+     * @param query Tag query, see {@link TagQuery}, or empty for any tags
+     * @param startDate Earliest capture date, or null for none
+     * @param endDate Latest capture date, or null for none
+     * @return The created album, filled with the matching photos, or null if the name already exists
+     * @throws IllegalArgumentException If the query is not valid
+     */
+    public SmartAlbum createSmartAlbum(String albumName, String query, Date startDate, Date endDate) {
+        if (findAlbum(albumName) != null || findSmartAlbum(albumName) != null) {
+            return null;
+        }
+        SmartAlbum album = new SmartAlbum(albumName, query, startDate, endDate);
+        album.setOwner(this);
+        getSmartAlbums();
+        smartAlbums().add(album);
+        // Smart albums are listed after the regular ones
+        ModelChanges.publish(ModelChange.albumAdded(this, album, albums.size() + smartAlbums().size() - 1));
+        smartAlbumIndex.fill(album);
+        return album;
+    }
+
+    /**
+     * Delete a smart album; the photos in it are not affected
+     * @param album The album to delete
+     * @return Whether the deletion was successful
+     */
+    public boolean deleteSmartAlbum(SmartAlbum album) {
+        int index = smartAlbums().indexOf(album);
+        if (index < 0) {
+            return false;
+        }
+        SmartAlbum removed = smartAlbums().remove(index);
+        removed.setOwner(null);
+        ModelChanges.publish(ModelChange.albumRemoved(this, removed, albums.size() + index));
+        return true;
+    }
+
+    /**
+     * Find a smart album by name
+     * @param albumName Name of the album to find
+     * @return The found album, or null if not found
+     */
+    public SmartAlbum findSmartAlbum(String albumName) {
+        for (SmartAlbum album : smartAlbums()) {
+            if (album.getName().equals(albumName)) {
+                return album;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the smart album list without filling the albums
+     * @return The mutable list
+     */
+    List<SmartAlbum> smartAlbums() {
+        if (smartAlbums == null) {
+            smartAlbums = new ArrayList<>();
+        }
+        return smartAlbums;
+    }
+
     /**
      * Get all unique photos of the user
      * @return List of unique photos
@@ -110,6 +266,188 @@ public class User implements Serializable {
         return allPhotos;
     }
 
+    /**
+     * Take over the state of another instance of the same user, e.g. one freshly
+     * reloaded from storage, so existing references to this user stay valid.
+     * @param other The user to copy the state from
+     */
+    void replaceWith(User other) {
+        for (Album album : albums) {
+            album.setOwner(null);
+        }
+        for (SmartAlbum album : smartAlbums()) {
+            album.setOwner(null);
+        }
+        this.password = other.password;
+        this.isAdmin = other.isAdmin;
+        this.albums = other.albums;
+        this.smartAlbums = other.smartAlbums;
+        this.snapshot = other.snapshot;
+        modified = true;
+        adoptAlbums();
+        if (tagIndex != null) {
+            tagIndex.rebuild();
+        }
+        if (facetIndex != null) {
+            facetIndex.rebuild();
+        }
+        if (geoIndex != null) {
+            geoIndex.rebuild();
+        }
+        if (similarityIndex != null) {
+            similarityIndex.rebuild();
+        }
+        if (tagCooccurrence != null) {
+            tagCooccurrence.rebuild();
+        }
+        if (smartAlbumIndex != null) {
+            smartAlbumIndex.rebuild();
+        }
+        if (queryCache != null) {
+            queryCache.clear();
+        }
+        // Views still hold the replaced albums
+        ModelChanges.publish(ModelChange.userReloaded(this));
+    }
+
+    /**
+     * Get the tag index of the user's photos, building it on first use.
+     * The index then follows all edits of the user's albums and photos.
+     * @return The user's tag index
+     */
+    public synchronized TagIndex getTagIndex() {
+        if (tagIndex == null) {
+            tagIndex = new TagIndex(this, TagSchema.getDefault());
+        }
+        return tagIndex;
+    }
+
+    /**
+     * Get the facet counts of the user's photos, counting them on first use.
+     * The counts then follow all edits of the user's albums and photos.
+     * @return The user's facet index
+     */
+    public synchronized FacetIndex getFacetIndex() {
+        if (facetIndex == null) {
+            facetIndex = new FacetIndex(this);
+        }
+        return facetIndex;
+    }
+
+    /**
+     * Get the spatial index of the user's geotagged photos, building it on first use.
+     * The index then follows all edits of the user's albums and photos.
+     * @return The user's spatial index
+     */
+    public synchronized GeoIndex getGeoIndex() {
+        if (geoIndex == null) {
+            geoIndex = new GeoIndex(this, Gazetteer.getDefault());
+        }
+        return geoIndex;
+    }
+
+    /**
+     * Get the index of how the user's photos look, starting to analyse them in the background on first use.
+     * The index then follows photos entering and leaving the user's albums.
+     * @param extractor Computes the feature vector of a photo file, or returns null if it cannot be read;
+     *                  only used by the call that creates the index
+     * @param dimensions Length of the feature vectors
+     * @return The user's similarity index
+     */
+    public synchronized SimilarityIndex getSimilarityIndex(Function<String, float[]> extractor, int dimensions) {
+        if (similarityIndex == null) {
+            similarityIndex = new SimilarityIndex(this, extractor, dimensions);
+        }
+        return similarityIndex;
+    }
+
+    /**
+     * Get the tag co-occurrence counts of the user's photos, counting them on first use.
+     * The counts then follow all edits of the user's albums and photos.
+     * @return The user's tag co-occurrence counts
+     */
+    public synchronized TagCooccurrence getTagCooccurrence() {
+        if (tagCooccurrence == null) {
+            tagCooccurrence = new TagCooccurrence(this);
+        }
+        return tagCooccurrence;
+    }
+
+    /**
+     * Get the cache of the user's search results, creating it on first use
+     * @return The user's query cache
+     */
+    public synchronized QueryCache getQueryCache() {
+        if (queryCache == null) {
+            queryCache = new QueryCache(this, TagSchema.getDefault());
+        }
+        return queryCache;
+    }
+
+    /**
+     * Drop the tag, facet, spatial, similarity, co-occurrence and smart album indexes and the query cache, e.g. when the user is deleted,
+     * so they stop following edits
+     */
+    synchronized void discardIndexes() {
+        if (tagIndex != null) {
+            tagIndex.close();
+            tagIndex = null;
+        }
+        if (facetIndex != null) {
+            facetIndex.close();
+            facetIndex = null;
+        }
+        if (geoIndex != null) {
+            geoIndex.close();
+            geoIndex = null;
+        }
+        if (similarityIndex != null) {
+            similarityIndex.close();
+            similarityIndex = null;
+        }
+        if (tagCooccurrence != null) {
+            tagCooccurrence.close();
+            tagCooccurrence = null;
+        }
+        if (smartAlbumIndex != null) {
+            smartAlbumIndex.close();
+            smartAlbumIndex = null;
+        }
+        if (queryCache != null) {
+            queryCache.close();
+            queryCache = null;
+        }
+    }
+
+    /**
+     * Get an immutable snapshot of the user's library.
+     * Must be called on the thread that edits the model; the returned snapshot
+     * can then be read from any thread. Unchanged albums and photos are shared
+     * with the previous snapshot, and the version only advances when something changed.
+     * A user without changes since the last snapshot gets it back without a walk over the albums.
+     * @return Snapshot of this user's library
+     */
+    public LibrarySnapshot snapshot() {
+        if (snapshot != null && !modified) {
+            return snapshot;
+        }
+        modified = false;
+        List<AlbumSnapshot> current = new ArrayList<>(albums.size());
+        for (Album album : albums) {
+            current.add(album.snapshot());
+        }
+        // Smart albums are stored by definition only; their photos follow from the albums above
+        List<SmartAlbum.Definition> definitions = new ArrayList<>(smartAlbums().size());
+        for (SmartAlbum album : smartAlbums()) {
+            definitions.add(album.definition());
+        }
+        if (snapshot == null || !snapshot.matches(password, current, definitions)) {
+            long version = snapshot == null ? 1 : snapshot.getVersion() + 1;
+            snapshot = new LibrarySnapshot(username, password, isAdmin, version, current, definitions);
+        }
+        return snapshot;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
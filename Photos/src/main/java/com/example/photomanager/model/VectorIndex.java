@@ -0,0 +1,376 @@
+package com.example.photomanager.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Approximate nearest-neighbour index over vectors of a fixed length, by squared Euclidean distance:
+ * a hierarchical navigable small world graph (HNSW). Each vector is a node linked to its near neighbours
+ * on layer 0 and, with geometrically falling probability, on sparser layers above; a search descends
+ * greedily through the sparse layers and then explores the neighbourhood on layer 0, visiting a few
+ * hundred nodes whatever the number of vectors.
+ * Vectors are stored back to back in one float array and neighbour lists in int arrays, so searches run
+ * over primitive arrays only. Search candidates are longs packing a distance and a node, ordered by both.
+ * Removed nodes stay in the graph as waypoints but are left out of results.
+ * Not thread-safe; {@link SimilarityIndex} serializes access.
+ */
+final class VectorIndex {
+    private final int dimensions;
+    // Neighbours kept per node on the upper layers; layer 0 keeps twice as many
+    private final int maxNeighbours;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final Random random;
+
+    private float[] vectors;
+    // links[node][layer] holds the neighbour count followed by the neighbours
+    private int[][][] links;
+    private boolean[] deleted;
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int topLayer = -1;
+    // A node was visited by the current search if its mark equals the search's stamp
+    private int[] visited;
+    private int stamp;
+
+    /**
+     * Constructor
+     * @param dimensions Length of the vectors
+     * @param maxNeighbours Neighbours kept per node, usually 8 to 32; more gives better recall at higher cost
+     * @param efConstruction Candidates considered when linking a new node, usually 100 to 200
+     * @param seed Seed for drawing node layers
+     */
+    VectorIndex(int dimensions, int maxNeighbours, int efConstruction, long seed) {
+        this.dimensions = dimensions;
+        this.maxNeighbours = maxNeighbours;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(maxNeighbours);
+        this.random = new Random(seed);
+        vectors = new float[16 * dimensions];
+        links = new int[16][][];
+        deleted = new boolean[16];
+        visited = new int[16];
+    }
+
+    /**
+     * Get the number of nodes, including removed ones
+     * @return The number of nodes added
+     */
+    int size() {
+        return size;
+    }
+
+    int deletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * Add a vector
+     * @param vector The vector, copied
+     * @return Its node number; nodes are numbered from 0 in the order they are added
+     */
+    int add(float[] vector) {
+        if (size == deleted.length) {
+            int capacity = size * 2;
+            vectors = Arrays.copyOf(vectors, capacity * dimensions);
+            links = Arrays.copyOf(links, capacity);
+            deleted = Arrays.copyOf(deleted, capacity);
+            visited = Arrays.copyOf(visited, capacity);
+        }
+        int node = size++;
+        System.arraycopy(vector, 0, vectors, node * dimensions, dimensions);
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+        links[node] = new int[level + 1][];
+        for (int layer = 0; layer <= level; layer++) {
+            links[node][layer] = new int[1 + capacity(layer)];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLayer = level;
+            return node;
+        }
+
+        int current = descend(vector, level);
+        for (int layer = Math.min(level, topLayer); layer >= 0; layer--) {
+            long[] candidates = searchLayer(vector, current, efConstruction, layer, false);
+            int[] chosen = selectNeighbours(candidates, maxNeighbours);
+            int[] own = links[node][layer];
+            own[0] = chosen.length;
+            System.arraycopy(chosen, 0, own, 1, chosen.length);
+            for (int neighbour : chosen) {
+                connect(neighbour, node, layer);
+            }
+            current = nodeOf(candidates[0]);
+        }
+        if (level > topLayer) {
+            topLayer = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * Leave a node out of all later results
+     * @param node The node number
+     */
+    void remove(int node) {
+        if (!deleted[node]) {
+            deleted[node] = true;
+            deletedCount++;
+        }
+    }
+
+    /**
+     * Get a copy of a node's vector
+     * @param node The node number
+     * @return The vector
+     */
+    float[] vector(int node) {
+        return Arrays.copyOfRange(vectors, node * dimensions, (node + 1) * dimensions);
+    }
+
+    /**
+     * Find the nodes nearest to a vector, approximately
+     * @param query The vector to search around
+     * @param count Maximum number of nodes
+     * @param ef Candidates explored on layer 0, at least count; more gives better recall at higher cost
+     * @return Up to count results nearest first, to be unpacked with {@link #nodeOf} and {@link #distanceOf}
+     */
+    long[] search(float[] query, int count, int ef) {
+        if (entryPoint < 0 || deletedCount == size) {
+            return new long[0];
+        }
+        long[] found = searchLayer(query, descend(query, 0), Math.max(ef, count), 0, true);
+        return found.length > count ? Arrays.copyOf(found, count) : found;
+    }
+
+    static int nodeOf(long result) {
+        return (int) result;
+    }
+
+    static float distanceOf(long result) {
+        return Float.intBitsToFloat((int) (result >>> 32));
+    }
+
+    private static long pack(float distance, int node) {
+        // Bit patterns of non-negative floats order like the floats themselves
+        return ((long) Float.floatToRawIntBits(distance) << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    private int capacity(int layer) {
+        return layer == 0 ? 2 * maxNeighbours : maxNeighbours;
+    }
+
+    /**
+     * Greedy walk from the entry point down to just above a layer, moving to the nearest neighbour while one is nearer
+     * @return The node reached
+     */
+    private int descend(float[] query, int level) {
+        int current = entryPoint;
+        float currentDistance = distance(query, 0, current);
+        for (int layer = topLayer; layer > level; layer--) {
+            boolean moved = true;
+            while (moved) {
+                moved = false;
+                int[] neighbours = links[current][layer];
+                for (int i = 1; i <= neighbours[0]; i++) {
+                    float distance = distance(query, 0, neighbours[i]);
+                    if (distance < currentDistance) {
+                        currentDistance = distance;
+                        current = neighbours[i];
+                        moved = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer from an entry node
+     * @param liveOnly Whether removed nodes are left out of the results; they are still walked through
+     * @return Up to ef nodes nearest first, packed with their distances
+     */
+    private long[] searchLayer(float[] query, int entry, int ef, int layer, boolean liveOnly) {
+        if (++stamp == 0) {
+            Arrays.fill(visited, 0);
+            stamp = 1;
+        }
+        LongHeap candidates = new LongHeap(false);
+        LongHeap results = new LongHeap(true);
+        long start = pack(distance(query, 0, entry), entry);
+        visited[entry] = stamp;
+        candidates.push(start);
+        if (!liveOnly || !deleted[entry]) {
+            results.push(start);
+        }
+
+        while (candidates.size() > 0) {
+            long candidate = candidates.pop();
+            if (results.size() >= ef && candidate > results.peek()) {
+                break;
+            }
+            int[] neighbours = links[nodeOf(candidate)][layer];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited[neighbour] == stamp) {
+                    continue;
+                }
+                visited[neighbour] = stamp;
+                long next = pack(distance(query, 0, neighbour), neighbour);
+                if (results.size() < ef || next < results.peek()) {
+                    candidates.push(next);
+                    if (!liveOnly || !deleted[neighbour]) {
+                        results.push(next);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results.sortedAscending();
+    }
+
+    /**
+     * Picks neighbours from candidates, nearest first, skipping any that is nearer to an already picked
+     * neighbour than to the node itself, so links point in different directions instead of into one cluster
+     * @param candidates Candidates nearest first, packed with their distances to the node
+     * @param max Maximum number of neighbours
+     */
+    private int[] selectNeighbours(long[] candidates, int max) {
+        int[] chosen = new int[Math.min(max, candidates.length)];
+        int count = 0;
+        for (int i = 0; i < candidates.length && count < chosen.length; i++) {
+            int candidate = nodeOf(candidates[i]);
+            float distance = distanceOf(candidates[i]);
+            boolean diverse = true;
+            for (int j = 0; j < count && diverse; j++) {
+                diverse = distance(vectors, candidate * dimensions, chosen[j]) >= distance;
+            }
+            if (diverse) {
+                chosen[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(chosen, count);
+    }
+
+    /**
+     * Links a node back from one of its new neighbours, pruning the neighbour's list if it is full
+     */
+    private void connect(int neighbour, int node, int layer) {
+        int[] list = links[neighbour][layer];
+        if (list[0] < capacity(layer)) {
+            list[++list[0]] = node;
+            return;
+        }
+        long[] candidates = new long[list[0] + 1];
+        int offset = neighbour * dimensions;
+        for (int i = 1; i <= list[0]; i++) {
+            candidates[i - 1] = pack(distance(vectors, offset, list[i]), list[i]);
+        }
+        candidates[list[0]] = pack(distance(vectors, offset, node), node);
+        Arrays.sort(candidates);
+        int[] chosen = selectNeighbours(candidates, capacity(layer));
+        list[0] = chosen.length;
+        System.arraycopy(chosen, 0, list, 1, chosen.length);
+    }
+
+    /**
+     * Squared distance between a vector stored in an array and a node.
+     * Four independent sums let the JIT overlap the multiply-adds.
+     */
+    private float distance(float[] a, int offset, int node) {
+        int b = node * dimensions;
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimensions; i += 4) {
+            float d0 = a[offset + i] - vectors[b + i];
+            float d1 = a[offset + i + 1] - vectors[b + i + 1];
+            float d2 = a[offset + i + 2] - vectors[b + i + 2];
+            float d3 = a[offset + i + 3] - vectors[b + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < dimensions; i++) {
+            float d = a[offset + i] - vectors[b + i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Binary heap of longs, smallest or largest on top
+     */
+    private static final class LongHeap {
+        private final boolean max;
+        private long[] items = new long[32];
+        private int size;
+
+        LongHeap(boolean max) {
+            this.max = max;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long peek() {
+            return items[0];
+        }
+
+        void push(long item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!above(item, items[parent])) {
+                    break;
+                }
+                items[i] = items[parent];
+                i = parent;
+            }
+            items[i] = item;
+        }
+
+        long pop() {
+            long top = items[0];
+            long last = items[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && above(items[child + 1], items[child])) {
+                    child++;
+                }
+                if (!above(items[child], last)) {
+                    break;
+                }
+                items[i] = items[child];
+                i = child;
+            }
+            items[i] = last;
+            return top;
+        }
+
+        long[] sortedAscending() {
+            long[] sorted = Arrays.copyOf(items, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private boolean above(long a, long b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
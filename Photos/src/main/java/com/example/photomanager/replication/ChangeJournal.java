@@ -0,0 +1,160 @@
+package com.example.photomanager.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordered, durable log of change records.
+ * Records are appended to a journal file and the most recent ones are kept in memory for
+ * followers to catch up from. Followers that fall behind the retained window receive the
+ * latest record of every user instead, which brings them to the same state.
+ */
+public class ChangeJournal {
+    private static final int RETAINED_RECORDS = 10_000;
+
+    private final File file;
+    private final Deque<ChangeRecord> recent = new ArrayDeque<>();
+    private final Map<String, ChangeRecord> latestByUser = new LinkedHashMap<>();
+    private long lastSequence = 0;
+    private DataOutputStream out;
+
+    /**
+     * Opens a journal, recovering the records already in the file.
+     * The file is compacted to the latest record per user on open.
+     * @param file The journal file
+     * @throws IOException If the file cannot be read or written
+     */
+    public ChangeJournal(File file) throws IOException {
+        this.file = file;
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (true) {
+                    remember(ChangeRecord.readFrom(in));
+                }
+            } catch (EOFException e) {
+                // End of journal; a torn last record is dropped
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Appends records, assigning consecutive sequence numbers, and wakes waiting followers.
+     * @param records Unsequenced records
+     * @throws IOException If the journal cannot be written
+     */
+    public synchronized void append(List<ChangeRecord> records) throws IOException {
+        for (ChangeRecord record : records) {
+            ChangeRecord sequenced = record.withSequence(++lastSequence);
+            sequenced.writeTo(out);
+            remember(sequenced);
+        }
+        out.flush();
+        notifyAll();
+    }
+
+    /**
+     * Gets the records after a sequence number, waiting for new ones if there are none yet.
+     * @param afterSequence Last sequence number the caller has
+     * @param timeoutMillis Maximum time to wait for new records
+     * @return Records in order; empty if none arrived in time. If the caller is behind the
+     *         retained window, the latest record of every user is returned instead.
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public synchronized List<ChangeRecord> readAfter(long afterSequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (lastSequence <= afterSequence) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return new ArrayList<>();
+            }
+            wait(remaining);
+        }
+
+        List<ChangeRecord> records = new ArrayList<>();
+        if (recent.isEmpty() || recent.peekFirst().getSequence() > afterSequence + 1) {
+            records.addAll(latestByUser.values());
+            records.sort((a, b) -> Long.compare(a.getSequence(), b.getSequence()));
+            return records;
+        }
+        for (ChangeRecord record : recent) {
+            if (record.getSequence() > afterSequence) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gets the latest record of a user.
+     * @param username The user
+     * @return The record, or null if the journal has none for the user
+     */
+    synchronized ChangeRecord getLatest(String username) {
+        return latestByUser.get(username);
+    }
+
+    /**
+     * Gets the users the journal has records for, deleted ones included.
+     * @return Usernames, in order of their latest change
+     */
+    synchronized List<String> getUsernames() {
+        return new ArrayList<>(latestByUser.keySet());
+    }
+
+    /**
+     * Closes the journal file.
+     * @throws IOException If closing fails
+     */
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private void remember(ChangeRecord record) {
+        lastSequence = Math.max(lastSequence, record.getSequence());
+        recent.addLast(record);
+        if (recent.size() > RETAINED_RECORDS) {
+            recent.removeFirst();
+        }
+        // Re-insert so iteration order follows the latest change
+        latestByUser.remove(record.getUsername());
+        latestByUser.put(record.getUsername(), record);
+    }
+
+    /**
+     * Rewrites the journal with only the latest record of every user and reopens it for appending.
+     */
+    private void compact() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream compacted = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            for (ChangeRecord record : latestByUser.values()) {
+                record.writeTo(compacted);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        recent.clear();
+        recent.addAll(latestByUser.values());
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+}
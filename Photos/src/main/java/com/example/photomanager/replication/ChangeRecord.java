@@ -0,0 +1,129 @@
+package com.example.photomanager.replication;
+
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+/**
+ * One entry of the replication change feed: the complete new state of a single user,
+ * or its deletion. Applying a record is idempotent, so replaying from an older
+ * sequence number is always safe.
+ */
+public final class ChangeRecord {
+    private final long sequence;
+    private final String username;
+    private final byte[] payload;
+
+    /**
+     * Constructor
+     * @param sequence Position of the record in the feed
+     * @param username The user this record is about
+     * @param payload Serialized User, or null if the user was deleted
+     */
+    ChangeRecord(long sequence, String username, byte[] payload) {
+        this.sequence = sequence;
+        this.username = username;
+        this.payload = payload;
+    }
+
+    /**
+     * Creates an unsequenced record describing the state of a user.
+     * @param username The user
+     * @param snapshot Snapshot of the user, or null if the user was deleted
+     * @return The record, to be sequenced by the journal
+     * @throws IOException If the user cannot be serialized
+     */
+    static ChangeRecord of(String username, LibrarySnapshot snapshot) throws IOException {
+        if (snapshot == null) {
+            return new ChangeRecord(0, username, null);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(snapshot.toUser());
+        }
+        return new ChangeRecord(0, username, bytes.toByteArray());
+    }
+
+    ChangeRecord withSequence(long sequence) {
+        return new ChangeRecord(sequence, username, payload);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isDeletion() {
+        return payload == null;
+    }
+
+    /**
+     * Checks whether another record describes the same state of the user, whatever its sequence number.
+     * @param other The other record, or null
+     * @return true if both carry the same payload
+     */
+    boolean hasSameState(ChangeRecord other) {
+        return other != null && username.equals(other.username) && Arrays.equals(payload, other.payload);
+    }
+
+    /**
+     * Deserializes the user carried by this record.
+     * @return A new User, or null for a deletion
+     * @throws IOException If the payload cannot be read
+     */
+    public User toUser() throws IOException {
+        if (payload == null) {
+            return null;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return (User) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unexpected record payload", e);
+        }
+    }
+
+    /**
+     * Writes the record in the wire and journal format.
+     * @param out The stream to write to
+     * @throws IOException If writing fails
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(sequence);
+        out.writeUTF(username);
+        if (payload == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+    }
+
+    /**
+     * Reads a record written by {@link #writeTo(DataOutputStream)}.
+     * @param in The stream to read from
+     * @return The record
+     * @throws IOException If reading fails or the stream ends
+     */
+    static ChangeRecord readFrom(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        String username = in.readUTF();
+        int length = in.readInt();
+        byte[] payload = null;
+        if (length >= 0) {
+            payload = new byte[length];
+            in.readFully(payload);
+        }
+        return new ChangeRecord(sequence, username, payload);
+    }
+}
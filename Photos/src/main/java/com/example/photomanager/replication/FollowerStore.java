@@ -0,0 +1,226 @@
+package com.example.photomanager.replication;
+
+import com.example.photomanager.metrics.Metrics;
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.SerializedFileBackend;
+import com.example.photomanager.model.StorageBackend;
+import com.example.photomanager.model.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hot-standby copy of a library fed by a ReplicationServer.
+ * Applies the change feed continuously to its own backend and records the last applied
+ * sequence number next to it, so a restarted follower catches up from where it stopped.
+ * {@link #promote()} stops following and hands the store over to become the new primary.
+ * Progress is reported by the replication.appliedSequence gauge.
+ */
+public class FollowerStore implements AutoCloseable {
+    private static final int SOCKET_TIMEOUT_MILLIS = 5000;
+    private static final long RECONNECT_MILLIS = 1000;
+
+    private final String host;
+    private final int port;
+    private final StorageBackend backend;
+    private final File positionFile;
+    private final Map<String, User> users = new LinkedHashMap<>();
+    private final Thread follower;
+    private volatile boolean running = true;
+    private volatile Socket socket;
+    private volatile long appliedSequence;
+
+    /**
+     * Opens the follower store and starts following the leader.
+     * @param host Host of the replication server
+     * @param port Port of the replication server
+     * @param directory Directory holding the follower's copy (users.dat and its position file)
+     * @throws IOException If the local copy cannot be read
+     */
+    public FollowerStore(String host, int port, File directory) throws IOException {
+        this(host, port, createDirectoryBackend(directory), new File(directory, "replica.position"));
+    }
+
+    /**
+     * Opens the follower store on an arbitrary backend and starts following the leader.
+     * @param host Host of the replication server
+     * @param port Port of the replication server
+     * @param backend Backend holding the follower's copy
+     * @param positionFile File recording the last applied sequence number
+     * @throws IOException If the local copy cannot be read
+     */
+    public FollowerStore(String host, int port, StorageBackend backend, File positionFile) throws IOException {
+        this.host = host;
+        this.port = port;
+        this.backend = backend;
+        this.positionFile = positionFile;
+
+        for (User user : backend.loadUsers()) {
+            users.put(user.getUsername(), user);
+        }
+        appliedSequence = readPosition();
+        Metrics.gauge("replication.appliedSequence", () -> this.appliedSequence);
+
+        follower = new Thread(this::followLoop, "replication-follower");
+        follower.setDaemon(true);
+        follower.start();
+    }
+
+    private static StorageBackend createDirectoryBackend(File directory) {
+        directory.mkdirs();
+        return new SerializedFileBackend(new File(directory, "users.dat"));
+    }
+
+    /**
+     * Gets the sequence number of the last change applied to the local copy.
+     * @return The applied sequence number
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Stops following and returns the local copy, which can then back a StorageManager
+     * (optionally wrapped in a ReplicatingBackend to feed followers of its own).
+     * @return The follower's backend, fully caught up with everything received
+     * @throws InterruptedException If interrupted while waiting for the follower thread
+     */
+    public StorageBackend promote() throws InterruptedException {
+        stop();
+        return backend;
+    }
+
+    /**
+     * Stops following and closes the local copy. If interrupted while waiting for the
+     * follower thread, the interrupt is kept set on the calling thread.
+     */
+    @Override
+    public void close() {
+        try {
+            stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        backend.close();
+    }
+
+    private void stop() throws InterruptedException {
+        running = false;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Closing only unblocks the follower thread
+            }
+        }
+        follower.join();
+    }
+
+    /**
+     * Connects to the leader, applies records, and reconnects after failures until stopped.
+     */
+    private void followLoop() {
+        while (running) {
+            try (Socket s = new Socket()) {
+                socket = s;
+                s.connect(new InetSocketAddress(host, port), SOCKET_TIMEOUT_MILLIS);
+                s.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                out.writeLong(appliedSequence);
+                out.flush();
+
+                while (running) {
+                    applyBatch(in);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    sleepBeforeReconnect();
+                }
+            } finally {
+                socket = null;
+            }
+        }
+    }
+
+    /**
+     * Reads one record plus whatever else is already buffered, applies them and persists once.
+     * @param in The feed
+     * @throws IOException If the feed or the local store fails
+     */
+    private void applyBatch(DataInputStream in) throws IOException {
+        long batchSequence = appliedSequence;
+        do {
+            ChangeRecord record = ChangeRecord.readFrom(in);
+            if (record.getSequence() < 0) {
+                // Heartbeat
+                continue;
+            }
+            if (record.isDeletion()) {
+                users.remove(record.getUsername());
+            } else {
+                users.put(record.getUsername(), record.toUser());
+            }
+            batchSequence = Math.max(batchSequence, record.getSequence());
+        } while (in.available() > 0);
+
+        if (batchSequence != appliedSequence) {
+            List<LibrarySnapshot> snapshots = new ArrayList<>(users.size());
+            for (User user : users.values()) {
+                snapshots.add(user.snapshot());
+            }
+            // Data first, then position: after a crash the batch is simply applied again
+            backend.saveUsers(snapshots);
+            writePosition(batchSequence);
+            appliedSequence = batchSequence;
+        }
+    }
+
+    private long readPosition() throws IOException {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(positionFile.toPath()), StandardCharsets.UTF_8).trim());
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private void writePosition(long sequence) throws IOException {
+        File temp = new File(positionFile.getPath() + ".tmp");
+        Files.write(temp.toPath(), Long.toString(sequence).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp.toPath(), positionFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(RECONNECT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * Runs a standalone follower.
+     * Usage: FollowerStore host port directory
+     */
+    public static void main(String[] args) throws Exception {
+        FollowerStore store = new FollowerStore(args[0], Integer.parseInt(args[1]), new File(args[2]));
+        Runtime.getRuntime().addShutdownHook(new Thread(store::close));
+        store.follower.join();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.photomanager.replication;
+
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.StorageBackend;
+import com.example.photomanager.model.User;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage backend decorator that records every saved change in a ChangeJournal.
+ * The primary backend is written first; only users whose snapshot changed since the
+ * previous save are journaled, so the feed carries deltas rather than full copies.
+ * Loading all users reconciles the journal with the primary, so a save that reached the
+ * primary but not the journal, e.g. because the process died in between, is journaled then.
+ */
+public class ReplicatingBackend implements StorageBackend {
+    private final StorageBackend primary;
+    private final ChangeJournal journal;
+    private final Map<String, LibrarySnapshot> lastSaved = new HashMap<>();
+
+    /**
+     * Constructor
+     * @param primary The backend holding the authoritative copy
+     * @param journal The journal receiving the change feed
+     */
+    public ReplicatingBackend(StorageBackend primary, ChangeJournal journal) {
+        this.primary = primary;
+        this.journal = journal;
+    }
+
+    public ChangeJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public synchronized List<User> loadUsers() throws IOException {
+        List<User> users = primary.loadUsers();
+        lastSaved.clear();
+        for (User user : users) {
+            lastSaved.put(user.getUsername(), user.snapshot());
+        }
+        reconcile();
+        return users;
+    }
+
+    /**
+     * Journals every loaded user whose latest journaled state differs from the primary's,
+     * and the deletion of every journaled user the primary no longer has.
+     */
+    private void reconcile() throws IOException {
+        List<ChangeRecord> records = new ArrayList<>();
+        for (LibrarySnapshot snapshot : lastSaved.values()) {
+            ChangeRecord record = ChangeRecord.of(snapshot.getUsername(), snapshot);
+            if (!record.hasSameState(journal.getLatest(snapshot.getUsername()))) {
+                records.add(record);
+            }
+        }
+        for (String username : journal.getUsernames()) {
+            if (!lastSaved.containsKey(username) && !journal.getLatest(username).isDeletion()) {
+                records.add(ChangeRecord.of(username, null));
+            }
+        }
+
+        if (!records.isEmpty()) {
+            journal.append(records);
+        }
+    }
+
+    @Override
+    public synchronized List<User> loadUsers(Collection<String> usernames) throws IOException {
+        List<User> users = primary.loadUsers(usernames);
+        for (User user : users) {
+            lastSaved.put(user.getUsername(), user.snapshot());
+        }
+        return users;
+    }
+
+    @Override
+    public synchronized void saveUsers(List<LibrarySnapshot> users) throws IOException {
+        primary.saveUsers(users);
+
+        List<ChangeRecord> records = new ArrayList<>();
+        Map<String, LibrarySnapshot> current = new HashMap<>();
+        for (LibrarySnapshot snapshot : users) {
+            current.put(snapshot.getUsername(), snapshot);
+            if (lastSaved.get(snapshot.getUsername()) != snapshot) {
+                records.add(ChangeRecord.of(snapshot.getUsername(), snapshot));
+            }
+        }
+        for (String username : lastSaved.keySet()) {
+            if (!current.containsKey(username)) {
+                records.add(ChangeRecord.of(username, null));
+            }
+        }
+
+        if (!records.isEmpty()) {
+            journal.append(records);
+        }
+        lastSaved.clear();
+        lastSaved.putAll(current);
+    }
+
+    @Override
+    public long getLastSaveBytes() {
+        return primary.getLastSaveBytes();
+    }
+
+    @Override
+    public boolean hasExternalChanges() throws IOException {
+        return primary.hasExternalChanges();
+    }
+
+    @Override
+    public Collection<String> pollExternalChanges() throws IOException {
+        return primary.pollExternalChanges();
+    }
+
+    @Override
+    public List<String> findPhotosByTag(String username, String tagName, String tagValue) throws IOException {
+        return primary.findPhotosByTag(username, tagName, tagValue);
+    }
+
+    @Override
+    public List<String> findPhotosByDate(String username, Date startDate, Date endDate) throws IOException {
+        return primary.findPhotosByDate(username, startDate, endDate);
+    }
+
+    @Override
+    public void close() {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        primary.close();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.photomanager.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Streams a ChangeJournal to followers over local TCP sockets.
+ *
+ * Protocol: the follower sends the last sequence number it applied (a long); the server
+ * then sends records as they become available, and an empty heartbeat record (sequence -1)
+ * whenever nothing happened for a while, so either side notices a dead connection.
+ */
+public class ReplicationServer implements AutoCloseable {
+    private static final long HEARTBEAT_MILLIS = 1000;
+
+    private final ChangeJournal journal;
+    private final ServerSocket serverSocket;
+    private volatile boolean running = true;
+
+    /**
+     * Starts listening on the loopback interface.
+     * @param journal The journal to stream
+     * @param port TCP port, or 0 for an ephemeral port
+     * @throws IOException If the port cannot be bound
+     */
+    public ReplicationServer(ChangeJournal journal, int port) throws IOException {
+        this.journal = journal;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread sender = new Thread(() -> serve(socket), "replication-sender");
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (running) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the feed to one follower until it disconnects.
+     * @param socket The follower connection
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            long position = in.readLong();
+            while (running) {
+                List<ChangeRecord> records = journal.readAfter(position, HEARTBEAT_MILLIS);
+                if (records.isEmpty()) {
+                    new ChangeRecord(-1, "", null).writeTo(out);
+                } else {
+                    for (ChangeRecord record : records) {
+                        record.writeTo(out);
+                        position = Math.max(position, record.getSequence());
+                    }
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Follower went away; it reconnects and resumes from its own position
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+    }
+}
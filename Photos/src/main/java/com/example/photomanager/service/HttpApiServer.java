@@ -0,0 +1,354 @@
+package com.example.photomanager.service;
+
+import com.example.photomanager.model.AlbumSnapshot;
+import com.example.photomanager.model.PhotoSnapshot;
+import com.example.photomanager.model.Tag;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local HTTP/JSON API exposing the LibraryService.
+ * Parameters are passed as query strings or urlencoded form bodies, the session token
+ * in the "X-Session" header. Requests are handled on a bounded worker pool; handlers
+ * only hold the model lock for the duration of a mutation or snapshot.
+ */
+public class HttpApiServer {
+    private static final String SESSION_HEADER = "X-Session";
+
+    private final LibraryService service;
+    private final HttpServer server;
+    private final ExecutorService workers;
+
+    /**
+     * Constructor
+     * @param service The library service to expose
+     * @param port TCP port to listen on (0 for an ephemeral port)
+     * @param threads Number of request worker threads
+     * @throws IOException If the port cannot be bound
+     */
+    public HttpApiServer(LibraryService service, int port, int threads) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "photo-api-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(workers);
+
+        server.createContext("/api/login", exchange -> handle(exchange, this::login));
+        server.createContext("/api/logout", exchange -> handle(exchange, this::logout));
+        server.createContext("/api/albums", exchange -> handle(exchange, this::albums));
+        server.createContext("/api/photos", exchange -> handle(exchange, this::photos));
+        server.createContext("/api/tags", exchange -> handle(exchange, this::tags));
+        server.createContext("/api/search/tags", exchange -> handle(exchange, this::searchTags));
+        server.createContext("/api/search/dates", exchange -> handle(exchange, this::searchDates));
+        server.createContext("/api/search/query", exchange -> handle(exchange, this::searchQuery));
+        server.createContext("/api/users", exchange -> handle(exchange, this::users));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting up to the given delay for running requests.
+     * @param delaySeconds Maximum seconds to wait
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        workers.shutdown();
+        try {
+            workers.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the port the server is bound to.
+     * @return The local port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private interface Route {
+        String handle(String method, Map<String, String> params, String token);
+    }
+
+    /**
+     * Parses parameters, dispatches to a route and writes the JSON response.
+     * Every request gets a response, 400 if its parameters cannot be read.
+     * @param exchange The HTTP exchange
+     * @param route The route to dispatch to
+     * @throws IOException If the response cannot be written
+     */
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            Map<String, String> params;
+            try {
+                params = parseParams(exchange);
+            } catch (IOException | IllegalArgumentException e) {
+                // Unreadable body or bad percent-encoding; answer rather than leave the client waiting
+                throw new ServiceException(400, "Malformed request parameters");
+            }
+            String token = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+            body = route.handle(exchange.getRequestMethod(), params, token);
+        } catch (ServiceException e) {
+            status = e.getStatus();
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            status = 500;
+            body = error("Internal error");
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private String login(String method, Map<String, String> params, String token) {
+        requireMethod(method, "POST");
+        String newToken = service.login(params.get("username"), params.get("password"));
+        return new JsonWriter().beginObject().name("token").value(newToken).endObject().toString();
+    }
+
+    private String logout(String method, Map<String, String> params, String token) {
+        requireMethod(method, "POST");
+        service.logout(token);
+        return ok();
+    }
+
+    private String albums(String method, Map<String, String> params, String token) {
+        switch (method) {
+            case "GET":
+                if (params.containsKey("name")) {
+                    return writeAlbum(service.getAlbum(token, params.get("name")));
+                }
+                JsonWriter json = new JsonWriter().beginArray();
+                for (AlbumSnapshot album : service.snapshot(token).getAlbums()) {
+                    writeAlbumSummary(json, album);
+                }
+                return json.endArray().toString();
+            case "POST":
+                if (params.containsKey("newName")) {
+                    service.renameAlbum(token, params.get("name"), params.get("newName"));
+                } else {
+                    service.createAlbum(token, params.get("name"));
+                }
+                return ok();
+            case "DELETE":
+                service.deleteAlbum(token, params.get("name"));
+                return ok();
+            default:
+                throw new ServiceException(405, "Method not allowed");
+        }
+    }
+
+    private String photos(String method, Map<String, String> params, String token) {
+        switch (method) {
+            case "POST":
+                if (params.containsKey("caption")) {
+                    service.setCaption(token, params.get("path"), params.get("caption"));
+                } else {
+                    service.addPhoto(token, params.get("album"), params.get("path"));
+                }
+                return ok();
+            case "DELETE":
+                service.removePhoto(token, params.get("album"), params.get("path"));
+                return ok();
+            default:
+                throw new ServiceException(405, "Method not allowed");
+        }
+    }
+
+    private String tags(String method, Map<String, String> params, String token) {
+        switch (method) {
+            case "POST":
+                if (params.containsKey("newName") || params.containsKey("newValue")) {
+                    // Rename or merge across all photos; "preview=true" only counts them
+                    boolean preview = Boolean.parseBoolean(params.get("preview"));
+                    int photos = service.rewriteTags(token, params.get("name"), params.get("value"),
+                            params.get("newName"), params.get("newValue"),
+                            Boolean.parseBoolean(params.get("ignoreCase")), preview);
+                    return new JsonWriter().beginObject().name("photos").value(photos)
+                            .name("applied").value(!preview).endObject().toString();
+                }
+                service.addTag(token, params.get("path"), params.get("name"), params.get("value"));
+                return ok();
+            case "DELETE":
+                service.removeTag(token, params.get("path"), params.get("name"), params.get("value"));
+                return ok();
+            default:
+                throw new ServiceException(405, "Method not allowed");
+        }
+    }
+
+    private String searchTags(String method, Map<String, String> params, String token) {
+        requireMethod(method, "GET");
+        List<PhotoSnapshot> results = service.searchByTags(token,
+                params.get("tag1Name"), params.get("tag1Value"),
+                params.get("tag2Name"), params.get("tag2Value"),
+                params.getOrDefault("operator", "AND"));
+        return writePhotos(new JsonWriter(), results).toString();
+    }
+
+    private String searchQuery(String method, Map<String, String> params, String token) {
+        requireMethod(method, "GET");
+        return writePhotos(new JsonWriter(), service.searchByQuery(token, params.get("q"))).toString();
+    }
+
+    private String searchDates(String method, Map<String, String> params, String token) {
+        requireMethod(method, "GET");
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        try {
+            Date startDate = sdf.parse(requireParam(params, "start"));
+            Date endDate = sdf.parse(requireParam(params, "end"));
+            // Include the last moment of the end date
+            endDate.setTime(endDate.getTime() + 24 * 60 * 60 * 1000 - 1);
+            return writePhotos(new JsonWriter(), service.searchByDate(token, startDate, endDate)).toString();
+        } catch (ParseException e) {
+            throw new ServiceException(400, "Invalid date format, expected yyyy-MM-dd");
+        }
+    }
+
+    private String users(String method, Map<String, String> params, String token) {
+        switch (method) {
+            case "GET":
+                JsonWriter json = new JsonWriter().beginArray();
+                for (String name : service.listUsers(token)) {
+                    json.value(name);
+                }
+                return json.endArray().toString();
+            case "POST":
+                service.createUser(token, params.get("username"), params.get("password"));
+                return ok();
+            case "DELETE":
+                service.deleteUser(token, params.get("username"));
+                return ok();
+            default:
+                throw new ServiceException(405, "Method not allowed");
+        }
+    }
+
+    private static String writeAlbum(AlbumSnapshot album) {
+        JsonWriter json = new JsonWriter().beginObject();
+        json.name("name").value(album.getName());
+        json.name("photos");
+        writePhotos(json, album.getPhotos());
+        return json.endObject().toString();
+    }
+
+    private static void writeAlbumSummary(JsonWriter json, AlbumSnapshot album) {
+        long earliest = Long.MAX_VALUE;
+        long latest = Long.MIN_VALUE;
+        for (PhotoSnapshot photo : album.getPhotos()) {
+            long taken = photo.getDateTaken().getTime();
+            earliest = Math.min(earliest, taken);
+            latest = Math.max(latest, taken);
+        }
+        json.beginObject();
+        json.name("name").value(album.getName());
+        json.name("photoCount").value(album.getPhotos().size());
+        if (!album.getPhotos().isEmpty()) {
+            json.name("earliest").value(earliest);
+            json.name("latest").value(latest);
+        }
+        json.endObject();
+    }
+
+    private static JsonWriter writePhotos(JsonWriter json, List<PhotoSnapshot> photos) {
+        json.beginArray();
+        for (PhotoSnapshot photo : photos) {
+            json.beginObject();
+            json.name("path").value(photo.getPath());
+            json.name("caption").value(photo.getCaption());
+            json.name("dateTaken").value(photo.getDateTaken().getTime());
+            json.name("tags").beginArray();
+            for (Tag tag : photo.getTags()) {
+                json.beginObject().name("name").value(tag.getName()).name("value").value(tag.getValue()).endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        return json.endArray();
+    }
+
+    private static String ok() {
+        return new JsonWriter().beginObject().name("ok").value(true).endObject().toString();
+    }
+
+    private static String error(String message) {
+        return new JsonWriter().beginObject().name("error").value(message).endObject().toString();
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!expected.equals(method)) {
+            throw new ServiceException(405, "Method not allowed");
+        }
+    }
+
+    private static String requireParam(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new ServiceException(400, "Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Collects parameters from the query string and an urlencoded request body.
+     * @param exchange The HTTP exchange
+     * @return Decoded parameters; body parameters override query parameters
+     * @throws IOException If the body cannot be read
+     */
+    private static Map<String, String> parseParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseInto(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream is = exchange.getRequestBody()) {
+            parseInto(new String(is.readAllBytes(), StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseInto(String encoded, Map<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,652 @@
+package com.example.photomanager.service;
+
+import com.example.photomanager.image.ExifGps;
+import com.example.photomanager.jfr.SearchEvent;
+import com.example.photomanager.metrics.LatencyHistogram;
+import com.example.photomanager.metrics.Metrics;
+import com.example.photomanager.model.Album;
+import com.example.photomanager.model.AlbumSnapshot;
+import com.example.photomanager.model.GeoIndex;
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.Photo;
+import com.example.photomanager.model.PhotoSearch;
+import com.example.photomanager.model.PhotoSnapshot;
+import com.example.photomanager.model.StorageManager;
+import com.example.photomanager.model.Tag;
+import com.example.photomanager.model.TagIndex;
+import com.example.photomanager.model.TagQuery;
+import com.example.photomanager.model.TagRewrite;
+import com.example.photomanager.model.TagSchema;
+import com.example.photomanager.model.User;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe facade over StorageManager and the model for headless, multi-user access.
+ * Mutations are serialized by a single short-lived lock; reads and searches work on
+ * library snapshots outside the lock, so slow queries never block other users' edits.
+ * Sessions left idle for longer than {@code photoManager.sessionTimeoutMinutes} (30 by default) expire.
+ */
+public class LibraryService {
+    private static final LatencyHistogram SEARCH_TIME = Metrics.histogram("search.query");
+    private static final long SESSION_TIMEOUT_MILLIS =
+            TimeUnit.MINUTES.toMillis(Integer.getInteger("photoManager.sessionTimeoutMinutes", 30));
+
+    private final StorageManager storageManager;
+    private final ReentrantLock modelLock = new ReentrantLock();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long sessionTimeoutMillis;
+
+    /**
+     * Constructor
+     * @param storageManager The storage manager that owns the model
+     */
+    public LibraryService(StorageManager storageManager) {
+        this(storageManager, SESSION_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructor
+     * @param storageManager The storage manager that owns the model
+     * @param sessionTimeoutMillis Idle time after which a session expires
+     */
+    LibraryService(StorageManager storageManager, long sessionTimeoutMillis) {
+        this.storageManager = storageManager;
+        this.sessionTimeoutMillis = sessionTimeoutMillis;
+        Metrics.gauge("service.sessions", sessions::size);
+    }
+
+    /**
+     * Picks up changes other processes make to the store, e.g. a desktop instance or a batch job
+     * sharing the same files. Reloads run under the model lock; sessions see the reloaded users on
+     * their next request, and the storage.externalReloads metric counts them.
+     * @param intervalMillis Poll interval in milliseconds
+     */
+    public void watchExternalChanges(long intervalMillis) {
+        storageManager.watchExternalChanges(intervalMillis, task -> {
+            modelLock.lock();
+            try {
+                task.run();
+            } finally {
+                modelLock.unlock();
+            }
+        }, changed -> { });
+    }
+
+    /**
+     * Validates credentials and opens a session.
+     * @param username The username
+     * @param password The password
+     * @return A session token to pass with subsequent requests
+     */
+    public String login(String username, String password) {
+        modelLock.lock();
+        try {
+            User user = storageManager.findUser(username);
+            if (user == null || !user.getPassword().equals(password)) {
+                throw new ServiceException(401, "Invalid username or password");
+            }
+        } finally {
+            modelLock.unlock();
+        }
+        // Expired sessions are otherwise only dropped when their token is used again
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> session.isExpired(now, sessionTimeoutMillis));
+
+        String token = UUID.randomUUID().toString();
+        sessions.put(token, new Session(username, now));
+        return token;
+    }
+
+    /**
+     * Closes a session.
+     * @param token The session token
+     */
+    public void logout(String token) {
+        sessions.remove(token);
+    }
+
+    /**
+     * Gets a consistent snapshot of the session user's library.
+     * @param token The session token
+     * @return Snapshot that can be read without holding any lock
+     */
+    public LibrarySnapshot snapshot(String token) {
+        modelLock.lock();
+        try {
+            return requireUser(token).snapshot();
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Finds an album in a snapshot of the session user's library.
+     * @param token The session token
+     * @param albumName Name of the album
+     * @return The album snapshot
+     */
+    public AlbumSnapshot getAlbum(String token, String albumName) {
+        for (AlbumSnapshot album : snapshot(token).getAlbums()) {
+            if (album.getName().equals(albumName)) {
+                return album;
+            }
+        }
+        throw new ServiceException(404, "Album not found: " + albumName);
+    }
+
+    /**
+     * Creates an album for the session user.
+     * @param token The session token
+     * @param albumName Name of the new album
+     */
+    public void createAlbum(String token, String albumName) {
+        requireNonEmpty(albumName, "Album name");
+        modelLock.lock();
+        try {
+            if (requireUser(token).createAlbum(albumName) == null) {
+                throw new ServiceException(409, "Album name already exists");
+            }
+            storageManager.saveUsers();
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes an album of the session user.
+     * @param token The session token
+     * @param albumName Name of the album to delete
+     */
+    public void deleteAlbum(String token, String albumName) {
+        modelLock.lock();
+        try {
+            User user = requireUser(token);
+            user.deleteAlbum(requireAlbum(user, albumName));
+            storageManager.saveUsers();
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Renames an album of the session user.
+     * @param token The session token
+     * @param albumName Current name of the album
+     * @param newName New name of the album
+     */
+    public void renameAlbum(String token, String albumName, String newName) {
+        requireNonEmpty(newName, "New name");
+        modelLock.lock();
+        try {
+            User user = requireUser(token);
+            Album album = requireAlbum(user, albumName);
+            if (user.findAlbum(newName) != null) {
+                throw new ServiceException(409, "Name already exists");
+            }
+            album.setName(newName);
+            storageManager.saveUsers();
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a photo to an album. An existing photo of the user with the same path is reused,
+     * so copying between albums keeps captions and tags shared. A new photo gets a "gps" tag
+     * if its file records a position.
+     * @param token The session token
+     * @param albumName Name of the album
+     * @param path File path of the photo
+     */
+    public void addPhoto(String token, String albumName, String path) {
+        requireNonEmpty(path, "Photo path");
+        // The file is read before taking the lock, so other requests are not held up by the disk
+        double[] position = ExifGps.read(new File(path));
+        modelLock.lock();
+        try {
+            User user = requireUser(token);
+            Album album = requireAlbum(user, albumName);
+            Photo photo = findPhoto(user, path);
+            if (photo == null) {
+                photo = new Photo(path);
+                Tag gps = position != null ? GeoIndex.gpsTag(position[0], position[1]) : null;
+                // Left off if the schema declares another type for "gps"
+                if (gps != null && TagSchema.getDefault().accepts(gps.getName(), gps.getValue())) {
+                    photo.addTag(gps);
+                }
+            }
+            if (!album.addPhoto(photo)) {
+                throw new ServiceException(409, "The album already contains this photo");
+            }
+            storageManager.saveUsers();
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a photo from an album.
+     * @param token The session token
+     * @param albumName Name of the album
+     * @param path File path of the photo
+     */
+    public void removePhoto(String token, String albumName, String path) {
+        modelLock.lock();
+        try {
+            User user = requireUser(token);
+            Album album = requireAlbum(user, albumName);
+            if (!album.removePhoto(requirePhoto(user, path))) {
+                throw new ServiceException(404, "Photo is not in album " + albumName);
+            }
+            storageManager.saveUsers();
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Sets the caption of a photo.
+     * @param token The session token
+     * @param path File path of the photo
+     * @param caption The new caption
+     */
+    public void setCaption(String token, String path, String caption) {
+        modelLock.lock();
+        try {
+            requirePhoto(requireUser(token), path).setCaption(caption == null ? "" : caption.trim());
+            storageManager.saveUsers();
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a tag to a photo.
+     * @param token The session token
+     * @param path File path of the photo
+     * @param tagName Name of the tag
+     * @param tagValue Value of the tag
+     */
+    public void addTag(String token, String path, String tagName, String tagValue) {
+        requireNonEmpty(tagName, "Tag name");
+        requireNonEmpty(tagValue, "Tag value");
+        modelLock.lock();
+        try {
+            if (!requirePhoto(requireUser(token), path).addTag(requireAccepted(tagName, tagValue))) {
+                throw new ServiceException(409, "This tag already exists");
+            }
+            storageManager.saveUsers();
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a tag from a photo.
+     * @param token The session token
+     * @param path File path of the photo
+     * @param tagName Name of the tag
+     * @param tagValue Value of the tag
+     */
+    public void removeTag(String token, String path, String tagName, String tagValue) {
+        modelLock.lock();
+        try {
+            if (!requirePhoto(requireUser(token), path).removeTag(new Tag(tagName, tagValue))) {
+                throw new ServiceException(404, "Tag not found");
+            }
+            storageManager.saveUsers();
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Renames or merges a tag name or value across all photos of the session user.
+     * @param token The session token
+     * @param tagName Name of the tags to rewrite
+     * @param tagValue Value of the tags to rewrite, or null for every value
+     * @param newName New tag name, or null to keep the name
+     * @param newValue New tag value, or null to keep the value
+     * @param ignoreCase Whether name and value are matched ignoring case
+     * @param preview Whether to only count the photos that would change
+     * @return Number of photos changed, or that would change
+     */
+    public int rewriteTags(String token, String tagName, String tagValue, String newName, String newValue,
+                           boolean ignoreCase, boolean preview) {
+        requireNonEmpty(tagName, "Tag name");
+        if (isEmpty(newName) && isEmpty(newValue)) {
+            throw new ServiceException(400, "New name and new value cannot both be empty");
+        }
+        TagRewrite rewrite = new TagRewrite(tagName.trim(), isEmpty(tagValue) ? null : tagValue.trim(),
+                isEmpty(newName) ? null : newName.trim(), isEmpty(newValue) ? null : newValue.trim(), ignoreCase);
+        modelLock.lock();
+        try {
+            User user = requireUser(token);
+            int changed;
+            try {
+                if (preview) {
+                    return rewrite.preview(user);
+                }
+                changed = rewrite.apply(user);
+            } catch (IllegalArgumentException e) {
+                throw new ServiceException(400, e.getMessage());
+            }
+            if (changed > 0) {
+                storageManager.saveUsers();
+            }
+            return changed;
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Searches the session user's photos by one or two tags.
+     * @param token The session token
+     * @param tag1Name Name of the first tag
+     * @param tag1Value Value of the first tag
+     * @param tag2Name Name of the optional second tag, or null
+     * @param tag2Value Value of the optional second tag, or null
+     * @param operator AND or OR, used when a second tag is given
+     * @return Matching photos
+     */
+    public List<PhotoSnapshot> searchByTags(String token, String tag1Name, String tag1Value,
+                                            String tag2Name, String tag2Value, String operator) {
+        requireNonEmpty(tag1Name, "First tag name");
+        requireNonEmpty(tag1Value, "First tag value");
+        boolean single = isEmpty(tag2Name) && isEmpty(tag2Value);
+        if (!single) {
+            requireNonEmpty(tag2Name, "Second tag name");
+            requireNonEmpty(tag2Value, "Second tag value");
+            if (!PhotoSearch.AND.equals(operator) && !PhotoSearch.OR.equals(operator)) {
+                throw new ServiceException(400, "Operator must be AND or OR");
+            }
+        }
+
+        List<PhotoSnapshot> photos = snapshot(token).getAllPhotos();
+        if (single) {
+            return search("tag", tag1Name + "=" + tag1Value, photos.size(),
+                    () -> PhotoSearch.byTag(photos, tag1Name, tag1Value));
+        }
+        return search("tag", tag1Name + "=" + tag1Value + " " + operator + " " + tag2Name + "=" + tag2Value, photos.size(),
+                () -> PhotoSearch.byTags(photos, tag1Name, tag1Value, tag2Name, tag2Value, operator));
+    }
+
+    /**
+     * Searches the session user's photos with a typed tag query, e.g. "rating >= 4 AND location = New*".
+     * @param token The session token
+     * @param query The query text, see {@link TagQuery}
+     * @return Matching photos ordered by capture date
+     */
+    public List<PhotoSnapshot> searchByQuery(String token, String query) {
+        requireNonEmpty(query, "Query");
+        TagQuery parsed;
+        try {
+            parsed = TagQuery.parse(query);
+        } catch (IllegalArgumentException e) {
+            throw new ServiceException(400, e.getMessage());
+        }
+
+        TagIndex index;
+        modelLock.lock();
+        try {
+            index = requireUser(token).getTagIndex();
+        } finally {
+            modelLock.unlock();
+        }
+
+        // The index has its own lock, so the query does not hold the model lock while it runs
+        return search("query", query, index.photoCount(), () -> {
+            Set<Photo> matches;
+            try {
+                matches = parsed.evaluate(index);
+            } catch (IllegalArgumentException e) {
+                throw new ServiceException(400, e.getMessage());
+            }
+            List<PhotoSnapshot> results = new ArrayList<>(matches.size());
+            // Snapshots of unchanged photos are cached, so this only copies photos edited since they were last read
+            modelLock.lock();
+            try {
+                for (Photo photo : matches) {
+                    results.add(photo.snapshot());
+                }
+            } finally {
+                modelLock.unlock();
+            }
+            results.sort(Comparator.comparingLong(photo -> photo.getDateTaken().getTime()));
+            return results;
+        });
+    }
+
+    /**
+     * Searches the session user's photos by capture date.
+     * @param token The session token
+     * @param startDate Start of the range
+     * @param endDate End of the range
+     * @return Matching photos
+     */
+    public List<PhotoSnapshot> searchByDate(String token, Date startDate, Date endDate) {
+        List<PhotoSnapshot> photos = snapshot(token).getAllPhotos();
+        return search("date", startDate + ".." + endDate, photos.size(),
+                () -> PhotoSearch.byDateRange(photos, startDate, endDate));
+    }
+
+    /**
+     * Runs a search, recording its latency and a flight recorder event.
+     * @param kind Kind of search
+     * @param query Description of the search criteria
+     * @param photoCount Number of photos being searched
+     * @param search The search to run
+     * @return Matching photos
+     */
+    private List<PhotoSnapshot> search(String kind, String query, int photoCount,
+                                       Supplier<List<PhotoSnapshot>> search) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        List<PhotoSnapshot> results = null;
+        try {
+            results = search.get();
+            return results;
+        } finally {
+            SEARCH_TIME.recordSince(start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.kind = kind;
+                event.query = query;
+                event.photoCount = photoCount;
+                event.resultCount = results != null ? results.size() : -1;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Lists all usernames. Requires an administrator session.
+     * @param token The session token
+     * @return List of usernames
+     */
+    public List<String> listUsers(String token) {
+        modelLock.lock();
+        try {
+            requireAdmin(token);
+            List<String> names = new ArrayList<>();
+            for (User user : storageManager.getAllUsers()) {
+                names.add(user.getUsername());
+            }
+            return names;
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Creates a regular user. Requires an administrator session.
+     * @param token The session token
+     * @param username The username for the new user
+     * @param password The password for the new user
+     */
+    public void createUser(String token, String username, String password) {
+        requireNonEmpty(username, "Username");
+        requireNonEmpty(password, "Password");
+        modelLock.lock();
+        try {
+            requireAdmin(token);
+            if (storageManager.createUser(username, password) == null) {
+                throw new ServiceException(409, "Username already exists");
+            }
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes a user. Requires an administrator session.
+     * @param token The session token
+     * @param username The username of the user to delete
+     */
+    public void deleteUser(String token, String username) {
+        modelLock.lock();
+        try {
+            requireAdmin(token);
+            if ("admin".equals(username)) {
+                throw new ServiceException(400, "Cannot delete the admin user");
+            }
+            if (!storageManager.deleteUser(username)) {
+                throw new ServiceException(404, "User does not exist");
+            }
+            sessions.values().removeIf(session -> session.username.equals(username));
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Resolves the user of a session. Caller must hold the model lock.
+     * @param token The session token
+     * @return The session user
+     */
+    private User requireUser(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        long now = System.currentTimeMillis();
+        if (session != null && session.isExpired(now, sessionTimeoutMillis)) {
+            sessions.remove(token);
+            session = null;
+        }
+        User user = session == null ? null : storageManager.findUser(session.username);
+        if (user == null) {
+            throw new ServiceException(401, "Not logged in");
+        }
+        session.lastUsed = now;
+        return user;
+    }
+
+    /**
+     * Resolves the user of a session and checks it is an administrator. Caller must hold the model lock.
+     * @param token The session token
+     */
+    private void requireAdmin(String token) {
+        if (!requireUser(token).isAdmin()) {
+            throw new ServiceException(403, "Administrator privileges required");
+        }
+    }
+
+    /**
+     * Finds an album of a user or fails with 404. Caller must hold the model lock.
+     * @param user The user
+     * @param albumName Name of the album
+     * @return The album
+     */
+    private Album requireAlbum(User user, String albumName) {
+        Album album = albumName == null ? null : user.findAlbum(albumName);
+        if (album == null) {
+            throw new ServiceException(404, "Album not found: " + albumName);
+        }
+        return album;
+    }
+
+    /**
+     * Finds a photo of a user by path or fails with 404. Caller must hold the model lock.
+     * @param user The user
+     * @param path File path of the photo
+     * @return The photo
+     */
+    private Photo requirePhoto(User user, String path) {
+        Photo photo = path == null ? null : findPhoto(user, path);
+        if (photo == null) {
+            throw new ServiceException(404, "Photo not found: " + path);
+        }
+        return photo;
+    }
+
+    /**
+     * Finds a photo of a user by path. Caller must hold the model lock.
+     * @param user The user
+     * @param path File path of the photo
+     * @return The photo, or null if the user has no photo with this path
+     */
+    private Photo findPhoto(User user, String path) {
+        for (Album album : user.getAlbums()) {
+            for (Photo photo : album.getPhotos()) {
+                if (photo.getPath().equals(path)) {
+                    return photo;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds a tag, or fails with 400 if its value does not fit the type declared for its name.
+     * @param tagName Name of the tag
+     * @param tagValue Value of the tag
+     * @return The tag
+     */
+    private static Tag requireAccepted(String tagName, String tagValue) {
+        try {
+            TagSchema.getDefault().requireAccepted(tagName, tagValue);
+        } catch (IllegalArgumentException e) {
+            throw new ServiceException(400, e.getMessage());
+        }
+        return new Tag(tagName, tagValue);
+    }
+
+    private static void requireNonEmpty(String value, String what) {
+        if (isEmpty(value)) {
+            throw new ServiceException(400, what + " cannot be empty");
+        }
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * An open session: the user it belongs to and when it was last used.
+     */
+    private static final class Session {
+        private final String username;
+        private volatile long lastUsed;
+
+        private Session(String username, long lastUsed) {
+            this.username = username;
+            this.lastUsed = lastUsed;
+        }
+
+        private boolean isExpired(long now, long timeoutMillis) {
+            return now - lastUsed > timeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.photomanager.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load-test client for the HTTP API.
+ * Creates a number of users through the admin account, then lets every user concurrently
+ * run a mix of album listing, tagging and tag search requests and reports throughput
+ * and latency percentiles.
+ * Usage: LoadTestClient [baseUrl] [users] [requestsPerUser]
+ */
+public class LoadTestClient {
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final String baseUrl;
+
+    /**
+     * Constructor
+     * @param baseUrl Base URL of the API, e.g. http://127.0.0.1:8080/api
+     */
+    public LoadTestClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://127.0.0.1:8080/api";
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int requestsPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        new LoadTestClient(baseUrl).run(users, requestsPerUser);
+    }
+
+    /**
+     * Runs the load test and prints a summary.
+     * @param users Number of concurrent users
+     * @param requestsPerUser Number of requests issued by each user
+     * @throws Exception If setup fails
+     */
+    public void run(int users, int requestsPerUser) throws Exception {
+        String adminToken = login("admin", "admin");
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String username = "load" + i;
+            send("POST", "/users", adminToken, "username", username, "password", username);
+            tokens.add(login(username, username));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        List<Future<long[]>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            String token = tokens.get(i);
+            String photoPath = "/load/user" + i + "/photo.jpg";
+            futures.add(pool.submit(() -> runUser(token, photoPath, requestsPerUser)));
+        }
+
+        long[] latencies = new long[users * requestsPerUser];
+        int count = 0;
+        for (Future<long[]> future : futures) {
+            long[] userLatencies = future.get();
+            System.arraycopy(userLatencies, 0, latencies, count, userLatencies.length);
+            count += userLatencies.length;
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        Arrays.sort(latencies, 0, count);
+        System.out.printf("requests=%d elapsed=%.2fs throughput=%.0f req/s%n",
+                count, elapsed / 1e9, count / (elapsed / 1e9));
+        System.out.printf("latency ms: p50=%.2f p95=%.2f p99=%.2f max=%.2f%n",
+                percentile(latencies, count, 50), percentile(latencies, count, 95),
+                percentile(latencies, count, 99), latencies[count - 1] / 1e6);
+    }
+
+    /**
+     * Issues the request mix for one user.
+     * @param token Session token of the user
+     * @param photoPath Path of the photo the user tags
+     * @param requests Number of requests to issue
+     * @return Latency of each request in nanoseconds
+     */
+    private long[] runUser(String token, String photoPath, int requests) throws IOException, InterruptedException {
+        send("POST", "/photos", token, "album", "Default Album", "path", photoPath);
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            switch (i % 4) {
+                case 0:
+                    send("GET", "/albums", token);
+                    break;
+                case 1:
+                    send("POST", "/tags", token, "path", photoPath, "name", "n", "value", Integer.toString(i));
+                    break;
+                case 2:
+                    send("GET", "/search/tags", token, "tag1Name", "n", "tag1Value", Integer.toString(i - 1));
+                    break;
+                default:
+                    send("GET", "/albums", token, "name", "Default Album");
+                    break;
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private String login(String username, String password) throws IOException, InterruptedException {
+        Matcher matcher = TOKEN.matcher(send("POST", "/login", null, "username", username, "password", password));
+        if (!matcher.find()) {
+            throw new IOException("Login failed for " + username);
+        }
+        return matcher.group(1);
+    }
+
+    /**
+     * Sends a request with urlencoded parameters (query string for GET, body otherwise).
+     * @param method HTTP method
+     * @param path Path relative to the base URL
+     * @param token Session token, or null
+     * @param params Alternating parameter names and values
+     * @return Response body
+     */
+    private String send(String method, String path, String token, String... params)
+            throws IOException, InterruptedException {
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i + 1 < params.length; i += 2) {
+            if (encoded.length() > 0) {
+                encoded.append('&');
+            }
+            encoded.append(URLEncoder.encode(params[i], StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(params[i + 1], StandardCharsets.UTF_8));
+        }
+
+        boolean inQuery = "GET".equals(method);
+        String uri = baseUrl + path + (inQuery && encoded.length() > 0 ? "?" + encoded : "");
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .method(method, inQuery ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(encoded.toString()));
+        if (token != null) {
+            builder.header("X-Session", token);
+        }
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static double percentile(long[] sorted, int count, double p) {
+        int index = (int) Math.ceil(p / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1e6;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.photomanager.service;
+
+/**
+ * Exception raised by the library service for requests that cannot be completed.
+ * Carries the HTTP status code that should be reported to the client.
+ */
+public class ServiceException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    /**
+     * Constructor
+     * @param status HTTP status code describing the failure
+     * @param message Human readable failure message
+     */
+    public ServiceException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
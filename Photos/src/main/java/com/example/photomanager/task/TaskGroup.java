@@ -0,0 +1,71 @@
+package com.example.photomanager.task;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The tasks one view or operation submitted to a {@link TaskScheduler}, so they can be
+ * cancelled together, typically when the user navigates away.
+ * Cancelling skips tasks that have not started; running tasks finish, but their futures
+ * report cancellation so results are not applied.
+ */
+public class TaskGroup {
+    private final TaskScheduler scheduler;
+    private final Set<CompletableFuture<?>> outstanding = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    TaskGroup(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Queues a task
+     * @param priority The priority lane
+     * @param resource The pool to run on
+     * @param task The task
+     * @return Future completing with the task's result. If the group has been cancelled,
+     *         the future is already cancelled and the task is not queued.
+     */
+    public <T> CompletableFuture<T> submit(TaskScheduler.Priority priority, TaskScheduler.Resource resource, Callable<T> task) {
+        if (cancelled) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.cancel(false);
+            return future;
+        }
+
+        CompletableFuture<T> future = scheduler.submit(priority, resource, task);
+        outstanding.add(future);
+        future.whenComplete((result, error) -> outstanding.remove(future));
+        if (cancelled) {
+            future.cancel(false);
+        }
+        return future;
+    }
+
+    /**
+     * Cancels every outstanding task and any submitted later
+     */
+    public void cancel() {
+        cancelled = true;
+        cancelAll();
+    }
+
+    /**
+     * Cancels the outstanding tasks but keeps accepting new ones, e.g. when a view is refreshed
+     */
+    public void cancelAll() {
+        for (CompletableFuture<?> future : outstanding) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Gets the number of tasks queued or running
+     * @return Number of outstanding tasks
+     */
+    public int getOutstanding() {
+        return outstanding.size();
+    }
+}
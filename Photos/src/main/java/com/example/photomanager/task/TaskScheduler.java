@@ -0,0 +1,181 @@
+package com.example.photomanager.task;
+
+import com.example.photomanager.metrics.Counter;
+import com.example.photomanager.metrics.LatencyHistogram;
+import com.example.photomanager.metrics.Metrics;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Central scheduler for background work such as decoding, indexing and disk maintenance.
+ * Tasks run on one of two bounded pools, one for CPU-bound and one for I/O-bound work, so
+ * disk work cannot starve decoding of cores and vice versa. Within a pool, queued tasks run
+ * in {@link Priority} order, first-come first-served within a priority.
+ * Tasks are submitted through a {@link TaskGroup}, usually one per view, so everything a view
+ * queued can be cancelled when the user leaves it. Cancelled tasks are not searched for in the queue;
+ * they let go of their work at once and are dropped when a thread takes them, so cancelling a
+ * whole group costs constant time per task.
+ */
+public final class TaskScheduler {
+    /**
+     * Priority lanes, most urgent first.
+     */
+    public enum Priority {
+        /** Work whose result is on screen or awaited by the user, such as visible thumbnails */
+        VISIBLE,
+        /** Work the user will probably need next, such as neighbouring photos */
+        PREFETCH,
+        /** Indexing and hashing */
+        INDEX,
+        /** Persistence housekeeping such as compaction and cache pruning */
+        PERSIST
+    }
+
+    /**
+     * The resource a task mostly uses, which selects the pool it runs on.
+     */
+    public enum Resource {
+        CPU,
+        IO
+    }
+
+    private static final TaskScheduler DEFAULT = new TaskScheduler(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 2);
+
+    private final ThreadPoolExecutor cpu;
+    private final ThreadPoolExecutor io;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder[] queued = new LongAdder[Priority.values().length];
+    private final LatencyHistogram[] waitTimes = new LatencyHistogram[Priority.values().length];
+    private final LatencyHistogram[] runTimes = new LatencyHistogram[Priority.values().length];
+    private final Counter cancelled = Metrics.counter("scheduler.cancelled");
+
+    /**
+     * Constructor
+     * @param cpuThreads Number of threads for CPU-bound tasks
+     * @param ioThreads Number of threads for I/O-bound tasks
+     */
+    public TaskScheduler(int cpuThreads, int ioThreads) {
+        cpu = createPool("task-cpu", cpuThreads);
+        io = createPool("task-io", ioThreads);
+        for (Priority priority : Priority.values()) {
+            String lane = priority.name().toLowerCase(Locale.ROOT);
+            LongAdder depth = new LongAdder();
+            queued[priority.ordinal()] = depth;
+            waitTimes[priority.ordinal()] = Metrics.histogram("scheduler." + lane + ".wait");
+            runTimes[priority.ordinal()] = Metrics.histogram("scheduler." + lane + ".run");
+            Metrics.gauge("scheduler." + lane + ".queued", depth::sum);
+        }
+    }
+
+    /**
+     * Gets the scheduler shared by the whole application
+     * @return The default scheduler
+     */
+    public static TaskScheduler getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates a group for the tasks of one view or operation
+     * @return A new, empty group
+     */
+    public TaskGroup newGroup() {
+        return new TaskGroup(this);
+    }
+
+    /**
+     * Queues a task. Called through {@link TaskGroup#submit}.
+     * @return Future completing with the task's result; cancelling it before the task starts skips the task
+     */
+    <T> CompletableFuture<T> submit(Priority priority, Resource resource, Callable<T> task) {
+        ScheduledTask<T> scheduled = new ScheduledTask<>(priority, sequence.getAndIncrement(), task);
+        ThreadPoolExecutor pool = resource == Resource.CPU ? cpu : io;
+        queued[priority.ordinal()].increment();
+        scheduled.future.whenComplete((result, error) -> {
+            if (scheduled.future.isCancelled()) {
+                scheduled.cancelQueued();
+            }
+        });
+        pool.execute(scheduled);
+        return scheduled.future;
+    }
+
+    private static ThreadPoolExecutor createPool(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A queued task, ordered by priority and then by submission order.
+     */
+    private final class ScheduledTask<T> implements Runnable, Comparable<ScheduledTask<?>> {
+        private final Priority priority;
+        private final long sequence;
+        private final long submitted = System.nanoTime();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        // Set by whichever comes first: a thread taking the task, or its cancellation while queued
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private volatile Callable<T> task;
+
+        ScheduledTask(Priority priority, long sequence, Callable<T> task) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        /**
+         * Leaves the task in the queue as an empty shell, to be dropped when a thread takes it
+         */
+        void cancelQueued() {
+            if (settled.compareAndSet(false, true)) {
+                queued[priority.ordinal()].decrement();
+                cancelled.increment();
+                task = null;
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!settled.compareAndSet(false, true)) {
+                // Cancelled while queued
+                return;
+            }
+            queued[priority.ordinal()].decrement();
+            Callable<T> work = task;
+            if (future.isDone() || work == null) {
+                cancelled.increment();
+                return;
+            }
+
+            long start = System.nanoTime();
+            waitTimes[priority.ordinal()].record(start - submitted);
+            try {
+                future.complete(work.call());
+            } catch (Exception | Error e) {
+                future.completeExceptionally(e);
+            } finally {
+                runTimes[priority.ordinal()].recordSince(start);
+            }
+        }
+
+        @Override
+        public int compareTo(ScheduledTask<?> other) {
+            int order = priority.compareTo(other.priority);
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+    }
+}
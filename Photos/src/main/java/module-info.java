@@ -5,10 +5,19 @@ module com.example.photo_manager {
     requires org.controlsfx.controls;
     requires org.kordamp.bootstrapfx.core;
 
+    requires jdk.httpserver;
+    requires java.net.http;
+    requires java.sql;
+    requires java.management;
+    requires java.desktop;
+    requires jdk.jfr;
+    requires com.h2database;
+
     opens com.example.photomanager.controller to javafx.fxml;
     opens com.example.photomanager to javafx.fxml;
     exports com.example.photomanager;
     exports com.example.photomanager.controller;
+    exports com.example.photomanager.metrics;
 
 
     requires javafx.graphics;
@@ -0,0 +1,62 @@
+package com.example.photomanager.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ExifThumbnailTest {
+    private static final byte[] THUMBNAIL = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3, (byte) 0xFF, (byte) 0xD9};
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes a JPEG holding only an EXIF segment whose IFD1 points at a thumbnail
+     * @param length Thumbnail length to record, which need not match the bytes stored
+     */
+    private File jpeg(int length) throws IOException {
+        // Big-endian TIFF: header, empty IFD0 linking to IFD1, IFD1 with offset and length, then the thumbnail
+        ByteBuffer tiff = ByteBuffer.allocate(44 + THUMBNAIL.length);
+        tiff.putShort((short) 0x4D4D).putShort((short) 42).putInt(8);
+        tiff.putShort((short) 0).putInt(14);
+        tiff.putShort((short) 2);
+        tiff.putShort((short) 0x0201).putShort((short) 4).putInt(1).putInt(44);
+        tiff.putShort((short) 0x0202).putShort((short) 4).putInt(1).putInt(length);
+        tiff.putInt(0);
+        tiff.put(THUMBNAIL);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(0xFFD8);
+        out.writeShort(0xFFE1);
+        out.writeShort(2 + 6 + tiff.capacity());
+        out.write(new byte[]{'E', 'x', 'i', 'f', 0, 0});
+        out.write(tiff.array());
+        out.writeShort(0xFFDA);
+        File file = directory.resolve("photo.jpg").toFile();
+        Files.write(file.toPath(), bytes.toByteArray());
+        return file;
+    }
+
+    @Test
+    void readsEmbeddedThumbnail() throws IOException {
+        assertArrayEquals(THUMBNAIL, ExifThumbnail.read(jpeg(THUMBNAIL.length)));
+    }
+
+    @Test
+    void lengthPastSegmentIsRejected() throws IOException {
+        assertNull(ExifThumbnail.read(jpeg(THUMBNAIL.length + 1)));
+        // offset + length overflows int, which must not slip past the bounds check
+        assertNull(ExifThumbnail.read(jpeg(Integer.MAX_VALUE - 20)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChangeSequenceFileTest {
+    @TempDir
+    Path directory;
+
+    private ChangeSequenceFile journal() {
+        return new ChangeSequenceFile(directory.resolve("users.dat.seq"));
+    }
+
+    @Test
+    void missingFileIsSequenceZero() throws IOException {
+        ChangeSequenceFile journal = journal();
+        assertEquals(0, journal.readSequence());
+        assertEquals(Set.of(), journal.changedSince(0, "reader"));
+    }
+
+    @Test
+    void appendBumpsSequencePerUser() throws IOException {
+        ChangeSequenceFile journal = journal();
+        assertEquals(2, journal.append("a", List.of("alice", "bob")));
+        assertEquals(3, journal.append("a", List.of("carol")));
+        assertEquals(3, journal.readSequence());
+        assertEquals(3, journal().readSequence());
+    }
+
+    @Test
+    void changedSinceSkipsOwnEntries() throws IOException {
+        ChangeSequenceFile journal = journal();
+        journal.append("a", List.of("alice"));
+        journal.append("b", List.of("bob"));
+        journal.append("a", List.of("carol"));
+        journal.append("b", List.of("dave"));
+
+        assertEquals(Set.of("bob", "dave"), journal.changedSince(0, "a"));
+        assertEquals(Set.of("dave"), journal.changedSince(3, "a"));
+        assertEquals(Set.of("carol"), journal.changedSince(2, "b"));
+        assertEquals(Set.of(), journal.changedSince(4, "a"));
+    }
+
+    @Test
+    void usernamesMayContainSpaces() throws IOException {
+        ChangeSequenceFile journal = journal();
+        journal.append("a", List.of("Mary Ann Smith"));
+        assertEquals(Set.of("Mary Ann Smith"), journal.changedSince(0, "b"));
+    }
+
+    @Test
+    void trimmedEntriesReportUnknown() throws IOException {
+        ChangeSequenceFile journal = journal();
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            usernames.add("user" + i);
+        }
+        assertEquals(300, journal.append("a", usernames));
+
+        // Entries 1 to 44 were dropped, so a reader that has not seen 44 cannot tell what changed after it
+        assertNull(journal.changedSince(0, "b"));
+        assertNull(journal.changedSince(43, "b"));
+        assertEquals(256, journal.changedSince(44, "b").size());
+        assertEquals(Set.of("user299"), journal.changedSince(299, "b"));
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.photomanager.model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+class DatabaseBackendTest extends StorageBackendTest {
+    @Override
+    StorageBackend create(Path directory) throws IOException {
+        return new DatabaseBackend(directory.resolve("library").toString());
+    }
+}
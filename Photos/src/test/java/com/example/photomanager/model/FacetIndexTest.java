@@ -0,0 +1,162 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FacetIndexTest {
+    private User user;
+    private Album trips;
+    private FacetIndex index;
+
+    @BeforeEach
+    void createLibrary() {
+        user = new User("alice", "password", false);
+        trips = user.createAlbum("Trips");
+        index = new FacetIndex(user);
+    }
+
+    @AfterEach
+    void closeIndex() {
+        index.close();
+    }
+
+    private static Date day(int year, int month, int day) {
+        return Date.from(LocalDate.of(year, month, day).atStartOfDay(ZoneId.systemDefault()).plusHours(12).toInstant());
+    }
+
+    private Photo add(Album album, String name, Date taken, Tag... tags) {
+        Photo photo = new Photo("/photos/" + name + ".jpg", "", taken, new ArrayList<>(List.of(tags)));
+        album.addPhoto(photo);
+        return photo;
+    }
+
+    @Test
+    void photosInSeveralAlbumsAreCountedOnce() {
+        Photo paris = add(trips, "paris", day(2024, 7, 31), new Tag("place", "Paris"));
+        Album favourites = user.createAlbum("Favourites");
+        favourites.addPhoto(paris);
+
+        FacetCounts counts = index.counts();
+        assertEquals(Map.of("place", 1), counts.getTagNames());
+        assertEquals(Map.of("2024-07-31", 1), counts.getTimeline(FacetCounts.Granularity.DAY));
+
+        trips.removePhoto(paris);
+        assertEquals(Map.of("Paris", 1), index.counts().getValues("place"));
+        user.deleteAlbum(favourites);
+        assertTrue(index.counts().getTagNames().isEmpty());
+        assertTrue(index.counts().getTimeline(FacetCounts.Granularity.YEAR).isEmpty());
+    }
+
+    @Test
+    void namesCountPhotosAndValuesCountTags() {
+        Photo photo = add(trips, "a", day(2024, 7, 31), new Tag("person", "Ann"), new Tag("person", "Bob"));
+        add(trips, "b", day(2024, 8, 1), new Tag("person", "Ann"));
+
+        FacetCounts counts = index.counts();
+        assertEquals(Map.of("person", 2), counts.getTagNames());
+        assertEquals(Map.of("Ann", 2, "Bob", 1), counts.getValues("person"));
+
+        photo.removeTag(new Tag("person", "Ann"));
+        counts = index.counts();
+        assertEquals(Map.of("person", 2), counts.getTagNames());
+        assertEquals(Map.of("Ann", 1, "Bob", 1), counts.getValues("person"));
+
+        photo.removeTag(new Tag("person", "Bob"));
+        assertEquals(Map.of("person", 1), index.counts().getTagNames());
+    }
+
+    @Test
+    void countsAreCopies() {
+        add(trips, "a", day(2024, 7, 31), new Tag("place", "Paris"));
+        FacetCounts before = index.counts();
+        add(trips, "b", day(2024, 7, 31), new Tag("place", "Paris"));
+
+        assertEquals(Map.of("Paris", 1), before.getValues("place"));
+        assertEquals(Map.of("Paris", 2), index.counts().getValues("place"));
+    }
+
+    @Test
+    void incrementalCountsAgreeWithCountingTheLibrary() {
+        Random random = new Random(45);
+        List<Album> albums = new ArrayList<>(List.of(trips, user.createAlbum("Family"), user.createAlbum("Work")));
+        List<Photo> photos = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            photos.add(new Photo("/photos/" + i + ".jpg", "", day(2020 + random.nextInt(4), 1 + random.nextInt(12), 1 + random.nextInt(28)),
+                    new ArrayList<>()));
+        }
+
+        for (int step = 0; step < 2000; step++) {
+            Photo photo = photos.get(random.nextInt(photos.size()));
+            Album album = albums.get(random.nextInt(albums.size()));
+            Tag tag = new Tag(random.nextBoolean() ? "place" : "person", "v" + random.nextInt(5));
+            switch (random.nextInt(5)) {
+                case 0:
+                    album.addPhoto(photo);
+                    break;
+                case 1:
+                    album.removePhoto(photo);
+                    break;
+                case 2:
+                    photo.addTag(tag);
+                    break;
+                case 3:
+                    photo.removeTag(tag);
+                    break;
+                default:
+                    // Batched edits, where a photo's tags are ahead of the changes still to be delivered
+                    ModelChanges.inTransaction(() -> {
+                        album.addPhoto(photo);
+                        photo.addTag(tag);
+                        photo.removeTag(tag);
+                        photo.addTag(new Tag(tag.getName(), "batched"));
+                    });
+                    break;
+            }
+            if (step % 100 == 0) {
+                assertSameCounts(FacetCounts.of(user.snapshot().getAllPhotos()), index.counts());
+            }
+        }
+        assertSameCounts(FacetCounts.of(user.snapshot().getAllPhotos()), index.counts());
+    }
+
+    private static void assertSameCounts(FacetCounts expected, FacetCounts actual) {
+        assertEquals(expected.getTagNames(), actual.getTagNames());
+        for (String name : List.of("place", "person")) {
+            assertEquals(expected.getValues(name), actual.getValues(name));
+        }
+        for (FacetCounts.Granularity granularity : FacetCounts.Granularity.values()) {
+            assertEquals(expected.getTimeline(granularity), actual.getTimeline(granularity));
+        }
+    }
+
+    @Test
+    void timelinePeriodsNestAndCoverWholeDays() {
+        add(trips, "a", day(2023, 12, 31));
+        add(trips, "b", day(2024, 2, 29));
+        add(trips, "c", day(2024, 2, 29));
+
+        FacetCounts counts = index.counts();
+        assertEquals(Map.of("2023", 1, "2024", 2), counts.getTimeline(FacetCounts.Granularity.YEAR));
+        assertEquals(Map.of("2023-12", 1, "2024-02", 2), counts.getTimeline(FacetCounts.Granularity.MONTH));
+        assertEquals(FacetCounts.Granularity.YEAR, counts.getCoarsestUseful());
+
+        assertEquals(Date.from(LocalDate.of(2024, 2, 1).atStartOfDay(ZoneId.systemDefault()).toInstant()),
+                FacetCounts.periodStart("2024-02"));
+        assertEquals(Date.from(LocalDate.of(2024, 3, 1).atStartOfDay(ZoneId.systemDefault()).toInstant()).getTime() - 1,
+                FacetCounts.periodEnd("2024-02").getTime());
+        assertEquals(FacetCounts.periodStart("2024"), FacetCounts.periodStart("2024-01-01"));
+        assertEquals(FacetCounts.periodEnd("2024"), FacetCounts.periodEnd("2024-12-31"));
+    }
+}
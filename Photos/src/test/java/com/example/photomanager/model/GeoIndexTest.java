@@ -0,0 +1,187 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoIndexTest {
+    private User user;
+    private Album album;
+    private GeoIndex index;
+
+    @BeforeEach
+    void createLibrary() {
+        user = new User("alice", "password", false);
+        album = user.createAlbum("All");
+        index = new GeoIndex(user, Gazetteer.getDefault());
+    }
+
+    @AfterEach
+    void closeIndex() {
+        index.close();
+    }
+
+    private Photo add(String name, Tag... tags) {
+        Photo photo = new Photo("/photos/" + name + ".jpg", "", new Date(0), List.of(tags));
+        album.addPhoto(photo);
+        return photo;
+    }
+
+    private static Set<Photo> identitySet(List<Photo> photos) {
+        Set<Photo> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(photos);
+        assertEquals(photos.size(), set.size(), "a photo was returned twice");
+        return set;
+    }
+
+    private static double[] position(Photo photo) {
+        return GeoIndex.parseCoordinates(photo.getTagValues(GeoIndex.GPS_TAG).get(0));
+    }
+
+    @Test
+    void searchesAgreeWithBruteForce() {
+        Random random = new Random(7);
+        List<Photo> photos = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // Half of them clustered around Paris, so small searches find something
+            double lat = i % 2 == 0 ? 48.8 + random.nextGaussian() * 0.5 : random.nextDouble() * 180 - 90;
+            double lon = i % 2 == 0 ? 2.35 + random.nextGaussian() * 0.5 : random.nextDouble() * 360 - 180;
+            photos.add(add("p" + i, GeoIndex.gpsTag(lat, lon)));
+        }
+        assertEquals(2000, index.size());
+
+        double[][] boxes = {{48, 1, 49.5, 3.5}, {-10, -20, 10, 20}, {-90, -180, 90, 180}, {48.85, 2.35, 48.86, 2.36}};
+        for (double[] box : boxes) {
+            Set<Photo> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Photo photo : photos) {
+                double[] p = position(photo);
+                if (p[0] >= box[0] && p[0] <= box[2] && p[1] >= box[1] && p[1] <= box[3]) {
+                    expected.add(photo);
+                }
+            }
+            assertEquals(expected, identitySet(index.within(box[0], box[1], box[2], box[3])));
+        }
+
+        double[] radii = {0.5, 20, 500, 5000};
+        for (double radius : radii) {
+            List<Photo> found = index.withinRadius(48.8566, 2.3522, radius);
+            Set<Photo> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Photo photo : photos) {
+                double[] p = position(photo);
+                if (GeoIndex.distanceKm(48.8566, 2.3522, p[0], p[1]) <= radius) {
+                    expected.add(photo);
+                }
+            }
+            assertEquals(expected, identitySet(found), "radius " + radius);
+            for (int i = 1; i < found.size(); i++) {
+                double[] before = position(found.get(i - 1));
+                double[] after = position(found.get(i));
+                assertTrue(GeoIndex.distanceKm(48.8566, 2.3522, before[0], before[1])
+                        <= GeoIndex.distanceKm(48.8566, 2.3522, after[0], after[1]), "not nearest first");
+            }
+        }
+
+        // The 10 nearest to a remote point, far from the Paris cluster
+        List<Photo> byDistance = new ArrayList<>(photos);
+        byDistance.sort((a, b) -> Double.compare(GeoIndex.distanceKm(-40, 170, position(a)[0], position(a)[1]),
+                GeoIndex.distanceKm(-40, 170, position(b)[0], position(b)[1])));
+        assertEquals(byDistance.subList(0, 10), index.nearest(-40, 170, 10));
+    }
+
+    @Test
+    void boxesAndCirclesCrossTheAntimeridian() {
+        Photo fiji = add("fiji", GeoIndex.gpsTag(-17.7, 178.0));
+        Photo samoa = add("samoa", GeoIndex.gpsTag(-13.8, -172.0));
+        add("paris", GeoIndex.gpsTag(48.85, 2.35));
+
+        assertEquals(Set.of(fiji, samoa), identitySet(index.within(-20, 170, -10, -170)));
+        assertEquals(List.of(fiji, samoa), index.withinRadius(-17, 179.5, 1500));
+        assertEquals(List.of(samoa), index.nearest(-13, -171, 1));
+    }
+
+    @Test
+    void locationTagsUseTheGazetteer() {
+        Photo paris = add("paris", new Tag("location", "paris"));
+        Photo nowhere = add("nowhere", new Tag("location", "Atlantis"));
+        assertEquals(1, index.size());
+        assertEquals(List.of(paris), index.withinRadius(48.8566, 2.3522, 1));
+
+        // A GPS position wins over the place name
+        paris.addTag(GeoIndex.gpsTag(51.5074, -0.1278));
+        assertEquals(List.of(), index.withinRadius(48.8566, 2.3522, 10));
+        assertEquals(List.of(paris), index.withinRadius(51.5074, -0.1278, 1));
+
+        nowhere.addTag(new Tag("location", "Tokyo"));
+        assertEquals(List.of(nowhere), index.nearest(35, 139, 1));
+    }
+
+    @Test
+    void photosLeaveWithTheirLastAlbum() {
+        Photo photo = add("paris", GeoIndex.gpsTag(48.85, 2.35));
+        Album other = user.createAlbum("Best");
+        other.addPhoto(photo);
+        album.removePhoto(photo);
+        assertEquals(1, index.size());
+
+        user.deleteAlbum(other);
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.within(-90, -180, 90, 180));
+    }
+
+    @Test
+    void clusterCentroidsStayExactAfterMovesAndRemovals() {
+        Photo fixed = add("fixed", GeoIndex.gpsTag(48.123457, 2.345679));
+        Photo moving = add("moving", GeoIndex.gpsTag(48.987653, 2.111113));
+        for (int i = 0; i < 50; i++) {
+            moving.removeTag(moving.getTags().get(0));
+            moving.addTag(GeoIndex.gpsTag(48.5 + i * 0.001237, 2.5 + i * 0.000913));
+        }
+        Photo leaving = add("leaving", GeoIndex.gpsTag(48.765431, 2.987651));
+        album.removePhoto(leaving);
+
+        double[] a = GeoIndex.parseCoordinates(fixed.getTags().get(0).getValue());
+        double[] b = GeoIndex.parseCoordinates(moving.getTags().get(0).getValue());
+        for (int level = 1; level <= GeoIndex.MAX_CLUSTER_LEVEL; level++) {
+            // The cells' position sums add up to the exact positions of the two photos left
+            int count = 0;
+            double latitudes = 0;
+            double longitudes = 0;
+            for (GeoIndex.Cluster cluster : index.clusters(-90, -180, 90, 180, level)) {
+                count += cluster.getCount();
+                latitudes += cluster.getCount() * cluster.getLatitude();
+                longitudes += cluster.getCount() * cluster.getLongitude();
+            }
+            assertEquals(2, count, "level " + level);
+            assertEquals(a[0] + b[0], latitudes, 1e-9, "level " + level);
+            assertEquals(a[1] + b[1], longitudes, 1e-9, "level " + level);
+        }
+    }
+
+    @Test
+    void clustersCountEveryPhotoOnce() {
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            add("p" + i, GeoIndex.gpsTag(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+        }
+        for (int level = 1; level <= GeoIndex.MAX_CLUSTER_LEVEL; level += 3) {
+            int total = 0;
+            for (GeoIndex.Cluster cluster : index.clusters(-90, -180, 90, 180, level)) {
+                total += cluster.getCount();
+            }
+            assertEquals(500, total, "level " + level);
+        }
+        assertThrows(IllegalArgumentException.class, () -> index.clusters(-90, -180, 90, 180, 0));
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.photomanager.model;
+
+import java.nio.file.Path;
+
+class InMemoryBackendTest extends StorageBackendTest {
+    @Override
+    StorageBackend create(Path directory) {
+        return new InMemoryBackend();
+    }
+
+    @Override
+    boolean sharesStore() {
+        return false;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntIntMapTest {
+    private static void assertSameContents(Map<Integer, Integer> expected, IntIntMap map) {
+        assertEquals(expected.size(), map.size());
+        int visited = 0;
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            if (map.keyAt(slot) >= 0) {
+                assertEquals(expected.get(map.keyAt(slot)), Integer.valueOf(map.valueAt(slot)));
+                visited++;
+            }
+        }
+        assertEquals(expected.size(), visited);
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void countsDroppingToZeroAreRemoved() {
+        IntIntMap map = new IntIntMap();
+        assertEquals(0, map.get(7));
+        assertEquals(0, map.add(7, 0));
+        assertEquals(0, map.size());
+        assertEquals(2, map.add(7, 2));
+        assertEquals(-1, map.add(8, -1));
+        assertEquals(0, map.add(7, -2));
+        assertEquals(1, map.size());
+        assertEquals(0, map.get(7));
+        assertEquals(-1, map.get(8));
+    }
+
+    @Test
+    void removalKeepsCollidingKeysReachable() {
+        // Few distinct home slots in a small table, so probe runs wrap around and overlap
+        for (int seed = 0; seed < 50; seed++) {
+            Random random = new Random(seed);
+            IntIntMap map = new IntIntMap();
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 200; i++) {
+                int key = random.nextInt(24);
+                int delta = random.nextBoolean() ? 1 : -1;
+                expected.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+                map.add(key, delta);
+                assertSameContents(expected, map);
+            }
+        }
+    }
+
+    @Test
+    void largeTablesSpreadKeysOverAllSlots() {
+        IntIntMap map = new IntIntMap();
+        for (int key = 0; key < 100_000; key++) {
+            map.add(key, 1);
+        }
+        assertTrue(map.capacity() > 65536);
+        // With homes drawn from every bit of the hash, each quarter of the table holds about a quarter of the keys
+        int[] quarters = new int[4];
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            if (map.keyAt(slot) >= 0) {
+                quarters[slot * 4 / map.capacity()]++;
+            }
+        }
+        for (int count : quarters) {
+            assertTrue(count > 100_000 / 8, "keys crowd into part of the table: " + Arrays.toString(quarters));
+        }
+        for (int key = 0; key < 100_000; key++) {
+            assertEquals(1, map.get(key));
+        }
+    }
+
+    @Test
+    void agreesWithHashMapUnderRandomEdits() {
+        Random random = new Random(11);
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(5000);
+            // Mostly additions at first, then mostly removals, so the table grows and then empties
+            int delta = random.nextInt(100_000) > i ? random.nextInt(3) + 1 : -(random.nextInt(3) + 1);
+            int count = expected.getOrDefault(key, 0) + delta;
+            if (count == 0) {
+                expected.remove(key);
+            } else {
+                expected.put(key, count);
+            }
+            assertEquals(count, map.add(key, delta));
+        }
+        assertSameContents(expected, map);
+    }
+}
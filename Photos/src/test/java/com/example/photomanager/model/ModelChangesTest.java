@@ -0,0 +1,124 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelChangesTest {
+    /**
+     * Listener keeping every delivery it receives
+     */
+    private static final class Recorder implements ModelChangeListener {
+        final List<List<ModelChange>> deliveries = new ArrayList<>();
+
+        @Override
+        public void modelChanged(List<ModelChange> changes) {
+            deliveries.add(new ArrayList<>(changes));
+        }
+
+        List<ModelChange.Type> types() {
+            List<ModelChange.Type> types = new ArrayList<>();
+            for (List<ModelChange> delivery : deliveries) {
+                for (ModelChange change : delivery) {
+                    types.add(change.getType());
+                }
+            }
+            return types;
+        }
+    }
+
+    private final Recorder global = new Recorder();
+    private final Recorder aliceListener = new Recorder();
+    private final Recorder bobListener = new Recorder();
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void subscribe() {
+        alice = new User("alice", "password", false);
+        bob = new User("bob", "password", false);
+        ModelChanges.subscribe(global);
+        ModelChanges.subscribe(alice, aliceListener);
+        ModelChanges.subscribe(bob, bobListener);
+    }
+
+    @AfterEach
+    void unsubscribe() {
+        ModelChanges.unsubscribe(global);
+    }
+
+    private static Photo photo(String name) {
+        return new Photo("/photos/" + name + ".jpg", "", new Date(0), new ArrayList<>());
+    }
+
+    @Test
+    void userListenersOnlyHearAboutTheirUser() {
+        Album trips = alice.createAlbum("Trips");
+        Photo photo = photo("a");
+        trips.addPhoto(photo);
+        photo.addTag(new Tag("place", "Paris"));
+
+        assertEquals(List.of(ModelChange.Type.ALBUM_ADDED, ModelChange.Type.PHOTO_ADDED, ModelChange.Type.TAG_ADDED),
+                aliceListener.types());
+        assertTrue(bobListener.deliveries.isEmpty());
+        assertEquals(aliceListener.types(), global.types());
+        for (List<ModelChange> delivery : global.deliveries) {
+            assertSame(alice, delivery.get(0).getUser());
+        }
+
+        bob.createAlbum("Pets");
+        assertEquals(3, aliceListener.deliveries.size());
+        assertEquals(List.of(ModelChange.Type.ALBUM_ADDED), bobListener.types());
+        assertEquals(4, global.deliveries.size());
+    }
+
+    @Test
+    void changesOutsideAnyLibraryOnlyReachGlobalListeners() {
+        Photo loose = photo("loose");
+        loose.setCaption("Not in an album");
+
+        assertEquals(1, global.deliveries.size());
+        assertNull(global.deliveries.get(0).get(0).getUser());
+        assertTrue(aliceListener.deliveries.isEmpty());
+        assertTrue(bobListener.deliveries.isEmpty());
+    }
+
+    @Test
+    void transactionsAreDeliveredOnceToEachUserTheyTouch() {
+        Album trips = alice.createAlbum("Trips");
+        Album pets = bob.createAlbum("Pets");
+        aliceListener.deliveries.clear();
+        bobListener.deliveries.clear();
+        global.deliveries.clear();
+
+        ModelChanges.inTransaction(() -> {
+            trips.addPhoto(photo("a"));
+            ModelChanges.inTransaction(() -> trips.addPhoto(photo("b")));
+            pets.addPhoto(photo("c"));
+        });
+
+        assertEquals(1, global.deliveries.size());
+        assertEquals(3, global.deliveries.get(0).size());
+        // A user's listeners also see the rest of a transaction that touched the user
+        assertEquals(global.deliveries, aliceListener.deliveries);
+        assertEquals(global.deliveries, bobListener.deliveries);
+    }
+
+    @Test
+    void unsubscribedUserListenersHearNothing() {
+        ModelChanges.unsubscribe(alice, aliceListener);
+        alice.createAlbum("Trips").addPhoto(photo("a"));
+
+        assertTrue(aliceListener.deliveries.isEmpty());
+        assertEquals(2, global.deliveries.size());
+    }
+}
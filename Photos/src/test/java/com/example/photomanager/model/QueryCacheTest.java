@@ -0,0 +1,131 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QueryCacheTest {
+    private static final QueryCache.Key PLACE = QueryCache.Key.tags("place", "Paris", null, null, null);
+    private static final QueryCache.Key RATING = QueryCache.Key.query(TagQuery.parse("rating >= 4"));
+    private static final QueryCache.Key JANUARY = QueryCache.Key.dates(new Date(1000), new Date(2000));
+
+    private TagSchema schema;
+    private User user;
+    private Album album;
+    private Photo photo;
+    private QueryCache cache;
+
+    @BeforeEach
+    void createLibrary() {
+        schema = new TagSchema(null);
+        user = new User("alice", "password", false);
+        album = user.createAlbum("All");
+        photo = new Photo("/photos/1.jpg", "", new Date(1500), List.of(new Tag("place", "Paris")));
+        album.addPhoto(photo);
+        cache = new QueryCache(user, schema);
+        for (QueryCache.Key key : List.of(PLACE, RATING, JANUARY)) {
+            cache.put(key, cache.ticket(), List.of(photo));
+        }
+    }
+
+    @AfterEach
+    void closeCache() {
+        cache.close();
+    }
+
+    @Test
+    void equivalentSearchesShareKeys() {
+        assertEquals(QueryCache.Key.tags("a", "1", "b", "2", PhotoSearch.AND),
+                QueryCache.Key.tags("b", "2", "a", "1", PhotoSearch.AND));
+        assertEquals(RATING, QueryCache.Key.query(TagQuery.parse("rating>=4")));
+        assertEquals(List.of(photo), cache.get(QueryCache.Key.query(TagQuery.parse(" rating  >=  4 "))));
+    }
+
+    @Test
+    void searchesWithSeparatorsInNamesOrValuesDoNotCollide() {
+        assertNotEquals(QueryCache.Key.tags("a=b", "c", null, null, null), QueryCache.Key.tags("a", "b=c", null, null, null));
+        assertNotEquals(QueryCache.Key.tags("a", "b AND c=d", "e", "f", PhotoSearch.AND),
+                QueryCache.Key.tags("a", "b", "c", "d AND e=f", PhotoSearch.AND));
+        // Names are matched exactly by tag searches, so differently cased names are different searches
+        assertNotEquals(QueryCache.Key.tags("Place", "Paris", null, null, null), PLACE);
+
+        cache.put(QueryCache.Key.tags("a=b", "c", null, null, null), cache.ticket(), List.of(photo));
+        assertNull(cache.get(QueryCache.Key.tags("a", "b=c", null, null, null)));
+    }
+
+    @Test
+    void tagChangeDropsOnlySearchesReadingItsName() {
+        photo.addTag(new Tag("Rating", "5"));
+        assertNull(cache.get(RATING));
+        assertNotNull(cache.get(PLACE));
+        assertNotNull(cache.get(JANUARY));
+
+        photo.removeTag(new Tag("place", "Paris"));
+        assertNull(cache.get(PLACE));
+        assertNotNull(cache.get(JANUARY));
+    }
+
+    @Test
+    void photoJoiningLibraryDropsSearchesItCouldMatch() {
+        // Taken outside the cached date range, with a tag no cached search reads
+        album.addPhoto(new Photo("/photos/2.jpg", "", new Date(5000), List.of(new Tag("person", "Bob"))));
+        assertNotNull(cache.get(PLACE));
+        assertNotNull(cache.get(RATING));
+        assertNotNull(cache.get(JANUARY));
+
+        album.addPhoto(new Photo("/photos/3.jpg", "", new Date(1200), List.of(new Tag("place", "Nice"))));
+        assertNull(cache.get(PLACE));
+        assertNull(cache.get(JANUARY));
+        assertNotNull(cache.get(RATING));
+    }
+
+    @Test
+    void photoLeavingLibraryDropsSearchesItMatched() {
+        // Still in another album, so the library is unchanged
+        user.createAlbum("Best").addPhoto(photo);
+        album.removePhoto(photo);
+        assertNotNull(cache.get(PLACE));
+        assertNotNull(cache.get(JANUARY));
+
+        user.findAlbum("Best").removePhoto(photo);
+        assertNull(cache.get(PLACE));
+        assertNull(cache.get(JANUARY));
+        assertNotNull(cache.get(RATING));
+    }
+
+    @Test
+    void captionsAndAlbumNamesInvalidateNothing() {
+        photo.setCaption("Eiffel tower");
+        album.setName("Everything");
+        assertNotNull(cache.get(PLACE));
+        assertNotNull(cache.get(RATING));
+        assertNotNull(cache.get(JANUARY));
+    }
+
+    @Test
+    void resultOvertakenByEditIsNotStored() {
+        QueryCache.Key key = QueryCache.Key.tags("person", "Bob", null, null, null);
+        long ticket = cache.ticket();
+        photo.addTag(new Tag("person", "Bob"));
+        cache.put(key, ticket, List.of());
+        assertNull(cache.get(key));
+
+        cache.put(key, cache.ticket(), List.of(photo));
+        assertEquals(List.of(photo), cache.get(key));
+    }
+
+    @Test
+    void declaringTypeClearsCache() {
+        schema.declare("rating", TagType.NUMBER, List.of());
+        assertNull(cache.get(RATING));
+        assertNull(cache.get(PLACE));
+    }
+}
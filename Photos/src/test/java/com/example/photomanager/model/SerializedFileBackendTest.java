@@ -0,0 +1,38 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SerializedFileBackendTest extends StorageBackendTest {
+    @Override
+    StorageBackend create(Path directory) {
+        return new SerializedFileBackend(directory.resolve("users.dat").toFile());
+    }
+
+    @Test
+    void pollReportsOnlyOtherWritersChanges() throws IOException {
+        User alice = library("alice");
+        User bob = library("bob");
+        StorageBackend first = open();
+        first.saveUsers(List.of(alice.snapshot(), bob.snapshot()));
+        assertFalse(first.hasExternalChanges());
+
+        StorageBackend second = open();
+        User otherBob = byName(second.loadUsers()).get("bob");
+        otherBob.setPassword("changed");
+        second.saveUsers(List.of(byName(second.loadUsers()).get("alice").snapshot(), otherBob.snapshot()));
+
+        assertTrue(first.hasExternalChanges());
+        assertEquals(Set.of("bob"), Set.copyOf(first.pollExternalChanges()));
+        assertFalse(first.hasExternalChanges());
+        assertEquals("changed", first.loadUsers(Set.of("bob")).get(0).getPassword());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimilarityIndexTest {
+    /**
+     * Stand-in feature extractor: the vector is read from the file name, e.g. "/photos/3.0_1.0.jpg",
+     * and files named "broken" cannot be read
+     */
+    private static float[] features(String path) {
+        String name = path.substring(path.lastIndexOf('/') + 1, path.lastIndexOf('.'));
+        if (name.equals("broken")) {
+            return null;
+        }
+        String[] parts = name.split("_");
+        return new float[]{Float.parseFloat(parts[0]), Float.parseFloat(parts[1])};
+    }
+
+    private static Photo photo(String name) {
+        return new Photo("/photos/" + name + ".jpg", "", new Date(0), List.of());
+    }
+
+    private static void awaitAnalysis(SimilarityIndex index) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (index.getPending() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "analysis did not finish");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void similarPhotosAreFoundNearestFirst() throws InterruptedException {
+        User user = new User("alice", "password", false);
+        Album album = user.createAlbum("All");
+        Photo origin = photo("0_0");
+        Photo near = photo("1_0");
+        Photo middle = photo("0_3");
+        Photo far = photo("10_10");
+        Photo broken = photo("broken");
+        for (Photo photo : List.of(origin, near, middle, far, broken)) {
+            album.addPhoto(photo);
+        }
+
+        SimilarityIndex index = new SimilarityIndex(user, SimilarityIndexTest::features, 2);
+        try {
+            awaitAnalysis(index);
+            assertEquals(List.of(near, middle), index.similarTo(origin, 2));
+            assertNull(index.similarTo(broken, 2));
+
+            // Photos joining the library are analysed in the background too
+            Photo closest = photo("0.5_0");
+            album.addPhoto(closest);
+            awaitAnalysis(index);
+            assertEquals(List.of(closest, near, middle, far), index.similarTo(origin, 10));
+
+            album.removePhoto(near);
+            assertNull(index.similarTo(near, 2));
+            assertEquals(List.of(closest, middle), index.similarTo(origin, 2));
+        } finally {
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmartAlbumIndexTest {
+    @TempDir
+    Path directory;
+
+    private User user;
+    private Album trips;
+    private SmartAlbum cats;
+
+    @BeforeEach
+    void createLibrary() {
+        user = new User("alice", "password", false);
+        trips = user.createAlbum("Trips");
+        cats = user.createSmartAlbum("Cats", "pet = cat", null, null);
+    }
+
+    private Photo add(Album album, String name, long taken, Tag... tags) {
+        Photo photo = new Photo("/photos/" + name + ".jpg", "", new Date(taken), new ArrayList<>(List.of(tags)));
+        album.addPhoto(photo);
+        return photo;
+    }
+
+    private static List<String> names(Album album) {
+        List<String> names = new ArrayList<>();
+        for (Photo photo : album.getPhotos()) {
+            String path = photo.getPath();
+            names.add(path.substring(path.lastIndexOf('/') + 1, path.lastIndexOf('.')));
+        }
+        return names;
+    }
+
+    @Test
+    void photosJoinInCaptureDateOrder() {
+        Tag cat = new Tag("pet", "cat");
+        add(trips, "c", 3000, cat);
+        add(trips, "a", 1000, cat);
+        add(trips, "dog", 1500, new Tag("pet", "dog"));
+        add(trips, "b", 2000, cat);
+        add(trips, "b2", 2000, cat);
+        assertEquals(List.of("a", "b", "b2", "c"), names(cats));
+
+        // A smart album filled from scratch agrees with the incrementally maintained one
+        SmartAlbum filled = user.createSmartAlbum("Also cats", "pet = cat", null, null);
+        assertEquals(names(cats), names(filled));
+    }
+
+    @Test
+    void photosLeaveWhenNoLongerInTheLibrary() {
+        Tag cat = new Tag("pet", "cat");
+        Photo shared = add(trips, "shared", 1000, cat);
+        Photo other = add(trips, "other", 2000, cat);
+        Album favourites = user.createAlbum("Favourites");
+        favourites.addPhoto(shared);
+
+        // Still in another album
+        trips.removePhoto(shared);
+        assertEquals(List.of("shared", "other"), names(cats));
+
+        favourites.removePhoto(shared);
+        assertEquals(List.of("other"), names(cats));
+
+        user.deleteAlbum(trips);
+        assertTrue(cats.getPhotos().isEmpty());
+        assertTrue(other.getTags().contains(cat));
+    }
+
+    @Test
+    void tagEditsChangeMembership() {
+        Tag cat = new Tag("pet", "cat");
+        add(trips, "a", 1000, cat);
+        Photo b = add(trips, "b", 2000);
+        add(trips, "c", 3000, cat);
+        assertEquals(List.of("a", "c"), names(cats));
+
+        b.addTag(cat);
+        assertEquals(List.of("a", "b", "c"), names(cats));
+        b.addTag(new Tag("place", "Paris"));
+        assertEquals(List.of("a", "b", "c"), names(cats));
+
+        b.removeTag(cat);
+        assertEquals(List.of("a", "c"), names(cats));
+    }
+
+    @Test
+    void smartAlbumsAreRefilledAfterARoundTrip() throws IOException {
+        Tag cat = new Tag("pet", "cat");
+        add(trips, "c", 3000, cat);
+        add(trips, "a", 1000, cat);
+        add(trips, "b", 2000, cat);
+
+        User copy = user.snapshot().toUser();
+        assertEquals(List.of("a", "b", "c"), names(copy.getSmartAlbums().get(0)));
+
+        StorageBackend backend = new SerializedFileBackend(directory.resolve("users.dat").toFile());
+        backend.saveUsers(List.of(user.snapshot()));
+        User loaded = backend.loadUsers().get(0);
+        SmartAlbum loadedCats = loaded.getSmartAlbums().get(0);
+        assertEquals(List.of("a", "b", "c"), names(loadedCats));
+
+        // The reloaded index follows changes like the original one
+        Photo d = add(loaded.findAlbum("Trips"), "d", 500, cat);
+        assertEquals(List.of("d", "a", "b", "c"), names(loadedCats));
+        d.removeTag(cat);
+        assertEquals(List.of("a", "b", "c"), names(loadedCats));
+    }
+}
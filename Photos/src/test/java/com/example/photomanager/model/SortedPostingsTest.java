@@ -0,0 +1,80 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedPostingsTest {
+    private static Photo photo(int number) {
+        return new Photo("/photos/" + number + ".jpg");
+    }
+
+    private static List<Photo> range(SortedPostings postings, double low, boolean lowInclusive, double high, boolean highInclusive) {
+        List<Photo> out = new ArrayList<>();
+        postings.range(low, lowInclusive, high, highInclusive, out);
+        return out;
+    }
+
+    @Test
+    void rangeHonoursBounds() {
+        SortedPostings postings = new SortedPostings();
+        Photo[] photos = new Photo[6];
+        for (int i = 5; i >= 0; i--) {
+            photos[i] = photo(i);
+            postings.add(i, photos[i]);
+        }
+
+        assertEquals(List.of(photos[2], photos[3], photos[4]), range(postings, 2, true, 4, true));
+        assertEquals(List.of(photos[3]), range(postings, 2, false, 4, false));
+        assertEquals(List.of(photos[0], photos[1]), range(postings, Double.NaN, false, 2, false));
+        assertEquals(List.of(photos[4], photos[5]), range(postings, 4, true, Double.NaN, false));
+        assertEquals(6, range(postings, Double.NaN, false, Double.NaN, false).size());
+        assertEquals(List.of(), range(postings, 2.5, true, 2.9, true));
+    }
+
+    @Test
+    void removeTakesOnlyThatPhoto() {
+        SortedPostings postings = new SortedPostings();
+        Photo first = photo(1);
+        Photo second = photo(2);
+        postings.add(3, first);
+        postings.add(3, second);
+        postings.add(4, first);
+
+        postings.remove(3, first);
+        assertEquals(List.of(second), range(postings, 3, true, 3, true));
+        assertEquals(List.of(first), range(postings, 4, true, 4, true));
+
+        // Not posted under that key, so nothing is removed
+        postings.remove(5, second);
+        postings.remove(3, second);
+        postings.remove(4, first);
+        assertTrue(postings.isEmpty());
+    }
+
+    @Test
+    void appendedPostingsAreSortedBeforeUse() {
+        SortedPostings postings = new SortedPostings();
+        List<Double> keys = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            double key = random.nextInt(100);
+            keys.add(key);
+            postings.append(key, photo(i));
+        }
+        assertFalse(postings.isEmpty());
+
+        // Adding after a bulk load keeps all postings in order
+        postings.add(50.5, photo(1000));
+        keys.add(50.5);
+        long expected = keys.stream().filter(key -> key >= 20 && key < 51).count();
+        assertEquals(expected, range(postings, 20, true, 51, false).size());
+        assertEquals(keys.size(), range(postings, Double.NaN, false, Double.NaN, false).size());
+    }
+}
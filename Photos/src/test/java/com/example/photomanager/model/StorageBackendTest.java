@@ -0,0 +1,172 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Behaviour every {@link StorageBackend} shares, run against each implementation by a subclass
+ */
+abstract class StorageBackendTest {
+    @TempDir
+    Path directory;
+
+    private final List<StorageBackend> backends = new ArrayList<>();
+
+    /**
+     * Opens a backend on the store in a directory
+     * @param directory Directory holding the store
+     * @return The backend
+     * @throws IOException If the store cannot be opened
+     */
+    abstract StorageBackend create(Path directory) throws IOException;
+
+    /**
+     * Whether backends opened on the same directory share one store, as separate processes would
+     * @return true if they do
+     */
+    boolean sharesStore() {
+        return true;
+    }
+
+    /**
+     * Opens a backend on the test's store; it is closed after the test
+     * @return The backend
+     * @throws IOException If the store cannot be opened
+     */
+    StorageBackend open() throws IOException {
+        StorageBackend backend = create(directory);
+        backends.add(backend);
+        return backend;
+    }
+
+    @AfterEach
+    void closeBackends() {
+        for (StorageBackend backend : backends) {
+            backend.close();
+        }
+    }
+
+    @Test
+    void emptyStoreHasNoUsers() throws IOException {
+        StorageBackend backend = open();
+        assertTrue(backend.loadUsers().isEmpty());
+        assertTrue(backend.findPhotosByTag("alice", "place", "Paris").isEmpty());
+        assertTrue(backend.findPhotosByDate("alice", new Date(0), new Date()).isEmpty());
+    }
+
+    @Test
+    void savedUsersLoadBack() throws IOException {
+        User alice = library("alice");
+        User admin = new User("admin", "secret", true);
+        StorageBackend backend = open();
+        backend.saveUsers(List.of(alice.snapshot(), admin.snapshot()));
+
+        Map<String, User> loaded = byName(backend.loadUsers());
+        assertEquals(Set.of("alice", "admin"), loaded.keySet());
+        assertEquals(describe(alice), describe(loaded.get("alice")));
+        assertEquals("secret", loaded.get("admin").getPassword());
+        assertTrue(loaded.get("admin").isAdmin());
+        assertEquals(List.of("/photos/alice/1.jpg"), backend.findPhotosByTag("alice", "place", "Paris"));
+        assertEquals(List.of("/photos/alice/2.jpg"),
+                backend.findPhotosByDate("alice", new Date(1_500_000_000_000L), new Date(1_700_000_000_000L)));
+    }
+
+    @Test
+    void deletedUserIsRemoved() throws IOException {
+        User alice = library("alice");
+        User bob = library("bob");
+        StorageBackend backend = open();
+        backend.saveUsers(List.of(alice.snapshot(), bob.snapshot()));
+        backend.saveUsers(List.of(alice.snapshot()));
+
+        Map<String, User> loaded = byName(backend.loadUsers());
+        assertEquals(Set.of("alice"), loaded.keySet());
+        assertEquals(describe(alice), describe(loaded.get("alice")));
+        assertTrue(backend.findPhotosByTag("bob", "place", "Paris").isEmpty());
+    }
+
+    @Test
+    void saveReplacesOnlyChangedUsers() throws IOException {
+        assumeTrue(sharesStore());
+        User alice = library("alice");
+        User bob = library("bob");
+        StorageBackend first = open();
+        first.saveUsers(List.of(alice.snapshot(), bob.snapshot()));
+
+        // Another writer changes bob
+        StorageBackend second = open();
+        List<User> others = second.loadUsers();
+        byName(others).get("bob").findAlbum("Holiday").setName("Summer");
+        List<LibrarySnapshot> otherSnapshots = new ArrayList<>();
+        for (User user : others) {
+            otherSnapshots.add(user.snapshot());
+        }
+        second.saveUsers(otherSnapshots);
+
+        // The first writer only changed alice, so its stale copy of bob must not be written back
+        alice.getAlbums().get(1).getPhotos().get(0).setCaption("Eiffel tower");
+        first.saveUsers(List.of(alice.snapshot(), bob.snapshot()));
+
+        Map<String, User> loaded = byName(open().loadUsers());
+        assertEquals(describe(alice), describe(loaded.get("alice")));
+        assertTrue(loaded.get("bob").findAlbum("Summer") != null, "bob's change was overwritten");
+    }
+
+    /**
+     * Builds a user with a tagged album, a second album sharing a photo, and a smart album
+     */
+    static User library(String username) {
+        User user = new User(username, "password", false);
+        Album holiday = user.createAlbum("Holiday");
+        Photo paris = new Photo("/photos/" + username + "/1.jpg", "Paris at night", new Date(1_400_000_000_000L),
+                List.of(new Tag("place", "Paris"), new Tag("rating", "5")));
+        Photo beach = new Photo("/photos/" + username + "/2.jpg", "", new Date(1_600_000_000_000L),
+                List.of(new Tag("place", "Nice")));
+        holiday.addPhoto(paris);
+        holiday.addPhoto(beach);
+        user.createAlbum("Favourites").addPhoto(paris);
+        user.createSmartAlbum("Best", "rating >= 4", new Date(1_300_000_000_000L), null);
+        return user;
+    }
+
+    /**
+     * Describes everything a backend stores about a user, so two users can be compared
+     */
+    static List<String> describe(User user) {
+        List<String> lines = new ArrayList<>();
+        lines.add(user.getUsername() + " " + user.getPassword() + " " + user.isAdmin());
+        for (Album album : user.getAlbums()) {
+            lines.add("album " + album.getName());
+            for (Photo photo : album.getPhotos()) {
+                lines.add("  " + photo.getPath() + " '" + photo.getCaption() + "' " + photo.getDateTaken().getTime()
+                        + " " + photo.getTags());
+            }
+        }
+        for (SmartAlbum album : user.smartAlbums()) {
+            lines.add("smart " + album.getName() + " " + album.getQuery() + " " + album.getStartDate() + " " + album.getEndDate());
+        }
+        return lines;
+    }
+
+    static Map<String, User> byName(List<User> users) {
+        Map<String, User> byName = new HashMap<>();
+        for (User user : users) {
+            byName.put(user.getUsername(), user);
+        }
+        return byName;
+    }
+}
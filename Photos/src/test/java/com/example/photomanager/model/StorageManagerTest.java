@@ -0,0 +1,73 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageManagerTest {
+    /**
+     * In-memory backend recording every write; while a gate is set, the next write waits for it
+     */
+    private static final class RecordingBackend extends InMemoryBackend {
+        final List<List<LibrarySnapshot>> writes = new ArrayList<>();
+        volatile CountDownLatch writing;
+        volatile CountDownLatch gate;
+
+        @Override
+        public void saveUsers(List<LibrarySnapshot> users) {
+            CountDownLatch held = gate;
+            if (held != null) {
+                gate = null;
+                writing.countDown();
+                try {
+                    held.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (writes) {
+                writes.add(users);
+            }
+            super.saveUsers(users);
+        }
+    }
+
+    @Test
+    void savesQueuedBehindAWriteCollapseIntoOne() throws Exception {
+        RecordingBackend backend = new RecordingBackend();
+        StorageManager storage = new StorageManager(backend);
+        StorageManager.flush();
+        backend.writes.clear();
+
+        // Hold the writer inside the first save, so the next ones queue up behind it
+        CountDownLatch gate = new CountDownLatch(1);
+        backend.writing = new CountDownLatch(1);
+        backend.gate = gate;
+        User alice = storage.createUser("alice", "password");
+        assertTrue(backend.writing.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 5; i++) {
+            alice.createAlbum("Album " + i);
+            storage.saveUsers();
+        }
+        gate.countDown();
+        StorageManager.flush();
+
+        assertEquals(2, backend.writes.size());
+        // The single coalesced write holds the state after the last save
+        LibrarySnapshot written = null;
+        for (LibrarySnapshot snapshot : backend.writes.get(1)) {
+            if (snapshot.getUsername().equals("alice")) {
+                written = snapshot;
+            }
+        }
+        assertEquals(alice.snapshot(), written);
+        assertTrue(backend.loadUsers().stream().anyMatch(user -> user.findAlbum("Album 4") != null));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TagCooccurrenceTest {
+    private static final Tag BEACH = new Tag("place", "beach");
+    private static final Tag SEA = new Tag("subject", "sea");
+    private static final Tag SUNSET = new Tag("subject", "sunset");
+    private static final Tag BOB = new Tag("person", "Bob");
+    private static final Tag FAVOURITE = new Tag("rating", "favourite");
+
+    private User user;
+    private Album album;
+    private Photo sunsetBeach;
+    private Photo favouriteSunset;
+    private TagCooccurrence cooccurrence;
+
+    @BeforeEach
+    void createLibrary() {
+        user = new User("alice", "password", false);
+        album = user.createAlbum("All");
+        add("0", BEACH, SEA);
+        add("1", BEACH, SEA, FAVOURITE);
+        sunsetBeach = add("2", BEACH, SEA, SUNSET);
+        favouriteSunset = add("3", BEACH, SUNSET, FAVOURITE);
+        add("4", BOB, FAVOURITE, GeoIndex.gpsTag(1, 2));
+        cooccurrence = new TagCooccurrence(user);
+    }
+
+    @AfterEach
+    void closeCounts() {
+        cooccurrence.close();
+    }
+
+    private Photo add(String name, Tag... tags) {
+        Photo photo = new Photo("/photos/" + name + ".jpg", "", new Date(0), List.of(tags));
+        album.addPhoto(photo);
+        return photo;
+    }
+
+    @Test
+    void countsPairsOfTags() {
+        assertEquals(4, cooccurrence.count(BEACH, BEACH));
+        assertEquals(3, cooccurrence.count(BEACH, SEA));
+        assertEquals(3, cooccurrence.count(SEA, BEACH));
+        assertEquals(0, cooccurrence.count(SEA, BOB));
+        assertEquals(0, cooccurrence.count(BOB, GeoIndex.gpsTag(1, 2)));
+    }
+
+    @Test
+    void suggestsTagsSeenWithTheGivenOnes() {
+        // Sunset and favourite are each seen on half the beach photos; favourite is used more overall
+        assertEquals(List.of(SEA, FAVOURITE, SUNSET), cooccurrence.suggest(List.of(BEACH), null, 3));
+        assertEquals(List.of(SEA, SUNSET), cooccurrence.suggest(List.of(BEACH), "SUBJECT", 5));
+        assertEquals(List.of(BEACH, FAVOURITE), cooccurrence.suggest(List.of(SEA, SUNSET), null, 2));
+        // Nothing is seen with an unknown tag, so the most used tags are suggested
+        assertEquals(List.of(BEACH), cooccurrence.suggest(List.of(new Tag("x", "y")), null, 1));
+    }
+
+    @Test
+    void editsUpdateCounts() {
+        Photo photo = add("5", BEACH, BOB);
+        assertEquals(1, cooccurrence.count(BEACH, BOB));
+
+        photo.addTag(SEA);
+        assertEquals(4, cooccurrence.count(BEACH, SEA));
+        assertEquals(1, cooccurrence.count(BOB, SEA));
+
+        photo.removeTag(BEACH);
+        assertEquals(0, cooccurrence.count(BEACH, BOB));
+        assertEquals(3, cooccurrence.count(BEACH, SEA));
+
+        // Still in another album, so still counted
+        user.createAlbum("Best").addPhoto(photo);
+        album.removePhoto(photo);
+        assertEquals(1, cooccurrence.count(BOB, SEA));
+
+        user.findAlbum("Best").removePhoto(photo);
+        assertEquals(0, cooccurrence.count(BOB, SEA));
+        assertEquals(1, cooccurrence.count(BOB, BOB));
+    }
+
+    @Test
+    void relatedPhotosShareRareTags() {
+        // Sharing the rarer sunset outweighs sharing sea
+        assertEquals(List.of(favouriteSunset), cooccurrence.relatedTo(sunsetBeach, 1));
+        // The photo of Bob shares no tag with it
+        assertEquals(3, cooccurrence.relatedTo(sunsetBeach, 10).size());
+        assertEquals(List.of(), cooccurrence.relatedTo(new Photo("/photos/other.jpg"), 2));
+    }
+}
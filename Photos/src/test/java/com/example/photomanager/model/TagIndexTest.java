@@ -0,0 +1,87 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TagIndexTest {
+    private TagSchema schema;
+    private User user;
+    private Album album;
+    private TagIndex index;
+
+    @BeforeEach
+    void createLibrary() {
+        schema = new TagSchema(null);
+        user = new User("alice", "password", false);
+        album = user.createAlbum("All");
+        index = new TagIndex(user, schema);
+    }
+
+    @AfterEach
+    void closeIndex() {
+        index.close();
+    }
+
+    private Photo add(String name, Tag... tags) {
+        Photo photo = new Photo("/photos/" + name + ".jpg", "", new Date(0), List.of(tags));
+        album.addPhoto(photo);
+        return photo;
+    }
+
+    @Test
+    void declaringTypeReordersExistingValues() {
+        Photo nine = add("nine", new Tag("iso", "9"));
+        Photo ten = add("ten", new Tag("iso", "10"));
+        Photo hundred = add("hundred", new Tag("iso", "100"));
+
+        // Untyped values compare as strings, so "10" and "100" sort before "9"
+        assertEquals(Set.of(nine), index.range("iso", "50", true, null, false));
+
+        schema.declare("ISO", TagType.NUMBER, List.of());
+        assertEquals(Set.of(hundred), index.range("iso", "50", true, null, false));
+        assertEquals(Set.of(nine, ten), index.range("Iso", null, false, "10", true));
+        assertEquals(Set.of(nine), index.range("iso", null, false, "10", false));
+    }
+
+    @Test
+    void enumAndDateRanges() {
+        schema.declare("quality", TagType.ENUM, List.of("low", "medium", "high"));
+        schema.declare("taken", TagType.DATE, List.of());
+        Photo low = add("low", new Tag("quality", "low"), new Tag("taken", "2019-12-31"));
+        Photo high = add("high", new Tag("quality", "High"), new Tag("taken", "2020-02-01"));
+        add("other", new Tag("quality", "unknown"));
+
+        assertEquals(Set.of(high), index.range("quality", "medium", true, null, false));
+        assertEquals(Set.of(low, high), index.range("quality", "low", true, "high", true));
+        assertEquals(Set.of(high), index.range("taken", "2020-01-01", true, null, false));
+        assertEquals(Set.of(low), index.range("taken", null, false, "2020-01-01", false));
+    }
+
+    @Test
+    void editsKeepTypedPostingsCurrent() {
+        schema.declare("rating", TagType.NUMBER, List.of());
+        Photo photo = add("photo", new Tag("rating", "2"));
+        assertEquals(Set.of(), index.range("rating", "4", true, null, false));
+
+        photo.removeTag(new Tag("rating", "2"));
+        photo.addTag(new Tag("rating", "5"));
+        assertEquals(Set.of(photo), index.range("rating", "4", true, null, false));
+
+        // Still in another album, so still in the library
+        user.createAlbum("Best").addPhoto(photo);
+        album.removePhoto(photo);
+        assertEquals(Set.of(photo), index.range("rating", "4", true, null, false));
+        assertEquals(1, index.photoCount());
+
+        user.findAlbum("Best").removePhoto(photo);
+        assertEquals(Set.of(), index.range("rating", null, false, null, false));
+        assertEquals(0, index.photoCount());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagQueryTest {
+    @Test
+    void equivalentSpellingsNormalizeAlike() {
+        assertEquals("rating >= 4 AND place = Paris", TagQuery.parse("  rating>=4   and place =Paris ").normalized());
+        assertEquals("iso BETWEEN 100 AND 400 OR iso > 3200", TagQuery.parse("iso between 100 and 400 or iso > 3200").normalized());
+        assertEquals("place = New York", TagQuery.parse("place = New York").normalized());
+        assertEquals(Set.of("rating", "place"), TagQuery.parse("Rating >= 4 AND PLACE = Paris").tagNames());
+    }
+
+    @Test
+    void invalidQueriesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TagQuery.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("rating"));
+        assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("rating >= 4 and"));
+        assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("rating >= 4 or "));
+        assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("= Paris"));
+    }
+
+    @Test
+    void evaluateAgreesWithMatches() {
+        TagSchema schema = new TagSchema(null);
+        schema.declare("rating", TagType.NUMBER, List.of());
+        schema.declare("taken", TagType.DATE, List.of());
+        User user = new User("alice", "password", false);
+        Album album = user.createAlbum("All");
+        String[] places = {"Paris", "Nice", "New York", "Newcastle"};
+        for (int i = 0; i < 40; i++) {
+            album.addPhoto(new Photo("/photos/" + i + ".jpg", "", new Date(i * 86_400_000L), List.of(
+                    new Tag("rating", Integer.toString(i % 6)),
+                    new Tag("taken", "2020-01-" + (10 + i % 20)),
+                    new Tag("place", places[i % places.length]))));
+        }
+        TagIndex index = new TagIndex(user, schema);
+
+        String[] queries = {
+                "rating >= 4", "rating > 4", "rating < 2", "rating <= 2", "rating between 2 and 3",
+                "rating = 5", "place = Paris", "place = New*", "place = N?ce",
+                "taken between 2020-01-12 and 2020-01-15", "place < Nice",
+                "rating >= 4 and place = Paris", "rating = 0 or place = Nice",
+                "rating >= 3 and taken < 2020-01-20 or place = New York",
+        };
+        for (String text : queries) {
+            TagQuery query = TagQuery.parse(text);
+            Set<Photo> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Photo photo : album.getPhotos()) {
+                if (query.matches(photo, schema)) {
+                    expected.add(photo);
+                }
+            }
+            assertEquals(expected.size(), query.evaluate(index).size(), text);
+            assertTrue(expected.containsAll(query.evaluate(index)), text);
+        }
+        assertEquals(12, TagQuery.parse("rating >= 4").evaluate(index).size());
+        index.close();
+    }
+
+    @Test
+    void invalidTypedBoundIsRejected() {
+        TagSchema schema = new TagSchema(null);
+        schema.declare("rating", TagType.NUMBER, List.of());
+        User user = new User("alice", "password", false);
+        TagIndex index = new TagIndex(user, schema);
+        assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("rating >= high").evaluate(index));
+        index.close();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TagRewriteTest {
+    private User user;
+    private Album trips;
+
+    @BeforeEach
+    void createLibrary() {
+        user = new User("alice", "password", false);
+        trips = user.createAlbum("Trips");
+    }
+
+    private Photo add(String name, Tag... tags) {
+        Photo photo = new Photo("/photos/" + name + ".jpg", "", new Date(0), new ArrayList<>(List.of(tags)));
+        trips.addPhoto(photo);
+        return photo;
+    }
+
+    @Test
+    void valuesAreRenamedOnEveryPhoto() {
+        Photo a = add("a", new Tag("location", "NYC"), new Tag("rating", "5"));
+        Photo b = add("b", new Tag("location", "NYC"));
+        Photo c = add("c", new Tag("location", "Paris"));
+        user.createAlbum("Favourites").addPhoto(a);
+
+        TagRewrite rewrite = new TagRewrite("location", "NYC", null, "New York", false);
+        assertEquals(2, rewrite.preview(user));
+        assertEquals(List.of(new Tag("location", "NYC"), new Tag("rating", "5")), a.getTags());
+
+        assertEquals(2, rewrite.apply(user));
+        assertEquals(List.of(new Tag("location", "New York"), new Tag("rating", "5")), a.getTags());
+        assertEquals(List.of(new Tag("location", "New York")), b.getTags());
+        assertEquals(List.of(new Tag("location", "Paris")), c.getTags());
+        // One canonical instance per resulting tag
+        assertSame(a.getTags().get(0), b.getTags().get(0));
+        assertEquals(0, rewrite.preview(user));
+    }
+
+    @Test
+    void namesAreRenamedKeepingTheirValues() {
+        Photo a = add("a", new Tag("place", "Paris"));
+        Photo b = add("b", new Tag("place", "Nice"), new Tag("rating", "4"));
+
+        assertEquals(2, new TagRewrite("place", null, "location", null, false).apply(user));
+        assertEquals(List.of(new Tag("location", "Paris")), a.getTags());
+        assertEquals(List.of(new Tag("location", "Nice"), new Tag("rating", "4")), b.getTags());
+        assertEquals(List.of(a), user.getTagIndex().photosWith(new Tag("location", "Paris")));
+    }
+
+    @Test
+    void spellingsAreMergedIgnoringCase() {
+        Photo a = add("a", new Tag("Location", "nyc"));
+        Photo b = add("b", new Tag("location", "NYC"));
+        // Already has the target, so the old spelling is only removed
+        Photo c = add("c", new Tag("location", "nyc"), new Tag("rating", "3"), new Tag("location", "New York"));
+
+        TagRewrite exact = new TagRewrite("location", "NYC", "location", "New York", false);
+        assertEquals(1, exact.preview(user));
+
+        assertEquals(3, new TagRewrite("location", "nyc", "location", "New York", true).apply(user));
+        assertEquals(List.of(new Tag("location", "New York")), a.getTags());
+        assertEquals(List.of(new Tag("location", "New York")), b.getTags());
+        assertEquals(List.of(new Tag("rating", "3"), new Tag("location", "New York")), c.getTags());
+    }
+
+    @Test
+    void rewritesAreDeliveredAsOneTransaction() {
+        add("a", new Tag("location", "NYC"));
+        add("b", new Tag("location", "NYC"));
+        add("c", new Tag("location", "nyc"));
+        List<List<ModelChange>> deliveries = new ArrayList<>();
+        ModelChangeListener listener = deliveries::add;
+        ModelChanges.subscribe(user, listener);
+        try {
+            new TagRewrite("location", "NYC", null, "New York", true).apply(user);
+        } finally {
+            ModelChanges.unsubscribe(user, listener);
+        }
+
+        assertEquals(1, deliveries.size());
+        // A removal and an addition per photo
+        assertEquals(6, deliveries.get(0).size());
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.photomanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorIndexTest {
+    private static final int DIMENSIONS = 24;
+
+    private static float[][] randomVectors(int count, Random random) {
+        float[][] vectors = new float[count][DIMENSIONS];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = random.nextFloat();
+            }
+        }
+        return vectors;
+    }
+
+    private static float distance(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += (a[i] - b[i]) * (a[i] - b[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * Nodes nearest to a query by exhaustive search, leaving out removed ones
+     */
+    private static Set<Integer> exact(float[][] vectors, boolean[] removed, float[] query, int count) {
+        Integer[] order = new Integer[vectors.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(distance(vectors[a], query), distance(vectors[b], query)));
+        Set<Integer> nearest = new HashSet<>();
+        for (int i = 0; i < order.length && nearest.size() < count; i++) {
+            if (!removed[order[i]]) {
+                nearest.add(order[i]);
+            }
+        }
+        return nearest;
+    }
+
+    @Test
+    void searchFindsMostTrueNeighbours() {
+        Random random = new Random(42);
+        float[][] vectors = randomVectors(3000, random);
+        VectorIndex index = new VectorIndex(DIMENSIONS, 16, 100, 1);
+        for (int i = 0; i < vectors.length; i++) {
+            assertEquals(i, index.add(vectors[i]));
+        }
+        assertEquals(3000, index.size());
+
+        boolean[] removed = new boolean[vectors.length];
+        int found = 0;
+        int wanted = 0;
+        for (float[] query : randomVectors(100, random)) {
+            long[] results = index.search(query, 10, 64);
+            assertEquals(10, results.length);
+            Set<Integer> truth = exact(vectors, removed, query, 10);
+            for (int i = 0; i < results.length; i++) {
+                int node = VectorIndex.nodeOf(results[i]);
+                assertEquals(distance(vectors[node], query), VectorIndex.distanceOf(results[i]), 1e-4);
+                if (i > 0) {
+                    assertTrue(VectorIndex.distanceOf(results[i - 1]) <= VectorIndex.distanceOf(results[i]));
+                }
+                if (truth.contains(node)) {
+                    found++;
+                }
+            }
+            wanted += truth.size();
+        }
+        double recall = (double) found / wanted;
+        assertTrue(recall >= 0.9, "recall " + recall);
+    }
+
+    @Test
+    void removedNodesAreLeftOut() {
+        Random random = new Random(5);
+        float[][] vectors = randomVectors(1000, random);
+        VectorIndex index = new VectorIndex(DIMENSIONS, 8, 64, 2);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+        boolean[] removed = new boolean[vectors.length];
+        for (int node = 0; node < vectors.length; node += 2) {
+            index.remove(node);
+            index.remove(node);
+            removed[node] = true;
+        }
+        assertEquals(500, index.deletedCount());
+
+        int found = 0;
+        for (int node = 0; node < 100; node++) {
+            long[] results = index.search(vectors[node], 5, 64);
+            assertEquals(5, results.length);
+            Set<Integer> truth = exact(vectors, removed, vectors[node], 5);
+            for (long result : results) {
+                assertFalse(removed[VectorIndex.nodeOf(result)]);
+                if (truth.contains(VectorIndex.nodeOf(result))) {
+                    found++;
+                }
+            }
+            if (!removed[node]) {
+                // A live node is its own nearest neighbour
+                assertEquals(node, VectorIndex.nodeOf(results[0]));
+            }
+        }
+        assertTrue(found >= 0.9 * 500, "recall " + found / 500.0);
+    }
+
+    @Test
+    void emptyAndFullyRemovedIndexesFindNothing() {
+        VectorIndex index = new VectorIndex(DIMENSIONS, 8, 64, 3);
+        float[] query = new float[DIMENSIONS];
+        assertEquals(0, index.search(query, 5, 64).length);
+        index.add(query);
+        assertEquals(1, index.search(query, 5, 64).length);
+        index.remove(0);
+        assertEquals(0, index.search(query, 5, 64).length);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.photomanager.replication;
+
+import com.example.photomanager.model.InMemoryBackend;
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicatingBackendTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopeningAnUnchangedStoreJournalsNothing() throws IOException {
+        InMemoryBackend primary = new InMemoryBackend();
+        File journalFile = directory.resolve("journal").toFile();
+        ReplicatingBackend backend = new ReplicatingBackend(primary, new ChangeJournal(journalFile));
+        backend.loadUsers();
+        backend.saveUsers(snapshots(user("alice", "Trips"), user("bob", "Pets")));
+        backend.getJournal().close();
+
+        ReplicatingBackend reopened = new ReplicatingBackend(primary, new ChangeJournal(journalFile));
+        reopened.loadUsers();
+        assertEquals(2, reopened.getJournal().getLastSequence());
+        reopened.getJournal().close();
+    }
+
+    @Test
+    void savesThatMissedTheJournalAreJournaledOnOpen() throws IOException {
+        InMemoryBackend primary = new InMemoryBackend();
+        File journalFile = directory.resolve("journal").toFile();
+        ReplicatingBackend backend = new ReplicatingBackend(primary, new ChangeJournal(journalFile));
+        backend.loadUsers();
+        backend.saveUsers(snapshots(user("alice", "Trips"), user("bob", "Pets")));
+        backend.getJournal().close();
+
+        // The process died after writing the primary but before appending to the journal:
+        // alice changed, bob was deleted and carol was created
+        primary.saveUsers(snapshots(user("alice", "Trips", "Family"), user("carol", "Work")));
+
+        ChangeJournal journal = new ChangeJournal(journalFile);
+        new ReplicatingBackend(primary, journal).loadUsers();
+        assertEquals(5, journal.getLastSequence());
+        assertTrue(journal.getLatest("bob").isDeletion());
+        assertNotNull(journal.getLatest("alice").toUser().findAlbum("Family"));
+        assertNotNull(journal.getLatest("carol").toUser().findAlbum("Work"));
+        journal.close();
+    }
+
+    private static User user(String username, String... albums) {
+        User user = new User(username, username, false);
+        for (String album : albums) {
+            user.createAlbum(album);
+        }
+        return user;
+    }
+
+    private static List<LibrarySnapshot> snapshots(User... users) {
+        List<LibrarySnapshot> snapshots = new ArrayList<>();
+        for (User user : users) {
+            snapshots.add(user.snapshot());
+        }
+        return snapshots;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.photomanager.replication;
+
+import com.example.photomanager.model.InMemoryBackend;
+import com.example.photomanager.model.LibrarySnapshot;
+import com.example.photomanager.model.SerializedFileBackend;
+import com.example.photomanager.model.StorageBackend;
+import com.example.photomanager.model.StorageManager;
+import com.example.photomanager.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs a ReplicationServer and FollowerStores against each other over loopback sockets.
+ */
+class ReplicationTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    private File journalFile;
+    private File followerDirectory;
+    private ChangeJournal journal;
+    private InMemoryBackend primary;
+    private ReplicatingBackend leader;
+    private ReplicationServer server;
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void startLeader() throws IOException {
+        journalFile = directory.resolve("changes.journal").toFile();
+        followerDirectory = directory.resolve("follower").toFile();
+        journal = new ChangeJournal(journalFile);
+        primary = new InMemoryBackend();
+        leader = new ReplicatingBackend(primary, journal);
+        leader.loadUsers();
+        server = new ReplicationServer(journal, 0);
+    }
+
+    @AfterEach
+    void stopLeader() throws IOException {
+        server.close();
+        journal.close();
+    }
+
+    @Test
+    void changesStreamToARunningFollower() throws IOException {
+        try (FollowerStore follower = new FollowerStore("127.0.0.1", server.getPort(), followerDirectory)) {
+            User alice = save(new User("alice", "alice", false));
+            alice.createAlbum("Trips");
+            save(new User("bob", "bob", false));
+            awaitCaughtUp(follower);
+        }
+
+        List<User> replica = loadReplica();
+        assertEquals(2, replica.size());
+        assertNotNull(find(replica, "alice").findAlbum("Trips"));
+    }
+
+    @Test
+    void restartedFollowerCatchesUpFromItsPosition() throws IOException {
+        User alice = save(new User("alice", "alice", false));
+        long stoppedAt;
+        try (FollowerStore follower = new FollowerStore("127.0.0.1", server.getPort(), followerDirectory)) {
+            awaitCaughtUp(follower);
+            stoppedAt = follower.getAppliedSequence();
+        }
+
+        // Changes made while the follower is down
+        alice.createAlbum("Family");
+        save(new User("bob", "bob", false));
+        users.remove(alice);
+        save();
+
+        try (FollowerStore follower = new FollowerStore("127.0.0.1", server.getPort(), followerDirectory)) {
+            assertEquals(stoppedAt, follower.getAppliedSequence());
+            awaitCaughtUp(follower);
+        }
+
+        List<User> replica = loadReplica();
+        assertNull(find(replica, "alice"));
+        assertNotNull(find(replica, "bob"));
+    }
+
+    @Test
+    void followerBehindACompactedJournalReceivesTheLatestState() throws IOException, InterruptedException {
+        User alice = save(new User("alice", "alice", false));
+        try (FollowerStore follower = new FollowerStore("127.0.0.1", server.getPort(), followerDirectory)) {
+            awaitCaughtUp(follower);
+        }
+        for (int i = 0; i < 5; i++) {
+            alice.createAlbum("Album " + i);
+            save();
+        }
+        save(new User("bob", "bob", false));
+
+        // Restart the leader; reopening compacts the journal to the latest record per user
+        server.close();
+        journal.close();
+        journal = new ChangeJournal(journalFile);
+        leader = new ReplicatingBackend(primary, journal);
+        leader.loadUsers();
+        assertEquals(2, journal.readAfter(0, 0).size());
+        server = new ReplicationServer(journal, 0);
+
+        try (FollowerStore follower = new FollowerStore("127.0.0.1", server.getPort(), followerDirectory)) {
+            awaitCaughtUp(follower);
+        }
+
+        List<User> replica = loadReplica();
+        assertNotNull(find(replica, "alice").findAlbum("Album 4"));
+        assertNotNull(find(replica, "bob"));
+    }
+
+    @Test
+    void promotedFollowerServesAsTheNewPrimary() throws IOException, InterruptedException {
+        User alice = save(new User("alice", "alice", false));
+        alice.createAlbum("Trips");
+        save();
+
+        FollowerStore follower = new FollowerStore("127.0.0.1", server.getPort(), followerDirectory);
+        awaitCaughtUp(follower);
+        StorageBackend promoted = follower.promote();
+
+        // Changes after the promotion no longer reach the promoted store
+        save(new User("mallory", "mallory", false));
+
+        StorageManager storageManager = new StorageManager(promoted);
+        assertNull(storageManager.findUser("mallory"));
+        storageManager.findUser("alice").createAlbum("Since promotion");
+        storageManager.saveUsers();
+        StorageManager.flush();
+        promoted.close();
+
+        assertNotNull(find(loadReplica(), "alice").findAlbum("Since promotion"));
+    }
+
+    private User save(User user) throws IOException {
+        users.add(user);
+        save();
+        return user;
+    }
+
+    private void save() throws IOException {
+        List<LibrarySnapshot> snapshots = new ArrayList<>();
+        for (User user : users) {
+            snapshots.add(user.snapshot());
+        }
+        leader.saveUsers(snapshots);
+    }
+
+    private void awaitCaughtUp(FollowerStore follower) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (follower.getAppliedSequence() < journal.getLastSequence()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Follower stuck at " + follower.getAppliedSequence() + " of " + journal.getLastSequence());
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+
+    private List<User> loadReplica() throws IOException {
+        return new SerializedFileBackend(new File(followerDirectory, "users.dat")).loadUsers();
+    }
+
+    private static User find(List<User> users, String username) {
+        for (User user : users) {
+            if (user.getUsername().equals(username)) {
+                return user;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.photomanager.service;
+
+import com.example.photomanager.model.InMemoryBackend;
+import com.example.photomanager.model.StorageManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HttpApiServerTest {
+    private HttpApiServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new HttpApiServer(new LibraryService(new StorageManager(new InMemoryBackend())), 0, 2);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void badlyEncodedParametersAreRejected() throws IOException {
+        assertEquals(400, post("/api/login", "username=stock&password=%zz"));
+    }
+
+    @Test
+    void wellFormedLoginSucceeds() throws IOException {
+        assertEquals(200, post("/api/login", "username=stock&password=stock"));
+    }
+
+    private int post(String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        try (OutputStream os = connection.getOutputStream()) {
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.photomanager.service;
+
+import com.example.photomanager.model.InMemoryBackend;
+import com.example.photomanager.model.PhotoSnapshot;
+import com.example.photomanager.model.StorageManager;
+import com.example.photomanager.model.Tag;
+import com.example.photomanager.model.TagSchema;
+import com.example.photomanager.model.TagType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LibraryServiceTest {
+    @AfterEach
+    void undeclareRating() {
+        TagSchema.getDefault().declare("rating", TagType.TEXT, List.of());
+    }
+
+    @Test
+    void tagValuesThatDoNotFitTheDeclaredTypeAreRejected() {
+        LibraryService service = serviceWithPhoto();
+        String token = service.login("alice", "alice");
+        TagSchema.getDefault().declare("rating", TagType.NUMBER, List.of());
+
+        ServiceException e = assertThrows(ServiceException.class,
+                () -> service.addTag(token, "/photos/a.jpg", "rating", "abc"));
+        assertEquals(400, e.getStatus());
+        service.addTag(token, "/photos/a.jpg", "rating", "4");
+        assertEquals(List.of(new Tag("rating", "4")), photo(service, token).getTags());
+    }
+
+    @Test
+    void rewritesIntoValuesThatDoNotFitTheDeclaredTypeChangeNothing() {
+        LibraryService service = serviceWithPhoto();
+        String token = service.login("alice", "alice");
+        service.addTag(token, "/photos/a.jpg", "stars", "4");
+        service.addTag(token, "/photos/a.jpg", "rating", "5");
+        TagSchema.getDefault().declare("rating", TagType.NUMBER, List.of());
+
+        for (boolean preview : new boolean[] {true, false}) {
+            ServiceException renamed = assertThrows(ServiceException.class,
+                    () -> service.rewriteTags(token, "rating", null, null, "abc", false, preview));
+            assertEquals(400, renamed.getStatus());
+        }
+        ServiceException merged = assertThrows(ServiceException.class,
+                () -> service.rewriteTags(token, "stars", "4", "rating", "four", false, false));
+        assertEquals(400, merged.getStatus());
+        assertEquals(List.of(new Tag("stars", "4"), new Tag("rating", "5")), photo(service, token).getTags());
+
+        assertEquals(1, service.rewriteTags(token, "stars", null, "rating", null, false, false));
+        assertEquals(List.of(new Tag("rating", "4"), new Tag("rating", "5")), photo(service, token).getTags());
+    }
+
+    private static LibraryService serviceWithPhoto() {
+        StorageManager storageManager = new StorageManager(new InMemoryBackend());
+        storageManager.createUser("alice", "alice").createAlbum("Trips");
+        LibraryService service = new LibraryService(storageManager);
+        String token = service.login("alice", "alice");
+        service.addPhoto(token, "Trips", "/photos/a.jpg");
+        return service;
+    }
+
+    private static PhotoSnapshot photo(LibraryService service, String token) {
+        return service.getAlbum(token, "Trips").getPhotos().get(0);
+    }
+    @Test
+    void idleSessionsExpire() throws InterruptedException {
+        LibraryService service = new LibraryService(new StorageManager(new InMemoryBackend()), 50);
+        String token = service.login("stock", "stock");
+        service.snapshot(token);
+
+        Thread.sleep(150);
+        ServiceException e = assertThrows(ServiceException.class, () -> service.snapshot(token));
+        assertEquals(401, e.getStatus());
+    }
+
+    @Test
+    void usedSessionsStayOpen() throws InterruptedException {
+        LibraryService service = new LibraryService(new StorageManager(new InMemoryBackend()), 500);
+        String token = service.login("stock", "stock");
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(150);
+            service.snapshot(token);
+        }
+    }
+
+    @Test
+    void loggedOutSessionsAreClosed() {
+        LibraryService service = new LibraryService(new StorageManager(new InMemoryBackend()));
+        String token = service.login("stock", "stock");
+        service.logout(token);
+
+        ServiceException e = assertThrows(ServiceException.class, () -> service.snapshot(token));
+        assertEquals(401, e.getStatus());
+    }
+}